@@ -0,0 +1,33 @@
+package com.tcd.asc.damn.common.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// GTFS calendar_dates.txt: a service added (exception type 1) or removed (2) on one date
+@Entity
+@Table(name = "calendar_date")
+@Data
+@IdClass(CalendarDate.CalendarDateId.class)
+public class CalendarDate {
+    public static final int SERVICE_ADDED = 1;
+    public static final int SERVICE_REMOVED = 2;
+
+    @Id
+    private String serviceId;
+    @Id
+    private LocalDate date;
+    private int exceptionType;
+
+    // Composite key class
+    @Data
+    public static class CalendarDateId implements Serializable {
+        private String serviceId;
+        private LocalDate date;
+    }
+}
@@ -0,0 +1,41 @@
+package com.tcd.asc.damn.common.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// GTFS calendar.txt: the weekdays a service runs on within a date range
+@Entity
+@Table(name = "calendar")
+@Data
+public class ServiceCalendar {
+    @Id
+    private String serviceId;
+    private int monday;
+    private int tuesday;
+    private int wednesday;
+    private int thursday;
+    private int friday;
+    private int saturday;
+    private int sunday;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    public boolean runsOn(LocalDate date) {
+        if ((startDate != null && date.isBefore(startDate)) || (endDate != null && date.isAfter(endDate))) {
+            return false;
+        }
+        return switch (date.getDayOfWeek()) {
+            case MONDAY -> monday == 1;
+            case TUESDAY -> tuesday == 1;
+            case WEDNESDAY -> wednesday == 1;
+            case THURSDAY -> thursday == 1;
+            case FRIDAY -> friday == 1;
+            case SATURDAY -> saturday == 1;
+            case SUNDAY -> sunday == 1;
+        };
+    }
+}
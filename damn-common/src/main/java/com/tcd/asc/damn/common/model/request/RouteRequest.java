@@ -3,8 +3,11 @@ package com.tcd.asc.damn.common.model.request;
 import com.tcd.asc.damn.common.model.dto.Coordinates;
 import lombok.Data;
 
+import java.time.LocalTime;
+
 @Data
 public class RouteRequest {
     private Coordinates startLocation;
     private Coordinates endLocation;
-}
\ No newline at end of file
+    private LocalTime departureTime; // Optional; when set, routes follow the timetable from this time
+}
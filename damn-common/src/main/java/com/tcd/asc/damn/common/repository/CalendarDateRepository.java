@@ -0,0 +1,13 @@
+package com.tcd.asc.damn.common.repository;
+
+import com.tcd.asc.damn.common.entity.CalendarDate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CalendarDateRepository extends JpaRepository<CalendarDate, CalendarDate.CalendarDateId> {
+    List<CalendarDate> findByDate(LocalDate date);
+}
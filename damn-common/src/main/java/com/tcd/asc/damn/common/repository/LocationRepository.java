@@ -2,11 +2,31 @@ package com.tcd.asc.damn.common.repository;
 
 import com.tcd.asc.damn.common.entity.Location;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Objects;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
     List<Location> findByNameContainingIgnoreCase(String name);
+
+    // Change detector for caches built over the location table; the digest covers the columns search matches and
+    // ranks on, so edits are seen as well as inserts and deletes
+    @Query(value = "SELECT COUNT(*) AS \"locationCount\", " +
+            "COALESCE(md5(string_agg(location_id || ':' || COALESCE(name, '') || ':' || COALESCE(address, '') || ':' " +
+            "|| COALESCE(CAST(rating AS varchar), '') || ':' || latitude || ':' || longitude, ',' ORDER BY location_id)), '') " +
+            "AS \"contentHash\" FROM location", nativeQuery = true)
+    LocationTableFingerprint fingerprint();
+
+    interface LocationTableFingerprint {
+        long getLocationCount();
+        String getContentHash();
+
+        default boolean matches(LocationTableFingerprint other) {
+            return other != null && getLocationCount() == other.getLocationCount()
+                    && Objects.equals(getContentHash(), other.getContentHash());
+        }
+    }
 }
@@ -2,9 +2,22 @@ package com.tcd.asc.damn.common.repository;
 
 import com.tcd.asc.damn.common.entity.LuasRoute;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface
 LuasRouteRepository extends JpaRepository<LuasRoute, Long> {
+
+    // Loads every route with both stations and their locations in one query
+    @Query("SELECT r FROM LuasRoute r JOIN FETCH r.fromStation f JOIN FETCH f.location "
+            + "JOIN FETCH r.toStation t JOIN FETCH t.location")
+    List<LuasRoute> findAllWithStations();
+
+    // Change detector for caches built over the route table; a route replaced one-for-one changes the digest
+    @Query(value = "SELECT COALESCE(md5(string_agg(from_station_id || '>' || to_station_id, ',' " +
+            "ORDER BY from_station_id, to_station_id)), '') FROM luas_route", nativeQuery = true)
+    String contentHash();
 }
@@ -0,0 +1,9 @@
+package com.tcd.asc.damn.common.repository;
+
+import com.tcd.asc.damn.common.entity.ServiceCalendar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ServiceCalendarRepository extends JpaRepository<ServiceCalendar, String> {
+}
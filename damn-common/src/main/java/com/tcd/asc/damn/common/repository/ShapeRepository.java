@@ -1,12 +1,33 @@
 package com.tcd.asc.damn.common.repository;
 
 import com.tcd.asc.damn.common.entity.Shape;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ShapeRepository extends JpaRepository<Shape, Shape.ShapeId> {
     List<Shape> findByShapeId(String shapeId);
+
+    // Coordinates of every shape point, grouped by shape in sequence order, read through a database cursor in
+    // fetch-size chunks; must be consumed and closed inside a transaction, as for the stop time stream
+    @Query("SELECT s.shapeId AS shapeId, s.shapePtLat AS shapePtLat, s.shapePtLon AS shapePtLon " +
+            "FROM Shape s ORDER BY s.shapeId, s.shapePtSequence")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<ShapePoint> streamAllShapePoints();
+
+    interface ShapePoint {
+        String getShapeId();
+        double getShapePtLat();
+        double getShapePtLon();
+    }
 }
\ No newline at end of file
@@ -4,12 +4,44 @@ package com.tcd.asc.damn.common.repository;
 import com.tcd.asc.damn.common.constants.StationType;
 import com.tcd.asc.damn.common.entity.Station;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Objects;
 
 @Repository
 public interface
 StationRepository extends JpaRepository<Station, Long> {
     List<Station> findByType(StationType type);
+
+    // Loads every station with its location in one query instead of one location select per station
+    @Query("SELECT s FROM Station s JOIN FETCH s.location")
+    List<Station> findAllWithLocation();
+
+    // As findByType, with each station's location fetched in the same query
+    @Query("SELECT s FROM Station s LEFT JOIN FETCH s.location WHERE s.type = :type")
+    List<Station> findByTypeWithLocation(@Param("type") StationType type);
+
+    // Cheap change detector for caches built over the station table; the digest covers ids, names, types, lines
+    // and coordinates, so renames and type changes are seen as well as moves
+    @Query(value = "SELECT COUNT(*) AS \"stationCount\", COALESCE(SUM(l.latitude), 0) AS \"latSum\", " +
+            "COALESCE(SUM(l.longitude), 0) AS \"lonSum\", " +
+            "COALESCE(md5(string_agg(s.station_id || ':' || s.name || ':' || s.type || ':' || COALESCE(s.route_name, '') " +
+            "|| ':' || l.latitude || ':' || l.longitude, ',' ORDER BY s.station_id)), '') AS \"contentHash\" " +
+            "FROM stations s JOIN location l ON l.location_id = s.location_id", nativeQuery = true)
+    StationTableFingerprint fingerprint();
+
+    interface StationTableFingerprint {
+        long getStationCount();
+        double getLatSum();
+        double getLonSum();
+        String getContentHash();
+
+        default boolean matches(StationTableFingerprint other) {
+            return other != null && getStationCount() == other.getStationCount() && getLatSum() == other.getLatSum()
+                    && getLonSum() == other.getLonSum() && Objects.equals(getContentHash(), other.getContentHash());
+        }
+    }
 }
@@ -2,11 +2,33 @@ package com.tcd.asc.damn.common.repository;
 
 import com.tcd.asc.damn.common.entity.Stop;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Objects;
 
 @Repository
 public interface StopRepository extends JpaRepository<Stop, String> {
     List<Stop> findAll(); // For finding nearest stops
-}
\ No newline at end of file
+
+    // Cheap change detector for caches built over the stop table; the digest covers ids and names, which the
+    // coordinate sums cannot see
+    @Query(value = "SELECT COUNT(*) AS \"stopCount\", COALESCE(SUM(stop_lat), 0) AS \"latSum\", " +
+            "COALESCE(SUM(stop_lon), 0) AS \"lonSum\", " +
+            "COALESCE(md5(string_agg(stop_id || ':' || COALESCE(stop_name, ''), ',' ORDER BY stop_id)), '') AS \"contentHash\" " +
+            "FROM stop", nativeQuery = true)
+    StopTableFingerprint fingerprint();
+
+    interface StopTableFingerprint {
+        long getStopCount();
+        double getLatSum();
+        double getLonSum();
+        String getContentHash();
+
+        default boolean matches(StopTableFingerprint other) {
+            return other != null && getStopCount() == other.getStopCount() && getLatSum() == other.getLatSum()
+                    && getLonSum() == other.getLonSum() && Objects.equals(getContentHash(), other.getContentHash());
+        }
+    }
+}
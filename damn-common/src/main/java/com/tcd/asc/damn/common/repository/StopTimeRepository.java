@@ -1,13 +1,39 @@
 package com.tcd.asc.damn.common.repository;
 
 import com.tcd.asc.damn.common.entity.StopTime;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StopTimeRepository extends JpaRepository<StopTime, StopTime.StopTimeId> {
     List<StopTime> findByTripId(String tripId);
     List<StopTime> findByStopId(String stopId);
-}
\ No newline at end of file
+
+    // Schedule columns only, grouped by trip in stop order, without loading the Stop and Trip associations. Read
+    // through a database cursor in fetch-size chunks; must be consumed and closed inside a transaction, since
+    // PostgreSQL only streams results when auto-commit is off
+    @Query("SELECT st.tripId AS tripId, st.stopId AS stopId, st.stopSequence AS stopSequence, " +
+            "st.arrivalTime AS arrivalTime, st.departureTime AS departureTime " +
+            "FROM StopTime st ORDER BY st.tripId, st.stopSequence")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<TimetableRow> streamAllTimetableRows();
+
+    interface TimetableRow {
+        String getTripId();
+        String getStopId();
+        int getStopSequence();
+        LocalTime getArrivalTime();
+        LocalTime getDepartureTime();
+    }
+}
@@ -1,5 +1,6 @@
 package com.tcd.asc.damn.common.repository;
 
+import com.tcd.asc.damn.common.constants.TransitType;
 import com.tcd.asc.damn.common.entity.Trip;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -9,4 +10,35 @@ import java.util.List;
 
 @Repository
 public interface TripRepository extends JpaRepository<Trip, String> {
-}
\ No newline at end of file
+
+    // Trip to shape mapping without loading the Route association
+    @Query("SELECT t.tripId AS tripId, t.shapeId AS shapeId FROM Trip t")
+    List<TripShape> findAllTripShapes();
+
+    interface TripShape {
+        String getTripId();
+        String getShapeId();
+    }
+
+    // Trip attributes needed to type graph edges, with the route short name and transit type joined in one query
+    @Query("SELECT t.tripId AS tripId, t.directionId AS directionId, t.serviceId AS serviceId, " +
+            "r.routeShortName AS routeShortName, r.transitType AS transitType FROM Trip t LEFT JOIN t.route r")
+    List<TripRoute> findAllTripRoutes();
+
+    interface TripRoute {
+        String getTripId();
+        int getDirectionId();
+        String getServiceId();
+        String getRouteShortName();
+        TransitType getTransitType();
+    }
+
+    // Service of every trip, to filter trips by the service days they run on
+    @Query("SELECT t.tripId AS tripId, t.serviceId AS serviceId FROM Trip t")
+    List<TripService> findAllTripServices();
+
+    interface TripService {
+        String getTripId();
+        String getServiceId();
+    }
+}
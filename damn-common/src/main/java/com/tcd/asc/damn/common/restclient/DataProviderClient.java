@@ -20,7 +20,7 @@ public interface DataProviderClient {
     Station findNearestStation(Location startLocation);
 
     @GetMapping("/in-between-station")
-    List<String> getBetweenStations(@RequestParam Long startStationId, @RequestParam Long endStationId);
+    List<String> getBetweenStations(@RequestParam String startStationId, @RequestParam String endStationId);
 
     @GetMapping("/all-luas-route")
     List<LuasRoute> getAllLuasRoutes();
@@ -0,0 +1,102 @@
+package com.tcd.asc.damn.common.snapshot;
+
+/**
+ * Byte positions of the sections of a transit snapshot file, derived from the element counts stored after the
+ * header. Shared by {@link TransitSnapshotWriter} and {@link TransitSnapshot} so both agree on the layout.
+ * <p>
+ * File layout (big-endian, every section 8-byte aligned):
+ * <pre>
+ *  header    magic, format version, generation, created-at, payload length, CRC32 of the payload
+ *  counts    strings, string bytes, stops, edges, edge types, trips, shapes, shape points
+ *  strings   int[strings + 1] UTF-8 offsets, then the bytes
+ *  stops     int[] id, int[] name (string refs, -1 for none), double[] lat, double[] lon
+ *  edges     int[stops + 1] CSR offsets, int[] target, float[] weight, int[] type, int[] trip (-1 for none)
+ *  types     int[] name
+ *  trips     int[] id, int[] shape (-1 for none)
+ *  shapes    int[] id, int[shapes + 1] point offsets
+ *  points    double[] lat, double[] lon
+ * </pre>
+ */
+final class SnapshotLayout {
+
+    static final long MAGIC = 0x44414D4E534E4150L; // "DAMNSNAP"
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int VERSION_POSITION = 8;
+    static final int GENERATION_POSITION = 16;
+    static final int CREATED_AT_POSITION = 24;
+    static final int PAYLOAD_LENGTH_POSITION = 32;
+    static final int CRC_POSITION = 40;
+    static final int COUNT_FIELDS = 8;
+
+    final int stringCount;
+    final int stringByteCount;
+    final int stopCount;
+    final int edgeCount;
+    final int typeCount;
+    final int tripCount;
+    final int shapeCount;
+    final int pointCount;
+
+    final int stringOffsets;
+    final int stringBytes;
+    final int stopIds;
+    final int stopNames;
+    final int stopLats;
+    final int stopLons;
+    final int edgeOffsets;
+    final int edgeTargets;
+    final int edgeWeights;
+    final int edgeTypes;
+    final int edgeTrips;
+    final int typeNames;
+    final int tripIds;
+    final int tripShapes;
+    final int shapeIds;
+    final int shapePointOffsets;
+    final int pointLats;
+    final int pointLons;
+    final int totalSize;
+
+    SnapshotLayout(int stringCount, int stringByteCount, int stopCount, int edgeCount, int typeCount,
+                   int tripCount, int shapeCount, int pointCount) {
+        this.stringCount = stringCount;
+        this.stringByteCount = stringByteCount;
+        this.stopCount = stopCount;
+        this.edgeCount = edgeCount;
+        this.typeCount = typeCount;
+        this.tripCount = tripCount;
+        this.shapeCount = shapeCount;
+        this.pointCount = pointCount;
+
+        long position = HEADER_SIZE + COUNT_FIELDS * Integer.BYTES;
+        stringOffsets = align(position);
+        stringBytes = align(position = stringOffsets + (stringCount + 1L) * Integer.BYTES);
+        stopIds = align(position = stringBytes + (long) stringByteCount);
+        stopNames = align(position = stopIds + (long) stopCount * Integer.BYTES);
+        stopLats = align(position = stopNames + (long) stopCount * Integer.BYTES);
+        stopLons = align(position = stopLats + (long) stopCount * Double.BYTES);
+        edgeOffsets = align(position = stopLons + (long) stopCount * Double.BYTES);
+        edgeTargets = align(position = edgeOffsets + (stopCount + 1L) * Integer.BYTES);
+        edgeWeights = align(position = edgeTargets + (long) edgeCount * Integer.BYTES);
+        edgeTypes = align(position = edgeWeights + (long) edgeCount * Float.BYTES);
+        edgeTrips = align(position = edgeTypes + (long) edgeCount * Integer.BYTES);
+        typeNames = align(position = edgeTrips + (long) edgeCount * Integer.BYTES);
+        tripIds = align(position = typeNames + (long) typeCount * Integer.BYTES);
+        tripShapes = align(position = tripIds + (long) tripCount * Integer.BYTES);
+        shapeIds = align(position = tripShapes + (long) tripCount * Integer.BYTES);
+        shapePointOffsets = align(position = shapeIds + (long) shapeCount * Integer.BYTES);
+        pointLats = align(position = shapePointOffsets + (shapeCount + 1L) * Integer.BYTES);
+        pointLons = align(position = pointLats + (long) pointCount * Double.BYTES);
+        totalSize = align(pointLons + (long) pointCount * Double.BYTES);
+    }
+
+    private static int align(long position) {
+        long aligned = (position + 7) & ~7L;
+        if (aligned > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Transit snapshot exceeds 2 GB");
+        }
+        return (int) aligned;
+    }
+}
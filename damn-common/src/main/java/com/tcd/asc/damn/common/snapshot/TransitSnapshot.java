@@ -0,0 +1,181 @@
+package com.tcd.asc.damn.common.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only view over a transit snapshot: the stop table, the CSR edge arrays of the transit graph, the trip to
+ * shape index and the shape points, written by {@link TransitSnapshotWriter}.
+ * <p>
+ * The file is memory-mapped and every accessor reads straight from the mapping, so opening a snapshot costs a
+ * header check and one CRC pass over the file, with no parsing. Strings are decoded on access.
+ */
+public final class TransitSnapshot {
+
+    private final ByteBuffer buffer;
+    private final SnapshotLayout layout;
+
+    private TransitSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < SnapshotLayout.HEADER_SIZE + SnapshotLayout.COUNT_FIELDS * Integer.BYTES
+                || buffer.getLong(0) != SnapshotLayout.MAGIC) {
+            throw new IllegalArgumentException("Not a transit snapshot");
+        }
+        int version = buffer.getInt(SnapshotLayout.VERSION_POSITION);
+        if (version != SnapshotLayout.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported transit snapshot version " + version);
+        }
+        long payloadLength = buffer.getLong(SnapshotLayout.PAYLOAD_LENGTH_POSITION);
+        if (payloadLength != buffer.capacity() - SnapshotLayout.HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated transit snapshot");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(SnapshotLayout.HEADER_SIZE, (int) payloadLength));
+        if (crc.getValue() != buffer.getLong(SnapshotLayout.CRC_POSITION)) {
+            throw new IllegalArgumentException("Transit snapshot checksum mismatch");
+        }
+
+        int position = SnapshotLayout.HEADER_SIZE;
+        int[] counts = new int[SnapshotLayout.COUNT_FIELDS];
+        for (int i = 0; i < counts.length; i++, position += Integer.BYTES) {
+            counts[i] = buffer.getInt(position);
+        }
+        this.layout = new SnapshotLayout(counts[0], counts[1], counts[2], counts[3], counts[4], counts[5], counts[6], counts[7]);
+        if (layout.totalSize != buffer.capacity()) {
+            throw new IllegalArgumentException("Transit snapshot sections do not match the file size");
+        }
+    }
+
+    /**
+     * Maps and validates a snapshot file.
+     *
+     * @throws IllegalArgumentException if the file is not a valid snapshot of a supported version
+     */
+    public static TransitSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new TransitSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** Graph generation the snapshot was written from. */
+    public long generation() {
+        return buffer.getLong(SnapshotLayout.GENERATION_POSITION);
+    }
+
+    public long createdAt() {
+        return buffer.getLong(SnapshotLayout.CREATED_AT_POSITION);
+    }
+
+    public int stopCount() {
+        return layout.stopCount;
+    }
+
+    public String stopId(int stop) {
+        return string(buffer.getInt(layout.stopIds + stop * Integer.BYTES));
+    }
+
+    /** Returns the stop name, or null when the stop has none. */
+    public String stopName(int stop) {
+        return string(buffer.getInt(layout.stopNames + stop * Integer.BYTES));
+    }
+
+    public double stopLat(int stop) {
+        return buffer.getDouble(layout.stopLats + stop * Double.BYTES);
+    }
+
+    public double stopLon(int stop) {
+        return buffer.getDouble(layout.stopLons + stop * Double.BYTES);
+    }
+
+    public int edgeCount() {
+        return layout.edgeCount;
+    }
+
+    public int firstEdge(int stop) {
+        return buffer.getInt(layout.edgeOffsets + stop * Integer.BYTES);
+    }
+
+    public int lastEdge(int stop) {
+        return buffer.getInt(layout.edgeOffsets + (stop + 1) * Integer.BYTES);
+    }
+
+    public int edgeTarget(int edge) {
+        return buffer.getInt(layout.edgeTargets + edge * Integer.BYTES);
+    }
+
+    public float edgeWeight(int edge) {
+        return buffer.getFloat(layout.edgeWeights + edge * Float.BYTES);
+    }
+
+    /** Index of the edge's type in {@link #edgeTypeName(int)}. */
+    public int edgeType(int edge) {
+        return buffer.getInt(layout.edgeTypes + edge * Integer.BYTES);
+    }
+
+    /** Index of the edge's representative trip, or -1 when it has none. */
+    public int edgeTrip(int edge) {
+        return buffer.getInt(layout.edgeTrips + edge * Integer.BYTES);
+    }
+
+    public int edgeTypeCount() {
+        return layout.typeCount;
+    }
+
+    public String edgeTypeName(int type) {
+        return string(buffer.getInt(layout.typeNames + type * Integer.BYTES));
+    }
+
+    public int tripCount() {
+        return layout.tripCount;
+    }
+
+    public String tripId(int trip) {
+        return string(buffer.getInt(layout.tripIds + trip * Integer.BYTES));
+    }
+
+    /** Index of the trip's shape, or -1 when it has none. */
+    public int tripShape(int trip) {
+        return buffer.getInt(layout.tripShapes + trip * Integer.BYTES);
+    }
+
+    public int shapeCount() {
+        return layout.shapeCount;
+    }
+
+    public String shapeId(int shape) {
+        return string(buffer.getInt(layout.shapeIds + shape * Integer.BYTES));
+    }
+
+    public int firstShapePoint(int shape) {
+        return buffer.getInt(layout.shapePointOffsets + shape * Integer.BYTES);
+    }
+
+    public int lastShapePoint(int shape) {
+        return buffer.getInt(layout.shapePointOffsets + (shape + 1) * Integer.BYTES);
+    }
+
+    public double pointLat(int point) {
+        return buffer.getDouble(layout.pointLats + point * Double.BYTES);
+    }
+
+    public double pointLon(int point) {
+        return buffer.getDouble(layout.pointLons + point * Double.BYTES);
+    }
+
+    private String string(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        int start = buffer.getInt(layout.stringOffsets + ref * Integer.BYTES);
+        int end = buffer.getInt(layout.stringOffsets + (ref + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(layout.stringBytes + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
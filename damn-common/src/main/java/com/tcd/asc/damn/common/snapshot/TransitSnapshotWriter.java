@@ -0,0 +1,233 @@
+package com.tcd.asc.damn.common.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Collects stops, edges, trips and shapes and writes them as a {@link TransitSnapshot} file. The file is written
+ * next to its destination and moved into place, so readers only ever see complete snapshots.
+ */
+public final class TransitSnapshotWriter {
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    private final List<int[]> stopRefs = new ArrayList<>(); // {id, name}
+    private final List<double[]> stopCoordinates = new ArrayList<>();
+
+    private final List<int[]> edges = new ArrayList<>(); // {from, to, type, trip}
+    private final List<Float> edgeWeights = new ArrayList<>();
+    private final Map<String, Integer> typeIndex = new HashMap<>(); // type -> position in typeRefs
+    private final List<Integer> typeRefs = new ArrayList<>();
+
+    private final Map<String, Integer> tripIndex = new HashMap<>();
+    private final List<String> tripIds = new ArrayList<>();
+    private final List<String> tripShapeIds = new ArrayList<>();
+
+    private final Map<String, Integer> shapeIndex = new HashMap<>();
+    private final List<String> shapeIds = new ArrayList<>();
+    private final List<double[][]> shapePoints = new ArrayList<>();
+
+    private long generation;
+
+    public TransitSnapshotWriter generation(long generation) {
+        this.generation = generation;
+        return this;
+    }
+
+    public TransitSnapshotWriter addStop(String stopId, String stopName, double stopLat, double stopLon) {
+        if (!stopIndex.containsKey(stopId)) {
+            stopIndex.put(stopId, stopRefs.size());
+            stopRefs.add(new int[]{intern(stopId), stopName != null ? intern(stopName) : -1});
+            stopCoordinates.add(new double[]{stopLat, stopLon});
+        }
+        return this;
+    }
+
+    /** Adds a directed edge between two added stops; self-loops and edges touching unknown stops are ignored. */
+    public boolean addEdge(String fromStopId, String toStopId, String type, double weight, String tripId) {
+        Integer from = stopIndex.get(fromStopId);
+        Integer to = stopIndex.get(toStopId);
+        if (from == null || to == null || from.equals(to)) {
+            return false;
+        }
+        int typePosition = typeIndex.computeIfAbsent(type, name -> {
+            typeRefs.add(intern(name));
+            return typeRefs.size() - 1;
+        });
+        edges.add(new int[]{from, to, typePosition, tripId != null ? trip(tripId) : -1});
+        edgeWeights.add((float) weight);
+        return true;
+    }
+
+    public TransitSnapshotWriter addTrip(String tripId, String shapeId) {
+        tripShapeIds.set(trip(tripId), shapeId);
+        return this;
+    }
+
+    public TransitSnapshotWriter addShape(String shapeId, double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays differ in length for shape " + shapeId);
+        }
+        if (!shapeIndex.containsKey(shapeId)) {
+            shapeIndex.put(shapeId, shapeIds.size());
+            shapeIds.add(shapeId);
+            shapePoints.add(new double[][]{lats, lons});
+        }
+        return this;
+    }
+
+    /** Writes the snapshot to {@code path}, replacing any existing file atomically. */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = toBuffer();
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    ByteBuffer toBuffer() {
+        // Shape ids are resolved when writing, so trips may be added before or after their shapes
+        int[] tripShapes = new int[tripIds.size()];
+        for (int t = 0; t < tripShapes.length; t++) {
+            Integer shape = tripShapeIds.get(t) != null ? shapeIndex.get(tripShapeIds.get(t)) : null;
+            tripShapes[t] = shape != null ? shape : -1;
+        }
+        int[] tripRefs = new int[tripIds.size()];
+        for (int t = 0; t < tripRefs.length; t++) {
+            tripRefs[t] = intern(tripIds.get(t));
+        }
+        int[] shapeRefs = new int[shapeIds.size()];
+        for (int s = 0; s < shapeRefs.length; s++) {
+            shapeRefs[s] = intern(shapeIds.get(s));
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        int stringBytes = 0;
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringBytes += bytes.length;
+        }
+        int pointCount = shapePoints.stream().mapToInt(points -> points[0].length).sum();
+        int stopCount = stopRefs.size();
+        int edgeCount = edges.size();
+        SnapshotLayout layout = new SnapshotLayout(strings.size(), stringBytes, stopCount, edgeCount,
+                typeRefs.size(), tripIds.size(), shapeIds.size(), pointCount);
+
+        ByteBuffer buffer = ByteBuffer.allocate(layout.totalSize);
+        buffer.putLong(0, SnapshotLayout.MAGIC);
+        buffer.putInt(SnapshotLayout.VERSION_POSITION, SnapshotLayout.FORMAT_VERSION);
+        buffer.putLong(SnapshotLayout.GENERATION_POSITION, generation);
+        buffer.putLong(SnapshotLayout.CREATED_AT_POSITION, System.currentTimeMillis());
+        buffer.putLong(SnapshotLayout.PAYLOAD_LENGTH_POSITION, layout.totalSize - SnapshotLayout.HEADER_SIZE);
+
+        int position = SnapshotLayout.HEADER_SIZE;
+        for (int count : new int[]{layout.stringCount, layout.stringByteCount, stopCount, edgeCount, layout.typeCount,
+                layout.tripCount, layout.shapeCount, pointCount}) {
+            buffer.putInt(position, count);
+            position += Integer.BYTES;
+        }
+
+        int offset = 0;
+        for (int i = 0; i < encoded.size(); i++) {
+            buffer.putInt(layout.stringOffsets + i * Integer.BYTES, offset);
+            buffer.put(layout.stringBytes + offset, encoded.get(i));
+            offset += encoded.get(i).length;
+        }
+        buffer.putInt(layout.stringOffsets + encoded.size() * Integer.BYTES, offset);
+
+        for (int s = 0; s < stopCount; s++) {
+            buffer.putInt(layout.stopIds + s * Integer.BYTES, stopRefs.get(s)[0]);
+            buffer.putInt(layout.stopNames + s * Integer.BYTES, stopRefs.get(s)[1]);
+            buffer.putDouble(layout.stopLats + s * Double.BYTES, stopCoordinates.get(s)[0]);
+            buffer.putDouble(layout.stopLons + s * Double.BYTES, stopCoordinates.get(s)[1]);
+        }
+
+        // Counting sort of the edges by source stop into CSR order
+        int[] offsets = new int[stopCount + 1];
+        for (int[] edge : edges) {
+            offsets[edge[0] + 1]++;
+        }
+        for (int s = 0; s < stopCount; s++) {
+            offsets[s + 1] += offsets[s];
+        }
+        for (int s = 0; s <= stopCount; s++) {
+            buffer.putInt(layout.edgeOffsets + s * Integer.BYTES, offsets[s]);
+        }
+        int[] cursor = Arrays.copyOf(offsets, stopCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int[] edge = edges.get(e);
+            int slot = cursor[edge[0]]++;
+            buffer.putInt(layout.edgeTargets + slot * Integer.BYTES, edge[1]);
+            buffer.putFloat(layout.edgeWeights + slot * Float.BYTES, edgeWeights.get(e));
+            buffer.putInt(layout.edgeTypes + slot * Integer.BYTES, edge[2]);
+            buffer.putInt(layout.edgeTrips + slot * Integer.BYTES, edge[3]);
+        }
+        for (int t = 0; t < typeRefs.size(); t++) {
+            buffer.putInt(layout.typeNames + t * Integer.BYTES, typeRefs.get(t));
+        }
+
+        for (int t = 0; t < tripRefs.length; t++) {
+            buffer.putInt(layout.tripIds + t * Integer.BYTES, tripRefs[t]);
+            buffer.putInt(layout.tripShapes + t * Integer.BYTES, tripShapes[t]);
+        }
+
+        int point = 0;
+        for (int s = 0; s < shapeRefs.length; s++) {
+            buffer.putInt(layout.shapeIds + s * Integer.BYTES, shapeRefs[s]);
+            buffer.putInt(layout.shapePointOffsets + s * Integer.BYTES, point);
+            double[][] points = shapePoints.get(s);
+            for (int p = 0; p < points[0].length; p++, point++) {
+                buffer.putDouble(layout.pointLats + point * Double.BYTES, points[0][p]);
+                buffer.putDouble(layout.pointLons + point * Double.BYTES, points[1][p]);
+            }
+        }
+        buffer.putInt(layout.shapePointOffsets + shapeRefs.length * Integer.BYTES, point);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), SnapshotLayout.HEADER_SIZE, layout.totalSize - SnapshotLayout.HEADER_SIZE);
+        buffer.putLong(SnapshotLayout.CRC_POSITION, crc.getValue());
+        return buffer;
+    }
+
+    private int trip(String tripId) {
+        Integer index = tripIndex.get(tripId);
+        if (index == null) {
+            index = tripIds.size();
+            tripIndex.put(tripId, index);
+            tripIds.add(tripId);
+            tripShapeIds.add(null);
+        }
+        return index;
+    }
+
+    private int intern(String string) {
+        Integer index = stringIndex.get(string);
+        if (index == null) {
+            index = strings.size();
+            stringIndex.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,187 @@
+package com.tcd.asc.damn.common.spatial;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable uniform-grid index over items with a latitude/longitude, answering k-nearest and
+ * within-radius queries without scanning every item.
+ * <p>
+ * Cells are roughly square ({@code cellSizeKm} on each side) around the mean latitude of the indexed
+ * items, which is accurate enough at city scale. Distances are great-circle kilometres.
+ */
+public final class GeoGridIndex<T> {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LAT = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final List<T> items;
+    private final double[] lats;
+    private final double[] lons;
+    private final double cellSizeKm;
+    private final double cellLatDegrees;
+    private final double cellLonDegrees;
+    private final Map<Long, int[]> cells;
+    private final int minRow, maxRow, minCol, maxCol;
+
+    private GeoGridIndex(List<T> items, double[] lats, double[] lons, double cellSizeKm) {
+        this.items = items;
+        this.lats = lats;
+        this.lons = lons;
+        this.cellSizeKm = cellSizeKm;
+
+        double meanLat = 0.0;
+        for (double lat : lats) meanLat += lat;
+        meanLat = lats.length > 0 ? meanLat / lats.length : 0.0;
+        this.cellLatDegrees = cellSizeKm / KM_PER_DEGREE_LAT;
+        this.cellLonDegrees = cellSizeKm / (KM_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(meanLat))));
+
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        int rMin = Integer.MAX_VALUE, rMax = Integer.MIN_VALUE, cMin = Integer.MAX_VALUE, cMax = Integer.MIN_VALUE;
+        for (int i = 0; i < lats.length; i++) {
+            int row = row(lats[i]);
+            int col = col(lons[i]);
+            rMin = Math.min(rMin, row);
+            rMax = Math.max(rMax, row);
+            cMin = Math.min(cMin, col);
+            cMax = Math.max(cMax, col);
+            buckets.computeIfAbsent(key(row, col), k -> new ArrayList<>()).add(i);
+        }
+        this.cells = new HashMap<>(buckets.size() * 2);
+        buckets.forEach((k, v) -> cells.put(k, v.stream().mapToInt(Integer::intValue).toArray()));
+        this.minRow = rMin;
+        this.maxRow = rMax;
+        this.minCol = cMin;
+        this.maxCol = cMax;
+    }
+
+    public static <T> GeoGridIndex<T> of(Collection<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude,
+                                         double cellSizeKm) {
+        if (cellSizeKm <= 0) {
+            throw new IllegalArgumentException("cellSizeKm must be positive");
+        }
+        List<T> copy = new ArrayList<>(items);
+        double[] lats = new double[copy.size()];
+        double[] lons = new double[copy.size()];
+        for (int i = 0; i < copy.size(); i++) {
+            lats[i] = latitude.applyAsDouble(copy.get(i));
+            lons[i] = longitude.applyAsDouble(copy.get(i));
+        }
+        return new GeoGridIndex<>(Collections.unmodifiableList(copy), lats, lons, cellSizeKm);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<T> items() {
+        return items;
+    }
+
+    /**
+     * Returns up to {@code k} items ordered by distance from the query point, expanding rings of cells
+     * until no unvisited cell can hold anything closer than the current k-th result.
+     */
+    public List<T> nearest(double lat, double lon, int k) {
+        if (k <= 0 || items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int row = row(lat);
+        int col = col(lon);
+        // Max-heap on distance holding the best k candidates
+        PriorityQueue<double[]> best = new PriorityQueue<>(Math.min(k, items.size()) + 1, (a, b) -> Double.compare(b[0], a[0]));
+        int maxRing = Math.max(Math.max(Math.abs(row - minRow), Math.abs(row - maxRow)),
+                Math.max(Math.abs(col - minCol), Math.abs(col - maxCol)));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best.size() == k && ringLowerBoundKm(ring) > best.peek()[0]) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                boolean edgeRow = r == row - ring || r == row + ring;
+                for (int c = col - ring; c <= col + ring; c += edgeRow ? 1 : 2 * ring) {
+                    int[] cell = cells.get(key(r, c));
+                    if (cell != null) {
+                        for (int i : cell) {
+                            double distance = distanceKm(lat, lon, lats[i], lons[i]);
+                            if (best.size() < k) {
+                                best.add(new double[]{distance, i});
+                            } else if (distance < best.peek()[0]) {
+                                best.poll();
+                                best.add(new double[]{distance, i});
+                            }
+                        }
+                    }
+                    if (ring == 0) break;
+                }
+            }
+        }
+
+        List<double[]> sorted = new ArrayList<>(best);
+        sorted.sort(Comparator.comparingDouble(entry -> entry[0]));
+        List<T> result = new ArrayList<>(sorted.size());
+        for (double[] entry : sorted) {
+            result.add(items.get((int) entry[1]));
+        }
+        return result;
+    }
+
+    /** Returns every item within {@code radiusKm} of the query point, ordered by distance. */
+    public List<T> withinRadius(double lat, double lon, double radiusKm) {
+        if (items.isEmpty() || radiusKm < 0) {
+            return new ArrayList<>();
+        }
+        int rowLo = row(lat - radiusKm / KM_PER_DEGREE_LAT) - 1;
+        int rowHi = row(lat + radiusKm / KM_PER_DEGREE_LAT) + 1;
+        int cellSpan = (int) Math.ceil(radiusKm / cellSizeKm) + 1;
+        int col = col(lon);
+
+        List<double[]> hits = new ArrayList<>();
+        for (int r = Math.max(rowLo, minRow); r <= Math.min(rowHi, maxRow); r++) {
+            for (int c = Math.max(col - cellSpan, minCol); c <= Math.min(col + cellSpan, maxCol); c++) {
+                int[] cell = cells.get(key(r, c));
+                if (cell == null) continue;
+                for (int i : cell) {
+                    double distance = distanceKm(lat, lon, lats[i], lons[i]);
+                    if (distance <= radiusKm) {
+                        hits.add(new double[]{distance, i});
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(entry -> entry[0]));
+        List<T> result = new ArrayList<>(hits.size());
+        for (double[] hit : hits) {
+            result.add(items.get((int) hit[1]));
+        }
+        return result;
+    }
+
+    /** Great-circle (haversine) distance in kilometres. */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    private double ringLowerBoundKm(int ring) {
+        // Anything in ring r is at least (r - 1) full cells away; keep a margin for the cos(lat) approximation
+        return Math.max(0, ring - 1) * cellSizeKm * 0.9;
+    }
+
+    private int row(double lat) {
+        return (int) Math.floor(lat / cellLatDegrees);
+    }
+
+    private int col(double lon) {
+        return (int) Math.floor(lon / cellLonDegrees);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -1,10 +1,16 @@
 package com.tcd.asc.damn.dataprovider.controller;
 
+import com.tcd.asc.damn.common.constants.TransitType;
 import com.tcd.asc.damn.dataprovider.service.GraphInitializer;
+import com.tcd.asc.damn.dataprovider.service.GraphSchemaService;
+import com.tcd.asc.damn.dataprovider.service.GtfsImportService;
+import com.tcd.asc.damn.dataprovider.service.ReferenceDataCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -14,6 +20,15 @@ public class DataManagerController {
     @Autowired
     private GraphInitializer graphInitializer;
 
+    @Autowired
+    private GtfsImportService gtfsImportService;
+
+    @Autowired
+    private GraphSchemaService graphSchemaService;
+
+    @Autowired
+    private ReferenceDataCacheService referenceDataCacheService;
+
     @PostMapping("/initialize")
     public ResponseEntity<String> initializeGraph() {
         try {
@@ -23,4 +38,55 @@ public class DataManagerController {
             return ResponseEntity.status(500).body("Failed to initialize graph: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @PostMapping("/sync")
+    public ResponseEntity<String> syncGraph() {
+        try {
+            return ResponseEntity.ok("Graph synced: " + graphInitializer.syncGraph());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to sync graph: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/rollback")
+    public ResponseEntity<String> rollbackGraph() {
+        try {
+            return ResponseEntity.ok("Graph rolled back to generation " + graphInitializer.rollbackGraph() + ".");
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to roll back graph: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<String> importGtfsFeed(@RequestParam String location, @RequestParam TransitType transitType) {
+        try {
+            return ResponseEntity.ok("GTFS feed imported: " + gtfsImportService.importFeed(location, transitType));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to import GTFS feed: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/reference-data/invalidate")
+    public ResponseEntity<String> invalidateReferenceData() {
+        referenceDataCacheService.invalidate();
+        return ResponseEntity.ok("Reference data cache invalidated.");
+    }
+
+    @GetMapping("/schema")
+    public ResponseEntity<?> getGraphSchema() {
+        try {
+            return ResponseEntity.ok(graphSchemaService.getStatus());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to read graph schema: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/schema")
+    public ResponseEntity<?> bootstrapGraphSchema() {
+        try {
+            return ResponseEntity.ok(graphSchemaService.ensureSchema());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body("Failed to bootstrap graph schema: " + e.getMessage());
+        }
+    }
+}
@@ -3,10 +3,15 @@ package com.tcd.asc.damn.dataprovider.controller;
 
 import com.tcd.asc.damn.common.constants.StationType;
 import com.tcd.asc.damn.common.entity.Location;
-import com.tcd.asc.damn.common.entity.LuasRoute;
 import com.tcd.asc.damn.common.entity.Station;
 import com.tcd.asc.damn.dataprovider.service.DataProviderService;
+import com.tcd.asc.damn.dataprovider.service.ReferenceDataCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -18,9 +23,31 @@ public class DataProviderController {
     @Autowired
     private DataProviderService dataProviderService;
 
+    @Autowired
+    private ReferenceDataCacheService referenceDataCacheService;
+
     @GetMapping("/stations")
-    public List<Station> getStations(@RequestParam String stationType) {
-        return dataProviderService.getAllStations(StationType.valueOf(stationType));
+    public ResponseEntity<byte[]> getStations(@RequestParam String stationType,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return referenceData(referenceDataCacheService.getStations(StationType.valueOf(stationType)), ifNoneMatch);
+    }
+
+    @GetMapping("/stations/nearest")
+    public List<Station> getNearestStations(@RequestParam String stationType, @RequestParam double latitude,
+                                            @RequestParam double longitude, @RequestParam(defaultValue = "1") int limit) {
+        return dataProviderService.findNearestStations(StationType.valueOf(stationType), location(latitude, longitude), limit);
+    }
+
+    @GetMapping("/stations/within")
+    public List<Station> getStationsWithinRadius(@RequestParam String stationType, @RequestParam double latitude,
+                                                 @RequestParam double longitude, @RequestParam double radiusKm) {
+        return dataProviderService.findStationsWithinRadius(StationType.valueOf(stationType), location(latitude, longitude), radiusKm);
+    }
+
+    @PostMapping("/stations/nearest/batch")
+    public List<List<Station>> getNearestStationsBatch(@RequestParam String stationType, @RequestParam(defaultValue = "1") int limit,
+                                                       @RequestBody List<Location> locations) {
+        return dataProviderService.findNearestStations(StationType.valueOf(stationType), locations, limit);
     }
 
     @PostMapping("/near-luas-station")
@@ -29,12 +56,31 @@ public class DataProviderController {
     }
 
     @GetMapping("/in-between-station")
-    public List<String> getBetweenStations(@RequestParam Long startStationId, @RequestParam Long endStationId) {
+    public List<String> getBetweenStations(@RequestParam String startStationId, @RequestParam String endStationId) {
         return dataProviderService.getStationNamesBetween(startStationId, endStationId);
     }
 
     @GetMapping("/all-luas-route")
-    public List<LuasRoute> getAllLuasRoutes() {
-        return dataProviderService.getAllLuasRoutes();
+    public ResponseEntity<byte[]> getAllLuasRoutes(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return referenceData(referenceDataCacheService.getLuasRoutes(), ifNoneMatch);
+    }
+
+    // Clients keep their copy and revalidate it on every use; unchanged data is answered with an empty 304
+    private static ResponseEntity<byte[]> referenceData(ReferenceDataCacheService.Dataset dataset, String ifNoneMatch) {
+        if (dataset.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(dataset.etag()).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(dataset.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(dataset.json());
+    }
+
+    private static Location location(double latitude, double longitude) {
+        Location location = new Location();
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
     }
 }
@@ -0,0 +1,135 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import java.util.*;
+
+/**
+ * Difference between the graph stored in Neo4j, given as the content hash of every node and relationship, and a
+ * freshly built {@link GraphModel}. Rows are grouped the way they are written: stops and patterns by change kind,
+ * relationships by change kind and then by relationship type.
+ */
+public final class GraphDiff {
+
+    private final List<Map<String, Object>> addedStops = new ArrayList<>();
+    private final List<Map<String, Object>> changedStops = new ArrayList<>();
+    private final List<Map<String, Object>> removedStops = new ArrayList<>();
+    private final List<Map<String, Object>> addedPatterns = new ArrayList<>();
+    private final List<Map<String, Object>> changedPatterns = new ArrayList<>();
+    private final List<Map<String, Object>> removedPatterns = new ArrayList<>();
+    private final Map<String, List<Map<String, Object>>> addedEdges = new LinkedHashMap<>();
+    private final Map<String, List<Map<String, Object>>> changedEdges = new LinkedHashMap<>();
+    private final Map<String, List<Map<String, Object>>> removedEdges = new LinkedHashMap<>();
+
+    private GraphDiff() {
+    }
+
+    /**
+     * @param stopHashes         stored hash by stopId
+     * @param patternHashes      stored hash by patternId
+     * @param edgeHashesByType   stored hash by {@link #edgeKey} for each relationship type
+     */
+    public static GraphDiff compute(GraphModel model, Map<String, String> stopHashes, Map<String, String> patternHashes,
+                                    Map<String, Map<String, String>> edgeHashesByType) {
+        GraphDiff diff = new GraphDiff();
+        diffRows(model.stopRows(), stopHashes, "stopId", diff.addedStops, diff.changedStops, diff.removedStops);
+        diffRows(model.patternRows(), patternHashes, "patternId", diff.addedPatterns, diff.changedPatterns, diff.removedPatterns);
+
+        Set<String> types = new LinkedHashSet<>(model.edgeRowsByType().keySet());
+        types.addAll(edgeHashesByType.keySet());
+        for (String type : types) {
+            Map<String, String> stored = new HashMap<>(edgeHashesByType.getOrDefault(type, Map.of()));
+            for (Map<String, Object> row : model.edgeRowsByType().getOrDefault(type, List.of())) {
+                String storedHash = stored.remove(edgeKey((String) row.get("fromStopId"), (String) row.get("toStopId")));
+                if (storedHash == null) {
+                    diff.addedEdges.computeIfAbsent(type, t -> new ArrayList<>()).add(row);
+                } else if (!storedHash.equals(row.get("hash"))) {
+                    diff.changedEdges.computeIfAbsent(type, t -> new ArrayList<>()).add(row);
+                }
+            }
+            for (String key : stored.keySet()) {
+                String[] stopIds = key.split("\u0000", 2);
+                diff.removedEdges.computeIfAbsent(type, t -> new ArrayList<>())
+                        .add(Map.of("fromStopId", stopIds[0], "toStopId", stopIds[1]));
+            }
+        }
+        return diff;
+    }
+
+    /** Key of a relationship within its type. */
+    public static String edgeKey(String fromStopId, String toStopId) {
+        return fromStopId + "\u0000" + toStopId;
+    }
+
+    private static void diffRows(List<Map<String, Object>> rows, Map<String, String> storedHashes, String idProperty,
+                                 List<Map<String, Object>> added, List<Map<String, Object>> changed,
+                                 List<Map<String, Object>> removed) {
+        Map<String, String> stored = new HashMap<>(storedHashes);
+        for (Map<String, Object> row : rows) {
+            String storedHash = stored.remove((String) row.get(idProperty));
+            if (storedHash == null) {
+                added.add(row);
+            } else if (!storedHash.equals(row.get("hash"))) {
+                changed.add(row);
+            }
+        }
+        for (String id : stored.keySet()) {
+            removed.add(Map.of(idProperty, id));
+        }
+    }
+
+    public List<Map<String, Object>> addedStops() {
+        return addedStops;
+    }
+
+    public List<Map<String, Object>> changedStops() {
+        return changedStops;
+    }
+
+    public List<Map<String, Object>> removedStops() {
+        return removedStops;
+    }
+
+    public List<Map<String, Object>> addedPatterns() {
+        return addedPatterns;
+    }
+
+    public List<Map<String, Object>> changedPatterns() {
+        return changedPatterns;
+    }
+
+    public List<Map<String, Object>> removedPatterns() {
+        return removedPatterns;
+    }
+
+    public Map<String, List<Map<String, Object>>> addedEdges() {
+        return addedEdges;
+    }
+
+    public Map<String, List<Map<String, Object>>> changedEdges() {
+        return changedEdges;
+    }
+
+    public Map<String, List<Map<String, Object>>> removedEdges() {
+        return removedEdges;
+    }
+
+    public int changeCount() {
+        return addedStops.size() + changedStops.size() + removedStops.size()
+                + addedPatterns.size() + changedPatterns.size() + removedPatterns.size()
+                + count(addedEdges) + count(changedEdges) + count(removedEdges);
+    }
+
+    public boolean isEmpty() {
+        return changeCount() == 0;
+    }
+
+    public String summary() {
+        return String.format("stops +%d ~%d -%d, relationships +%d ~%d -%d, patterns +%d ~%d -%d",
+                addedStops.size(), changedStops.size(), removedStops.size(),
+                count(addedEdges), count(changedEdges), count(removedEdges),
+                addedPatterns.size(), changedPatterns.size(), removedPatterns.size());
+    }
+
+    private static int count(Map<String, List<Map<String, Object>>> rowsByType) {
+        return rowsByType.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -0,0 +1,376 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.constants.TransitType;
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * In-memory copy of the transit graph written to Neo4j: one row per Stop node and one row per relationship,
+ * grouped by relationship type so each group can be written with a single parameterised {@code UNWIND} query.
+ * <p>
+ * Relationships are aggregated in Java, keyed by (from, to, type): every trip over a hop contributes to one
+ * relationship carrying the min and median ride time, the trip count and the median headway, plus a single
+ * representative trip id. Pattern rows, one per distinct stop sequence of a line, carry the same trip count and
+ * representative trip. Ride times and departures are kept as per-minute counts while building, so neither the
+ * builder nor any row grows with the number of trips.
+ */
+public final class GraphModel {
+
+    public static final String TRANSFER = "TRANSFER";
+
+    private final List<Map<String, Object>> stopRows;
+    private final Map<String, List<Map<String, Object>>> edgeRowsByType;
+    private final List<Map<String, Object>> patternRows;
+    private final int edgeCount;
+    private final int connectedStopCount;
+
+    private GraphModel(List<Map<String, Object>> stopRows, Map<String, List<Map<String, Object>>> edgeRowsByType,
+                       List<Map<String, Object>> patternRows, int edgeCount, int connectedStopCount) {
+        this.stopRows = stopRows;
+        this.edgeRowsByType = edgeRowsByType;
+        this.patternRows = patternRows;
+        this.edgeCount = edgeCount;
+        this.connectedStopCount = connectedStopCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Stop node properties: stopId, stopName, stopLat, stopLon, hash. */
+    public List<Map<String, Object>> stopRows() {
+        return stopRows;
+    }
+
+    /**
+     * Relationship rows by relationship type; each row has fromStopId, toStopId and the relationship properties
+     * (weight, minWeight, medianWeight, tripCount, headway, directionId, tripIds, hash).
+     */
+    public Map<String, List<Map<String, Object>>> edgeRowsByType() {
+        return edgeRowsByType;
+    }
+
+    /**
+     * Pattern node properties: patternId, edgeType, directionId, stopIds, the tripCount running that sequence, the
+     * first of those trips as tripId and hash. The patternId is derived from the line, direction and stop sequence, so it is stable across rebuilds.
+     */
+    public List<Map<String, Object>> patternRows() {
+        return patternRows;
+    }
+
+    public int stopCount() {
+        return stopRows.size();
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int patternCount() {
+        return patternRows.size();
+    }
+
+    /** Number of stops with at least one incoming or outgoing relationship. */
+    public int connectedStopCount() {
+        return connectedStopCount;
+    }
+
+    /**
+     * Relationship type of a route's hops, e.g. RED_LUAS or 46A_BUS: the short name upper-cased with every run of
+     * other characters than letters and digits turned into an underscore, then the transit type. Types may start
+     * with a digit, so Cypher must backtick-quote them.
+     */
+    public static String edgeType(String routeShortName, TransitType transitType) {
+        String name = routeShortName == null ? "" : routeShortName.trim().toUpperCase(Locale.ROOT)
+                .replaceAll("[^A-Z0-9]+", "_").replaceAll("^_|_$", "");
+        // Routes imported before they carried a transit type were all Luas lines
+        return (name.isEmpty() ? "UNKNOWN" : name) + "_" + (transitType != null ? transitType : TransitType.LUAS);
+    }
+
+    /**
+     * Stable 64-bit FNV-1a hash of a row's content, stored with each node and relationship so an incremental sync
+     * can tell which ones changed without reading their properties back.
+     */
+    static String contentHash(Object content) {
+        String text = content instanceof Map<?, ?> map ? new TreeMap<>(map).toString() : String.valueOf(content);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+
+    public static final class Builder {
+
+        private final Map<String, Stop> stops = new LinkedHashMap<>();
+        private final Map<EdgeKey, Edge> edges = new LinkedHashMap<>();
+        private final Map<PatternKey, PatternTrips> patterns = new LinkedHashMap<>();
+        private final Map<String, Set<String>> edgeTypesByStop = new HashMap<>();
+        private int invalidWeights;
+
+        private Builder() {
+        }
+
+        public Builder addStop(Stop stop) {
+            stops.putIfAbsent(stop.getStopId(), stop);
+            return this;
+        }
+
+        public boolean hasStop(String stopId) {
+            return stops.containsKey(stopId);
+        }
+
+        /** Whether a line of the trips added so far calls at both stops, in either direction. */
+        public boolean sharesLine(String stopId, String otherStopId) {
+            Set<String> types = edgeTypesByStop.getOrDefault(stopId, Set.of());
+            for (String type : edgeTypesByStop.getOrDefault(otherStopId, Set.of())) {
+                if (types.contains(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Builder addTrip(String tripId, String edgeType, int directionId, List<StopTimeRepository.TimetableRow> rows) {
+            return addTrip(tripId, edgeType, directionId, null, rows);
+        }
+
+        /**
+         * Adds a trip's hops to the relationships between consecutive stops and the trip to its pattern. Rows must
+         * be in stop sequence order; repeated sequence numbers and stops missing from the graph are skipped. The
+         * service id keeps departures of different service days apart when the headway is computed.
+         */
+        public Builder addTrip(String tripId, String edgeType, int directionId, String serviceId,
+                               List<StopTimeRepository.TimetableRow> rows) {
+            List<String> stopIds = new ArrayList<>(rows.size());
+            StopTimeRepository.TimetableRow previous = null;
+            for (StopTimeRepository.TimetableRow row : rows) {
+                if (!stops.containsKey(row.getStopId())
+                        || (previous != null && previous.getStopSequence() == row.getStopSequence())) {
+                    continue;
+                }
+                if (previous != null) {
+                    Edge edge = edges.computeIfAbsent(new EdgeKey(previous.getStopId(), row.getStopId(), edgeType),
+                            key -> new Edge(key));
+                    if (previous.getDepartureTime() != null && row.getArrivalTime() != null) {
+                        edge.addTimedTrip(tripId, directionId, serviceId, rideMinutes(previous, row), previous.getDepartureTime());
+                    } else {
+                        edge.addUntimedTrip(tripId, directionId, distanceWeight(previous, row));
+                    }
+                }
+                stopIds.add(row.getStopId());
+                previous = row;
+            }
+            if (stopIds.size() > 1) {
+                for (String stopId : stopIds) {
+                    edgeTypesByStop.computeIfAbsent(stopId, id -> new HashSet<>()).add(edgeType);
+                }
+                patterns.computeIfAbsent(new PatternKey(edgeType, directionId, stopIds), key -> new PatternTrips(tripId)).count++;
+            }
+            return this;
+        }
+
+        public Builder addTransfer(String fromStopId, String toStopId, double weight) {
+            if (!fromStopId.equals(toStopId) && stops.containsKey(fromStopId) && stops.containsKey(toStopId)) {
+                edges.computeIfAbsent(new EdgeKey(fromStopId, toStopId, TRANSFER), key -> new Edge(key)).transferWeight = weight;
+            }
+            return this;
+        }
+
+        public GraphModel build() {
+            if (invalidWeights > 0) {
+                System.err.println("Invalid weight calculated for " + invalidWeights + " hops. Using default 1.0");
+            }
+            List<Map<String, Object>> stopRows = new ArrayList<>(stops.size());
+            for (Stop stop : stops.values()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("stopId", stop.getStopId());
+                row.put("stopName", stop.getStopName());
+                row.put("stopLat", stop.getStopLat());
+                row.put("stopLon", stop.getStopLon());
+                row.put("hash", contentHash(row));
+                stopRows.add(row);
+            }
+            Map<String, List<Map<String, Object>>> edgeRowsByType = new LinkedHashMap<>();
+            Set<String> connectedStops = new HashSet<>();
+            for (Edge edge : edges.values()) {
+                connectedStops.add(edge.key.fromStopId);
+                connectedStops.add(edge.key.toStopId);
+                Map<String, Object> row = edge.toRow();
+                row.put("hash", contentHash(row));
+                edgeRowsByType.computeIfAbsent(edge.key.type, type -> new ArrayList<>()).add(row);
+            }
+            List<Map<String, Object>> patternRows = new ArrayList<>(patterns.size());
+            for (Map.Entry<PatternKey, PatternTrips> entry : patterns.entrySet()) {
+                PatternKey key = entry.getKey();
+                Map<String, Object> row = new HashMap<>();
+                row.put("patternId", key.edgeType + ":" + key.directionId + ":" + contentHash(key.stopIds));
+                row.put("edgeType", key.edgeType);
+                row.put("directionId", key.directionId);
+                row.put("stopIds", key.stopIds);
+                row.put("tripCount", entry.getValue().count);
+                row.put("tripId", entry.getValue().firstTripId);
+                row.put("hash", contentHash(row));
+                patternRows.add(row);
+            }
+            return new GraphModel(stopRows, edgeRowsByType, patternRows, edges.size(), connectedStops.size());
+        }
+
+        private static int rideMinutes(StopTimeRepository.TimetableRow from, StopTimeRepository.TimetableRow to) {
+            long minutes = ChronoUnit.MINUTES.between(from.getDepartureTime(), to.getArrivalTime());
+            return minutes > 0 ? (int) minutes : 1;
+        }
+
+        private double distanceWeight(StopTimeRepository.TimetableRow from, StopTimeRepository.TimetableRow to) {
+            Stop fromStop = stops.get(from.getStopId());
+            Stop toStop = stops.get(to.getStopId());
+            double weight = haversineDistance(fromStop.getStopLat(), fromStop.getStopLon(),
+                    toStop.getStopLat(), toStop.getStopLon());
+            if (weight <= 0) {
+                invalidWeights++;
+                weight = 1.0;
+            }
+            return weight;
+        }
+
+        private static double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
+            final int R = 6371; // Earth's radius in km
+            double latDistance = Math.toRadians(lat2 - lat1);
+            double lonDistance = Math.toRadians(lon2 - lon1);
+            double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2) +
+                    Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                            Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+            double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            return R * c;
+        }
+    }
+
+    private record EdgeKey(String fromStopId, String toStopId, String type) {
+    }
+
+    private record PatternKey(String edgeType, int directionId, List<String> stopIds) {
+    }
+
+    private static final class PatternTrips {
+        private final String firstTripId;
+        private int count;
+
+        private PatternTrips(String firstTripId) {
+            this.firstTripId = firstTripId;
+        }
+    }
+
+    private static final class Edge {
+        private static final int MINUTES_PER_DAY = 24 * 60;
+
+        private final EdgeKey key;
+        // Ride times of timed trips as counts per whole minute, indexed by minute
+        private int[] rideMinuteCounts = new int[8];
+        private int timedTrips;
+        // Trips without times all cover the same stop-to-stop distance, so one weight and a count are enough
+        private double distanceWeight;
+        private int untimedTrips;
+        // Minutes of the day with a departure over the hop, per service
+        private final Map<String, BitSet> departureMinutesByService = new HashMap<>();
+        private String representativeTripId;
+        private Integer directionId;
+        private double transferWeight;
+
+        private Edge(EdgeKey key) {
+            this.key = key;
+        }
+
+        private void addTimedTrip(String tripId, int directionId, String serviceId, int rideMinutes, LocalTime departure) {
+            represent(tripId, directionId);
+            if (rideMinutes >= rideMinuteCounts.length) {
+                rideMinuteCounts = Arrays.copyOf(rideMinuteCounts, Math.max(rideMinutes + 1, rideMinuteCounts.length * 2));
+            }
+            rideMinuteCounts[rideMinutes]++;
+            timedTrips++;
+            departureMinutesByService.computeIfAbsent(serviceId != null ? serviceId : "", id -> new BitSet(MINUTES_PER_DAY))
+                    .set(departure.toSecondOfDay() / 60);
+        }
+
+        private void addUntimedTrip(String tripId, int directionId, double weight) {
+            represent(tripId, directionId);
+            distanceWeight = weight;
+            untimedTrips++;
+        }
+
+        private void represent(String tripId, int directionId) {
+            if (representativeTripId == null) {
+                representativeTripId = tripId;
+                this.directionId = directionId;
+            }
+        }
+
+        private Map<String, Object> toRow() {
+            Map<String, Object> row = new HashMap<>();
+            row.put("fromStopId", key.fromStopId);
+            row.put("toStopId", key.toStopId);
+            if (representativeTripId == null) {
+                row.put("weight", transferWeight);
+                return row;
+            }
+            // Ride times win over distances when a hop has both, as the two are not comparable
+            double median = timedTrips > 0 ? medianRideMinutes() : distanceWeight;
+            row.put("weight", median);
+            row.put("minWeight", timedTrips > 0 ? (double) rideMinuteAt(0) : distanceWeight);
+            row.put("medianWeight", median);
+            row.put("tripCount", timedTrips + untimedTrips);
+            row.put("directionId", directionId);
+            row.put("tripIds", List.of(representativeTripId));
+            Double headway = headwayMinutes();
+            if (headway != null) {
+                row.put("headway", headway);
+            }
+            return row;
+        }
+
+        private double medianRideMinutes() {
+            int middle = timedTrips / 2;
+            return timedTrips % 2 == 1 ? rideMinuteAt(middle) : (rideMinuteAt(middle - 1) + rideMinuteAt(middle)) / 2.0;
+        }
+
+        // The ride time at the given rank when all timed trips are sorted by ride time
+        private int rideMinuteAt(int rank) {
+            int seen = 0;
+            for (int minute = 0; minute < rideMinuteCounts.length; minute++) {
+                seen += rideMinuteCounts[minute];
+                if (seen > rank) {
+                    return minute;
+                }
+            }
+            throw new IllegalStateException("Rank " + rank + " out of " + timedTrips + " ride times");
+        }
+
+        // Median gap between successive departures over the hop, in minutes. Gaps are only taken between
+        // departures of the same service, as departures of services running on different days never interleave
+        private Double headwayMinutes() {
+            int[] gaps = new int[8];
+            int gapCount = 0;
+            for (BitSet departureMinutes : departureMinutesByService.values()) {
+                int previous = departureMinutes.nextSetBit(0);
+                for (int minute = departureMinutes.nextSetBit(previous + 1); minute >= 0;
+                     minute = departureMinutes.nextSetBit(minute + 1)) {
+                    if (gapCount == gaps.length) {
+                        gaps = Arrays.copyOf(gaps, gapCount * 2);
+                    }
+                    gaps[gapCount++] = minute - previous;
+                    previous = minute;
+                }
+            }
+            if (gapCount == 0) {
+                return null;
+            }
+            Arrays.sort(gaps, 0, gapCount);
+            int middle = gapCount / 2;
+            return gapCount % 2 == 1 ? (double) gaps[middle] : (gaps[middle - 1] + gaps[middle]) / 2.0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import java.util.*;
+
+/**
+ * Constraints and indexes the transit graph relies on. Stop and Pattern nodes are unique per id within a graph
+ * generation, which also gives every {@code {stopId, generation}} lookup in the builds an index seek; the single
+ * property indexes serve lookups that do not pin a generation, such as the aStar endpoints in the route provider.
+ */
+public final class GraphSchema {
+
+    public static final String ONLINE = "ONLINE";
+    public static final String MISSING = "MISSING";
+
+    public record Element(String name, String kind, String label, List<String> properties, String statement) {
+    }
+
+    public static final List<Element> ELEMENTS = List.of(
+            constraint("stop_generation_unique", "Stop", "s", "stopId", "generation"),
+            constraint("pattern_generation_unique", "Pattern", "p", "patternId", "generation"),
+            constraint("graph_version_unique", "GraphVersion", "v", "graph"),
+            index("stop_stop_id", "Stop", "s", "stopId"),
+            index("stop_stop_name", "Stop", "s", "stopName"),
+            index("stop_generation", "Stop", "s", "generation"),
+            index("pattern_generation", "Pattern", "p", "generation"));
+
+    private GraphSchema() {
+    }
+
+    /**
+     * Matches the expected elements against {@code SHOW INDEXES} rows (constraint-backed indexes carry their
+     * constraint's name) and reports each element's state, {@link #MISSING} when Neo4j has no such index.
+     */
+    public static List<Map<String, Object>> status(Map<String, Map<String, Object>> indexesByName) {
+        List<Map<String, Object>> status = new ArrayList<>(ELEMENTS.size());
+        for (Element element : ELEMENTS) {
+            Map<String, Object> index = indexesByName.get(element.name());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", element.name());
+            row.put("kind", element.kind());
+            row.put("label", element.label());
+            row.put("properties", element.properties());
+            row.put("state", index != null ? index.get("state") : MISSING);
+            row.put("populationPercent", index != null ? index.get("populationPercent") : 0.0);
+            status.add(row);
+        }
+        return status;
+    }
+
+    /** Names of the elements that are not {@link #ONLINE}. */
+    public static List<String> notOnline(List<Map<String, Object>> status) {
+        return status.stream()
+                .filter(row -> !ONLINE.equals(row.get("state")))
+                .map(row -> row.get("name") + " (" + row.get("state") + ")")
+                .toList();
+    }
+
+    private static Element constraint(String name, String label, String variable, String... properties) {
+        String key = properties.length == 1 ? variable + "." + properties[0]
+                : "(" + String.join(", ", Arrays.stream(properties).map(p -> variable + "." + p).toList()) + ")";
+        return new Element(name, "UNIQUENESS", label, List.of(properties),
+                "CREATE CONSTRAINT " + name + " IF NOT EXISTS FOR (" + variable + ":" + label + ") REQUIRE " + key + " IS UNIQUE");
+    }
+
+    private static Element index(String name, String label, String variable, String property) {
+        return new Element(name, "RANGE", label, List.of(property),
+                "CREATE INDEX " + name + " IF NOT EXISTS FOR (" + variable + ":" + label + ") ON (" + variable + "." + property + ")");
+    }
+}
@@ -0,0 +1,185 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.entity.Location;
+import com.tcd.asc.damn.common.entity.LuasRoute;
+import com.tcd.asc.damn.common.entity.Station;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+
+import java.util.*;
+
+/**
+ * Immutable line topology derived from the {@link LuasRoute} station pairs. The pairs are treated as undirected
+ * track; every terminus-to-terminus path through a connected network becomes a line, stored as an ordered station
+ * array with a position index and cumulative distances. A network with branches (e.g. the Red line towards Saggart
+ * and Tallaght) yields one line per pair of termini, so every pair of connected stations shares at least one line.
+ * <p>
+ * Between-station queries then resolve both positions with two map lookups and return an array slice, in either
+ * direction of travel.
+ */
+public final class LineTopology {
+
+    private final List<Line> lines;
+    private final Map<String, List<Line>> linesByStation;
+
+    private LineTopology(List<Line> lines) {
+        this.lines = lines;
+        Map<String, List<Line>> byStation = new HashMap<>();
+        for (Line line : lines) {
+            for (Station station : line.stations) {
+                byStation.computeIfAbsent(station.getStationId(), id -> new ArrayList<>()).add(line);
+            }
+        }
+        this.linesByStation = byStation;
+    }
+
+    public static LineTopology of(Collection<LuasRoute> routes) {
+        Map<String, Station> stations = new LinkedHashMap<>();
+        Map<String, Set<String>> adjacency = new LinkedHashMap<>();
+        for (LuasRoute route : routes) {
+            Station from = route.getFromStation();
+            Station to = route.getToStation();
+            if (from == null || to == null || from.getStationId().equals(to.getStationId())) {
+                continue;
+            }
+            stations.putIfAbsent(from.getStationId(), from);
+            stations.putIfAbsent(to.getStationId(), to);
+            adjacency.computeIfAbsent(from.getStationId(), id -> new LinkedHashSet<>()).add(to.getStationId());
+            adjacency.computeIfAbsent(to.getStationId(), id -> new LinkedHashSet<>()).add(from.getStationId());
+        }
+
+        List<Line> lines = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (String stationId : adjacency.keySet()) {
+            if (visited.contains(stationId)) {
+                continue;
+            }
+            List<String> component = new ArrayList<>(parents(stationId, adjacency).keySet());
+            visited.addAll(component);
+
+            List<String> termini = new ArrayList<>();
+            for (String member : component) {
+                if (adjacency.get(member).size() == 1) {
+                    termini.add(member);
+                }
+            }
+            if (termini.size() < 2) {
+                // A loop: run the line from its terminus, or any station, to the station furthest from it
+                String start = termini.isEmpty() ? component.get(0) : termini.get(0);
+                List<String> order = new ArrayList<>(parents(start, adjacency).keySet());
+                termini = List.of(start, order.get(order.size() - 1));
+            }
+            for (int a = 0; a < termini.size(); a++) {
+                Map<String, String> parents = parents(termini.get(a), adjacency);
+                for (int b = a + 1; b < termini.size(); b++) {
+                    List<Station> path = new ArrayList<>();
+                    for (String id = termini.get(b); id != null; id = parents.get(id)) {
+                        path.add(stations.get(id));
+                    }
+                    Collections.reverse(path);
+                    lines.add(new Line(path));
+                }
+            }
+        }
+        return new LineTopology(Collections.unmodifiableList(lines));
+    }
+
+    public List<Line> lines() {
+        return lines;
+    }
+
+    /**
+     * Returns the stations from {@code fromStationId} to {@code toStationId} inclusive, in travel order, or an empty
+     * list when either station is unknown or the two are not connected.
+     */
+    public List<Station> stationsBetween(String fromStationId, String toStationId) {
+        Span span = span(fromStationId, toStationId);
+        if (span == null) {
+            return new ArrayList<>();
+        }
+        List<Station> slice = new ArrayList<>(Arrays.asList(span.line.stations)
+                .subList(Math.min(span.from, span.to), Math.max(span.from, span.to) + 1));
+        if (span.from > span.to) {
+            Collections.reverse(slice);
+        }
+        return slice;
+    }
+
+    /** Number of stops travelled from one station to the other, or -1 when they are not connected. */
+    public int stopCount(String fromStationId, String toStationId) {
+        Span span = span(fromStationId, toStationId);
+        return span != null ? Math.abs(span.to - span.from) : -1;
+    }
+
+    /** Track distance in kilometres between the two stations, or -1 when they are not connected. */
+    public double distanceKm(String fromStationId, String toStationId) {
+        Span span = span(fromStationId, toStationId);
+        return span != null ? Math.abs(span.line.cumulativeKm[span.to] - span.line.cumulativeKm[span.from]) : -1;
+    }
+
+    private Span span(String fromStationId, String toStationId) {
+        for (Line line : linesByStation.getOrDefault(fromStationId, List.of())) {
+            Integer to = line.positions.get(toStationId);
+            if (to != null) {
+                return new Span(line, line.positions.get(fromStationId), to);
+            }
+        }
+        return null;
+    }
+
+    /** Breadth-first search tree of the component containing {@code start}: each station mapped to its parent. */
+    private static Map<String, String> parents(String start, Map<String, Set<String>> adjacency) {
+        Map<String, String> parents = new LinkedHashMap<>();
+        parents.put(start, null);
+        Deque<String> queue = new ArrayDeque<>(List.of(start));
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            for (String next : adjacency.get(current)) {
+                if (!parents.containsKey(next)) {
+                    parents.put(next, current);
+                    queue.add(next);
+                }
+            }
+        }
+        return parents;
+    }
+
+    private record Span(Line line, int from, int to) {
+    }
+
+    /** One terminus-to-terminus line: its stations in order, their positions and the distance from the first. */
+    public static final class Line {
+
+        private final Station[] stations;
+        private final Map<String, Integer> positions;
+        private final double[] cumulativeKm;
+
+        private Line(List<Station> path) {
+            this.stations = path.toArray(new Station[0]);
+            this.positions = new HashMap<>(stations.length * 2);
+            this.cumulativeKm = new double[stations.length];
+            for (int i = 0; i < stations.length; i++) {
+                positions.put(stations[i].getStationId(), i);
+                if (i > 0) {
+                    cumulativeKm[i] = cumulativeKm[i - 1] + distanceKm(stations[i - 1], stations[i]);
+                }
+            }
+        }
+
+        public List<Station> stations() {
+            return List.of(stations);
+        }
+
+        public double lengthKm() {
+            return cumulativeKm.length > 0 ? cumulativeKm[cumulativeKm.length - 1] : 0;
+        }
+
+        private static double distanceKm(Station from, Station to) {
+            Location a = from.getLocation();
+            Location b = to.getLocation();
+            if (a == null || b == null) {
+                return 0;
+            }
+            return GeoGridIndex.distanceKm(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+        }
+    }
+}
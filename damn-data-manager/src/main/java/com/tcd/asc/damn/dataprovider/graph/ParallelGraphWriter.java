@@ -0,0 +1,172 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes {@code UNWIND $rows} batches to Neo4j from several workers at once. Rows are sharded by the hash of one
+ * property, so every row with the same key (e.g. every relationship leaving a stop) goes to the same worker and
+ * workers rarely contend for the same node locks. Each worker has its own session, since sessions are not
+ * thread-safe, and writes each batch in its own {@code executeWrite} transaction.
+ * <p>
+ * {@code executeWrite} already retries transient failures such as deadlocks within the driver's retry window;
+ * a batch that still fails with a {@link TransientException} is retried up to {@code maxRetries} more times
+ * with a growing back-off.
+ */
+public final class ParallelGraphWriter {
+
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    private final Driver driver;
+    private final int workers;
+    private final int batchSize;
+    private final int maxRetries;
+    private final AtomicInteger retries = new AtomicInteger();
+
+    public ParallelGraphWriter(Driver driver, int workers, int batchSize, int maxRetries) {
+        this.driver = driver;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    /**
+     * Writes every query's rows, sharding rows across workers by the value of {@code shardKey}. Returns once all
+     * rows are committed and reports the throughput.
+     *
+     * @return the number of rows written
+     * @throws RuntimeException if a batch cannot be written
+     */
+    public int write(String description, Map<String, List<Map<String, Object>>> rowsByQuery, String shardKey) {
+        return write(description, rowsByQuery, shardKey, Map.of());
+    }
+
+    /**
+     * As {@link #write(String, Map, String)}, passing {@code parameters} to every batch alongside {@code $rows}.
+     */
+    public int write(String description, Map<String, List<Map<String, Object>>> rowsByQuery, String shardKey,
+                     Map<String, Object> parameters) {
+        long startedAt = System.currentTimeMillis();
+        int retriesBefore = retries.get();
+
+        List<Map<String, List<Map<String, Object>>>> shards = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            shards.add(new LinkedHashMap<>());
+        }
+        int rowCount = 0;
+        for (Map.Entry<String, List<Map<String, Object>>> entry : rowsByQuery.entrySet()) {
+            for (Map<String, Object> row : entry.getValue()) {
+                int shard = Math.floorMod(Objects.hashCode(row.get(shardKey)), workers);
+                shards.get(shard).computeIfAbsent(entry.getKey(), query -> new ArrayList<>()).add(row);
+                rowCount++;
+            }
+        }
+
+        if (rowCount == 0) {
+            return 0;
+        }
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Map<String, List<Map<String, Object>>> shard : shards) {
+            if (!shard.isEmpty()) {
+                tasks.add(() -> {
+                    writeShard(shard, parameters);
+                    return null;
+                });
+            }
+        }
+        runAll(tasks);
+
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - startedAt);
+        System.out.println(String.format("Wrote %d %s in %d ms (%.0f rows/s) with %d workers, %d retries",
+                rowCount, description, elapsedMs, rowCount * 1000.0 / elapsedMs, tasks.size(), retries.get() - retriesBefore));
+        return rowCount;
+    }
+
+    /** Number of batches retried after a transient failure since this writer was created. */
+    public int retryCount() {
+        return retries.get();
+    }
+
+    private void writeShard(Map<String, List<Map<String, Object>>> shard, Map<String, Object> parameters) {
+        try (Session session = driver.session()) {
+            for (Map.Entry<String, List<Map<String, Object>>> entry : shard.entrySet()) {
+                List<Map<String, Object>> rows = entry.getValue();
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    writeBatch(session, entry.getKey(), rows.subList(from, Math.min(from + batchSize, rows.size())), parameters);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(Session session, String cypherQuery, List<Map<String, Object>> batch, Map<String, Object> parameters) {
+        Map<String, Object> batchParameters = new HashMap<>(parameters);
+        batchParameters.put("rows", batch);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                session.executeWrite(tx -> tx.run(cypherQuery, batchParameters).consume());
+                return;
+            } catch (TransientException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                System.err.println("Transient failure writing a batch of " + batch.size() + " rows, retrying: " + e.getMessage());
+                sleep(RETRY_BACKOFF_MS * (attempt + 1) + ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MS));
+            }
+        }
+    }
+
+    private void runAll(List<Callable<Void>> tasks) {
+        if (tasks.size() <= 1) {
+            for (Callable<Void> task : tasks) {
+                call(task);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "graph-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Graph write interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void call(Callable<Void> task) {
+        try {
+            task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Graph write interrupted", e);
+        }
+    }
+}
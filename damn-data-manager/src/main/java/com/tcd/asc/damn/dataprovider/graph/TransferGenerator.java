@@ -0,0 +1,100 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+
+import java.util.*;
+
+/**
+ * Generates walking TRANSFER relationships between stops. Every stop is linked both ways to its nearest neighbours
+ * within {@code radiusKm}, found through a {@link GeoGridIndex} with cells as wide as the radius so each lookup
+ * touches only the surrounding cells. Stops grouped under the same GTFS {@code parentStation}, or under a station
+ * that is itself a stop, are always linked to each other, however far apart their platforms are.
+ * <p>
+ * Stops that a line already calls at both of, such as consecutive stops or opposite platforms of the same line, are
+ * never linked: riding is the way between them, and a walk would only let a journey cut across or reverse the line.
+ * Trips must therefore be added to the builder before the transfers.
+ * <p>
+ * Weights are minutes: the walk at {@code walkSpeedKmh} over the straight-line distance plus a fixed
+ * {@code penaltyMinutes} for the change itself.
+ */
+public final class TransferGenerator {
+
+    private final double radiusKm;
+    private final double walkSpeedKmh;
+    private final double penaltyMinutes;
+    private final int maxPerStop;
+
+    public TransferGenerator(double radiusKm, double walkSpeedKmh, double penaltyMinutes, int maxPerStop) {
+        if (radiusKm <= 0 || walkSpeedKmh <= 0) {
+            throw new IllegalArgumentException("Transfer radius and walking speed must be positive");
+        }
+        this.radiusKm = radiusKm;
+        this.walkSpeedKmh = walkSpeedKmh;
+        this.penaltyMinutes = Math.max(0, penaltyMinutes);
+        this.maxPerStop = Math.max(1, maxPerStop);
+    }
+
+    /**
+     * Adds the transfers between {@code stops} to the builder.
+     *
+     * @return the number of directed transfers added
+     */
+    public int addTransfers(GraphModel.Builder builder, Collection<Stop> stops) {
+        long startedAt = System.currentTimeMillis();
+        Set<String> pairs = new HashSet<>();
+        int count = 0;
+
+        GeoGridIndex<Stop> index = GeoGridIndex.of(stops, Stop::getStopLat, Stop::getStopLon, radiusKm);
+        for (Stop from : stops) {
+            int linked = 0;
+            for (Stop to : index.withinRadius(from.getStopLat(), from.getStopLon(), radiusKm)) {
+                if (linked == maxPerStop) {
+                    break;
+                }
+                if (!to.getStopId().equals(from.getStopId()) && !builder.sharesLine(from.getStopId(), to.getStopId())) {
+                    count += link(builder, pairs, from, to);
+                    linked++;
+                }
+            }
+        }
+
+        Map<String, List<Stop>> stations = new HashMap<>();
+        for (Stop stop : stops) {
+            String station = stop.getParentStation() != null && !stop.getParentStation().isBlank()
+                    ? stop.getParentStation() : stop.getStopId();
+            stations.computeIfAbsent(station, key -> new ArrayList<>()).add(stop);
+        }
+        for (List<Stop> members : stations.values()) {
+            for (int i = 0; i < members.size(); i++) {
+                for (int j = i + 1; j < members.size(); j++) {
+                    if (!builder.sharesLine(members.get(i).getStopId(), members.get(j).getStopId())) {
+                        count += link(builder, pairs, members.get(i), members.get(j));
+                    }
+                }
+            }
+        }
+
+        System.out.println("Generated " + count + " transfers between " + stops.size() + " stops in " +
+                (System.currentTimeMillis() - startedAt) + " ms");
+        return count;
+    }
+
+    /** Minutes to change between two stops {@code distanceKm} apart. */
+    public double weight(double distanceKm) {
+        return penaltyMinutes + distanceKm / walkSpeedKmh * 60.0;
+    }
+
+    // Links both directions once per unordered pair
+    private int link(GraphModel.Builder builder, Set<String> pairs, Stop a, Stop b) {
+        String key = a.getStopId().compareTo(b.getStopId()) < 0
+                ? GraphDiff.edgeKey(a.getStopId(), b.getStopId()) : GraphDiff.edgeKey(b.getStopId(), a.getStopId());
+        if (!pairs.add(key)) {
+            return 0;
+        }
+        double weight = weight(GeoGridIndex.distanceKm(a.getStopLat(), a.getStopLon(), b.getStopLat(), b.getStopLon()));
+        builder.addTransfer(a.getStopId(), b.getStopId(), weight);
+        builder.addTransfer(b.getStopId(), a.getStopId(), weight);
+        return 2;
+    }
+}
@@ -0,0 +1,129 @@
+package com.tcd.asc.damn.dataprovider.gtfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a GTFS text file (RFC 4180 CSV with a header row) one record at a time. Only the current record is held in
+ * memory, so files of any size are read in constant space. Fields are looked up by header name; a UTF-8 byte order
+ * mark and surrounding whitespace in the header are ignored, as GTFS feeds commonly carry both.
+ */
+public final class GtfsCsvReader implements Closeable {
+
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+    private long recordNumber;
+
+    public GtfsCsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        if (!readRecord()) {
+            return;
+        }
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).strip();
+            if (i == 0 && name.startsWith("\uFEFF")) {
+                name = name.substring(1);
+            }
+            columns.put(name, i);
+        }
+        recordNumber = 0;
+    }
+
+    public boolean hasColumn(String name) {
+        return columns.containsKey(name);
+    }
+
+    /** Advances to the next record, skipping blank lines; returns false at the end of the file. */
+    public boolean next() throws IOException {
+        while (readRecord()) {
+            if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the named field of the current record, or null when the column is absent or the field is empty. */
+    public String get(String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    /** One-based number of the current record, not counting the header. */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pushedBack = following;
+                    }
+                }
+                fields.add(field.toString());
+                recordNumber++;
+                return true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
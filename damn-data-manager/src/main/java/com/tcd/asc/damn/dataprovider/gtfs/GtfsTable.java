@@ -0,0 +1,189 @@
+package com.tcd.asc.damn.dataprovider.gtfs;
+
+import com.tcd.asc.damn.common.constants.TransitType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Mapping from a GTFS file to the table of its entity, in import order: each table only references tables imported
+ * before it. Rows are rendered as PostgreSQL {@code COPY ... (FORMAT csv)} lines.
+ */
+public enum GtfsTable {
+
+    ROUTES("routes.txt", "route", List.of("route_id"), List.of(
+            Column.text("route_id"), Column.text("agency_id"), Column.text("route_short_name"),
+            Column.text("route_long_name"), Column.text("route_desc"), Column.integer("route_type"),
+            Column.text("route_url"), Column.text("route_color"), Column.text("route_text_color"),
+            Column.transitType("transit_type"))),
+    CALENDAR("calendar.txt", "calendar", List.of("service_id"), List.of(
+            Column.text("service_id"), Column.integer("monday"), Column.integer("tuesday"), Column.integer("wednesday"),
+            Column.integer("thursday"), Column.integer("friday"), Column.integer("saturday"), Column.integer("sunday"),
+            Column.date("start_date"), Column.date("end_date"))),
+    CALENDAR_DATES("calendar_dates.txt", "calendar_date", List.of("service_id", "date"), List.of(
+            Column.text("service_id"), Column.date("date"), Column.integer("exception_type"))),
+    STOPS("stops.txt", "stop", List.of("stop_id"), List.of(
+            Column.text("stop_id"), Column.text("stop_code"), Column.text("stop_name"), Column.text("stop_desc"),
+            Column.decimal("stop_lat"), Column.decimal("stop_lon"), Column.text("zone_id"), Column.text("stop_url"),
+            Column.text("location_type"), Column.text("parent_station"), Column.transitType("stop_type"))),
+    TRIPS("trips.txt", "trip", List.of("trip_id"), List.of(
+            Column.text("trip_id"), Column.text("route_id"), Column.text("service_id"), Column.text("trip_headsign"),
+            Column.text("trip_short_name"), Column.integer("direction_id"), Column.text("block_id"),
+            Column.text("shape_id"))),
+    STOP_TIMES("stop_times.txt", "stop_time", List.of("trip_id", "stop_id", "stop_sequence"), List.of(
+            Column.text("trip_id"), Column.text("stop_id"), Column.integer("stop_sequence"),
+            Column.time("arrival_time"), Column.time("departure_time"), Column.text("stop_headsign"),
+            Column.integer("pickup_type"), Column.integer("drop_off_type"), Column.integer("timepoint"))),
+    SHAPES("shapes.txt", "shape", List.of("shape_id", "shape_pt_sequence"), List.of(
+            Column.text("shape_id"), Column.decimal("shape_pt_lat"), Column.decimal("shape_pt_lon"),
+            Column.integer("shape_pt_sequence"), Column.decimal("shape_dist_traveled")));
+
+    private final String fileName;
+    private final String tableName;
+    private final List<String> keyColumns;
+    private final List<Column> columns;
+
+    GtfsTable(String fileName, String tableName, List<String> keyColumns, List<Column> columns) {
+        this.fileName = fileName;
+        this.tableName = tableName;
+        this.keyColumns = keyColumns;
+        this.columns = columns;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public String tableName() {
+        return tableName;
+    }
+
+    /** Comma-separated column list shared by the staging table, the COPY and the upsert. */
+    public String columnList() {
+        return String.join(", ", columns.stream().map(Column::name).toList());
+    }
+
+    /**
+     * Upsert from the staging table into the entity table. Feeds occasionally repeat a key, which a single
+     * {@code INSERT ... ON CONFLICT} statement rejects, so only one row per key is taken.
+     */
+    public String upsertSql(String stagingTable) {
+        String keys = String.join(", ", keyColumns);
+        String updates = String.join(", ", columns.stream()
+                .map(Column::name)
+                .filter(name -> !keyColumns.contains(name))
+                .map(name -> name + " = EXCLUDED." + name)
+                .toList());
+        return "INSERT INTO " + tableName + " (" + columnList() + ") " +
+                "SELECT DISTINCT ON (" + keys + ") " + columnList() + " FROM " + stagingTable + " " +
+                "ON CONFLICT (" + keys + ") DO UPDATE SET " + updates;
+    }
+
+    /**
+     * Appends the current record as one CSV line: text is quoted, empty text becomes NULL, and empty numbers
+     * become 0 because the entities map them to primitive, non-null columns.
+     *
+     * @throws IllegalArgumentException if a key field is missing or a field cannot be parsed
+     */
+    public void appendCopyLine(GtfsCsvReader reader, TransitType transitType, StringBuilder out) {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            String value = reader.get(column.name());
+            if (value == null && keyColumns.contains(column.name())) {
+                throw new IllegalArgumentException(fileName + " record " + reader.recordNumber() + " has no " + column.name());
+            }
+            if (i > 0) {
+                out.append(',');
+            }
+            try {
+                column.append(value, transitType, out);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(fileName + " record " + reader.recordNumber() + " has an invalid " +
+                        column.name() + ": " + value, e);
+            }
+        }
+        out.append('\n');
+    }
+
+    private record Column(String name, Kind kind) {
+
+        private enum Kind { TEXT, INTEGER, DECIMAL, TIME, DATE, TRANSIT_TYPE }
+
+        static Column text(String name) {
+            return new Column(name, Kind.TEXT);
+        }
+
+        static Column integer(String name) {
+            return new Column(name, Kind.INTEGER);
+        }
+
+        static Column decimal(String name) {
+            return new Column(name, Kind.DECIMAL);
+        }
+
+        static Column time(String name) {
+            return new Column(name, Kind.TIME);
+        }
+
+        static Column date(String name) {
+            return new Column(name, Kind.DATE);
+        }
+
+        static Column transitType(String name) {
+            return new Column(name, Kind.TRANSIT_TYPE);
+        }
+
+        void append(String value, TransitType transitType, StringBuilder out) {
+            switch (kind) {
+                case TEXT -> {
+                    if (value != null) {
+                        out.append('"').append(value.replace("\"", "\"\"")).append('"');
+                    }
+                }
+                case INTEGER -> out.append(value != null ? Integer.parseInt(value.strip()) : 0);
+                case DECIMAL -> out.append(value != null ? Double.parseDouble(value.strip()) : 0.0);
+                case TIME -> {
+                    if (value != null) {
+                        appendTime(value.strip(), out);
+                    }
+                }
+                case DATE -> {
+                    if (value != null) {
+                        appendDate(value.strip(), out);
+                    }
+                }
+                case TRANSIT_TYPE -> out.append(transitType.name());
+            }
+        }
+
+        // GTFS times pass 24:00:00 for trips running after midnight, while the entities store a LocalTime
+        private static void appendTime(String value, StringBuilder out) {
+            String[] parts = value.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected H:MM:SS");
+            }
+            int hours = Integer.parseInt(parts[0]) % 24;
+            int minutes = Integer.parseInt(parts[1]);
+            int seconds = Integer.parseInt(parts[2]);
+            if (minutes > 59 || seconds > 59) {
+                throw new IllegalArgumentException("Expected H:MM:SS");
+            }
+            appendTwoDigits(hours, out);
+            appendTwoDigits(minutes, out.append(':'));
+            appendTwoDigits(seconds, out.append(':'));
+        }
+
+        // GTFS dates are YYYYMMDD
+        private static void appendDate(String value, StringBuilder out) {
+            if (value.length() != 8 || !value.chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("Expected YYYYMMDD");
+            }
+            out.append(LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)), Integer.parseInt(value.substring(6, 8))));
+        }
+
+        private static void appendTwoDigits(int value, StringBuilder out) {
+            out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+    }
+}
@@ -7,7 +7,10 @@ import com.tcd.asc.damn.common.entity.Station;
 import com.tcd.asc.damn.common.repository.LuasRouteRepository;
 import com.tcd.asc.damn.common.repository.StationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,24 +24,66 @@ public class DataProviderService {
     @Autowired
     private LuasRouteRepository luasRouteRepository;
 
+    @Autowired
+    private StationIndexService stationIndexService;
+
+    @Autowired
+    private LineTopologyService lineTopologyService;
+
+    @Value("${station-index.max-batch-size:500}")
+    private int maxBatchSize = 500;
+
+    @Value("${station-index.max-nearest-limit:100}")
+    private int maxNearestLimit = 100;
+
+    private static final double MAX_NEAREST_STATION_DISTANCE_KM = 100;
+
     public List<Station> getAllStations(StationType stationType) {
-        return stationRepository.findByType(stationType);
+        return stationRepository.findByTypeWithLocation(stationType);
     }
 
     public Station findNearestStation(Location location) {
-        Station nearestStation = null;
-        double shortestDistance = 100;
-
-        //The below logic will get the nearest LUAS station
-        for (Station station : getAllStations(StationType.LUAS)) {
-            Location stationLocation = station.getLocation();
-            double distance = calculateDistance(stationLocation.getLatitude(), stationLocation.getLongitude(), location.getLatitude(), location.getLongitude());
-            if (distance < shortestDistance) {
-                shortestDistance = distance;
-                nearestStation = station;
-            }
+        //The below logic will get the nearest LUAS station, ignoring anything over the maximum distance
+        List<Station> nearest = findNearestStations(StationType.LUAS, location, 1);
+        if (nearest.isEmpty()) {
+            return null;
+        }
+        Location stationLocation = nearest.get(0).getLocation();
+        double distance = calculateDistance(stationLocation.getLatitude(), stationLocation.getLongitude(), location.getLatitude(), location.getLongitude());
+        return distance < MAX_NEAREST_STATION_DISTANCE_KM ? nearest.get(0) : null;
+    }
+
+    public List<Station> findNearestStations(StationType stationType, Location location, int limit) {
+        checkNearestLimit(limit);
+        return stationIndexService.findNearest(stationType, location.getLatitude(), location.getLongitude(), limit);
+    }
+
+    public List<Station> findStationsWithinRadius(StationType stationType, Location location, double radiusKm) {
+        return stationIndexService.findWithinRadius(stationType, location.getLatitude(), location.getLongitude(), radiusKm);
+    }
+
+    /**
+     * Resolves the nearest stations for many locations against the same index; the result holds one list per
+     * location, in request order.
+     */
+    public List<List<Station>> findNearestStations(StationType stationType, List<Location> locations, int limit) {
+        if (locations.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " locations can be resolved per request, got " + locations.size());
+        }
+        checkNearestLimit(limit);
+        List<List<Station>> result = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            result.add(findNearestStations(stationType, location, limit));
+        }
+        return result;
+    }
+
+    private void checkNearestLimit(int limit) {
+        if (limit > maxNearestLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxNearestLimit + " nearest stations can be requested, got " + limit);
         }
-        return nearestStation;
     }
 
     public static double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
@@ -55,53 +100,15 @@ public class DataProviderService {
         return luasRouteRepository.findAll();
     }
 
-    public List<String> getStationNamesBetween(Long endStationId, Long startStationId) {
-        // Fetch all routes
-        List<LuasRoute> allLuasRoutes =  luasRouteRepository.findAll();
-
-        // Create a list to hold station names
+    /**
+     * Returns the names of the stations from the start station to the end station inclusive, in travel order, or an
+     * empty list when the two are not on a common line.
+     */
+    public List<String> getStationNamesBetween(String startStationId, String endStationId) {
         List<String> stationNames = new ArrayList<>();
-        int noOfStations = 0;
-        double totalDistance = 0;
-
-//        // Start the traversal
-//        Long currentStationId = startStationId;
-//        while (currentStationId != null) {
-//            // Find the next route that starts with the current station
-//            Long finalCurrentStationId = currentStationId;
-//            LuasRoute nextLuasRoute = allLuasRoutes.stream()
-//                    .filter(tempLuasRoute -> tempLuasRoute.getStartStation().getStationId().equals(finalCurrentStationId))
-//                    .findFirst()
-//                    .orElse(null);
-//
-//            // Break if no further route is found
-//            if (nextLuasRoute == null) {
-//                break;
-//            }
-//
-//            // Add the start station name to the list
-//            stationNames.add(nextLuasRoute.getStartStation().getName());
-//            noOfStations++;
-//            totalDistance+= nextLuasRoute.getDistance();
-//
-//            // Check if we have reached the end station
-//            if (nextLuasRoute.getEndStation().getStationId().equals(endStationId)) {
-//                stationNames.add(nextLuasRoute.getEndStation().getName());
-//                noOfStations++;
-//                totalDistance+= nextLuasRoute.getDistance();
-//                break;
-//            }
-//
-//            // Move to the next station
-//            currentStationId = nextLuasRoute.getEndStation().getStationId();
-//        }
-//        Collections.reverse(stationNames);
-////        route.setStationsList(stationNames);
-////        route.setTravelCost(noOfStations * 0.5);
-////        route.setTravelMode(TravelMode.LUAS);
-////        route.setTravelDistance(totalDistance);
+        for (Station station : lineTopologyService.getTopology().stationsBetween(startStationId, endStationId)) {
+            stationNames.add(station.getName());
+        }
         return stationNames;
     }
-
-
 }
@@ -1,21 +1,34 @@
 package com.tcd.asc.damn.dataprovider.service;
 
 import com.tcd.asc.damn.common.entity.Stop;
-import com.tcd.asc.damn.common.entity.StopTime;
-import com.tcd.asc.damn.common.entity.Trip;
 import com.tcd.asc.damn.common.repository.StopRepository;
 import com.tcd.asc.damn.common.repository.StopTimeRepository;
 import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.dataprovider.graph.GraphDiff;
+import com.tcd.asc.damn.dataprovider.graph.GraphModel;
+import com.tcd.asc.damn.dataprovider.graph.ParallelGraphWriter;
+import com.tcd.asc.damn.dataprovider.graph.TransferGenerator;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
-import java.util.concurrent.*;
-import java.util.stream.Collectors;
-
+import java.util.stream.Stream;
+
+/**
+ * Builds the transit graph in Neo4j from the stop, trip and stop time tables.
+ * <p>
+ * Full builds are blue/green: every Stop and Pattern node carries a {@code generation}, a new generation is written
+ * next to the live one, validated, and then made active by a single update of the {@code GraphVersion} node that
+ * readers resolve their generation from. The previous generation is kept for {@link #rollbackGraph()}; older ones
+ * are deleted. Incremental syncs patch the active generation in place. Every switchover, rollback and applied
+ * sync bumps {@code GraphVersion.revision}, which readers poll to know when to reload.
+ */
 @Service
 public class GraphInitializer {
 
@@ -23,253 +36,355 @@ public class GraphInitializer {
     @Autowired private StopTimeRepository stopTimeRepository;
     @Autowired private TripRepository tripRepository;
     @Autowired private Driver neo4jDriver;
-
-    private static final int THREAD_POOL_SIZE = 15;
-    private static final double TRANSFER_WEIGHT = 5.0; // Default transfer time in minutes
-
-    public void initializeGraph() {
-        System.out.println("Initializing graph in Neo4j at service startup with " + THREAD_POOL_SIZE + " threads...");
+    @Autowired private GraphSnapshotService graphSnapshotService;
+    @Autowired private GraphSchemaService graphSchemaService;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Value("${graph.init.batch-size:1000}")
+    private int batchSize = 1000;
+    @Value("${graph.init.writer-threads:4}")
+    private int writerThreads = 4;
+    @Value("${graph.init.write-retries:3}")
+    private int writeRetries = 3;
+    @Value("${graph.generation.min-connected-ratio:0.9}")
+    private double minConnectedRatio = 0.9;
+    @Value("${graph.generation.max-shrink-ratio:0.5}")
+    private double maxShrinkRatio = 0.5;
+    @Value("${graph.transfer.radius-km:0.4}")
+    private double transferRadiusKm = 0.4;
+    @Value("${graph.transfer.walk-speed-kmh:5.0}")
+    private double transferWalkSpeedKmh = 5.0;
+    @Value("${graph.transfer.penalty-minutes:2.0}")
+    private double transferPenaltyMinutes = 2.0;
+    @Value("${graph.transfer.max-per-stop:8}")
+    private int maxTransfersPerStop = 8;
+
+    private static final String CREATE_STOPS = "UNWIND $rows AS row CREATE (s:Stop) SET s = row, s.generation = $generation";
+    private static final String UPDATE_STOPS = "UNWIND $rows AS row MATCH (s:Stop {stopId: row.stopId, generation: $generation}) " +
+            "SET s = row, s.generation = $generation";
+    private static final String DELETE_STOPS = "UNWIND $rows AS row MATCH (s:Stop {stopId: row.stopId, generation: $generation}) DETACH DELETE s";
+    private static final String CREATE_PATTERNS = "UNWIND $rows AS row CREATE (p:Pattern) SET p = row, p.generation = $generation";
+    private static final String UPDATE_PATTERNS = "UNWIND $rows AS row MATCH (p:Pattern {patternId: row.patternId, generation: $generation}) " +
+            "SET p = row, p.generation = $generation";
+    private static final String DELETE_PATTERNS = "UNWIND $rows AS row MATCH (p:Pattern {patternId: row.patternId, generation: $generation}) DELETE p";
+    private static final String EDGE_PROPERTIES =
+            "SET r.weight = row.weight, " +
+                    "r.minWeight = row.minWeight, " +
+                    "r.medianWeight = row.medianWeight, " +
+                    "r.tripCount = row.tripCount, " +
+                    "r.headway = row.headway, " +
+                    "r.directionId = row.directionId, " +
+                    "r.tripIds = row.tripIds, " +
+                    "r.hash = row.hash, " +
+                    "r.updated = timestamp()";
+    // Relationship query templates, formatted with the relationship type, which is backtick-quoted as it may start
+    // with a digit
+    private static final String CREATE_EDGES =
+            "UNWIND $rows AS row " +
+                    "MATCH (from:Stop {stopId: row.fromStopId, generation: $generation}) " +
+                    "MATCH (to:Stop {stopId: row.toStopId, generation: $generation}) " +
+                    "CREATE (from)-[r:`%s`]->(to) " +
+                    EDGE_PROPERTIES + ", r.created = timestamp()";
+    private static final String UPDATE_EDGES =
+            "UNWIND $rows AS row " +
+                    "MATCH (:Stop {stopId: row.fromStopId, generation: $generation})-[r:`%s`]->(:Stop {stopId: row.toStopId}) " +
+                    EDGE_PROPERTIES;
+    private static final String DELETE_EDGES =
+            "UNWIND $rows AS row " +
+                    "MATCH (:Stop {stopId: row.fromStopId, generation: $generation})-[r:`%s`]->(:Stop {stopId: row.toStopId}) " +
+                    "DELETE r";
+
+    /**
+     * Builds a new graph generation beside the active one, validates it and switches readers to it.
+     *
+     * @throws RuntimeException if the build fails or the new generation does not pass validation; the active
+     *                          generation is left untouched
+     */
+    public synchronized void initializeGraph() {
+        System.out.println("Initializing graph in Neo4j with " + writerThreads + " writers and UNWIND batches of " + batchSize + " rows...");
+        long startedAt = System.currentTimeMillis();
         try (Session session = neo4jDriver.session()) {
-            session.run("MATCH (n) DETACH DELETE n"); // Clear existing graph
-            buildGraphInNeo4j(session);
-            System.out.println("Graph initialization in Neo4j completed.");
+            graphSchemaService.ensureSchema();
+            GraphModel model = buildGraphModel();
+            VersionState state = readVersion(session);
+            long generation = state.lastGeneration() + 1;
+            session.run("MERGE (v:GraphVersion {graph: 'transit'}) SET v.lastGeneration = $generation",
+                    Map.of("generation", generation)).consume();
+
+            writeGraph(model, generation);
+            try {
+                validateGeneration(session, model, generation, state);
+            } catch (RuntimeException e) {
+                deleteGenerations(session, "n.generation = $generation", Map.of("generation", generation));
+                throw e;
+            }
+
+            // Readers resolve the active generation from this node, so this single update is the switchover
+            session.run("MATCH (v:GraphVersion {graph: 'transit'}) " +
+                            "SET v.previousGeneration = v.activeGeneration, v.activeGeneration = $generation, v.updated = timestamp(), " +
+                            "v.revision = coalesce(v.revision, 0) + 1, " +
+                            "v.stopCount = $stopCount, v.relationshipCount = $relationshipCount, v.patternCount = $patternCount",
+                    Map.of("generation", generation, "stopCount", model.stopCount(),
+                            "relationshipCount", model.edgeCount(), "patternCount", model.patternCount())).consume();
+
+            // Keep the new and the previous generation; nodes from older builds (or without a generation) go
+            List<Long> keep = state.activeGeneration() != null ? List.of(generation, state.activeGeneration()) : List.of(generation);
+            deleteGenerations(session, "n.generation IS NULL OR NOT n.generation IN $keep", Map.of("keep", keep));
+
+            writeSnapshot(model, generation);
+            if (graphSnapshotService.isEnabled()) {
+                graphSnapshotService.retainGenerations(keep);
+            }
+            System.out.println("Graph initialization in Neo4j completed (generation " + generation + "): " + model.stopCount() + " stops, " +
+                    model.edgeCount() + " relationships, " + model.patternCount() + " patterns in " + (System.currentTimeMillis() - startedAt) + " ms");
         } catch (Exception e) {
             System.err.println("Error initializing graph in Neo4j: " + e.getMessage());
             throw new RuntimeException("Failed to initialize transit graph in Neo4j", e);
         }
     }
 
-    private void buildGraphInNeo4j(Session session) {
-        System.out.println("Starting multi-threaded graph construction in Neo4j...");
-
-        List<Stop> stops = stopRepository.findAll();
-        System.out.println("Adding " + stops.size() + " stops as nodes in Neo4j...");
-        for (Stop stop : stops) {
-            session.run(
-                    "CREATE (s:Stop {stopId: $stopId, stopName: $stopName, stopLat: $stopLat, stopLon: $stopLon})",
-                    Map.of("stopId", stop.getStopId(), "stopName", stop.getStopName(),
-                            "stopLat", stop.getStopLat(), "stopLon", stop.getStopLon())
-            );
-            System.out.println("Added node: " + stop.getStopName() + " (ID: " + stop.getStopId() + ")");
+    /**
+     * Brings the active generation up to date with the database by writing only the nodes and relationships that
+     * were added, removed or changed. The graph stays readable throughout, but readers may see a partly applied
+     * sync; use {@link #initializeGraph()} when a change must appear atomically. Falls back to a full build when
+     * there is no active generation yet.
+     *
+     * @return a summary of the applied changes
+     */
+    public synchronized String syncGraph() {
+        long startedAt = System.currentTimeMillis();
+        GraphDiff diff;
+        long generation;
+        try (Session session = neo4jDriver.session()) {
+            graphSchemaService.ensureSchema();
+            VersionState state = readVersion(session);
+            if (state.activeGeneration() == null) {
+                System.out.println("No active graph generation, running a full initialization instead of a sync...");
+                initializeGraph();
+                return "Graph initialized from scratch.";
+            }
+            generation = state.activeGeneration();
+            GraphModel model = buildGraphModel();
+            Map<String, Object> parameters = Map.of("generation", generation);
+            diff = GraphDiff.compute(model,
+                    readHashes(session, "MATCH (s:Stop {generation: $generation}) RETURN s.stopId AS id, s.hash AS hash", parameters),
+                    readHashes(session, "MATCH (p:Pattern {generation: $generation}) RETURN p.patternId AS id, p.hash AS hash", parameters),
+                    readEdgeHashes(session, generation));
+            if (!diff.isEmpty()) {
+                applyDiff(diff, generation);
+                // The generation stays the same, so the revision is what tells readers to reload
+                session.run("MATCH (v:GraphVersion {graph: 'transit'}) SET v.updated = timestamp(), v.revision = coalesce(v.revision, 0) + 1, " +
+                                "v.stopCount = $stopCount, v.relationshipCount = $relationshipCount, v.patternCount = $patternCount",
+                        Map.of("stopCount", model.stopCount(), "relationshipCount", model.edgeCount(),
+                                "patternCount", model.patternCount())).consume();
+                writeSnapshot(model, generation);
+            }
+        } catch (Exception e) {
+            System.err.println("Error syncing graph in Neo4j: " + e.getMessage());
+            throw new RuntimeException("Failed to sync transit graph in Neo4j", e);
         }
+        String summary = diff.summary() + " (generation " + generation + ")";
+        System.out.println("Graph sync completed in " + (System.currentTimeMillis() - startedAt) + " ms: " + summary);
+        return summary;
+    }
 
-        // Add bidirectional TRANSFER edges between Abbey Street and O'Connell - GPO, and Abbey Street and Marlborough
-        addTransferEdges(session);
-
-        List<StopTime> stopTimes = stopTimeRepository.findAll().stream().distinct().toList();
-        System.out.println("Processing " + stopTimes.size() + " unique stop times...");
-
-        // Debug: Check stop times for specific stops like Balally
-        /*List<StopTime> balallyStopTimes = stopTimes.stream()
-                .filter(st -> st.getStopId().equals("8250GA00291") || st.getStopId().equals("8250GA00292"))
-                .collect(Collectors.toList());
-        System.out.println("Stop times for Balally: " + balallyStopTimes.size());*/
+    /**
+     * Switches readers back to the previous generation, keeping the current one as the new previous generation,
+     * and puts that generation's snapshot back in place when snapshots are enabled.
+     *
+     * @return the generation now active
+     * @throws RuntimeException if there is no previous generation
+     */
+    public synchronized long rollbackGraph() {
+        try (Session session = neo4jDriver.session()) {
+            Result result = session.run("MATCH (v:GraphVersion {graph: 'transit'}) WHERE v.previousGeneration IS NOT NULL " +
+                    "WITH v, v.activeGeneration AS active, v.previousGeneration AS previous " +
+                    "SET v.activeGeneration = previous, v.previousGeneration = active, v.updated = timestamp(), " +
+                    "v.revision = coalesce(v.revision, 0) + 1 " +
+                    "RETURN previous AS generation");
+            if (!result.hasNext()) {
+                throw new RuntimeException("No previous graph generation to roll back to");
+            }
+            long generation = result.single().get("generation").asLong();
+            System.out.println("Rolled transit graph back to generation " + generation);
+            // Snapshot-backed replicas follow the file rather than Neo4j, so it has to be rolled back as well
+            if (graphSnapshotService.isEnabled()) {
+                try {
+                    graphSnapshotService.restoreSnapshot(generation);
+                } catch (Exception e) {
+                    System.err.println("Error restoring transit snapshot: " + e.getMessage());
+                }
+            }
+            return generation;
+        }
+    }
 
-        Map<String, List<StopTime>> tripStopTimesMap = stopTimes.stream()
-                .collect(Collectors.groupingBy(StopTime::getTripId,
-                        Collectors.mapping(st -> st, Collectors.toList())));
+    /**
+     * Reads stops, trips and stop times from the database and assembles every node and relationship in memory.
+     * Stop times are streamed one trip at a time, so only the aggregated model grows with the feed.
+     */
+    GraphModel buildGraphModel() {
+        GraphModel.Builder builder = GraphModel.builder();
 
-        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        List<Future<?>> futures = new ArrayList<>();
+        List<Stop> stops = stopRepository.findAll();
+        stops.forEach(builder::addStop);
 
-        for (Map.Entry<String, List<StopTime>> entry : tripStopTimesMap.entrySet()) {
-            String tripId = entry.getKey();
-            List<StopTime> tripStopTimes = entry.getValue().stream()
-                    .sorted(Comparator.comparingInt(StopTime::getStopSequence))
-                    .collect(Collectors.toList());
-            futures.add(executorService.submit(() -> processTrip(tripId, tripStopTimes, session)));
+        Map<String, TripRepository.TripRoute> tripRoutes = new HashMap<>();
+        for (TripRepository.TripRoute tripRoute : tripRepository.findAllTripRoutes()) {
+            tripRoutes.put(tripRoute.getTripId(), tripRoute);
         }
 
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                System.err.println("Error processing trip: " + e.getMessage());
+        // Rows arrive ordered by trip and stop sequence, so each trip is a contiguous run; only the current trip's
+        // rows are held while the cursor advances
+        int[] skippedTrips = {0};
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<StopTimeRepository.TimetableRow> rows = stopTimeRepository.streamAllTimetableRows()) {
+                List<StopTimeRepository.TimetableRow> trip = new ArrayList<>();
+                Iterator<StopTimeRepository.TimetableRow> iterator = rows.iterator();
+                while (true) {
+                    StopTimeRepository.TimetableRow row = iterator.hasNext() ? iterator.next() : null;
+                    if (!trip.isEmpty() && (row == null || !row.getTripId().equals(trip.get(0).getTripId()))) {
+                        String tripId = trip.get(0).getTripId();
+                        TripRepository.TripRoute tripRoute = tripRoutes.get(tripId);
+                        if (tripRoute == null) {
+                            skippedTrips[0]++;
+                        } else {
+                            String edgeType = GraphModel.edgeType(tripRoute.getRouteShortName(), tripRoute.getTransitType());
+                            builder.addTrip(tripId, edgeType, tripRoute.getDirectionId(), tripRoute.getServiceId(), trip);
+                        }
+                        trip.clear();
+                    }
+                    if (row == null) {
+                        break;
+                    }
+                    trip.add(row);
+                }
             }
+        });
+        if (skippedTrips[0] > 0) {
+            System.err.println("Warning: " + skippedTrips[0] + " trips in stop_times not found in trips, skipped.");
         }
+        // After the trips, so stops on the same line are not linked by a walk
+        new TransferGenerator(transferRadiusKm, transferWalkSpeedKmh, transferPenaltyMinutes, maxTransfersPerStop)
+                .addTransfers(builder, stops);
+        return builder.build();
+    }
 
-        executorService.shutdown();
+    // The graph in Neo4j is already live at this point, so a failed snapshot only leaves replicas on the old one
+    private void writeSnapshot(GraphModel model, long generation) {
+        if (!graphSnapshotService.isEnabled()) {
+            return;
+        }
         try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-                System.err.println("Graph population timed out.");
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            System.err.println("Graph population interrupted: " + e.getMessage());
+            graphSnapshotService.writeSnapshot(model, generation);
+        } catch (Exception e) {
+            System.err.println("Error writing transit snapshot: " + e.getMessage());
         }
-        System.out.println("Multi-threaded graph construction completed.");
     }
 
-    private void addTransferEdges(Session session) {
-        System.out.println("Adding TRANSFER edges between Abbey Street, O'Connell - GPO, and Marlborough...");
+    private void writeGraph(GraphModel model, long generation) {
+        ParallelGraphWriter writer = new ParallelGraphWriter(neo4jDriver, writerThreads, batchSize, writeRetries);
+        Map<String, Object> parameters = Map.of("generation", generation);
+        writer.write("stops", Map.of(CREATE_STOPS, model.stopRows()), "stopId", parameters);
+        // Trip membership lives on one Pattern node per distinct stop sequence, not on the relationships
+        writer.write("patterns", Map.of(CREATE_PATTERNS, model.patternRows()), "patternId", parameters);
+        // Sharding by source stop keeps all relationships leaving a stop on one worker
+        writer.write("relationships", edgeQueries(model.edgeRowsByType(), CREATE_EDGES), "fromStopId", parameters);
+    }
 
-        // Find all stop nodes for Abbey Street, O'Connell - GPO, and Marlborough
-        Result abbeyStreetResult = session.run("MATCH (s:Stop {stopName: 'Abbey Street'}) RETURN s.stopId AS stopId");
-        Result oconnellGpoResult = session.run("MATCH (s:Stop {stopName: \"O'Connell - GPO\"}) RETURN s.stopId AS stopId");
-        Result marlboroughResult = session.run("MATCH (s:Stop {stopName: 'Marlborough'}) RETURN s.stopId AS stopId");
+    private void applyDiff(GraphDiff diff, long generation) {
+        ParallelGraphWriter writer = new ParallelGraphWriter(neo4jDriver, writerThreads, batchSize, writeRetries);
+        Map<String, Object> parameters = Map.of("generation", generation);
+        writer.write("removed relationships", edgeQueries(diff.removedEdges(), DELETE_EDGES), "fromStopId", parameters);
+        writer.write("removed patterns", Map.of(DELETE_PATTERNS, diff.removedPatterns()), "patternId", parameters);
+        writer.write("removed stops", Map.of(DELETE_STOPS, diff.removedStops()), "stopId", parameters);
 
-        List<String> abbeyStreetStopIds = abbeyStreetResult.stream().map(record -> record.get("stopId").asString()).collect(Collectors.toList());
-        List<String> oconnellGpoStopIds = oconnellGpoResult.stream().map(record -> record.get("stopId").asString()).collect(Collectors.toList());
-        List<String> marlboroughStopIds = marlboroughResult.stream().map(record -> record.get("stopId").asString()).collect(Collectors.toList());
+        writer.write("stops", Map.of(CREATE_STOPS, diff.addedStops(), UPDATE_STOPS, diff.changedStops()), "stopId", parameters);
+        writer.write("patterns", Map.of(CREATE_PATTERNS, diff.addedPatterns(), UPDATE_PATTERNS, diff.changedPatterns()),
+                "patternId", parameters);
 
-        if (abbeyStreetStopIds.isEmpty() || oconnellGpoStopIds.isEmpty() || marlboroughStopIds.isEmpty()) {
-            System.err.println("Warning: One or more transfer stops not found. Abbey Street: " + abbeyStreetStopIds.size() +
-                    ", O'Connell - GPO: " + oconnellGpoStopIds.size() + ", Marlborough: " + marlboroughStopIds.size());
-            return;
-        }
+        Map<String, List<Map<String, Object>>> rowsByQuery = edgeQueries(diff.addedEdges(), CREATE_EDGES);
+        rowsByQuery.putAll(edgeQueries(diff.changedEdges(), UPDATE_EDGES));
+        writer.write("relationships", rowsByQuery, "fromStopId", parameters);
+    }
 
-        // Create bidirectional TRANSFER edges between Abbey Street and O'Connell - GPO
-        for (String abbeyId : abbeyStreetStopIds) {
-            for (String oconnellId : oconnellGpoStopIds) {
-                if (!abbeyId.equals(oconnellId)) { // Avoid self-loops
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", abbeyId, "toStopId", oconnellId, "weight", TRANSFER_WEIGHT)
-                    );
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", oconnellId, "toStopId", abbeyId, "weight", TRANSFER_WEIGHT)
-                    );
-                    System.out.println("Added TRANSFER edge: Abbey Street (" + abbeyId + ") <-> O'Connell - GPO (" + oconnellId + ") with weight " + TRANSFER_WEIGHT);
-                }
-            }
+    /**
+     * Checks a freshly written generation before readers are switched to it: every node and relationship of the
+     * model must be stored, most stops must be served by at least one relationship, and the relationship count
+     * must not collapse compared with the active generation.
+     */
+    private void validateGeneration(Session session, GraphModel model, long generation, VersionState state) {
+        Map<String, Object> parameters = Map.of("generation", generation);
+        long stops = session.run("MATCH (s:Stop {generation: $generation}) RETURN count(s) AS count", parameters)
+                .single().get("count").asLong();
+        long patterns = session.run("MATCH (p:Pattern {generation: $generation}) RETURN count(p) AS count", parameters)
+                .single().get("count").asLong();
+        long relationships = session.run("MATCH (:Stop {generation: $generation})-[r]->() RETURN count(r) AS count", parameters)
+                .single().get("count").asLong();
+
+        List<String> problems = new ArrayList<>();
+        if (stops != model.stopCount() || patterns != model.patternCount() || relationships != model.edgeCount()) {
+            problems.add(String.format("stored %d stops, %d relationships, %d patterns but built %d, %d, %d",
+                    stops, relationships, patterns, model.stopCount(), model.edgeCount(), model.patternCount()));
         }
-
-        // Create bidirectional TRANSFER edges between Abbey Street and Marlborough
-        for (String abbeyId : abbeyStreetStopIds) {
-            for (String marlboroughId : marlboroughStopIds) {
-                if (!abbeyId.equals(marlboroughId)) { // Avoid self-loops
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", abbeyId, "toStopId", marlboroughId, "weight", TRANSFER_WEIGHT)
-                    );
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", marlboroughId, "toStopId", abbeyId, "weight", TRANSFER_WEIGHT)
-                    );
-                    System.out.println("Added TRANSFER edge: Abbey Street (" + abbeyId + ") <-> Marlborough (" + marlboroughId + ") with weight " + TRANSFER_WEIGHT);
-                }
-            }
+        if (model.stopCount() == 0 || model.connectedStopCount() < minConnectedRatio * model.stopCount()) {
+            problems.add(String.format("only %d of %d stops have a relationship", model.connectedStopCount(), model.stopCount()));
         }
-
-        for (String oconnellId : oconnellGpoStopIds) {
-            for (String marlboroughId : marlboroughStopIds) {
-                if (!oconnellId.equals(marlboroughId)) { // Avoid self-loops
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", oconnellId, "toStopId", marlboroughId, "weight", TRANSFER_WEIGHT)
-                    );
-                    session.run(
-                            "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                                    "MERGE (from)-[r:TRANSFER]->(to) " +
-                                    "SET r.weight = $weight, " +
-                                    "r.created = COALESCE(r.created, timestamp()), " +
-                                    "r.updated = timestamp()",
-                            Map.of("fromStopId", marlboroughId, "toStopId", oconnellId, "weight", TRANSFER_WEIGHT)
-                    );
-                    System.out.println("Added TRANSFER edge: Abbey Street (" + oconnellId + ") <-> Marlborough (" + marlboroughId + ") with weight " + TRANSFER_WEIGHT);
-                }
-            }
+        if (state.activeGeneration() != null && relationships < (1.0 - maxShrinkRatio) * state.relationshipCount()) {
+            problems.add(String.format("%d relationships against %d in the active generation", relationships, state.relationshipCount()));
+        }
+        if (!problems.isEmpty()) {
+            throw new RuntimeException("Graph generation " + generation + " failed validation: " + String.join("; ", problems));
         }
     }
 
-    private void processTrip(String tripId, List<StopTime> tripStopTimes, Session session) {
-        System.out.println("Processing trip " + tripId + " with " + tripStopTimes.size() + " stops...");
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new RuntimeException("Trip not found: " + tripId));
-
-        // Get the route associated with the trip and extract routeShortName
-        String routeShortName = trip.getRoute() != null ? trip.getRoute().getRouteShortName().toUpperCase(Locale.ROOT) : null;
-        if (routeShortName == null || routeShortName.isEmpty()) {
-            System.err.println("Warning: routeShortName is null or empty for trip " + tripId + ". Using default 'UNKNOWN_LUAS'.");
-            routeShortName = "UNKNOWN";
-        }
+    private static void deleteGenerations(Session session, String condition, Map<String, Object> parameters) {
+        session.run("MATCH (n) WHERE (n:Stop OR n:Pattern) AND (" + condition + ") " +
+                "CALL { WITH n DETACH DELETE n } IN TRANSACTIONS OF 10000 ROWS", parameters).consume();
+    }
 
-        // Construct the dynamic edge type (e.g., GREEN_LUAS or RED_LUAS)
-        String edgeType = routeShortName + "_LUAS";
+    // Relationship types cannot be parameters, so each type gets its own query
+    private static Map<String, List<Map<String, Object>>> edgeQueries(Map<String, List<Map<String, Object>>> rowsByType, String template) {
+        Map<String, List<Map<String, Object>>> rowsByQuery = new LinkedHashMap<>();
+        rowsByType.forEach((type, rows) -> rowsByQuery.put(String.format(template, type), rows));
+        return rowsByQuery;
+    }
 
-        Integer directionId = trip.getDirectionId();
-        if (directionId == null) {
-            System.err.println("Warning: directionId is null for trip " + tripId + ". Using default 0.");
-            directionId = 0;
+    private static VersionState readVersion(Session session) {
+        Result result = session.run("MATCH (v:GraphVersion {graph: 'transit'}) " +
+                "RETURN v.activeGeneration AS active, v.lastGeneration AS last, v.relationshipCount AS relationshipCount");
+        if (!result.hasNext()) {
+            return new VersionState(null, 0, 0);
         }
+        Record record = result.next();
+        return new VersionState(record.get("active").isNull() ? null : record.get("active").asLong(),
+                record.get("last").asLong(0), record.get("relationshipCount").asLong(0));
+    }
 
-        for (int i = 0; i < tripStopTimes.size() - 1; i++) {
-            StopTime current = tripStopTimes.get(i);
-            StopTime next = tripStopTimes.get(i + 1);
-            double weight = calculateEdgeWeight(current, next);
-            if (weight <= 0) {
-                weight = 1.0;
-                System.err.println("Invalid weight calculated for " + current.getStop().getStopName() + " -> " + next.getStop().getStopName() + ". Using default 1.0");
-            }
-
-            // Dynamically construct the Cypher query with the edge type
-            String cypherQuery = String.format(
-                    "MATCH (from:Stop {stopId: $fromStopId}), (to:Stop {stopId: $toStopId}) " +
-                            "MERGE (from)-[r:%s]->(to) " +
-                            "SET r.weight = $weight, " +
-                            "r.directionId = $directionId, " +
-                            "r.tripIds = CASE WHEN r.tripIds IS NULL THEN [$tripId] ELSE r.tripIds + [$tripId] END, " +
-                            "r.created = COALESCE(r.created, timestamp()), " +
-                            "r.updated = timestamp()",
-                    edgeType
-            );
-
-            session.run(
-                    cypherQuery,
-                    Map.of(
-                            "fromStopId", current.getStopId(),
-                            "toStopId", next.getStopId(),
-                            "weight", weight,
-                            "directionId", directionId,
-                            "tripId", tripId
-                    )
-            );
-            System.out.println("Added or updated relationship: " + current.getStop().getStopName() + " -> " +
-                    next.getStop().getStopName() + " (type: " + edgeType + ", weight: " + weight + ", directionId: " + directionId + ", tripId: " + tripId + ")");
+    private static Map<String, String> readHashes(Session session, String cypherQuery, Map<String, Object> parameters) {
+        Map<String, String> hashes = new HashMap<>();
+        Result result = session.run(cypherQuery, parameters);
+        while (result.hasNext()) {
+            Record record = result.next();
+            hashes.put(record.get("id").asString(), record.get("hash").asString(""));
         }
+        return hashes;
     }
 
-    private double calculateEdgeWeight(StopTime from, StopTime to) {
-        if (from.getDepartureTime() != null && to.getArrivalTime() != null) {
-            long minutes = java.time.temporal.ChronoUnit.MINUTES.between(from.getDepartureTime(), to.getArrivalTime());
-            return minutes > 0 ? minutes : 1.0;
+    private static Map<String, Map<String, String>> readEdgeHashes(Session session, long generation) {
+        Map<String, Map<String, String>> hashesByType = new HashMap<>();
+        Result result = session.run("MATCH (from:Stop {generation: $generation})-[r]->(to:Stop) " +
+                "RETURN type(r) AS type, from.stopId AS fromStopId, to.stopId AS toStopId, r.hash AS hash",
+                Map.of("generation", generation));
+        while (result.hasNext()) {
+            Record record = result.next();
+            hashesByType.computeIfAbsent(record.get("type").asString(), type -> new HashMap<>())
+                    .put(GraphDiff.edgeKey(record.get("fromStopId").asString(), record.get("toStopId").asString()),
+                            record.get("hash").asString(""));
         }
-        Stop fromStop = from.getStop();
-        Stop toStop = to.getStop();
-        return haversineDistance(fromStop.getStopLat(), fromStop.getStopLon(),
-                toStop.getStopLat(), toStop.getStopLon());
+        return hashesByType;
     }
 
-    private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Earth's radius in km
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+    private record VersionState(Long activeGeneration, long lastGeneration, long relationshipCount) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.tcd.asc.damn.dataprovider.service;
+
+import com.tcd.asc.damn.dataprovider.graph.GraphSchema;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the constraints and indexes in {@link GraphSchema} and checks that they are online. Graph builds and
+ * syncs bootstrap the schema before writing anything; the status is also available over the data-manager API.
+ */
+@Service
+public class GraphSchemaService {
+
+    @Autowired
+    private Driver neo4jDriver;
+
+    @Value("${graph.schema.await-seconds:300}")
+    private long awaitSeconds = 300;
+
+    /**
+     * Creates any missing constraint or index, waits for them to come online and returns their status.
+     *
+     * @throws RuntimeException if an element cannot be created (e.g. existing duplicates violate a constraint)
+     *                          or is not online once the wait is over
+     */
+    public synchronized List<Map<String, Object>> ensureSchema() {
+        long startedAt = System.currentTimeMillis();
+        try (Session session = neo4jDriver.session()) {
+            for (GraphSchema.Element element : GraphSchema.ELEMENTS) {
+                try {
+                    session.run(element.statement()).consume();
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to create " + element.name() + ": " + e.getMessage(), e);
+                }
+            }
+            session.run("CALL db.awaitIndexes($seconds)", Map.of("seconds", awaitSeconds)).consume();
+
+            List<Map<String, Object>> status = readStatus(session);
+            List<String> notOnline = GraphSchema.notOnline(status);
+            if (!notOnline.isEmpty()) {
+                throw new RuntimeException("Graph schema is not online: " + String.join(", ", notOnline));
+            }
+            System.out.println("Graph schema verified: " + status.size() + " constraints and indexes online in " +
+                    (System.currentTimeMillis() - startedAt) + " ms");
+            return status;
+        }
+    }
+
+    /** Returns the state of every expected constraint and index without changing anything. */
+    public List<Map<String, Object>> getStatus() {
+        try (Session session = neo4jDriver.session()) {
+            return readStatus(session);
+        }
+    }
+
+    private static List<Map<String, Object>> readStatus(Session session) {
+        Map<String, Map<String, Object>> indexesByName = new HashMap<>();
+        Result result = session.run("SHOW INDEXES YIELD name, state, populationPercent");
+        while (result.hasNext()) {
+            Record record = result.next();
+            indexesByName.put(record.get("name").asString(), Map.of(
+                    "state", record.get("state").asString(),
+                    "populationPercent", record.get("populationPercent").asDouble(0.0)));
+        }
+        return GraphSchema.status(indexesByName);
+    }
+}
@@ -0,0 +1,173 @@
+package com.tcd.asc.damn.dataprovider.service;
+
+import com.tcd.asc.damn.common.repository.ShapeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.common.snapshot.TransitSnapshotWriter;
+import com.tcd.asc.damn.dataprovider.graph.GraphModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes the transit snapshot that route providers map at startup instead of loading the graph from Neo4j and
+ * shapes from the database. Disabled when {@code graph.snapshot.path} is empty.
+ * <p>
+ * A copy of each generation's snapshot is kept next to it as {@code <path>.generation-<n>}, so a rollback can put
+ * the restored generation's snapshot back in place for the replicas that follow the file.
+ */
+@Service
+public class GraphSnapshotService {
+
+    @Autowired private TripRepository tripRepository;
+    @Autowired private ShapeRepository shapeRepository;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    private static final String GENERATION_SUFFIX = ".generation-";
+
+    @Value("${graph.snapshot.path:}")
+    private String snapshotPath = "";
+
+    public boolean isEnabled() {
+        return snapshotPath != null && !snapshotPath.isBlank();
+    }
+
+    /**
+     * Writes the stops and relationships of a graph generation together with the trip to shape index and every
+     * shape, replacing the previous snapshot atomically.
+     *
+     * @throws RuntimeException if the snapshot cannot be written
+     */
+    public void writeSnapshot(GraphModel model, long generation) {
+        long startedAt = System.currentTimeMillis();
+        TransitSnapshotWriter writer = new TransitSnapshotWriter().generation(generation);
+
+        for (Map<String, Object> row : model.stopRows()) {
+            writer.addStop((String) row.get("stopId"), (String) row.get("stopName"),
+                    (double) row.get("stopLat"), (double) row.get("stopLon"));
+        }
+        for (Map.Entry<String, List<Map<String, Object>>> entry : model.edgeRowsByType().entrySet()) {
+            for (Map<String, Object> row : entry.getValue()) {
+                List<?> tripIds = (List<?>) row.get("tripIds");
+                writer.addEdge((String) row.get("fromStopId"), (String) row.get("toStopId"), entry.getKey(),
+                        (double) row.get("weight"), tripIds != null && !tripIds.isEmpty() ? (String) tripIds.get(0) : null);
+            }
+        }
+
+        for (TripRepository.TripShape tripShape : tripRepository.findAllTripShapes()) {
+            writer.addTrip(tripShape.getTripId(), tripShape.getShapeId());
+        }
+        addShapes(writer);
+
+        try {
+            writer.write(Paths.get(snapshotPath));
+            replace(Paths.get(snapshotPath), generationPath(generation));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to write transit snapshot to " + snapshotPath, e);
+        }
+        System.out.println("Wrote transit snapshot of generation " + generation + " to " + snapshotPath + " in " +
+                (System.currentTimeMillis() - startedAt) + " ms");
+    }
+
+    // Points are streamed ordered by shape and sequence, so each shape is a contiguous run and only the current
+    // one is held outside the writer
+    private void addShapes(TransitSnapshotWriter writer) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ShapeRepository.ShapePoint> points = shapeRepository.streamAllShapePoints()) {
+                Iterator<ShapeRepository.ShapePoint> iterator = points.iterator();
+                String shapeId = null;
+                double[] lats = new double[256];
+                double[] lons = new double[256];
+                int count = 0;
+                while (true) {
+                    ShapeRepository.ShapePoint point = iterator.hasNext() ? iterator.next() : null;
+                    if (shapeId != null && (point == null || !point.getShapeId().equals(shapeId))) {
+                        writer.addShape(shapeId, Arrays.copyOf(lats, count), Arrays.copyOf(lons, count));
+                        count = 0;
+                    }
+                    if (point == null) {
+                        break;
+                    }
+                    shapeId = point.getShapeId();
+                    if (count == lats.length) {
+                        lats = Arrays.copyOf(lats, count * 2);
+                        lons = Arrays.copyOf(lons, count * 2);
+                    }
+                    lats[count] = point.getShapePtLat();
+                    lons[count] = point.getShapePtLon();
+                    count++;
+                }
+            }
+        });
+    }
+
+    /**
+     * Puts the kept snapshot of {@code generation} back in place. Without one the snapshot is removed instead, so
+     * replicas fall back to loading the active generation from Neo4j rather than serving the one rolled back.
+     *
+     * @return whether the generation's snapshot was restored
+     * @throws RuntimeException if the snapshot cannot be replaced or removed
+     */
+    public boolean restoreSnapshot(long generation) {
+        Path path = Paths.get(snapshotPath);
+        Path copy = generationPath(generation);
+        try {
+            if (Files.isRegularFile(copy)) {
+                replace(copy, path);
+                System.out.println("Restored transit snapshot of generation " + generation + " to " + snapshotPath);
+                return true;
+            }
+            Files.deleteIfExists(path);
+            System.err.println("No transit snapshot kept for generation " + generation + ", removed " + snapshotPath +
+                    " so replicas load the graph from Neo4j");
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore transit snapshot of generation " + generation, e);
+        }
+    }
+
+    /** Deletes the kept snapshots of every generation not in {@code generations}. */
+    public void retainGenerations(Collection<Long> generations) {
+        Path path = Paths.get(snapshotPath).toAbsolutePath();
+        String prefix = path.getFileName() + GENERATION_SUFFIX;
+        try (DirectoryStream<Path> copies = Files.newDirectoryStream(path.getParent(), prefix + "*")) {
+            for (Path copy : copies) {
+                String generation = copy.getFileName().toString().substring(prefix.length());
+                if (!generation.chars().allMatch(Character::isDigit) || !generations.contains(Long.parseLong(generation))) {
+                    Files.deleteIfExists(copy);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Failed to delete old transit snapshots: " + e.getMessage());
+        }
+    }
+
+    private Path generationPath(long generation) {
+        return Paths.get(snapshotPath + GENERATION_SUFFIX + generation);
+    }
+
+    // Copies through a temporary file in the target directory, so readers only ever see a complete file
+    private static void replace(Path source, Path target) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.tcd.asc.damn.dataprovider.service;
+
+import com.tcd.asc.damn.common.entity.LuasRoute;
+import com.tcd.asc.damn.common.repository.LuasRouteRepository;
+import com.tcd.asc.damn.common.repository.StationRepository;
+import com.tcd.asc.damn.dataprovider.graph.LineTopology;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Cached {@link LineTopology} over the Luas route table. It is built on first use and rebuilt when a digest of the
+ * route rows or of the stations they join, whose locations the topology uses, changes.
+ */
+@Service
+public class LineTopologyService {
+
+    @Autowired
+    private LuasRouteRepository luasRouteRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    private volatile LineTopology topology;
+    private volatile String indexedFingerprint;
+
+    public LineTopology getTopology() {
+        LineTopology current = topology;
+        if (current == null) {
+            synchronized (this) {
+                if (topology == null) {
+                    rebuild();
+                }
+                current = topology;
+            }
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${line-topology.refresh-interval-ms:300000}")
+    public void refreshIfChanged() {
+        if (topology == null) {
+            return; // Not used yet, nothing to refresh
+        }
+        if (!fingerprint().equals(indexedFingerprint)) {
+            System.out.println("Luas route table changed, rebuilding line topology...");
+            synchronized (this) {
+                rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        String fingerprint = fingerprint(); // Taken before loading, so changes during the load are caught
+        List<LuasRoute> routes = luasRouteRepository.findAllWithStations();
+        topology = LineTopology.of(routes);
+        indexedFingerprint = fingerprint;
+        System.out.println("Built " + topology.lines().size() + " lines from " + routes.size() + " Luas routes in "
+                + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+
+    private String fingerprint() {
+        return luasRouteRepository.contentHash() + ":" + stationRepository.fingerprint().getContentHash();
+    }
+}
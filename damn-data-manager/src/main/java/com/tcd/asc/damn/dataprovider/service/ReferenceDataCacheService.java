@@ -0,0 +1,123 @@
+package com.tcd.asc.damn.dataprovider.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcd.asc.damn.common.constants.StationType;
+import com.tcd.asc.damn.common.repository.LuasRouteRepository;
+import com.tcd.asc.damn.common.repository.StationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of the reference datasets (stations per type and the Luas routes), held as pre-serialised JSON
+ * with a strong ETag derived from the bytes, so polling clients are answered without touching Postgres and can
+ * revalidate with {@code If-None-Match}.
+ * <p>
+ * A dataset is loaded on first request and kept until a periodic fingerprint of the station and route tables
+ * changes, or until {@link #invalidate()} is called through the reference data endpoint, which the seeding script
+ * does after loading those tables. GTFS imports write neither table and leave the cache alone.
+ */
+@Service
+public class ReferenceDataCacheService {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private LuasRouteRepository luasRouteRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Dataset> datasets = new ConcurrentHashMap<>();
+    private volatile String cachedFingerprint;
+
+    /** Serialised JSON of one dataset version and its strong ETag. */
+    public record Dataset(byte[] json, String etag) {
+
+        /** Whether an {@code If-None-Match} header value matches this version, using the weak comparison RFC 9110 requires. */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public Dataset getStations(StationType stationType) {
+        return get("stations:" + stationType, () -> stationRepository.findByTypeWithLocation(stationType));
+    }
+
+    public Dataset getLuasRoutes() {
+        return get("luas-routes", () -> luasRouteRepository.findAllWithStations());
+    }
+
+    /** Drops every cached dataset; the next request reloads it from the database. */
+    public void invalidate() {
+        // Clearing waits for loads in progress, so no dataset read before the change survives it
+        datasets.clear();
+        cachedFingerprint = null;
+        System.out.println("Reference data cache invalidated");
+    }
+
+    @Scheduled(fixedDelayString = "${reference-data.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (datasets.isEmpty()) {
+            return; // Nothing cached, nothing to refresh
+        }
+        if (!fingerprint().equals(cachedFingerprint)) {
+            System.out.println("Reference data changed, invalidating cache...");
+            invalidate();
+        }
+    }
+
+    private Dataset get(String key, Supplier<Object> loader) {
+        return datasets.computeIfAbsent(key, k -> {
+            long startedAt = System.currentTimeMillis();
+            if (cachedFingerprint == null) {
+                cachedFingerprint = fingerprint(); // Taken before loading, so changes during the load are caught
+            }
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(loader.get());
+                Dataset dataset = new Dataset(json, etag(json));
+                System.out.println("Cached reference data " + key + " (" + json.length + " bytes) in "
+                        + (System.currentTimeMillis() - startedAt) + " ms");
+                return dataset;
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Failed to serialise reference data " + key + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private String fingerprint() {
+        StationRepository.StationTableFingerprint stations = stationRepository.fingerprint();
+        return stations.getStationCount() + ":" + stations.getLatSum() + ":" + stations.getLonSum()
+                + ":" + stations.getContentHash() + ":" + luasRouteRepository.contentHash();
+    }
+
+    static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
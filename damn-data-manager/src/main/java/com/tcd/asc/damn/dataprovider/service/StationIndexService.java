@@ -0,0 +1,87 @@
+package com.tcd.asc.damn.dataprovider.service;
+
+import com.tcd.asc.damn.common.constants.StationType;
+import com.tcd.asc.damn.common.entity.Station;
+import com.tcd.asc.damn.common.repository.StationRepository;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Cached spatial index over the station table, one {@link GeoGridIndex} per {@link StationType}, for nearest-station
+ * and radius lookups.
+ * <p>
+ * The indexes are built from a single table read on first use and rebuilt when a periodic fingerprint of the station
+ * table (row count, coordinate sums and a digest of the rows) changes.
+ */
+@Service
+public class StationIndexService {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Value("${station-index.cell-size-km:0.5}")
+    private double cellSizeKm = 0.5;
+
+    private volatile Map<StationType, GeoGridIndex<Station>> indexes;
+    private volatile StationRepository.StationTableFingerprint indexedFingerprint;
+
+    public List<Station> findNearest(StationType stationType, double lat, double lon, int limit) {
+        return getIndex(stationType).nearest(lat, lon, limit);
+    }
+
+    public List<Station> findWithinRadius(StationType stationType, double lat, double lon, double radiusKm) {
+        return getIndex(stationType).withinRadius(lat, lon, radiusKm);
+    }
+
+    public GeoGridIndex<Station> getIndex(StationType stationType) {
+        Map<StationType, GeoGridIndex<Station>> current = indexes;
+        if (current == null) {
+            synchronized (this) {
+                if (indexes == null) {
+                    rebuild();
+                }
+                current = indexes;
+            }
+        }
+        return current.get(stationType);
+    }
+
+    @Scheduled(fixedDelayString = "${station-index.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (indexes == null) {
+            return; // Not used yet, nothing to refresh
+        }
+        if (!stationRepository.fingerprint().matches(indexedFingerprint)) {
+            System.out.println("Station table changed, rebuilding station index...");
+            synchronized (this) {
+                rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        StationRepository.StationTableFingerprint fingerprint = stationRepository.fingerprint();
+        List<Station> stations = stationRepository.findAllWithLocation();
+        Map<StationType, List<Station>> stationsByType = new EnumMap<>(StationType.class);
+        for (StationType stationType : StationType.values()) {
+            stationsByType.put(stationType, new ArrayList<>());
+        }
+        for (Station station : stations) {
+            if (station.getType() != null && station.getLocation() != null) {
+                stationsByType.get(station.getType()).add(station);
+            }
+        }
+        Map<StationType, GeoGridIndex<Station>> built = new EnumMap<>(StationType.class);
+        stationsByType.forEach((stationType, typed) -> built.put(stationType, GeoGridIndex.of(typed,
+                station -> station.getLocation().getLatitude(), station -> station.getLocation().getLongitude(), cellSizeKm)));
+        indexes = built;
+        indexedFingerprint = fingerprint;
+        System.out.println("Indexed " + stations.size() + " stations in " + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+}
@@ -0,0 +1,134 @@
+package com.tcd.asc.damn.dataprovider;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.ShapeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import com.tcd.asc.damn.dataprovider.graph.GraphModel;
+import com.tcd.asc.damn.dataprovider.service.GraphSnapshotService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GraphSnapshotServiceTest {
+
+    @TempDir
+    private Path directory;
+
+    private GraphSnapshotService service(Path snapshot) {
+        GraphSnapshotService service = new GraphSnapshotService();
+        ReflectionTestUtils.setField(service, "snapshotPath", snapshot.toString());
+        return service;
+    }
+
+    private static Stop stop(String stopId, double lat, double lon) {
+        Stop stop = new Stop();
+        stop.setStopId(stopId);
+        stop.setStopName("Stop " + stopId);
+        stop.setStopLat(lat);
+        stop.setStopLon(lon);
+        return stop;
+    }
+
+    private static ShapeRepository.ShapePoint point(String shapeId, double lat, double lon) {
+        return new ShapeRepository.ShapePoint() {
+            public String getShapeId() { return shapeId; }
+            public double getShapePtLat() { return lat; }
+            public double getShapePtLon() { return lon; }
+        };
+    }
+
+    @Test
+    @DisplayName("STREAMED_SHAPE_POINTS_ARE_WRITTEN_PER_SHAPE")
+    void streamedShapePointsAreWrittenPerShape() throws Exception {
+        Path snapshot = directory.resolve("transit.snapshot");
+        GraphSnapshotService service = service(snapshot);
+        ShapeRepository shapeRepository = mock(ShapeRepository.class);
+        TripRepository tripRepository = mock(TripRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        List<ShapeRepository.ShapePoint> points = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            points.add(point("S1", 53.0 + i * 0.001, -6.0));
+        }
+        points.add(point("S2", 54.0, -7.0));
+        when(shapeRepository.streamAllShapePoints()).thenReturn(points.stream());
+        ReflectionTestUtils.setField(service, "shapeRepository", shapeRepository);
+        ReflectionTestUtils.setField(service, "tripRepository", tripRepository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        GraphModel model = GraphModel.builder()
+                .addStop(stop("A", 53.34, -6.26))
+                .addStop(stop("B", 53.35, -6.25))
+                .addTransfer("A", "B", 5.0)
+                .build();
+
+        service.writeSnapshot(model, 7);
+
+        TransitSnapshot written = TransitSnapshot.open(snapshot);
+        assertEquals(7, written.generation());
+        assertEquals(2, written.shapeCount());
+        assertEquals("S1", written.shapeId(0));
+        assertEquals(300, written.lastShapePoint(0) - written.firstShapePoint(0));
+        assertEquals(53.299, written.pointLat(written.lastShapePoint(0) - 1), 1e-9);
+        assertEquals("S2", written.shapeId(1));
+        assertEquals(1, written.lastShapePoint(1) - written.firstShapePoint(1));
+        assertEquals(-7.0, written.pointLon(written.firstShapePoint(1)), 1e-9);
+    }
+
+    @Test
+    @DisplayName("ROLLBACK_RESTORES_THE_KEPT_SNAPSHOT_OF_THE_GENERATION")
+    void rollbackRestoresTheKeptSnapshotOfTheGeneration() throws Exception {
+        Path snapshot = directory.resolve("transit.snapshot");
+        Files.writeString(snapshot, "generation 4");
+        Files.writeString(directory.resolve("transit.snapshot.generation-3"), "generation 3");
+        Files.writeString(directory.resolve("transit.snapshot.generation-4"), "generation 4");
+
+        assertTrue(service(snapshot).restoreSnapshot(3));
+
+        assertEquals("generation 3", Files.readString(snapshot));
+        assertEquals("generation 4", Files.readString(directory.resolve("transit.snapshot.generation-4")));
+    }
+
+    @Test
+    @DisplayName("ROLLBACK_WITHOUT_A_KEPT_SNAPSHOT_REMOVES_THE_SNAPSHOT")
+    void rollbackWithoutAKeptSnapshotRemovesTheSnapshot() throws Exception {
+        Path snapshot = directory.resolve("transit.snapshot");
+        Files.writeString(snapshot, "generation 4");
+
+        assertFalse(service(snapshot).restoreSnapshot(3));
+
+        assertFalse(Files.exists(snapshot));
+    }
+
+    @Test
+    @DisplayName("ONLY_KEPT_GENERATIONS_SURVIVE")
+    void onlyKeptGenerationsSurvive() throws Exception {
+        Path snapshot = directory.resolve("transit.snapshot");
+        Files.writeString(snapshot, "generation 5");
+        for (int generation = 2; generation <= 5; generation++) {
+            Files.writeString(directory.resolve("transit.snapshot.generation-" + generation), "generation " + generation);
+        }
+
+        service(snapshot).retainGenerations(List.of(5L, 4L));
+
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("transit.snapshot", "transit.snapshot.generation-4", "transit.snapshot.generation-5"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.tcd.asc.damn.dataprovider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcd.asc.damn.common.constants.StationType;
+import com.tcd.asc.damn.common.entity.Location;
+import com.tcd.asc.damn.common.entity.Station;
+import com.tcd.asc.damn.common.repository.LuasRouteRepository;
+import com.tcd.asc.damn.common.repository.StationRepository;
+import com.tcd.asc.damn.dataprovider.service.ReferenceDataCacheService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataCacheServiceTest {
+
+    @InjectMocks
+    private ReferenceDataCacheService referenceDataCacheService;
+
+    @Mock
+    private StationRepository stationRepository;
+
+    @Mock
+    private LuasRouteRepository luasRouteRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private static Station station(String stationId, String name) {
+        Location location = new Location();
+        location.setLatitude(53.35);
+        location.setLongitude(-6.26);
+        Station station = new Station();
+        station.setStationId(stationId);
+        station.setName(name);
+        station.setLocation(location);
+        station.setType(StationType.LUAS);
+        return station;
+    }
+
+    private static StationRepository.StationTableFingerprint fingerprint(long stationCount) {
+        return fingerprint(stationCount, "hash");
+    }
+
+    private static StationRepository.StationTableFingerprint fingerprint(long stationCount, String contentHash) {
+        return new StationRepository.StationTableFingerprint() {
+            public long getStationCount() { return stationCount; }
+            public double getLatSum() { return 53.35 * stationCount; }
+            public double getLonSum() { return -6.26 * stationCount; }
+            public String getContentHash() { return contentHash; }
+        };
+    }
+
+    @Test
+    @DisplayName("SERVES_CACHED_JSON_UNTIL_INVALIDATED")
+    void servesCachedJsonUntilInvalidated() {
+        when(stationRepository.fingerprint()).thenReturn(fingerprint(1));
+        when(stationRepository.findByTypeWithLocation(StationType.LUAS))
+                .thenReturn(List.of(station("1", "Abbey Street")), List.of(station("1", "Abbey Street Upper")));
+
+        ReferenceDataCacheService.Dataset first = referenceDataCacheService.getStations(StationType.LUAS);
+        ReferenceDataCacheService.Dataset again = referenceDataCacheService.getStations(StationType.LUAS);
+
+        assertSame(first, again);
+        assertTrue(new String(first.json()).contains("Abbey Street"));
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+
+        referenceDataCacheService.invalidate();
+        ReferenceDataCacheService.Dataset reloaded = referenceDataCacheService.getStations(StationType.LUAS);
+
+        assertNotEquals(first.etag(), reloaded.etag());
+        verify(stationRepository, times(2)).findByTypeWithLocation(StationType.LUAS);
+    }
+
+    @Test
+    @DisplayName("FINGERPRINT_CHANGE_INVALIDATES")
+    void fingerprintChangeInvalidates() {
+        when(stationRepository.fingerprint()).thenReturn(fingerprint(1), fingerprint(1), fingerprint(2));
+        when(stationRepository.findByTypeWithLocation(StationType.LUAS)).thenReturn(List.of(station("1", "Abbey Street")));
+
+        referenceDataCacheService.getStations(StationType.LUAS);
+        referenceDataCacheService.refreshIfChanged(); // Unchanged
+        referenceDataCacheService.getStations(StationType.LUAS);
+        referenceDataCacheService.refreshIfChanged(); // Station added
+        referenceDataCacheService.getStations(StationType.LUAS);
+
+        verify(stationRepository, times(2)).findByTypeWithLocation(StationType.LUAS);
+    }
+
+    @Test
+    @DisplayName("RENAME_OR_REPLACED_ROUTE_INVALIDATES")
+    void renameOrReplacedRouteInvalidates() {
+        when(stationRepository.fingerprint()).thenReturn(fingerprint(1), fingerprint(1, "renamed"), fingerprint(1, "renamed"));
+        when(luasRouteRepository.contentHash()).thenReturn("routes", "routes", "routes", "replaced");
+        when(stationRepository.findByTypeWithLocation(StationType.LUAS)).thenReturn(List.of(station("1", "Abbey Street")));
+
+        referenceDataCacheService.getStations(StationType.LUAS);
+        referenceDataCacheService.refreshIfChanged(); // Station renamed, same count and coordinates
+        referenceDataCacheService.getStations(StationType.LUAS);
+        referenceDataCacheService.refreshIfChanged(); // Route replaced one-for-one
+        referenceDataCacheService.getStations(StationType.LUAS);
+
+        verify(stationRepository, times(3)).findByTypeWithLocation(StationType.LUAS);
+    }
+
+    @Test
+    @DisplayName("IF_NONE_MATCH_COMPARISON")
+    void ifNoneMatchComparison() {
+        ReferenceDataCacheService.Dataset dataset = new ReferenceDataCacheService.Dataset(new byte[0], "\"abc\"");
+
+        assertTrue(dataset.matches("\"abc\""));
+        assertTrue(dataset.matches("\"old\", W/\"abc\""));
+        assertTrue(dataset.matches("*"));
+        assertFalse(dataset.matches("\"abcd\""));
+        assertFalse(dataset.matches(null));
+    }
+}
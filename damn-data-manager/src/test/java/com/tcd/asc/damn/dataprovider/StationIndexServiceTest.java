@@ -0,0 +1,96 @@
+package com.tcd.asc.damn.dataprovider;
+
+import com.tcd.asc.damn.common.constants.StationType;
+import com.tcd.asc.damn.common.entity.Location;
+import com.tcd.asc.damn.common.entity.Station;
+import com.tcd.asc.damn.common.repository.StationRepository;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import com.tcd.asc.damn.dataprovider.service.StationIndexService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StationIndexServiceTest {
+
+    @InjectMocks
+    private StationIndexService stationIndexService;
+
+    @Mock
+    private StationRepository stationRepository;
+
+    private List<Station> randomStations(int count) {
+        Random random = new Random(7);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Location location = new Location();
+            location.setLatitude(53.25 + random.nextDouble() * 0.2);
+            location.setLongitude(-6.40 + random.nextDouble() * 0.3);
+            Station station = new Station();
+            station.setStationId("ST" + i);
+            station.setName("Station" + i);
+            station.setLocation(location);
+            station.setType(i % 2 == 0 ? StationType.LUAS : StationType.BUS);
+            stations.add(station);
+        }
+        return stations;
+    }
+
+    private static double distance(Station station, double lat, double lon) {
+        return GeoGridIndex.distanceKm(lat, lon, station.getLocation().getLatitude(), station.getLocation().getLongitude());
+    }
+
+    @Test
+    @DisplayName("NEAREST_MATCHES_FULL_SORT_WITHIN_STATION_TYPE")
+    void nearestMatchesFullSortWithinStationType() {
+        List<Station> stations = randomStations(1000);
+        when(stationRepository.findAllWithLocation()).thenReturn(stations);
+
+        for (StationType stationType : StationType.values()) {
+            List<String> expected = stations.stream()
+                    .filter(station -> station.getType() == stationType)
+                    .sorted(Comparator.comparingDouble(station -> distance(station, 53.35, -6.26)))
+                    .limit(5)
+                    .map(Station::getStationId)
+                    .collect(Collectors.toList());
+            List<String> actual = stationIndexService.findNearest(stationType, 53.35, -6.26, 5).stream()
+                    .map(Station::getStationId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+        verify(stationRepository, times(1)).findAllWithLocation();
+    }
+
+    @Test
+    @DisplayName("LIMIT_BEYOND_STATION_COUNT_RETURNS_EVERY_STATION_OF_TYPE")
+    void limitBeyondStationCountReturnsEveryStationOfType() {
+        when(stationRepository.findAllWithLocation()).thenReturn(randomStations(10));
+
+        assertEquals(5, stationIndexService.findNearest(StationType.LUAS, 53.35, -6.26, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    @DisplayName("RADIUS_QUERY_RETURNS_ONLY_STATIONS_OF_TYPE_WITHIN_RADIUS")
+    void radiusQueryReturnsOnlyStationsOfTypeWithinRadius() {
+        List<Station> stations = randomStations(1000);
+        when(stationRepository.findAllWithLocation()).thenReturn(stations);
+
+        List<Station> result = stationIndexService.findWithinRadius(StationType.LUAS, 53.35, -6.26, 1.5);
+
+        long expected = stations.stream()
+                .filter(station -> station.getType() == StationType.LUAS && distance(station, 53.35, -6.26) <= 1.5)
+                .count();
+        assertEquals(expected, result.size());
+        assertFalse(result.isEmpty());
+        assertTrue(result.stream().allMatch(station -> station.getType() == StationType.LUAS));
+    }
+}
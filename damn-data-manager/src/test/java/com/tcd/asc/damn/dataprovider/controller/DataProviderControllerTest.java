@@ -0,0 +1,74 @@
+package com.tcd.asc.damn.dataprovider.controller;
+
+import com.tcd.asc.damn.dataprovider.service.DataProviderService;
+import com.tcd.asc.damn.dataprovider.service.StationIndexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class DataProviderControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private StationIndexService stationIndexService;
+
+    @BeforeEach
+    void setup() {
+        DataProviderService dataProviderService = new DataProviderService();
+        ReflectionTestUtils.setField(dataProviderService, "stationIndexService", stationIndexService);
+        ReflectionTestUtils.setField(dataProviderService, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(dataProviderService, "maxNearestLimit", 10);
+        DataProviderController controller = new DataProviderController();
+        ReflectionTestUtils.setField(controller, "dataProviderService", dataProviderService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    @DisplayName("OVERSIZED_NEAREST_STATION_BATCH_IS_A_BAD_REQUEST")
+    void oversizedNearestStationBatchIsABadRequest() throws Exception {
+        String locations = "[{\"latitude\":53.34,\"longitude\":-6.26},{\"latitude\":53.35,\"longitude\":-6.25}," +
+                "{\"latitude\":53.36,\"longitude\":-6.24}]";
+
+        mockMvc.perform(post("/api/data-provider/stations/nearest/batch")
+                        .param("stationType", "LUAS")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(locations))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(stationIndexService);
+    }
+
+    @Test
+    @DisplayName("OVERSIZED_NEAREST_STATION_LIMIT_IS_A_BAD_REQUEST")
+    void oversizedNearestStationLimitIsABadRequest() throws Exception {
+        mockMvc.perform(get("/api/data-provider/stations/nearest")
+                        .param("stationType", "LUAS")
+                        .param("latitude", "53.35")
+                        .param("longitude", "-6.26")
+                        .param("limit", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/data-provider/stations/nearest/batch")
+                        .param("stationType", "LUAS")
+                        .param("limit", "11")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"latitude\":53.34,\"longitude\":-6.26}]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(stationIndexService);
+    }
+}
@@ -0,0 +1,116 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphDiffTest {
+
+    private static Stop stop(String stopId, String name) {
+        Stop stop = new Stop();
+        stop.setStopId(stopId);
+        stop.setStopName(name);
+        stop.setStopLat(53.34);
+        stop.setStopLon(-6.26);
+        return stop;
+    }
+
+    private static StopTimeRepository.TimetableRow row(String tripId, String stopId, int sequence, String time) {
+        LocalTime at = LocalTime.parse(time);
+        return new StopTimeRepository.TimetableRow() {
+            public String getTripId() { return tripId; }
+            public String getStopId() { return stopId; }
+            public int getStopSequence() { return sequence; }
+            public LocalTime getArrivalTime() { return at; }
+            public LocalTime getDepartureTime() { return at; }
+        };
+    }
+
+    private static GraphModel model(String nameOfB, String arrivalAtB) {
+        return GraphModel.builder()
+                .addStop(stop("A", "Stop A"))
+                .addStop(stop("B", nameOfB))
+                .addStop(stop("C", "Stop C"))
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "B", 2, arrivalAtB)))
+                .addTransfer("B", "C", 5.0)
+                .build();
+    }
+
+    /** Hashes as they would be read back from a graph written from the given model. */
+    private static Map<String, String> stopHashes(GraphModel model) {
+        Map<String, String> hashes = new HashMap<>();
+        model.stopRows().forEach(row -> hashes.put((String) row.get("stopId"), (String) row.get("hash")));
+        return hashes;
+    }
+
+    private static Map<String, String> patternHashes(GraphModel model) {
+        Map<String, String> hashes = new HashMap<>();
+        model.patternRows().forEach(row -> hashes.put((String) row.get("patternId"), (String) row.get("hash")));
+        return hashes;
+    }
+
+    private static Map<String, Map<String, String>> edgeHashes(GraphModel model) {
+        Map<String, Map<String, String>> hashes = new HashMap<>();
+        model.edgeRowsByType().forEach((type, rows) -> rows.forEach(row -> hashes.computeIfAbsent(type, t -> new HashMap<>())
+                .put(GraphDiff.edgeKey((String) row.get("fromStopId"), (String) row.get("toStopId")), (String) row.get("hash"))));
+        return hashes;
+    }
+
+    @Test
+    @DisplayName("UNCHANGED_DATA_PRODUCES_NO_CHANGES")
+    void unchangedDataProducesNoChanges() {
+        GraphModel stored = model("Stop B", "08:03");
+        GraphModel current = model("Stop B", "08:03");
+
+        GraphDiff diff = GraphDiff.compute(current, stopHashes(stored), patternHashes(stored), edgeHashes(stored));
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    @DisplayName("CHANGED_STOP_AND_TRAVEL_TIME_ARE_UPDATED_IN_PLACE")
+    void changedStopAndTravelTimeAreUpdatedInPlace() {
+        GraphModel stored = model("Stop B", "08:03");
+        GraphModel current = model("Stop B (renamed)", "08:05");
+
+        GraphDiff diff = GraphDiff.compute(current, stopHashes(stored), patternHashes(stored), edgeHashes(stored));
+
+        assertEquals(1, diff.changedStops().size());
+        assertEquals("B", diff.changedStops().get(0).get("stopId"));
+        assertEquals(1, diff.changedEdges().get("RED_LUAS").size());
+        assertEquals(5.0, (double) diff.changedEdges().get("RED_LUAS").get(0).get("weight"), 1e-9);
+        assertTrue(diff.addedStops().isEmpty() && diff.removedStops().isEmpty());
+        assertTrue(diff.addedEdges().isEmpty() && diff.removedEdges().isEmpty());
+        assertTrue(diff.changedPatterns().isEmpty(), "Same trips over the same stops keep their pattern");
+        assertEquals(2, diff.changeCount());
+    }
+
+    @Test
+    @DisplayName("ADDED_AND_REMOVED_ELEMENTS_ARE_DETECTED")
+    void addedAndRemovedElementsAreDetected() {
+        GraphModel stored = model("Stop B", "08:03");
+        GraphModel current = GraphModel.builder()
+                .addStop(stop("A", "Stop A"))
+                .addStop(stop("B", "Stop B"))
+                .addStop(stop("D", "Stop D"))
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:03")))
+                .addTrip("T2", "GREEN_LUAS", 1, List.of(row("T2", "B", 1, "09:00"), row("T2", "D", 2, "09:04")))
+                .build();
+
+        GraphDiff diff = GraphDiff.compute(current, stopHashes(stored), patternHashes(stored), edgeHashes(stored));
+
+        assertEquals(List.of(Map.of("stopId", "C")), diff.removedStops());
+        assertEquals("D", diff.addedStops().get(0).get("stopId"));
+        assertEquals(List.of(Map.of("fromStopId", "B", "toStopId", "C")), diff.removedEdges().get("TRANSFER"));
+        assertEquals("D", diff.addedEdges().get("GREEN_LUAS").get(0).get("toStopId"));
+        assertEquals(1, diff.addedPatterns().size());
+        assertTrue(diff.removedPatterns().isEmpty());
+        assertFalse(diff.addedEdges().containsKey("RED_LUAS"));
+    }
+}
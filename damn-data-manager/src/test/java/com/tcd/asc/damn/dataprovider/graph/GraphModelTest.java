@@ -0,0 +1,164 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.constants.TransitType;
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphModelTest {
+
+    private static Stop stop(String stopId, double lat, double lon) {
+        Stop stop = new Stop();
+        stop.setStopId(stopId);
+        stop.setStopName("Stop " + stopId);
+        stop.setStopLat(lat);
+        stop.setStopLon(lon);
+        return stop;
+    }
+
+    private static StopTimeRepository.TimetableRow row(String tripId, String stopId, int sequence, String time) {
+        LocalTime at = time != null ? LocalTime.parse(time) : null;
+        return new StopTimeRepository.TimetableRow() {
+            public String getTripId() { return tripId; }
+            public String getStopId() { return stopId; }
+            public int getStopSequence() { return sequence; }
+            public LocalTime getArrivalTime() { return at; }
+            public LocalTime getDepartureTime() { return at; }
+        };
+    }
+
+    private static GraphModel.Builder threeStops() {
+        return GraphModel.builder()
+                .addStop(stop("A", 53.340, -6.260))
+                .addStop(stop("B", 53.345, -6.255))
+                .addStop(stop("C", 53.350, -6.250));
+    }
+
+    @Test
+    @DisplayName("TRIPS_SHARING_A_HOP_AGGREGATE_INTO_ONE_RELATIONSHIP")
+    void tripsSharingAHopAggregateIntoOneRelationship() {
+        GraphModel model = threeStops()
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:03"), row("T1", "C", 3, "08:07")))
+                .addTrip("T2", "RED_LUAS", 0, List.of(row("T2", "A", 1, "08:10"), row("T2", "B", 2, "08:15")))
+                .addTrip("T3", "RED_LUAS", 0, List.of(row("T3", "A", 1, "08:30"), row("T3", "B", 2, "08:34")))
+                .build();
+
+        assertEquals(3, model.stopCount());
+        assertEquals(2, model.edgeCount());
+        List<Map<String, Object>> red = model.edgeRowsByType().get("RED_LUAS");
+        assertEquals(2, red.size());
+        Map<String, Object> ab = red.get(0);
+        assertEquals("A", ab.get("fromStopId"));
+        assertEquals("B", ab.get("toStopId"));
+        assertEquals(4.0, (double) ab.get("weight"), 1e-9);
+        assertEquals(3.0, (double) ab.get("minWeight"), 1e-9);
+        assertEquals(4.0, (double) ab.get("medianWeight"), 1e-9);
+        assertEquals(3, ab.get("tripCount"));
+        assertEquals(15.0, (double) ab.get("headway"), 1e-9);
+        assertEquals(0, ab.get("directionId"));
+        assertEquals(List.of("T1"), ab.get("tripIds"));
+
+        Map<String, Object> bc = red.get(1);
+        assertEquals(4.0, (double) bc.get("weight"), 1e-9);
+        assertEquals(1, bc.get("tripCount"));
+        assertFalse(bc.containsKey("headway"));
+    }
+
+    @Test
+    @DisplayName("HEADWAY_ONLY_COUNTS_GAPS_WITHIN_A_SERVICE")
+    void headwayOnlyCountsGapsWithinAService() {
+        // Weekday trips every 10 minutes and weekend trips every 20 interleave when merged into one day
+        GraphModel model = threeStops()
+                .addTrip("W1", "RED_LUAS", 0, "WEEKDAY", List.of(row("W1", "A", 1, "08:00"), row("W1", "B", 2, "08:03")))
+                .addTrip("W2", "RED_LUAS", 0, "WEEKDAY", List.of(row("W2", "A", 1, "08:10"), row("W2", "B", 2, "08:13")))
+                .addTrip("W3", "RED_LUAS", 0, "WEEKDAY", List.of(row("W3", "A", 1, "08:20"), row("W3", "B", 2, "08:23")))
+                .addTrip("S1", "RED_LUAS", 0, "WEEKEND", List.of(row("S1", "A", 1, "08:05"), row("S1", "B", 2, "08:08")))
+                .addTrip("S2", "RED_LUAS", 0, "WEEKEND", List.of(row("S2", "A", 1, "08:25"), row("S2", "B", 2, "08:28")))
+                .build();
+
+        Map<String, Object> ab = model.edgeRowsByType().get("RED_LUAS").get(0);
+        assertEquals(5, ab.get("tripCount"));
+        assertEquals(10.0, (double) ab.get("headway"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("TRIPS_WITH_THE_SAME_STOPS_SHARE_A_PATTERN")
+    void tripsWithTheSameStopsShareAPattern() {
+        GraphModel model = threeStops()
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:03")))
+                .addTrip("T2", "RED_LUAS", 0, List.of(row("T2", "A", 1, "08:10"), row("T2", "B", 2, "08:13")))
+                .addTrip("T3", "RED_LUAS", 0, List.of(row("T3", "A", 1, "08:20"), row("T3", "B", 2, "08:23"), row("T3", "C", 3, "08:26")))
+                .build();
+
+        assertEquals(2, model.patternCount());
+        Map<String, Object> shortPattern = model.patternRows().get(0);
+        assertEquals("RED_LUAS", shortPattern.get("edgeType"));
+        assertEquals(List.of("A", "B"), shortPattern.get("stopIds"));
+        assertEquals(2, shortPattern.get("tripCount"));
+        assertEquals("T1", shortPattern.get("tripId"));
+        assertEquals(1, model.patternRows().get(1).get("tripCount"));
+        assertEquals("T3", model.patternRows().get(1).get("tripId"));
+        assertNotEquals(shortPattern.get("patternId"), model.patternRows().get(1).get("patternId"));
+    }
+
+    @Test
+    @DisplayName("GROUPS_RELATIONSHIPS_BY_TYPE")
+    void groupsRelationshipsByType() {
+        GraphModel model = threeStops()
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:03")))
+                .addTrip("T2", "GREEN_LUAS", 1, List.of(row("T2", "B", 1, "08:00"), row("T2", "C", 2, "08:02")))
+                .addTransfer("A", "C", 5.0)
+                .build();
+
+        assertEquals(List.of("RED_LUAS", "GREEN_LUAS", "TRANSFER"), List.copyOf(model.edgeRowsByType().keySet()));
+        Map<String, Object> transfer = model.edgeRowsByType().get("TRANSFER").get(0);
+        assertEquals(5.0, (double) transfer.get("weight"), 1e-9);
+        assertFalse(transfer.containsKey("tripIds"));
+        assertFalse(transfer.containsKey("tripCount"));
+        assertFalse(transfer.containsKey("directionId"));
+    }
+
+    @Test
+    @DisplayName("SKIPS_UNKNOWN_STOPS_AND_DUPLICATE_SEQUENCES")
+    void skipsUnknownStopsAndDuplicateSequences() {
+        GraphModel model = threeStops()
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, "08:00"), row("T1", "A", 1, "08:00"),
+                        row("T1", "X", 2, "08:01"), row("T1", "B", 3, "08:03")))
+                .addTransfer("A", "X", 5.0)
+                .addTransfer("A", "A", 5.0)
+                .build();
+
+        assertEquals(1, model.edgeCount());
+        Map<String, Object> ab = model.edgeRowsByType().get("RED_LUAS").get(0);
+        assertEquals("B", ab.get("toStopId"));
+        assertEquals(List.of("T1"), ab.get("tripIds"));
+    }
+
+    @Test
+    @DisplayName("EDGE_TYPE_IS_A_SANITISED_NAME_WITH_THE_TRANSIT_TYPE")
+    void edgeTypeIsASanitisedNameWithTheTransitType() {
+        assertEquals("RED_LUAS", GraphModel.edgeType("Red", TransitType.LUAS));
+        assertEquals("46A_BUS", GraphModel.edgeType("46A", TransitType.BUS));
+        assertEquals("C1_EXPRESS_BUS", GraphModel.edgeType(" c1 (express) ", TransitType.BUS));
+        assertEquals("UNKNOWN_BUS", GraphModel.edgeType("--", TransitType.BUS));
+        assertEquals("GREEN_LUAS", GraphModel.edgeType("Green", null));
+    }
+
+    @Test
+    @DisplayName("FALLS_BACK_TO_DISTANCE_WITHOUT_TIMES")
+    void fallsBackToDistanceWithoutTimes() {
+        GraphModel model = threeStops()
+                .addTrip("T1", "RED_LUAS", 0, List.of(row("T1", "A", 1, null), row("T1", "B", 2, null)))
+                .build();
+
+        double weight = (double) model.edgeRowsByType().get("RED_LUAS").get(0).get("weight");
+        assertEquals(0.65, weight, 0.05);
+    }
+}
@@ -0,0 +1,46 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphSchemaTest {
+
+    private static GraphSchema.Element element(String name) {
+        return GraphSchema.ELEMENTS.stream().filter(e -> e.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("BUILDS_IDEMPOTENT_SCHEMA_STATEMENTS")
+    void buildsIdempotentSchemaStatements() {
+        assertEquals("CREATE CONSTRAINT stop_generation_unique IF NOT EXISTS FOR (s:Stop) " +
+                "REQUIRE (s.stopId, s.generation) IS UNIQUE", element("stop_generation_unique").statement());
+        assertEquals("CREATE CONSTRAINT graph_version_unique IF NOT EXISTS FOR (v:GraphVersion) " +
+                "REQUIRE v.graph IS UNIQUE", element("graph_version_unique").statement());
+        assertEquals("CREATE INDEX stop_stop_name IF NOT EXISTS FOR (s:Stop) ON (s.stopName)",
+                element("stop_stop_name").statement());
+        assertTrue(GraphSchema.ELEMENTS.stream().allMatch(e -> e.statement().contains("IF NOT EXISTS")));
+    }
+
+    @Test
+    @DisplayName("REPORTS_MISSING_AND_POPULATING_ELEMENTS")
+    void reportsMissingAndPopulatingElements() {
+        Map<String, Map<String, Object>> indexes = new HashMap<>();
+        for (GraphSchema.Element element : GraphSchema.ELEMENTS) {
+            indexes.put(element.name(), Map.of("state", GraphSchema.ONLINE, "populationPercent", 100.0));
+        }
+        indexes.put("stop_stop_name", Map.of("state", "POPULATING", "populationPercent", 40.0));
+        indexes.remove("pattern_generation");
+        indexes.put("unrelated_index", Map.of("state", GraphSchema.ONLINE, "populationPercent", 100.0));
+
+        List<Map<String, Object>> status = GraphSchema.status(indexes);
+
+        assertEquals(GraphSchema.ELEMENTS.size(), status.size());
+        assertEquals(List.of("stop_stop_name (POPULATING)", "pattern_generation (MISSING)"), GraphSchema.notOnline(status));
+    }
+}
@@ -0,0 +1,86 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.entity.Location;
+import com.tcd.asc.damn.common.entity.LuasRoute;
+import com.tcd.asc.damn.common.entity.Station;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineTopologyTest {
+
+    private final Map<String, Station> stations = new HashMap<>();
+
+    private Station station(String stationId, double lat) {
+        return stations.computeIfAbsent(stationId, id -> {
+            Location location = new Location();
+            location.setLatitude(lat);
+            location.setLongitude(-6.26);
+            Station station = new Station();
+            station.setStationId(id);
+            station.setName(id.toLowerCase());
+            station.setLocation(location);
+            return station;
+        });
+    }
+
+    private LuasRoute route(String from, double fromLat, String to, double toLat) {
+        LuasRoute route = new LuasRoute();
+        route.setFromStation(station(from, fromLat));
+        route.setToStation(station(to, toLat));
+        return route;
+    }
+
+    private static List<String> ids(List<Station> stations) {
+        return stations.stream().map(Station::getStationId).collect(Collectors.toList());
+    }
+
+    // A - B - C - D with a branch C - E, pairs stored in mixed directions, plus a separate line X - Y
+    private LineTopology branchedTopology() {
+        return LineTopology.of(List.of(
+                route("A", 53.30, "B", 53.31),
+                route("C", 53.32, "B", 53.31),
+                route("C", 53.32, "D", 53.33),
+                route("C", 53.32, "E", 53.34),
+                route("X", 53.40, "Y", 53.41)));
+    }
+
+    @Test
+    @DisplayName("STATIONS_BETWEEN_IN_BOTH_DIRECTIONS")
+    void stationsBetweenInBothDirections() {
+        LineTopology topology = branchedTopology();
+
+        assertEquals(List.of("A", "B", "C", "D"), ids(topology.stationsBetween("A", "D")));
+        assertEquals(List.of("D", "C", "B", "A"), ids(topology.stationsBetween("D", "A")));
+        assertEquals(List.of("B", "C"), ids(topology.stationsBetween("B", "C")));
+        assertEquals(List.of("B"), ids(topology.stationsBetween("B", "B")));
+        assertEquals(3, topology.stopCount("D", "A"));
+        assertEquals(3 * 1.112, topology.distanceKm("A", "D"), 0.01);
+    }
+
+    @Test
+    @DisplayName("BRANCHES_ARE_CONNECTED_THROUGH_THE_JUNCTION")
+    void branchesAreConnectedThroughTheJunction() {
+        LineTopology topology = branchedTopology();
+
+        // Termini A, D and E give three lines on the branched network, and one for X - Y
+        assertEquals(4, topology.lines().size());
+        assertEquals(List.of("D", "C", "E"), ids(topology.stationsBetween("D", "E")));
+        assertEquals(List.of("A", "B", "C", "E"), ids(topology.stationsBetween("A", "E")));
+    }
+
+    @Test
+    @DisplayName("UNCONNECTED_OR_UNKNOWN_STATIONS")
+    void unconnectedOrUnknownStations() {
+        LineTopology topology = branchedTopology();
+
+        assertTrue(topology.stationsBetween("A", "X").isEmpty());
+        assertTrue(topology.stationsBetween("A", "MISSING").isEmpty());
+        assertEquals(-1, topology.stopCount("MISSING", "A"));
+        assertEquals(-1, topology.distanceKm("A", "Y"));
+    }
+}
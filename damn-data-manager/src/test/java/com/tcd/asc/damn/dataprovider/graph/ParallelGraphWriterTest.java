@@ -0,0 +1,116 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionCallback;
+import org.neo4j.driver.TransactionContext;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelGraphWriterTest {
+
+    @Mock
+    private Driver driver;
+
+    private static List<Map<String, Object>> edgeRows(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(Map.of("fromStopId", "S" + (i % 10), "toStopId", "S" + ((i + 1) % 10)));
+        }
+        return rows;
+    }
+
+    /** A session whose transactions record the rows they were given, keyed by session. */
+    private Session recordingSession(Map<Session, List<List<Map<String, Object>>>> batchesBySession) {
+        Session session = mock(Session.class);
+        TransactionContext tx = mock(TransactionContext.class);
+        Result result = mock(Result.class);
+        List<List<Map<String, Object>>> batches = Collections.synchronizedList(new ArrayList<>());
+        batchesBySession.put(session, batches);
+        when(tx.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            Map<String, Object> parameters = invocation.getArgument(1);
+            batches.add((List<Map<String, Object>>) parameters.get("rows"));
+            return result;
+        });
+        when(session.executeWrite(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).execute(tx));
+        return session;
+    }
+
+    @Test
+    @DisplayName("SHARDS_ROWS_BY_SOURCE_ACROSS_WORKER_SESSIONS")
+    void shardsRowsBySourceAcrossWorkerSessions() {
+        Map<Session, List<List<Map<String, Object>>>> batchesBySession = new ConcurrentHashMap<>();
+        when(driver.session()).thenAnswer(invocation -> recordingSession(batchesBySession));
+
+        int written = new ParallelGraphWriter(driver, 3, 4, 0)
+                .write("relationships", Map.of("UNWIND $rows AS row RETURN row", edgeRows(40)), "fromStopId");
+
+        assertEquals(40, written);
+        assertTrue(batchesBySession.size() > 1 && batchesBySession.size() <= 3);
+        Map<Object, Session> sessionBySource = new HashMap<>();
+        int rows = 0;
+        for (Map.Entry<Session, List<List<Map<String, Object>>>> entry : batchesBySession.entrySet()) {
+            verify(entry.getKey()).close();
+            for (List<Map<String, Object>> batch : entry.getValue()) {
+                assertTrue(batch.size() <= 4);
+                for (Map<String, Object> row : batch) {
+                    rows++;
+                    Session previous = sessionBySource.putIfAbsent(row.get("fromStopId"), entry.getKey());
+                    assertTrue(previous == null || previous == entry.getKey(), "A source stop was split across workers");
+                }
+            }
+        }
+        assertEquals(40, rows);
+    }
+
+    @Test
+    @DisplayName("RETRIES_TRANSIENT_FAILURES")
+    void retriesTransientFailures() {
+        Session session = mock(Session.class);
+        when(driver.session()).thenReturn(session);
+        AtomicInteger attempts = new AtomicInteger();
+        when(session.executeWrite(any())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock");
+            }
+            return null;
+        });
+
+        ParallelGraphWriter writer = new ParallelGraphWriter(driver, 1, 100, 2);
+        writer.write("stops", Map.of("UNWIND $rows AS row RETURN row", edgeRows(5)), "fromStopId");
+
+        assertEquals(2, attempts.get());
+        assertEquals(1, writer.retryCount());
+    }
+
+    @Test
+    @DisplayName("GIVES_UP_AFTER_MAX_RETRIES")
+    void givesUpAfterMaxRetries() {
+        Session session = mock(Session.class);
+        when(driver.session()).thenReturn(session);
+        when(session.executeWrite(any())).thenThrow(
+                new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "deadlock"));
+
+        ParallelGraphWriter writer = new ParallelGraphWriter(driver, 1, 100, 1);
+
+        assertThrows(TransientException.class, () ->
+                writer.write("stops", Map.of("UNWIND $rows AS row RETURN row", edgeRows(5)), "fromStopId"));
+        verify(session, times(2)).executeWrite(any());
+        verify(session).close();
+    }
+}
@@ -0,0 +1,116 @@
+package com.tcd.asc.damn.dataprovider.graph;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferGeneratorTest {
+
+    private static Stop stop(String stopId, double lat, double lon, String parentStation) {
+        Stop stop = new Stop();
+        stop.setStopId(stopId);
+        stop.setStopLat(lat);
+        stop.setStopLon(lon);
+        stop.setParentStation(parentStation);
+        return stop;
+    }
+
+    private static StopTimeRepository.TimetableRow timetableRow(String tripId, String stopId, int sequence) {
+        return new StopTimeRepository.TimetableRow() {
+            public String getTripId() { return tripId; }
+            public String getStopId() { return stopId; }
+            public int getStopSequence() { return sequence; }
+            public LocalTime getArrivalTime() { return LocalTime.of(8, sequence); }
+            public LocalTime getDepartureTime() { return LocalTime.of(8, sequence); }
+        };
+    }
+
+    private static Map<String, Double> transfers(List<Stop> stops, TransferGenerator generator) {
+        GraphModel.Builder builder = GraphModel.builder();
+        stops.forEach(builder::addStop);
+        generator.addTransfers(builder, stops);
+        return builder.build().edgeRowsByType().getOrDefault(GraphModel.TRANSFER, List.of()).stream()
+                .collect(Collectors.toMap(row -> row.get("fromStopId") + ">" + row.get("toStopId"),
+                        row -> (double) row.get("weight")));
+    }
+
+    @Test
+    @DisplayName("LINKS_STOPS_WITHIN_RADIUS_BOTH_WAYS")
+    void linksStopsWithinRadiusBothWays() {
+        // A and B are about 220 m apart, C is over 2 km away
+        List<Stop> stops = List.of(
+                stop("A", 53.3486, -6.2583, null),
+                stop("B", 53.3492, -6.2616, null),
+                stop("C", 53.3300, -6.2600, null));
+
+        Map<String, Double> transfers = transfers(stops, new TransferGenerator(0.4, 5.0, 2.0, 8));
+
+        assertEquals(2, transfers.size());
+        assertEquals(transfers.get("A>B"), transfers.get("B>A"));
+        assertEquals(2.0 + 0.226 / 5.0 * 60, transfers.get("A>B"), 0.1);
+    }
+
+    @Test
+    @DisplayName("LINKS_PLATFORMS_OF_THE_SAME_PARENT_STATION_BEYOND_RADIUS")
+    void linksPlatformsOfTheSameParentStationBeyondRadius() {
+        List<Stop> stops = List.of(
+                stop("STATION", 53.3500, -6.2500, null),
+                stop("P1", 53.3500, -6.2500, "STATION"),
+                stop("P2", 53.3550, -6.2500, "STATION"),
+                stop("FAR", 53.3550, -6.2400, null));
+
+        Map<String, Double> transfers = transfers(stops, new TransferGenerator(0.1, 5.0, 0.0, 8));
+
+        assertTrue(transfers.containsKey("P1>P2"));
+        assertTrue(transfers.containsKey("P2>STATION"));
+        assertFalse(transfers.keySet().stream().anyMatch(key -> key.contains("FAR")));
+        assertEquals(6, transfers.size());
+    }
+
+    @Test
+    @DisplayName("NO_TRANSFERS_BETWEEN_STOPS_ON_THE_SAME_LINE")
+    void noTransfersBetweenStopsOnTheSameLine() {
+        // A and B are consecutive stops of the red line, B2 is the opposite platform of B; G is on the green line
+        List<Stop> stops = List.of(
+                stop("A", 53.3486, -6.2583, null),
+                stop("B", 53.3492, -6.2616, null),
+                stop("B2", 53.3493, -6.2616, null),
+                stop("G", 53.3490, -6.2600, null));
+        GraphModel.Builder builder = GraphModel.builder();
+        stops.forEach(builder::addStop);
+        builder.addTrip("R1", "RED_LUAS", 0, List.of(timetableRow("R1", "A", 1), timetableRow("R1", "B", 2)));
+        builder.addTrip("R2", "RED_LUAS", 1, List.of(timetableRow("R2", "B2", 1), timetableRow("R2", "A", 2)));
+        builder.addTrip("G1", "GREEN_LUAS", 0, List.of(timetableRow("G1", "G", 1), timetableRow("G1", "A", 2)));
+
+        new TransferGenerator(0.4, 5.0, 2.0, 8).addTransfers(builder, stops);
+        Set<String> transfers = builder.build().edgeRowsByType().get(GraphModel.TRANSFER).stream()
+                .map(row -> row.get("fromStopId") + ">" + row.get("toStopId"))
+                .collect(Collectors.toSet());
+
+        assertEquals(Set.of("B>G", "G>B", "B2>G", "G>B2"), transfers);
+    }
+
+    @Test
+    @DisplayName("CAPS_TRANSFERS_PER_STOP_TO_THE_NEAREST")
+    void capsTransfersPerStopToTheNearest() {
+        List<Stop> stops = List.of(
+                stop("HUB", 53.3500, -6.2500, null),
+                stop("NEAR", 53.3505, -6.2500, null),
+                stop("MID", 53.3500, -6.2520, null),
+                stop("EDGE", 53.3520, -6.2500, null));
+
+        Map<String, Double> transfers = transfers(stops, new TransferGenerator(0.4, 5.0, 2.0, 1));
+
+        assertTrue(transfers.containsKey("HUB>NEAR"));
+        assertFalse(transfers.containsKey("HUB>EDGE"));
+    }
+}
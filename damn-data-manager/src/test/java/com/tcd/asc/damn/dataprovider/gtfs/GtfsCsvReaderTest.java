@@ -0,0 +1,71 @@
+package com.tcd.asc.damn.dataprovider.gtfs;
+
+import com.tcd.asc.damn.common.constants.TransitType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtfsCsvReaderTest {
+
+    private static GtfsCsvReader reader(String content) throws Exception {
+        return new GtfsCsvReader(new StringReader(content));
+    }
+
+    @Test
+    @DisplayName("READS_QUOTED_FIELDS_BY_HEADER_NAME")
+    void readsQuotedFieldsByHeaderName() throws Exception {
+        GtfsCsvReader reader = reader("\uFEFFstop_id, stop_name ,stop_lat\r\n" +
+                "S1,\"Smithfield, Dublin 7\",53.347\r\n" +
+                "\r\n" +
+                "S2,\"The \"\"Point\"\"\",53.348");
+
+        assertTrue(reader.hasColumn("stop_id"));
+        assertTrue(reader.next());
+        assertEquals("S1", reader.get("stop_id"));
+        assertEquals("Smithfield, Dublin 7", reader.get("stop_name"));
+        assertTrue(reader.next());
+        assertEquals("The \"Point\"", reader.get("stop_name"));
+        assertEquals("53.348", reader.get("stop_lat"));
+        assertNull(reader.get("zone_id"));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    @DisplayName("RENDERS_COPY_LINES_WITH_WRAPPED_TIMES_AND_DEFAULTS")
+    void rendersCopyLinesWithWrappedTimesAndDefaults() throws Exception {
+        GtfsCsvReader reader = reader("trip_id,arrival_time,departure_time,stop_id,stop_sequence,pickup_type\n" +
+                "T1,24:05:00, 7:30:15,S1,3,\n");
+        assertTrue(reader.next());
+
+        StringBuilder line = new StringBuilder();
+        GtfsTable.STOP_TIMES.appendCopyLine(reader, TransitType.BUS, line);
+
+        assertEquals("\"T1\",\"S1\",3,00:05:00,07:30:15,,0,0,0\n", line.toString());
+    }
+
+    @Test
+    @DisplayName("RENDERS_CALENDAR_DATES_AS_ISO_DATES")
+    void rendersCalendarDatesAsIsoDates() throws Exception {
+        GtfsCsvReader reader = reader("service_id,date,exception_type\nWKD,20241225,2\n");
+        assertTrue(reader.next());
+
+        StringBuilder line = new StringBuilder();
+        GtfsTable.CALENDAR_DATES.appendCopyLine(reader, TransitType.BUS, line);
+
+        assertEquals("\"WKD\",2024-12-25,2\n", line.toString());
+    }
+
+    @Test
+    @DisplayName("REJECTS_RECORDS_WITHOUT_A_KEY")
+    void rejectsRecordsWithoutAKey() throws Exception {
+        GtfsCsvReader reader = reader("stop_id,stop_name,stop_lat,stop_lon\n,Nowhere,53.3,-6.2\n");
+        assertTrue(reader.next());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> GtfsTable.STOPS.appendCopyLine(reader, TransitType.LUAS, new StringBuilder()));
+        assertTrue(e.getMessage().contains("record 1"));
+    }
+}
@@ -4,9 +4,11 @@ import com.tcd.asc.damn.common.config.JpaConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @Import(JpaConfig.class)
+@EnableScheduling
 public class MapServiceApplication {
 
 	public static void main(String[] args) {
@@ -15,14 +15,13 @@ public class LocationController {
     private LocationService locationService;
 
     @GetMapping("/location-search")
-    public List<Location> getLocationsByName(@RequestParam String name) {
-        return locationService.findLocationsByName(name);
+    public List<Location> getLocationsByName(@RequestParam String name, @RequestParam(required = false) Integer limit) {
+        return limit != null ? locationService.findLocationsByName(name, limit) : locationService.findLocationsByName(name);
     }
 
     // POST endpoint to add a new location
     @PostMapping
     public Location addLocation(@RequestBody Location location) {
-        locationService.addLocation(location);
-        return location;  // Return the added location as confirmation
+        return locationService.addLocation(location);  // Return the added location as confirmation
     }
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+package com.tcd.asc.damn.mapservice.search;
+
+import com.tcd.asc.damn.common.entity.Location;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory type-ahead index over location names and addresses.
+ * <p>
+ * Names and addresses are normalised (lower case, accents and punctuation stripped) and split into tokens held in a
+ * sorted dictionary, so every query term is looked up as a token prefix with one range scan; a location matches when
+ * each term prefixes one of its tokens. When that finds fewer results than asked for, a trigram index over the names
+ * adds locations whose name merely contains the query, as the old {@code LIKE '%x%'} search did.
+ * <p>
+ * Results are ranked exact name, name prefix, every term in the name, terms matched through the address, then
+ * substring matches; ties go to the higher rating, then the shorter name. Locations can be added, replaced and
+ * removed while the index is being searched.
+ */
+public final class LocationSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int EXACT_NAME = 5;
+    private static final int NAME_PREFIX = 4;
+    private static final int NAME_TERMS = 3;
+    private static final int ADDRESS_TERMS = 2;
+    private static final int NAME_SUBSTRING = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final Map<Long, Integer> documentIds = new HashMap<>();
+    private final NavigableMap<String, Set<Integer>> tokens = new TreeMap<>();
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+    private int nextDocument;
+
+    public static LocationSearchIndex of(Collection<Location> locations) {
+        LocationSearchIndex index = new LocationSearchIndex();
+        locations.forEach(index::put);
+        return index;
+    }
+
+    /** Adds the location, replacing any location indexed under the same id. Locations without an id are ignored. */
+    public void put(Location location) {
+        if (location.getLocationId() == null) {
+            return;
+        }
+        Document document = new Document(location);
+        lock.writeLock().lock();
+        try {
+            removeDocument(location.getLocationId());
+            int id = nextDocument++;
+            documents.put(id, document);
+            documentIds.put(location.getLocationId(), id);
+            for (String token : document.allTokens()) {
+                tokens.computeIfAbsent(token, t -> new HashSet<>()).add(id);
+            }
+            for (String trigram : trigrams(document.name)) {
+                trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long locationId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(locationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Returns up to {@code limit} locations matching {@code query}, best first. */
+    public List<Location> search(String query, int limit) {
+        String normalised = normalise(query);
+        if (normalised.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String[] terms = normalised.split(" ");
+        List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = null;
+            for (String term : terms) {
+                Set<Integer> withTerm = new HashSet<>();
+                for (Set<Integer> postings : tokens.subMap(term, true, term + Character.MAX_VALUE, false).values()) {
+                    withTerm.addAll(postings);
+                }
+                if (candidates == null) {
+                    candidates = withTerm;
+                } else {
+                    candidates.retainAll(withTerm);
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+            for (int id : candidates) {
+                Document document = documents.get(id);
+                matches.add(new Match(document, document.rank(normalised, terms)));
+            }
+
+            if (matches.size() < limit && normalised.length() >= 3) {
+                for (int id : substringCandidates(normalised)) {
+                    Document document = documents.get(id);
+                    if (!candidates.contains(id) && document.name.contains(normalised)) {
+                        matches.add(new Match(document, NAME_SUBSTRING));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Comparator.comparingInt(Match::rank).reversed()
+                .thenComparing(match -> match.document.rating(), Comparator.reverseOrder())
+                .thenComparingInt(match -> match.document.name.length())
+                .thenComparing(match -> match.document.name));
+        List<Location> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(matches.get(i).document.location);
+        }
+        return result;
+    }
+
+    /** Lower-cases, strips accents and replaces every run of non-alphanumerics with a single space. */
+    public static String normalise(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private Set<Integer> substringCandidates(String normalised) {
+        Set<Integer> candidates = null;
+        for (String trigram : trigrams(normalised)) {
+            Set<Integer> postings = trigrams.getOrDefault(trigram, Set.of());
+            if (candidates == null) {
+                candidates = new HashSet<>(postings);
+            } else {
+                candidates.retainAll(postings);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates != null ? candidates : Set.of();
+    }
+
+    private void removeDocument(Long locationId) {
+        Integer id = documentIds.remove(locationId);
+        if (id == null) {
+            return;
+        }
+        Document document = documents.remove(id);
+        for (String token : document.allTokens()) {
+            removePosting(tokens, token, id);
+        }
+        for (String trigram : trigrams(document.name)) {
+            removePosting(trigrams, trigram, id);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<Integer>> postings, String key, int id) {
+        Set<Integer> ids = postings.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            postings.remove(key);
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private record Match(Document document, int rank) {
+    }
+
+    private static final class Document {
+
+        private final Location location;
+        private final String name;
+        private final String[] nameTokens;
+        private final String[] addressTokens;
+
+        private Document(Location location) {
+            this.location = location;
+            this.name = normalise(location.getName());
+            this.nameTokens = tokens(name);
+            this.addressTokens = tokens(normalise(location.getAddress()));
+        }
+
+        private Set<String> allTokens() {
+            Set<String> all = new HashSet<>(Arrays.asList(nameTokens));
+            all.addAll(Arrays.asList(addressTokens));
+            return all;
+        }
+
+        private double rating() {
+            return location.getRating() != null ? location.getRating() : 0;
+        }
+
+        private int rank(String normalised, String[] terms) {
+            if (name.equals(normalised)) {
+                return EXACT_NAME;
+            }
+            if (name.startsWith(normalised)) {
+                return NAME_PREFIX;
+            }
+            for (String term : terms) {
+                if (!anyStartsWith(nameTokens, term)) {
+                    return ADDRESS_TERMS;
+                }
+            }
+            return NAME_TERMS;
+        }
+
+        private static boolean anyStartsWith(String[] tokens, String prefix) {
+            for (String token : tokens) {
+                if (token.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String[] tokens(String normalised) {
+            return normalised.isEmpty() ? new String[0] : normalised.split(" ");
+        }
+    }
+}
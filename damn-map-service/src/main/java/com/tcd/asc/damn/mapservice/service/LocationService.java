@@ -2,7 +2,10 @@ package com.tcd.asc.damn.mapservice.service;
 
 import com.tcd.asc.damn.common.entity.Location;
 import com.tcd.asc.damn.common.repository.LocationRepository;
+import com.tcd.asc.damn.mapservice.search.LocationSearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,8 +16,22 @@ public class LocationService {
     @Autowired
     private LocationRepository locationRepository;
 
+    @Value("${location-search.default-limit:20}")
+    private int defaultLimit = 20;
+
+    @Value("${location-search.max-limit:100}")
+    private int maxLimit = 100;
+
+    // Built from the location table on first search, then kept current by addLocation
+    private volatile LocationSearchIndex searchIndex;
+    private volatile LocationRepository.LocationTableFingerprint indexedFingerprint;
+
     public List<Location> findLocationsByName(String name) {
-        return locationRepository.findByNameContainingIgnoreCase(name);
+        return findLocationsByName(name, defaultLimit);
+    }
+
+    public List<Location> findLocationsByName(String name, int limit) {
+        return getSearchIndex().search(name, Math.min(limit, maxLimit));
     }
 
     public List<Location> getAllLocations() {
@@ -22,6 +39,51 @@ public class LocationService {
     }
 
     public Location addLocation(Location location) {
-        return this.locationRepository.save(location);
+        Location saved = this.locationRepository.save(location);
+        synchronized (this) {
+            if (searchIndex != null) {
+                // The fingerprint is left as it was, so the next refresh also rebuilds once from the table
+                searchIndex.put(saved);
+            }
+        }
+        return saved;
+    }
+
+    public LocationSearchIndex getSearchIndex() {
+        LocationSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (searchIndex == null) {
+                    rebuild();
+                }
+                index = searchIndex;
+            }
+        }
+        return index;
+    }
+
+    // Picks up locations written by other services or instances
+    @Scheduled(fixedDelayString = "${location-search.refresh-interval-ms:300000}")
+    public void refreshIfChanged() {
+        if (searchIndex == null) {
+            return; // Not used yet, nothing to refresh
+        }
+        if (!locationRepository.fingerprint().matches(indexedFingerprint)) {
+            System.out.println("Location table changed, rebuilding search index...");
+            synchronized (this) {
+                rebuild();
+            }
+        }
+    }
+
+    // Callers hold the lock, so a location saved during a rebuild is either read by it or added after the swap
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        LocationRepository.LocationTableFingerprint fingerprint = locationRepository.fingerprint();
+        List<Location> locations = locationRepository.findAll();
+        LocationSearchIndex index = LocationSearchIndex.of(locations);
+        searchIndex = index;
+        indexedFingerprint = fingerprint;
+        System.out.println("Indexed " + index.size() + " locations for search in " + (System.currentTimeMillis() - startedAt) + " ms");
     }
-}
\ No newline at end of file
+}
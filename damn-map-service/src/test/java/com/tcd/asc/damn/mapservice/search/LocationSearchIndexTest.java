@@ -0,0 +1,76 @@
+package com.tcd.asc.damn.mapservice.search;
+
+import com.tcd.asc.damn.common.entity.Location;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationSearchIndexTest {
+
+    private static Location location(long id, String name, String address, Double rating) {
+        Location location = new Location();
+        location.setLocationId(id);
+        location.setName(name);
+        location.setAddress(address);
+        location.setRating(rating);
+        return location;
+    }
+
+    private static List<Long> ids(List<Location> locations) {
+        return locations.stream().map(Location::getLocationId).collect(Collectors.toList());
+    }
+
+    private static LocationSearchIndex index() {
+        return LocationSearchIndex.of(List.of(
+                location(1, "Trinity College", "College Green, Dublin 2", 4.7),
+                location(2, "Trinity Capital Hotel", "Pearse Street, Dublin 2", 4.1),
+                location(3, "The Café Trinité", "Dame Street", 3.9),
+                location(4, "Pearse Station", "Westland Row", 3.5),
+                location(5, "Trinity", "Grafton Street", null),
+                location(6, "St Stephen's Green", "Dublin 2", 4.8)));
+    }
+
+    @Test
+    @DisplayName("PREFIX_SEARCH_RANKS_EXACT_THEN_PREFIX_THEN_ADDRESS")
+    void prefixSearchRanksExactThenPrefixThenAddress() {
+        LocationSearchIndex index = index();
+
+        // Accents are stripped, so "trinit" also prefixes "trinite"
+        assertEquals(List.of(1L, 2L, 5L, 3L), ids(index.search("trinit", 10)));
+        assertEquals(List.of(5L, 1L, 2L), ids(index.search("Trinity", 10)));
+        assertEquals(List.of(1L), ids(index.search("trin col", 10)));
+        // "pearse" is in the name of the station and only in the address of the hotel
+        assertEquals(List.of(4L, 2L), ids(index.search("pearse", 10)));
+        assertEquals(List.of(6L, 1L), ids(index.search("green", 10)));
+        assertEquals(2, index.search("trinity", 2).size());
+    }
+
+    @Test
+    @DisplayName("FALLS_BACK_TO_SUBSTRING_MATCHES_ON_NAMES")
+    void fallsBackToSubstringMatchesOnNames() {
+        LocationSearchIndex index = index();
+
+        assertEquals(List.of(6L), ids(index.search("ephen", 10)));
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("PUT_AND_REMOVE_UPDATE_THE_INDEX")
+    void putAndRemoveUpdateTheIndex() {
+        LocationSearchIndex index = index();
+
+        index.put(location(7, "Dundrum Town Centre", "Sandyford Road", 4.4));
+        index.put(location(4, "Pearse Street Station", "Westland Row", 3.5));
+        index.remove(2L);
+
+        assertEquals(List.of(7L), ids(index.search("dundrum", 10)));
+        assertEquals(List.of(4L), ids(index.search("pearse st", 10)));
+        assertEquals(List.of(4L), ids(index.search("pearse", 10)));
+        assertEquals(6, index.size());
+    }
+}
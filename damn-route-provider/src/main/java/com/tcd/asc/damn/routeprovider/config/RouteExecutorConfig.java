@@ -0,0 +1,48 @@
+package com.tcd.asc.damn.routeprovider.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor used to evaluate start/end stop pairs concurrently.
+ * <p>
+ * On Java 21+ with {@code transit.routing.parallel.virtual-threads=true} a virtual-thread-per-task executor is
+ * used (looked up reflectively so the module still targets Java 17); otherwise a fixed pool of
+ * {@code transit.routing.parallel.pool-size} daemon threads.
+ */
+@Configuration
+public class RouteExecutorConfig {
+
+    @Value("${transit.routing.parallel.pool-size:9}")
+    private int poolSize;
+
+    @Value("${transit.routing.parallel.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService routeEvaluationExecutor() {
+        if (virtualThreads) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                System.out.println("Evaluating routes on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads not available on this JVM, using a pool of " + poolSize + " threads");
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "route-eval-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(poolSize, threadFactory);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+/**
+ * A path through a {@link TransitGraph}: {@code stops.length == edges.length + 1}.
+ */
+public final class GraphPath {
+
+    private final int[] stops;
+    private final int[] edges;
+    private final double weight;
+
+    GraphPath(int[] stops, int[] edges, double weight) {
+        this.stops = stops;
+        this.edges = edges;
+        this.weight = weight;
+    }
+
+    static GraphPath reconstruct(int target, double weight, int[] viaStop, int[] viaEdge) {
+        int length = 0;
+        for (int stop = target; viaStop[stop] >= 0; stop = viaStop[stop]) {
+            length++;
+        }
+        int[] stops = new int[length + 1];
+        int[] edges = new int[length];
+        int stop = target;
+        for (int i = length; i > 0; i--) {
+            stops[i] = stop;
+            edges[i - 1] = viaEdge[stop];
+            stop = viaStop[stop];
+        }
+        stops[0] = stop;
+        return new GraphPath(stops, edges, weight);
+    }
+
+    public int[] getStops() {
+        return stops;
+    }
+
+    public int[] getEdges() {
+        return edges;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public int source() {
+        return stops[0];
+    }
+
+    public int target() {
+        return stops[stops.length - 1];
+    }
+}
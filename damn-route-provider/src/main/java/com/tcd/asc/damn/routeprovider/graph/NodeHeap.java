@@ -0,0 +1,65 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (node, key) pairs backed by primitive arrays.
+ * Decrease-key is handled lazily: callers push a node again and skip stale entries on pop.
+ */
+final class NodeHeap {
+
+    private int[] nodes;
+    private double[] keys;
+    private int size;
+
+    NodeHeap(int initialCapacity) {
+        nodes = new int[initialCapacity];
+        keys = new double[initialCapacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int peekNode() {
+        return nodes[0];
+    }
+
+    double peekKey() {
+        return keys[0];
+    }
+
+    void push(int node, double key) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            nodes[i] = nodes[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        nodes[i] = node;
+        keys[i] = key;
+    }
+
+    void pop() {
+        int lastNode = nodes[--size];
+        double lastKey = keys[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+            if (lastKey <= keys[child]) break;
+            nodes[i] = nodes[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        nodes[i] = lastNode;
+        keys[i] = lastKey;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+/**
+ * One non-dominated route found by {@link ParetoSearch}. Criteria cover the whole trip, including the walks to the
+ * first stop and from the last stop.
+ */
+public final class ParetoRoute {
+
+    private final GraphPath path;
+    private final double minutes;
+    private final int transfers;
+    private final double walkKm;
+    private final double cost;
+
+    ParetoRoute(GraphPath path, double minutes, int transfers, double walkKm, double cost) {
+        this.path = path;
+        this.minutes = minutes;
+        this.transfers = transfers;
+        this.walkKm = walkKm;
+        this.cost = cost;
+    }
+
+    public GraphPath getPath() {
+        return path;
+    }
+
+    public double getMinutes() {
+        return minutes;
+    }
+
+    public int getTransfers() {
+        return transfers;
+    }
+
+    public double getWalkKm() {
+        return walkKm;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public int source() {
+        return path.source();
+    }
+
+    public int target() {
+        return path.target();
+    }
+
+    boolean dominates(double otherMinutes, int otherTransfers, double otherWalkKm, double otherCost) {
+        return ParetoSearch.dominates(minutes, transfers, walkKm, cost, otherMinutes, otherTransfers, otherWalkKm, otherCost);
+    }
+}
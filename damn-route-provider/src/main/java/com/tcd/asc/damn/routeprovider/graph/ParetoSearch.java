@@ -0,0 +1,180 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import java.util.*;
+
+/**
+ * Multi-criteria label-setting search over a {@link TransitGraph}, returning every route that is not dominated on
+ * travel time, transfer count, walking distance and fare.
+ * <p>
+ * Labels are expanded in order of travel time. A label is dropped when another label at the same stop, or a complete
+ * route already found, is at least as good on every criterion (completing a route can only add to each criterion).
+ * Each stop keeps at most {@code maxLabelsPerStop} labels so the bags stay bounded on dense networks; when a bag is
+ * full only a faster label may replace its slowest one.
+ */
+public final class ParetoSearch {
+
+    /** Fare per kilometre ridden, matching the travel cost reported on transit segments. */
+    public static final double COST_PER_KM = 0.1;
+
+    private static final double EPSILON = 1e-9;
+
+    private final TransitGraph graph;
+    private final int maxLabelsPerStop;
+
+    public ParetoSearch(TransitGraph graph, int maxLabelsPerStop) {
+        this.graph = graph;
+        this.maxLabelsPerStop = Math.max(1, maxLabelsPerStop);
+    }
+
+    /**
+     * Searches from every source, seeded with the time and distance walked to reach it, to every target, completed
+     * with the walk from it. Returns the Pareto set ordered by travel time.
+     */
+    public List<ParetoRoute> search(int[] sources, double[] sourceMinutes, double[] sourceWalkKm,
+                                    int[] targets, double[] targetMinutes, double[] targetWalkKm) {
+        Map<Integer, Integer> targetIndex = new HashMap<>();
+        for (int i = 0; i < targets.length; i++) {
+            targetIndex.putIfAbsent(targets[i], i);
+        }
+
+        List<List<Label>> bags = new ArrayList<>(Collections.nCopies(graph.stopCount(), null));
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator.comparingDouble((Label label) -> label.minutes)
+                .thenComparingInt(label -> label.transfers));
+        List<ParetoRoute> results = new ArrayList<>();
+
+        for (int i = 0; i < sources.length; i++) {
+            Label label = new Label(sources[i], sourceMinutes[i], 0, sourceWalkKm[i], 0.0, null, -1);
+            if (insert(bags, label)) {
+                queue.add(label);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Label label = queue.poll();
+            if (label.removed || isDominatedByResults(results, label.minutes, label.transfers, label.walkKm, label.cost)) {
+                continue;
+            }
+
+            Integer target = targetIndex.get(label.stop);
+            if (target != null) {
+                addResult(results, label, targetMinutes[target], targetWalkKm[target]);
+            }
+
+            for (int e = graph.firstEdge(label.stop); e < graph.lastEdge(label.stop); e++) {
+                boolean transfer = graph.isTransfer(e);
+                double distance = graph.edgeDistanceKm(e);
+                Label next = new Label(graph.edgeTarget(e),
+                        label.minutes + graph.edgeWeight(e),
+                        label.transfers + (transfer ? 1 : 0),
+                        label.walkKm + (transfer ? distance : 0.0),
+                        label.cost + (transfer ? 0.0 : distance * COST_PER_KM),
+                        label, e);
+                if (!isDominatedByResults(results, next.minutes, next.transfers, next.walkKm, next.cost) && insert(bags, next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        results.sort(Comparator.comparingDouble(ParetoRoute::getMinutes).thenComparingInt(ParetoRoute::getTransfers));
+        return results;
+    }
+
+    static boolean dominates(double minutes, int transfers, double walkKm, double cost,
+                             double otherMinutes, int otherTransfers, double otherWalkKm, double otherCost) {
+        return minutes <= otherMinutes + EPSILON && transfers <= otherTransfers
+                && walkKm <= otherWalkKm + EPSILON && cost <= otherCost + EPSILON;
+    }
+
+    /** Adds a label to its stop's bag unless it is dominated, evicting the labels it dominates. */
+    private boolean insert(List<List<Label>> bags, Label label) {
+        List<Label> bag = bags.get(label.stop);
+        if (bag == null) {
+            bag = new ArrayList<>(2);
+            bags.set(label.stop, bag);
+        }
+        for (Label existing : bag) {
+            if (existing.dominates(label)) {
+                return false;
+            }
+        }
+        for (Iterator<Label> it = bag.iterator(); it.hasNext(); ) {
+            Label existing = it.next();
+            if (label.dominates(existing)) {
+                existing.removed = true;
+                it.remove();
+            }
+        }
+        if (bag.size() >= maxLabelsPerStop) {
+            Label slowest = Collections.max(bag, Comparator.comparingDouble(l -> l.minutes));
+            if (slowest.minutes <= label.minutes) {
+                return false;
+            }
+            slowest.removed = true;
+            bag.remove(slowest);
+        }
+        bag.add(label);
+        return true;
+    }
+
+    private void addResult(List<ParetoRoute> results, Label label, double finalMinutes, double finalWalkKm) {
+        double minutes = label.minutes + finalMinutes;
+        double walkKm = label.walkKm + finalWalkKm;
+        if (isDominatedByResults(results, minutes, label.transfers, walkKm, label.cost)) {
+            return;
+        }
+        results.removeIf(result -> dominates(minutes, label.transfers, walkKm, label.cost,
+                result.getMinutes(), result.getTransfers(), result.getWalkKm(), result.getCost()));
+        results.add(new ParetoRoute(label.toPath(), minutes, label.transfers, walkKm, label.cost));
+    }
+
+    private static boolean isDominatedByResults(List<ParetoRoute> results, double minutes, int transfers, double walkKm, double cost) {
+        for (ParetoRoute result : results) {
+            if (result.dominates(minutes, transfers, walkKm, cost)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Label {
+        private final int stop;
+        private final double minutes;
+        private final int transfers;
+        private final double walkKm;
+        private final double cost;
+        private final Label parent;
+        private final int edge;
+        private boolean removed;
+
+        private Label(int stop, double minutes, int transfers, double walkKm, double cost, Label parent, int edge) {
+            this.stop = stop;
+            this.minutes = minutes;
+            this.transfers = transfers;
+            this.walkKm = walkKm;
+            this.cost = cost;
+            this.parent = parent;
+            this.edge = edge;
+        }
+
+        private boolean dominates(Label other) {
+            return ParetoSearch.dominates(minutes, transfers, walkKm, cost, other.minutes, other.transfers, other.walkKm, other.cost);
+        }
+
+        private GraphPath toPath() {
+            int length = 0;
+            for (Label label = this; label.parent != null; label = label.parent) {
+                length++;
+            }
+            int[] stops = new int[length + 1];
+            int[] edges = new int[length];
+            Label label = this;
+            for (int i = length; i > 0; i--) {
+                stops[i] = label.stop;
+                edges[i - 1] = label.edge;
+                label = label.parent;
+            }
+            stops[0] = label.stop;
+            return new GraphPath(stops, edges, minutes);
+        }
+    }
+}
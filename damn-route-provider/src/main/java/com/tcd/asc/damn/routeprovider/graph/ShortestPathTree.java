@@ -0,0 +1,36 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+/**
+ * Result of a multi-source search over a {@link TransitGraph}. Distances include the initial cost
+ * each source was seeded with, so paths from different sources can be compared directly.
+ */
+public final class ShortestPathTree {
+
+    private final double[] dist;
+    private final int[] viaStop;
+    private final int[] viaEdge;
+    private final boolean[] settled;
+
+    ShortestPathTree(double[] dist, int[] viaStop, int[] viaEdge, boolean[] settled) {
+        this.dist = dist;
+        this.viaStop = viaStop;
+        this.viaEdge = viaEdge;
+        this.settled = settled;
+    }
+
+    public boolean isReached(int stop) {
+        return settled[stop];
+    }
+
+    public double distance(int stop) {
+        return dist[stop];
+    }
+
+    /** Returns the path from the best source to {@code stop}, or null if the stop was not reached. */
+    public GraphPath pathTo(int stop) {
+        if (!settled[stop]) {
+            return null;
+        }
+        return GraphPath.reconstruct(stop, dist[stop], viaStop, viaEdge);
+    }
+}
@@ -0,0 +1,353 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+
+import java.util.*;
+
+/**
+ * Immutable, in-memory copy of the Neo4j transit graph.
+ * <p>
+ * Stops are addressed by a dense int index and outgoing edges are stored in CSR form:
+ * the edges of stop {@code i} live in {@code [edgeOffsets[i], edgeOffsets[i + 1])} of the
+ * parallel edge arrays. Edge types and trip ids are interned into small lookup tables so
+ * each edge costs a handful of primitives.
+ */
+public final class TransitGraph {
+
+    public static final String TRANSFER = "TRANSFER";
+
+    private final String[] stopIds;
+    private final double[] stopLats;
+    private final double[] stopLons;
+    private final Map<String, Integer> indexByStopId;
+
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final float[] edgeWeights;
+    private final float[] edgeDistances;
+    private final byte[] edgeTypes;
+    private final int[] edgeTrips;
+
+    private final String[] edgeTypeNames;
+    private final String[] tripIds;
+
+    private TransitGraph(String[] stopIds, double[] stopLats, double[] stopLons, Map<String, Integer> indexByStopId,
+                         int[] edgeOffsets, int[] edgeTargets, float[] edgeWeights, float[] edgeDistances,
+                         byte[] edgeTypes, int[] edgeTrips,
+                         String[] edgeTypeNames, String[] tripIds) {
+        this.stopIds = stopIds;
+        this.stopLats = stopLats;
+        this.stopLons = stopLons;
+        this.indexByStopId = indexByStopId;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+        this.edgeDistances = edgeDistances;
+        this.edgeTypes = edgeTypes;
+        this.edgeTrips = edgeTrips;
+        this.edgeTypeNames = edgeTypeNames;
+        this.tripIds = tripIds;
+    }
+
+    /**
+     * Copies the graph arrays of a transit snapshot. The CSR layout is the same, so this is a straight copy of
+     * the primitive sections plus one pass to decode the stop and trip ids.
+     */
+    public static TransitGraph fromSnapshot(TransitSnapshot snapshot) {
+        int n = snapshot.stopCount();
+        String[] stopIds = new String[n];
+        double[] lats = new double[n];
+        double[] lons = new double[n];
+        Map<String, Integer> indexByStopId = new HashMap<>(n * 2);
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            stopIds[i] = snapshot.stopId(i);
+            lats[i] = snapshot.stopLat(i);
+            lons[i] = snapshot.stopLon(i);
+            indexByStopId.put(stopIds[i], i);
+            offsets[i] = snapshot.firstEdge(i);
+        }
+        offsets[n] = n > 0 ? snapshot.lastEdge(n - 1) : 0;
+
+        if (snapshot.edgeTypeCount() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many edge types in transit graph");
+        }
+        String[] edgeTypeNames = new String[snapshot.edgeTypeCount()];
+        for (int t = 0; t < edgeTypeNames.length; t++) {
+            edgeTypeNames[t] = snapshot.edgeTypeName(t);
+        }
+        String[] tripIds = new String[snapshot.tripCount()];
+        for (int t = 0; t < tripIds.length; t++) {
+            tripIds[t] = snapshot.tripId(t);
+        }
+
+        int m = snapshot.edgeCount();
+        int[] targets = new int[m];
+        float[] weights = new float[m];
+        float[] distances = new float[m];
+        byte[] types = new byte[m];
+        int[] trips = new int[m];
+        for (int from = 0; from < n; from++) {
+            for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+                targets[e] = snapshot.edgeTarget(e);
+                weights[e] = snapshot.edgeWeight(e);
+                distances[e] = (float) GeoGridIndex.distanceKm(lats[from], lons[from], lats[targets[e]], lons[targets[e]]);
+                types[e] = (byte) snapshot.edgeType(e);
+                trips[e] = snapshot.edgeTrip(e);
+            }
+        }
+        return new TransitGraph(stopIds, lats, lons, indexByStopId, offsets, targets, weights, distances, types, trips,
+                edgeTypeNames, tripIds);
+    }
+
+    public int stopCount() {
+        return stopIds.length;
+    }
+
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /** Returns the dense index of a stop, or -1 if the stop is not part of the graph. */
+    public int indexOf(String stopId) {
+        Integer index = indexByStopId.get(stopId);
+        return index != null ? index : -1;
+    }
+
+    public String stopId(int stop) {
+        return stopIds[stop];
+    }
+
+    public double stopLat(int stop) {
+        return stopLats[stop];
+    }
+
+    public double stopLon(int stop) {
+        return stopLons[stop];
+    }
+
+    public int firstEdge(int stop) {
+        return edgeOffsets[stop];
+    }
+
+    public int lastEdge(int stop) {
+        return edgeOffsets[stop + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public float edgeWeight(int edge) {
+        return edgeWeights[edge];
+    }
+
+    /** Straight-line length of an edge in kilometres. */
+    public float edgeDistanceKm(int edge) {
+        return edgeDistances[edge];
+    }
+
+    public String edgeType(int edge) {
+        return edgeTypeNames[edgeTypes[edge]];
+    }
+
+    public boolean isTransfer(int edge) {
+        return TRANSFER.equals(edgeType(edge));
+    }
+
+    /** Returns the representative trip of an edge, or null for TRANSFER edges. */
+    public String edgeTripId(int edge) {
+        int trip = edgeTrips[edge];
+        return trip >= 0 ? tripIds[trip] : null;
+    }
+
+    /**
+     * Dijkstra over the CSR arrays. Returns null when {@code target} is unreachable from {@code source}.
+     */
+    public GraphPath shortestPath(int source, int target) {
+        ShortestPathTree tree = shortestPaths(new int[]{source}, new double[]{0.0}, new int[]{target});
+        return tree.pathTo(target);
+    }
+
+    /**
+     * Single Dijkstra seeded with every source at its initial cost (e.g. the walk to that stop).
+     * The search stops as soon as all targets are settled, so one call replaces a search per
+     * source/target pair.
+     */
+    public ShortestPathTree shortestPaths(int[] sources, double[] sourceCosts, int[] targets) {
+        int n = stopCount();
+        double[] dist = new double[n];
+        int[] viaEdge = new int[n];
+        int[] viaStop = new int[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(viaEdge, -1);
+        Arrays.fill(viaStop, -1);
+        boolean[] settled = new boolean[n];
+        boolean[] isTarget = new boolean[n];
+        int remainingTargets = 0;
+        for (int target : targets) {
+            if (!isTarget[target]) {
+                isTarget[target] = true;
+                remainingTargets++;
+            }
+        }
+
+        NodeHeap heap = new NodeHeap(Math.max(16, n));
+        for (int i = 0; i < sources.length; i++) {
+            if (sourceCosts[i] < dist[sources[i]]) {
+                dist[sources[i]] = sourceCosts[i];
+                heap.push(sources[i], sourceCosts[i]);
+            }
+        }
+
+        while (!heap.isEmpty() && remainingTargets > 0) {
+            int stop = heap.peekNode();
+            heap.pop();
+            if (settled[stop]) continue;
+            settled[stop] = true;
+            if (isTarget[stop]) remainingTargets--;
+
+            for (int e = edgeOffsets[stop]; e < edgeOffsets[stop + 1]; e++) {
+                int next = edgeTargets[e];
+                if (settled[next]) continue;
+                double candidate = dist[stop] + edgeWeights[e];
+                if (candidate < dist[next]) {
+                    dist[next] = candidate;
+                    viaEdge[next] = e;
+                    viaStop[next] = stop;
+                    heap.push(next, candidate);
+                }
+            }
+        }
+
+        return new ShortestPathTree(dist, viaStop, viaEdge, settled);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects stops and edges in any order and packs them into CSR arrays on {@link #build()}.
+     */
+    public static final class Builder {
+        private final List<String> stopIds = new ArrayList<>();
+        private final List<double[]> stopCoordinates = new ArrayList<>();
+        private final Map<String, Integer> indexByStopId = new HashMap<>();
+
+        private final List<String> edgeTypeNames = new ArrayList<>();
+        private final Map<String, Integer> edgeTypeIndex = new HashMap<>();
+        private final List<String> tripIds = new ArrayList<>();
+        private final Map<String, Integer> tripIndex = new HashMap<>();
+
+        private int[] fromBuffer = new int[1024];
+        private int[] toBuffer = new int[1024];
+        private float[] weightBuffer = new float[1024];
+        private byte[] typeBuffer = new byte[1024];
+        private int[] tripBuffer = new int[1024];
+        private int edgeCount;
+
+        private Builder() {
+        }
+
+        public Builder addStop(String stopId, double stopLat, double stopLon) {
+            if (!indexByStopId.containsKey(stopId)) {
+                indexByStopId.put(stopId, stopIds.size());
+                stopIds.add(stopId);
+                stopCoordinates.add(new double[]{stopLat, stopLon});
+            }
+            return this;
+        }
+
+        /**
+         * Adds a directed edge. Edges referencing unknown stops are ignored and reported via the return value.
+         */
+        public boolean addEdge(String fromStopId, String toStopId, String type, double weight, String tripId) {
+            Integer from = indexByStopId.get(fromStopId);
+            Integer to = indexByStopId.get(toStopId);
+            if (from == null || to == null || from.equals(to)) {
+                return false;
+            }
+            ensureEdgeCapacity(edgeCount + 1);
+            fromBuffer[edgeCount] = from;
+            toBuffer[edgeCount] = to;
+            weightBuffer[edgeCount] = (float) weight;
+            typeBuffer[edgeCount] = internType(type);
+            tripBuffer[edgeCount] = tripId != null ? internTrip(tripId) : -1;
+            edgeCount++;
+            return true;
+        }
+
+        public TransitGraph build() {
+            int n = stopIds.size();
+            double[] lats = new double[n];
+            double[] lons = new double[n];
+            for (int i = 0; i < n; i++) {
+                lats[i] = stopCoordinates.get(i)[0];
+                lons[i] = stopCoordinates.get(i)[1];
+            }
+
+            // Counting sort of the edge buffers by source stop
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offsets[fromBuffer[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] cursor = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edgeCount];
+            float[] weights = new float[edgeCount];
+            byte[] types = new byte[edgeCount];
+            int[] trips = new int[edgeCount];
+            float[] distances = new float[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int slot = cursor[fromBuffer[e]]++;
+                targets[slot] = toBuffer[e];
+                weights[slot] = weightBuffer[e];
+                distances[slot] = (float) GeoGridIndex.distanceKm(lats[fromBuffer[e]], lons[fromBuffer[e]],
+                        lats[toBuffer[e]], lons[toBuffer[e]]);
+                types[slot] = typeBuffer[e];
+                trips[slot] = tripBuffer[e];
+            }
+
+            return new TransitGraph(stopIds.toArray(new String[0]), lats, lons, new HashMap<>(indexByStopId),
+                    offsets, targets, weights, distances, types, trips,
+                    edgeTypeNames.toArray(new String[0]), tripIds.toArray(new String[0]));
+        }
+
+        private byte internType(String type) {
+            Integer index = edgeTypeIndex.get(type);
+            if (index == null) {
+                if (edgeTypeNames.size() == Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many edge types in transit graph");
+                }
+                index = edgeTypeNames.size();
+                edgeTypeIndex.put(type, index);
+                edgeTypeNames.add(type);
+            }
+            return index.byteValue();
+        }
+
+        private int internTrip(String tripId) {
+            Integer index = tripIndex.get(tripId);
+            if (index == null) {
+                index = tripIds.size();
+                tripIndex.put(tripId, index);
+                tripIds.add(tripId);
+            }
+            return index;
+        }
+
+        private void ensureEdgeCapacity(int capacity) {
+            if (capacity <= fromBuffer.length) return;
+            int newCapacity = Math.max(capacity, fromBuffer.length * 2);
+            fromBuffer = Arrays.copyOf(fromBuffer, newCapacity);
+            toBuffer = Arrays.copyOf(toBuffer, newCapacity);
+            weightBuffer = Arrays.copyOf(weightBuffer, newCapacity);
+            typeBuffer = Arrays.copyOf(typeBuffer, newCapacity);
+            tripBuffer = Arrays.copyOf(tripBuffer, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Engine-neutral description of a path between two stops, as consumed by the segment builder in
+ * {@code TransitService}. Relationship lists are aligned: entry {@code i} describes the hop from
+ * {@code stopIds[i]} to {@code stopIds[i + 1]}.
+ */
+@Data
+@AllArgsConstructor
+public class TransitPath {
+    private List<String> stopIds;
+    private List<String> relationshipTypes;
+    private List<Double> relationshipWeights;
+    private List<List<String>> relationshipTripIds;
+    private double totalWeight;
+
+    public static TransitPath of(TransitGraph graph, GraphPath path) {
+        int[] stops = path.getStops();
+        int[] edges = path.getEdges();
+        List<String> stopIds = new ArrayList<>(stops.length);
+        for (int stop : stops) {
+            stopIds.add(graph.stopId(stop));
+        }
+        List<String> types = new ArrayList<>(edges.length);
+        List<Double> weights = new ArrayList<>(edges.length);
+        List<List<String>> tripIds = new ArrayList<>(edges.length);
+        for (int edge : edges) {
+            types.add(graph.edgeType(edge));
+            weights.add((double) graph.edgeWeight(edge));
+            String tripId = graph.edgeTripId(edge);
+            tripIds.add(tripId != null ? List.of(tripId) : List.of());
+        }
+        return new TransitPath(stopIds, types, weights, tripIds, path.getWeight());
+    }
+}
@@ -0,0 +1,128 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.model.dto.RouteSegment;
+import com.tcd.asc.damn.common.model.request.RouteRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of route search results keyed on the request's origin and destination snapped to a grid of
+ * {@code cellSizeKm} cells, plus a departure time bucket for timetable requests. Only the stop-to-stop part of
+ * each itinerary is cached; callers add the walks from the exact origin and to the exact destination per request.
+ * <p>
+ * Entries expire after {@code ttlMs} and the least recently used entry is evicted beyond {@code maxEntries}. Each
+ * entry keeps the graph or timetable version it was computed on and is dropped when read under another one, so
+ * timetable and graph requests share the cache without invalidating each other's entries.
+ */
+@Service
+public class RouteCacheService {
+
+    private static final double KM_PER_DEGREE_LAT = Math.PI * 6371.0 / 180.0;
+
+    @Value("${transit.route-cache.enabled:true}")
+    private boolean enabled = true;
+    @Value("${transit.route-cache.max-entries:2000}")
+    private int maxEntries = 2000;
+    @Value("${transit.route-cache.ttl-ms:300000}")
+    private long ttlMs = 300_000;
+    @Value("${transit.route-cache.cell-size-km:0.15}")
+    private double cellSizeKm = 0.15;
+    @Value("${transit.route-cache.time-bucket-minutes:5}")
+    private int timeBucketMinutes = 5;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Map<String, Entry> entries;
+
+    /** A stop-to-stop itinerary: the walks to {@code startStop} and from {@code endStop} are not included. */
+    public record Itinerary(Stop startStop, Stop endStop, List<RouteSegment> segments) {
+    }
+
+    private record Entry(List<Itinerary> itineraries, Object version, long expiresAt) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Cache key of a request: snapped origin, snapped destination and, when set, the departure time bucket. */
+    public String key(RouteRequest routeRequest) {
+        StringBuilder key = new StringBuilder();
+        appendCell(key, routeRequest.getStartLocation().getLatitude(), routeRequest.getStartLocation().getLongitude());
+        key.append('>');
+        appendCell(key, routeRequest.getEndLocation().getLatitude(), routeRequest.getEndLocation().getLongitude());
+        if (routeRequest.getDepartureTime() != null) {
+            key.append('@').append(routeRequest.getDepartureTime().toSecondOfDay() / (Math.max(1, timeBucketMinutes) * 60));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached itineraries for {@code key}, or null on a miss. An entry computed on a version other than
+     * {@code version} is stale and is removed.
+     */
+    public synchronized List<Itinerary> get(String key, Object version) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries().get(key);
+        if (entry == null || entry.expiresAt() < System.currentTimeMillis() || !Objects.equals(entry.version(), version)) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.itineraries();
+    }
+
+    public synchronized void put(String key, Object version, List<Itinerary> itineraries) {
+        if (!enabled) {
+            return;
+        }
+        entries().put(key, new Entry(List.copyOf(itineraries), version, System.currentTimeMillis() + ttlMs));
+    }
+
+    public synchronized void clear() {
+        entries = null;
+    }
+
+    public synchronized int size() {
+        return entries != null ? entries.size() : 0;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    private Map<String, Entry> entries() {
+        if (entries == null) {
+            int capacity = maxEntries;
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+        return entries;
+    }
+
+    // Cells are cellSizeKm square; the column width is taken at the row's centre so every point of a row agrees
+    private void appendCell(StringBuilder key, double lat, double lon) {
+        double cellLatDegrees = cellSizeKm / KM_PER_DEGREE_LAT;
+        long row = (long) Math.floor(lat / cellLatDegrees);
+        double rowLat = (row + 0.5) * cellLatDegrees;
+        double cellLonDegrees = cellSizeKm / (KM_PER_DEGREE_LAT * Math.max(0.01, Math.cos(Math.toRadians(rowLat))));
+        key.append(row).append(':').append((long) Math.floor(lon / cellLonDegrees));
+    }
+}
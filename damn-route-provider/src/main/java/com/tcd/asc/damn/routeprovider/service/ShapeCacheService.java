@@ -0,0 +1,141 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.entity.Shape;
+import com.tcd.asc.damn.common.repository.ShapeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import com.tcd.asc.damn.routeprovider.shape.ShapePolyline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Keeps shapes and the trip to shapeId mapping in memory so route computation does not query the
+ * trip and shape tables. Shapes live in a bounded LRU cache that is warmed with every shape on first use;
+ * evicted shapes are reloaded one at a time. When a transit snapshot is configured, trips and shapes are read
+ * from it instead of the database.
+ */
+@Service
+public class ShapeCacheService {
+
+    @Autowired
+    private TripRepository tripRepository;
+    @Autowired
+    private ShapeRepository shapeRepository;
+    @Autowired
+    private TransitSnapshotService transitSnapshotService;
+
+    @Value("${transit.shape-cache.max-shapes:512}")
+    private int maxShapes = 512;
+
+    private volatile Map<String, String> shapeIdByTripId;
+    private Map<String, ShapePolyline> shapes;
+
+    /**
+     * Returns the shape driven by a trip, or null when the trip has no shape or is not known yet, so the segment
+     * is drawn stop to stop.
+     */
+    public ShapePolyline getShapeForTrip(String tripId) {
+        Map<String, String> tripShapes = getShapeIdByTripId();
+        if (!tripShapes.containsKey(tripId)) {
+            System.err.println("Trip not found in shape cache: " + tripId);
+            return null;
+        }
+        String shapeId = tripShapes.get(tripId);
+        return shapeId != null ? getShape(shapeId) : null;
+    }
+
+    public ShapePolyline getShape(String shapeId) {
+        getShapeIdByTripId(); // Make sure the cache has been warmed
+        ShapePolyline shape = shapes.get(shapeId);
+        if (shape == null) {
+            List<Shape> points = shapeRepository.findByShapeId(shapeId);
+            if (points.isEmpty()) {
+                return null;
+            }
+            shape = ShapePolyline.of(shapeId, points);
+            shapes.put(shapeId, shape);
+        }
+        return shape;
+    }
+
+    /** Drops all cached trips and shapes; they are reloaded on next use. */
+    public synchronized void refresh() {
+        shapeIdByTripId = null;
+    }
+
+    private Map<String, String> getShapeIdByTripId() {
+        Map<String, String> tripShapes = shapeIdByTripId;
+        if (tripShapes == null) {
+            synchronized (this) {
+                if (shapeIdByTripId == null) {
+                    load();
+                }
+                tripShapes = shapeIdByTripId;
+            }
+        }
+        return tripShapes;
+    }
+
+    private void load() {
+        long startedAt = System.currentTimeMillis();
+        int capacity = maxShapes;
+        Map<String, ShapePolyline> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ShapePolyline> eldest) {
+                return size() > capacity;
+            }
+        });
+
+        TransitSnapshot snapshot = transitSnapshotService.getSnapshot();
+        Map<String, String> tripShapes = snapshot != null ? loadFromSnapshot(snapshot, cache) : loadFromDatabase(cache);
+
+        shapes = cache;
+        shapeIdByTripId = tripShapes;
+        System.out.println("Cached " + tripShapes.size() + " trips and " + cache.size() + " shapes" +
+                (snapshot != null ? " from snapshot" : "") + " in " + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+
+    private Map<String, String> loadFromSnapshot(TransitSnapshot snapshot, Map<String, ShapePolyline> cache) {
+        Map<String, String> tripShapes = new HashMap<>(snapshot.tripCount() * 2);
+        for (int t = 0; t < snapshot.tripCount(); t++) {
+            int shape = snapshot.tripShape(t);
+            tripShapes.put(snapshot.tripId(t), shape >= 0 ? snapshot.shapeId(shape) : null);
+        }
+        for (int s = 0; s < snapshot.shapeCount(); s++) {
+            int first = snapshot.firstShapePoint(s);
+            int size = snapshot.lastShapePoint(s) - first;
+            double[] lats = new double[size];
+            double[] lons = new double[size];
+            for (int p = 0; p < size; p++) {
+                lats[p] = snapshot.pointLat(first + p);
+                lons[p] = snapshot.pointLon(first + p);
+            }
+            String shapeId = snapshot.shapeId(s);
+            cache.put(shapeId, new ShapePolyline(shapeId, lats, lons));
+        }
+        return tripShapes;
+    }
+
+    private Map<String, String> loadFromDatabase(Map<String, ShapePolyline> cache) {
+        Map<String, String> tripShapes = new HashMap<>();
+        for (TripRepository.TripShape tripShape : tripRepository.findAllTripShapes()) {
+            tripShapes.put(tripShape.getTripId(), tripShape.getShapeId());
+        }
+
+        // Rows arrive ordered by shape and sequence, so each shape is a contiguous run
+        List<Shape> rows = shapeRepository.findAll(Sort.by("shapeId", "shapePtSequence"));
+        int runStart = 0;
+        for (int i = 1; i <= rows.size(); i++) {
+            if (i == rows.size() || !rows.get(i).getShapeId().equals(rows.get(runStart).getShapeId())) {
+                String shapeId = rows.get(runStart).getShapeId();
+                cache.put(shapeId, ShapePolyline.of(shapeId, rows.subList(runStart, i)));
+                runStart = i;
+            }
+        }
+        return tripShapes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopRepository;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Cached spatial index and id dictionary over the stop table for nearest-stop, radius and batch id lookups.
+ * <p>
+ * The index is built on first use and rebuilt when a periodic fingerprint of the stop table
+ * (row count, coordinate sums and a digest of stop ids and names) changes.
+ */
+@Service
+public class StopIndexService {
+
+    @Autowired
+    private StopRepository stopRepository;
+
+    @Value("${transit.stop-index.cell-size-km:0.5}")
+    private double cellSizeKm = 0.5;
+
+    private volatile Map<String, Stop> stopsById = Map.of();
+    private volatile GeoGridIndex<Stop> stopIndex;
+    private volatile StopRepository.StopTableFingerprint indexedFingerprint;
+
+    public List<Stop> findNearest(double lat, double lon, int limit) {
+        return getIndex().nearest(lat, lon, limit);
+    }
+
+    public List<Stop> findWithinRadius(double lat, double lon, double radiusKm) {
+        return getIndex().withinRadius(lat, lon, radiusKm);
+    }
+
+    /**
+     * Resolves stops by id from the in-memory stop table. Ids missing from the cached table (e.g. added since
+     * the last refresh) are fetched with a single {@code findAllById}.
+     */
+    public Map<String, Stop> findStopsById(Collection<String> stopIds) {
+        getIndex();
+        Map<String, Stop> dictionary = stopsById;
+        Map<String, Stop> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String stopId : stopIds) {
+            Stop stop = dictionary.get(stopId);
+            if (stop != null) {
+                result.put(stopId, stop);
+            } else {
+                missing.add(stopId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            stopRepository.findAllById(missing).forEach(stop -> result.put(stop.getStopId(), stop));
+        }
+        return result;
+    }
+
+    public GeoGridIndex<Stop> getIndex() {
+        GeoGridIndex<Stop> index = stopIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (stopIndex == null) {
+                    rebuild();
+                }
+                index = stopIndex;
+            }
+        }
+        return index;
+    }
+
+    @Scheduled(fixedDelayString = "${transit.stop-index.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (stopIndex == null) {
+            return; // Not used yet, nothing to refresh
+        }
+        if (!stopRepository.fingerprint().matches(indexedFingerprint)) {
+            System.out.println("Stop table changed, rebuilding stop index...");
+            synchronized (this) {
+                rebuild();
+            }
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        StopRepository.StopTableFingerprint fingerprint = stopRepository.fingerprint();
+        List<Stop> stops = stopRepository.findAll();
+        Map<String, Stop> dictionary = new HashMap<>(stops.size() * 2);
+        stops.forEach(stop -> dictionary.put(stop.getStopId(), stop));
+        stopsById = dictionary;
+        stopIndex = GeoGridIndex.of(stops, Stop::getStopLat, Stop::getStopLon, cellSizeKm);
+        indexedFingerprint = fingerprint;
+        System.out.println("Indexed " + stops.size() + " stops in " + (System.currentTimeMillis() - startedAt) + " ms");
+    }
+}
@@ -0,0 +1,288 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.entity.CalendarDate;
+import com.tcd.asc.damn.common.entity.ServiceCalendar;
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.CalendarDateRepository;
+import com.tcd.asc.damn.common.repository.ServiceCalendarRepository;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import com.tcd.asc.damn.routeprovider.timetable.CsaRouter;
+import com.tcd.asc.damn.routeprovider.timetable.RaptorRouter;
+import com.tcd.asc.damn.routeprovider.timetable.Timetable;
+import com.tcd.asc.damn.routeprovider.timetable.TimetableRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Loads the trips running on the current service day from the stop_time table into a {@link Timetable} for
+ * schedule-aware routing, with footpaths between stops within walking distance of each other, and hands out the
+ * configured timetable router. Trips still running after midnight from the day before are included from their
+ * first stop after midnight, and the timetable is reloaded when the day rolls over or the graph version changes.
+ */
+@Service
+public class TimetableService {
+
+    public static final String ENGINE_RAPTOR = "raptor";
+    public static final String ENGINE_CSA = "csa";
+
+    private static final long RETRY_INTERVAL_MS = 30_000;
+    private static final double WALK_SPEED_KMH = 5.0;
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    @Autowired
+    private StopTimeRepository stopTimeRepository;
+    @Autowired
+    private StopIndexService stopIndexService;
+    @Autowired
+    private TripRepository tripRepository;
+    @Autowired
+    private ServiceCalendarRepository serviceCalendarRepository;
+    @Autowired
+    private CalendarDateRepository calendarDateRepository;
+    @Autowired
+    private TransitGraphService transitGraphService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${transit.timetable.max-transfer-km:0.4}")
+    private double maxTransferKm = 0.4;
+
+    // Footpaths are chained into walks up to this long
+    @Value("${transit.timetable.max-walk-minutes:15}")
+    private int maxWalkMinutes = 15;
+
+    @Value("${transit.routing.timetable-engine:raptor}")
+    private String timetableEngine = ENGINE_RAPTOR;
+
+    // Time zone of the feed, which decides the service day the calendar is read for
+    @Value("${transit.timetable.zone-id:Europe/Dublin}")
+    private String zoneId = "Europe/Dublin";
+
+    private volatile Timetable timetable;
+    private volatile long lastFailedLoadAt;
+    private volatile LocalDate loadedServiceDate;
+    private volatile TransitGraphService.GraphVersion loadedGraphVersion;
+
+    /** Returns the timetable, loading it on first use, or null if it could not be loaded. */
+    public Timetable getTimetable() {
+        Timetable loaded = timetable;
+        if (loaded != null) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (timetable == null && System.currentTimeMillis() - lastFailedLoadAt > RETRY_INTERVAL_MS) {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    lastFailedLoadAt = System.currentTimeMillis();
+                    System.err.println("Failed to load timetable: " + e.getMessage());
+                }
+            }
+            return timetable;
+        }
+    }
+
+    /** Returns a router over {@code timetable} for the configured engine: RAPTOR by default, or connection scan. */
+    public TimetableRouter getRouter(Timetable timetable, int maxRides) {
+        return ENGINE_CSA.equalsIgnoreCase(timetableEngine) ? new CsaRouter(timetable) : new RaptorRouter(timetable, maxRides);
+    }
+
+    /** Drops the cached timetable and loads it again for the current service day. */
+    public synchronized Timetable reload() {
+        LocalDate serviceDate = LocalDate.now(ZoneId.of(zoneId));
+        TransitGraphService.GraphVersion graphVersion = transitGraphService.getObservedVersion();
+        timetable = loadTimetable(serviceDate);
+        loadedServiceDate = serviceDate;
+        loadedGraphVersion = graphVersion;
+        lastFailedLoadAt = 0;
+        return timetable;
+    }
+
+    /**
+     * Reloads the timetable when the service day rolls over or a GTFS import has been synced into the graph, so
+     * the trips match the calendar and cached routes keyed on the old timetable stop being served.
+     */
+    @Scheduled(fixedDelayString = "${transit.timetable.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (timetable == null) {
+            return; // Not loaded yet, the first request loads the current one
+        }
+        LocalDate serviceDate = LocalDate.now(ZoneId.of(zoneId));
+        TransitGraphService.GraphVersion graphVersion = transitGraphService.getObservedVersion();
+        if (serviceDate.equals(loadedServiceDate) && Objects.equals(graphVersion, loadedGraphVersion)) {
+            return;
+        }
+        System.out.println("Service day or graph version changed, reloading timetable...");
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Failed to reload timetable, keeping the previous one: " + e.getMessage());
+        }
+    }
+
+    private Timetable loadTimetable(LocalDate serviceDate) {
+        long startedAt = System.currentTimeMillis();
+        Set<String> servicesToday = activeServices(serviceDate);
+        Set<String> servicesYesterday = activeServices(serviceDate.minusDays(1));
+        Map<String, String> tripServices = new HashMap<>();
+        for (TripRepository.TripService trip : tripRepository.findAllTripServices()) {
+            tripServices.put(trip.getTripId(), trip.getServiceId());
+        }
+
+        Timetable.Builder builder = Timetable.builder().maxWalkSeconds(maxWalkMinutes * 60);
+        Set<String> stopIds = new HashSet<>();
+        int[] counts = new int[3]; // trips added, overnight tails added, trips skipped
+
+        // Rows arrive grouped by trip in stop order, so each trip is a contiguous run; streamed so only one trip
+        // is held at a time
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<StopTimeRepository.TimetableRow> rows = stopTimeRepository.streamAllTimetableRows()) {
+                List<StopTimeRepository.TimetableRow> run = new ArrayList<>();
+                Iterator<StopTimeRepository.TimetableRow> iterator = rows.iterator();
+                while (true) {
+                    StopTimeRepository.TimetableRow row = iterator.hasNext() ? iterator.next() : null;
+                    if (!run.isEmpty() && (row == null || !row.getTripId().equals(run.get(0).getTripId()))) {
+                        String serviceId = tripServices.get(run.get(0).getTripId());
+                        addTrip(builder, run, runsOn(servicesToday, serviceId), runsOn(servicesYesterday, serviceId),
+                                stopIds, counts);
+                        run.clear();
+                    }
+                    if (row == null) {
+                        break;
+                    }
+                    run.add(row);
+                }
+            }
+        });
+
+        int transfers = addTransfers(builder, stopIds);
+        Timetable built = builder.build();
+        System.out.println("Loaded timetable for " + serviceDate + ": " + counts[0] + " trips, " + counts[1] +
+                " overnight trips from the day before (" + counts[2] + " skipped) in " + built.patternCount() +
+                " patterns, " + transfers + " footpaths in " + (System.currentTimeMillis() - startedAt) + " ms");
+        return built;
+    }
+
+    /**
+     * Services running on {@code date} from calendar.txt with the calendar_dates.txt exceptions applied, or null
+     * when the feed has neither and every trip is taken to run every day.
+     */
+    private Set<String> activeServices(LocalDate date) {
+        List<ServiceCalendar> calendars = serviceCalendarRepository.findAll();
+        List<CalendarDate> exceptions = calendarDateRepository.findByDate(date);
+        if (calendars.isEmpty() && exceptions.isEmpty() && calendarDateRepository.count() == 0) {
+            return null;
+        }
+        Set<String> services = new HashSet<>();
+        for (ServiceCalendar calendar : calendars) {
+            if (calendar.runsOn(date)) {
+                services.add(calendar.getServiceId());
+            }
+        }
+        for (CalendarDate exception : exceptions) {
+            if (exception.getExceptionType() == CalendarDate.SERVICE_ADDED) {
+                services.add(exception.getServiceId());
+            } else if (exception.getExceptionType() == CalendarDate.SERVICE_REMOVED) {
+                services.remove(exception.getServiceId());
+            }
+        }
+        return services;
+    }
+
+    private static boolean runsOn(Set<String> services, String serviceId) {
+        return services == null || (serviceId != null && services.contains(serviceId));
+    }
+
+    /**
+     * Adds a trip running today, and the part after midnight of the same trip when it also ran yesterday. Times
+     * are stored modulo 24 hours, so a time earlier than the one before it is taken to be on the next day.
+     */
+    private void addTrip(Timetable.Builder builder, List<StopTimeRepository.TimetableRow> run, boolean today,
+                         boolean yesterday, Set<String> stopIds, int[] counts) {
+        if (!today && !yesterday) {
+            return;
+        }
+        String tripId = run.get(0).getTripId();
+        List<String> tripStopIds = new ArrayList<>(run.size());
+        int[] arrivals = new int[run.size()];
+        int[] departures = new int[run.size()];
+        int dayOffset = 0;
+        int previous = 0;
+        for (int i = 0; i < run.size(); i++) {
+            StopTimeRepository.TimetableRow row = run.get(i);
+            LocalTime arrival = row.getArrivalTime() != null ? row.getArrivalTime() : row.getDepartureTime();
+            LocalTime departure = row.getDepartureTime() != null ? row.getDepartureTime() : row.getArrivalTime();
+            if (arrival == null) {
+                counts[2]++; // Untimed stop
+                return;
+            }
+            tripStopIds.add(row.getStopId());
+            if (arrival.toSecondOfDay() + dayOffset < previous) {
+                dayOffset += SECONDS_PER_DAY;
+            }
+            arrivals[i] = arrival.toSecondOfDay() + dayOffset;
+            if (departure.toSecondOfDay() + dayOffset < arrivals[i]) {
+                dayOffset += SECONDS_PER_DAY;
+            }
+            departures[i] = departure.toSecondOfDay() + dayOffset;
+            previous = departures[i];
+        }
+
+        if (today) {
+            if (builder.addTrip(tripId, tripStopIds, arrivals, departures)) {
+                stopIds.addAll(tripStopIds);
+                counts[0]++;
+            } else {
+                counts[2]++;
+            }
+        }
+        if (yesterday && dayOffset > 0) {
+            // Yesterday's run of the trip, from the first stop it leaves after midnight
+            int first = 0;
+            while (first < departures.length && departures[first] < SECONDS_PER_DAY) {
+                first++;
+            }
+            if (departures.length - first < 2) {
+                return;
+            }
+            int[] tailArrivals = new int[departures.length - first];
+            int[] tailDepartures = new int[departures.length - first];
+            for (int i = first; i < departures.length; i++) {
+                tailArrivals[i - first] = Math.max(arrivals[i] - SECONDS_PER_DAY, 0);
+                tailDepartures[i - first] = departures[i] - SECONDS_PER_DAY;
+            }
+            List<String> tailStopIds = tripStopIds.subList(first, tripStopIds.size());
+            if (builder.addTrip(tripId, tailStopIds, tailArrivals, tailDepartures)) {
+                stopIds.addAll(tailStopIds);
+                counts[1]++;
+            }
+        }
+    }
+
+    private int addTransfers(Timetable.Builder builder, Set<String> stopIds) {
+        Collection<Stop> stops = stopIndexService.findStopsById(stopIds).values();
+        GeoGridIndex<Stop> index = GeoGridIndex.of(stops, Stop::getStopLat, Stop::getStopLon, maxTransferKm);
+        int count = 0;
+        for (Stop from : stops) {
+            for (Stop to : index.withinRadius(from.getStopLat(), from.getStopLon(), maxTransferKm)) {
+                if (!from.getStopId().equals(to.getStopId())) {
+                    double km = GeoGridIndex.distanceKm(from.getStopLat(), from.getStopLon(), to.getStopLat(), to.getStopLon());
+                    builder.addTransfer(from.getStopId(), to.getStopId(), (int) Math.ceil(km / WALK_SPEED_KMH * 3600));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,243 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import com.tcd.asc.damn.routeprovider.graph.TransitGraph;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Loads the Stop nodes and RED_LUAS/GREEN_LUAS/TRANSFER edges from Neo4j once and keeps them
+ * as a {@link TransitGraph} so shortest paths can be answered without a Neo4j round trip.
+ * <p>
+ * Only the active graph generation (see {@code GraphVersion.activeGeneration}) is loaded, and the graph is
+ * reloaded when the data manager switches to a new generation or syncs changes into the active one, both of which
+ * bump {@code GraphVersion.revision}. When a transit snapshot is configured the graph is copied from it instead and
+ * Neo4j is not contacted. Every version change also refreshes the {@link ShapeCacheService}, whose trips follow the
+ * same data.
+ */
+@Service
+public class TransitGraphService {
+
+    public static final String ENGINE_MEMORY = "memory";
+    public static final String ENGINE_NEO4J = "neo4j";
+
+    private static final long RETRY_INTERVAL_MS = 30_000;
+
+    @Autowired
+    private Driver neo4jDriver;
+    @Autowired
+    private TransitSnapshotService transitSnapshotService;
+    @Autowired
+    private ShapeCacheService shapeCacheService;
+
+    @Value("${transit.routing.engine:memory}")
+    private String routingEngine = ENGINE_MEMORY;
+
+    private volatile TransitGraph transitGraph;
+    private volatile long lastFailedLoadAt;
+    private volatile GraphVersion loadedVersion;
+    private volatile TransitSnapshot loadedSnapshot;
+    private volatile GraphVersion observedVersion;
+    private volatile boolean versionObserved;
+
+    /**
+     * Version of the graph readers see: the active generation and the revision of the {@code GraphVersion} node,
+     * which changes on every switchover, rollback and sync. Snapshot-backed graphs use the snapshot's creation time
+     * as the revision.
+     */
+    public record GraphVersion(Long generation, long revision) {
+    }
+
+    /**
+     * Returns the in-memory graph, loading it on first use. Returns null when the in-memory engine is
+     * disabled or the graph could not be loaded, in which case callers fall back to Neo4j.
+     */
+    public TransitGraph getGraph() {
+        if (!ENGINE_MEMORY.equalsIgnoreCase(routingEngine)) {
+            return null;
+        }
+        TransitGraph graph = transitGraph;
+        if (graph != null) {
+            return graph;
+        }
+        synchronized (this) {
+            if (transitGraph == null && System.currentTimeMillis() - lastFailedLoadAt > RETRY_INTERVAL_MS) {
+                try {
+                    transitGraph = loadGraph();
+                } catch (Exception e) {
+                    lastFailedLoadAt = System.currentTimeMillis();
+                    System.err.println("Failed to load transit graph into memory, falling back to Neo4j: " + e.getMessage());
+                }
+            }
+            return transitGraph;
+        }
+    }
+
+    /**
+     * Returns the graph version routes are currently computed on, so results cached elsewhere can be dropped
+     * when it changes: the loaded version when the in-memory graph is in use, otherwise the active version
+     * read from Neo4j on first call and refreshed by the version poll.
+     */
+    public GraphVersion getObservedVersion() {
+        if (transitGraph != null) {
+            return loadedVersion;
+        }
+        if (!versionObserved) {
+            synchronized (this) {
+                if (!versionObserved) {
+                    refreshObservedVersion();
+                    versionObserved = true;
+                }
+            }
+        }
+        return observedVersion;
+    }
+
+    /** Drops the cached graph and loads it again from Neo4j. */
+    public synchronized TransitGraph reload() {
+        transitGraph = loadGraph();
+        lastFailedLoadAt = 0;
+        return transitGraph;
+    }
+
+    private TransitGraph loadGraph() {
+        long startedAt = System.currentTimeMillis();
+        TransitSnapshot snapshot = transitSnapshotService.getSnapshot();
+        if (snapshot != null) {
+            TransitGraph graph = TransitGraph.fromSnapshot(snapshot);
+            loadedVersion = new GraphVersion(snapshot.generation(), snapshot.createdAt());
+            loadedSnapshot = snapshot;
+            System.out.println("Loaded transit graph generation " + snapshot.generation() + " from snapshot: " + graph.stopCount() +
+                    " stops, " + graph.edgeCount() + " edges in " + (System.currentTimeMillis() - startedAt) + " ms");
+            return graph;
+        }
+        loadedSnapshot = null;
+        TransitGraph.Builder builder = TransitGraph.builder();
+        int skippedEdges = 0;
+        GraphVersion version;
+
+        try (Session session = neo4jDriver.session()) {
+            // Pin the generation once so stops and edges come from the same build
+            version = readActiveVersion(session);
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("generation", version.generation());
+
+            Result stops = session.run(
+                    "MATCH (s:Stop) WHERE $generation IS NULL OR s.generation = $generation " +
+                            "RETURN s.stopId AS stopId, s.stopLat AS stopLat, s.stopLon AS stopLon", parameters);
+            while (stops.hasNext()) {
+                Record record = stops.next();
+                builder.addStop(record.get("stopId").asString(),
+                        record.get("stopLat").asDouble(0.0),
+                        record.get("stopLon").asDouble(0.0));
+            }
+
+            Result edges = session.run(
+                    "MATCH (from:Stop)-[r:RED_LUAS|GREEN_LUAS|TRANSFER]->(to:Stop) " +
+                            "WHERE $generation IS NULL OR from.generation = $generation " +
+                            "RETURN from.stopId AS fromStopId, to.stopId AS toStopId, type(r) AS type, " +
+                            "r.weight AS weight, r.tripIds AS tripIds", parameters);
+            while (edges.hasNext()) {
+                Record record = edges.next();
+                boolean added = builder.addEdge(record.get("fromStopId").asString(),
+                        record.get("toStopId").asString(),
+                        record.get("type").asString(),
+                        record.get("weight").asDouble(1.0),
+                        firstTripId(record.get("tripIds")));
+                if (!added) skippedEdges++;
+            }
+        }
+        loadedVersion = version;
+
+        TransitGraph graph = builder.build();
+        System.out.println("Loaded transit graph generation " + version.generation() + " (revision " + version.revision() + ") into memory: " + graph.stopCount() + " stops, " +
+                graph.edgeCount() + " edges (" + skippedEdges + " skipped) in " +
+                (System.currentTimeMillis() - startedAt) + " ms");
+        return graph;
+    }
+
+    /**
+     * Reloads the graph when the data manager has switched readers to another graph generation or synced changes
+     * into the active one. The new graph is built before it replaces the current one, so requests never see a
+     * partly loaded graph.
+     */
+    @Scheduled(fixedDelayString = "${transit.graph.generation-poll-ms:30000}")
+    public void reloadIfGenerationChanged() {
+        if (transitGraph == null) {
+            // Not loaded, so only keep the version seen by Neo4j-engine requests current, once they asked for it
+            if (versionObserved) {
+                refreshObservedVersion();
+            }
+            return;
+        }
+        if (loadedSnapshot != null) {
+            // Snapshot-backed replicas follow the snapshot file rather than Neo4j
+            if (transitSnapshotService.getSnapshot() != loadedSnapshot) {
+                System.out.println("Transit snapshot changed, reloading graph...");
+                reload();
+                shapeCacheService.refresh();
+            }
+            return;
+        }
+        GraphVersion active;
+        try (Session session = neo4jDriver.session()) {
+            active = readActiveVersion(session);
+        } catch (Exception e) {
+            System.err.println("Failed to read the active graph generation: " + e.getMessage());
+            return;
+        }
+        if (!Objects.equals(active, loadedVersion)) {
+            System.out.println("Graph version changed from " + loadedVersion + " to " + active + ", reloading...");
+            reload();
+            shapeCacheService.refresh(); // The new version may bring trips the shape cache has not seen
+        }
+    }
+
+    private void refreshObservedVersion() {
+        try (Session session = neo4jDriver.session()) {
+            GraphVersion previous = observedVersion;
+            observedVersion = readActiveVersion(session);
+            if (previous != null && !previous.equals(observedVersion)) {
+                shapeCacheService.refresh();
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to read the active graph generation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the graph version readers should use; the generation is null for a graph built before generations
+     * existed.
+     */
+    private static GraphVersion readActiveVersion(Session session) {
+        Result result = session.run("MATCH (v:GraphVersion {graph: 'transit'}) " +
+                "RETURN v.activeGeneration AS generation, coalesce(v.revision, 0) AS revision");
+        if (!result.hasNext()) {
+            return new GraphVersion(null, 0);
+        }
+        Record record = result.next();
+        org.neo4j.driver.Value generation = record.get("generation");
+        return new GraphVersion(generation.isNull() ? null : generation.asLong(), record.get("revision").asLong(0));
+    }
+
+    private String firstTripId(org.neo4j.driver.Value tripIds) {
+        Object tripIdsObj = tripIds.isNull() ? null : tripIds.asObject();
+        if (tripIdsObj instanceof List<?> ids) {
+            return ids.isEmpty() ? null : (String) ids.get(0);
+        } else if (tripIdsObj instanceof String) {
+            return (String) tripIdsObj;
+        }
+        return null;
+    }
+}
@@ -1,9 +1,7 @@
 package com.tcd.asc.damn.routeprovider.service;
 
 import com.tcd.asc.damn.common.constants.TransitType;
-import com.tcd.asc.damn.common.entity.Shape;
 import com.tcd.asc.damn.common.entity.Stop;
-import com.tcd.asc.damn.common.entity.Trip;
 import com.tcd.asc.damn.common.model.dto.Coordinates;
 import com.tcd.asc.damn.common.model.dto.RouteSegment;
 import com.tcd.asc.damn.common.model.dto.TransitSegment;
@@ -11,16 +9,30 @@ import com.tcd.asc.damn.common.model.dto.WalkSegment;
 import com.tcd.asc.damn.common.model.request.RouteRequest;
 import com.tcd.asc.damn.common.model.response.RouteResponse;
 import com.tcd.asc.damn.common.model.response.RoutesResponse;
-import com.tcd.asc.damn.common.repository.ShapeRepository;
 import com.tcd.asc.damn.common.repository.StopRepository;
 import com.tcd.asc.damn.common.repository.StopTimeRepository;
-import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.routeprovider.graph.GraphPath;
+import com.tcd.asc.damn.routeprovider.graph.ParetoRoute;
+import com.tcd.asc.damn.routeprovider.graph.ParetoSearch;
+import com.tcd.asc.damn.routeprovider.graph.ShortestPathTree;
+import com.tcd.asc.damn.routeprovider.graph.TransitGraph;
+import com.tcd.asc.damn.routeprovider.graph.TransitPath;
+import com.tcd.asc.damn.routeprovider.service.RouteCacheService.Itinerary;
+import com.tcd.asc.damn.routeprovider.shape.ShapePolyline;
+import com.tcd.asc.damn.routeprovider.shape.ShapeSlice;
+import com.tcd.asc.damn.routeprovider.shape.ShapeSlicer;
+import com.tcd.asc.damn.routeprovider.timetable.Journey;
+import com.tcd.asc.damn.routeprovider.timetable.Timetable;
+import com.tcd.asc.damn.routeprovider.timetable.TimetableResult;
 import com.tcd.asc.damn.routeprovider.utils.AlphanumericGenerator;
 import org.neo4j.driver.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,16 +43,35 @@ public class TransitService {
     @Autowired
     private StopTimeRepository stopTimeRepository;
     @Autowired
-    private TripRepository tripRepository;
-    @Autowired
-    private ShapeRepository shapeRepository;
+    private ShapeCacheService shapeCacheService;
     @Autowired
     private Driver neo4jDriver;
     @Autowired
     private AlphanumericGenerator alphanumericGenerator;
+    @Autowired
+    private TransitGraphService transitGraphService;
+    @Autowired
+    private StopIndexService stopIndexService;
+    @Autowired
+    private TimetableService timetableService;
+    @Autowired
+    private ExecutorService routeEvaluationExecutor;
+    @Autowired
+    private RouteCacheService routeCacheService;
+
+    @Value("${transit.routing.parallel.enabled:true}")
+    private boolean parallelEvaluation = true;
+    @Value("${transit.routing.parallel.deadline-ms:5000}")
+    private long pairDeadlineMs = 5000;
+    @Value("${transit.routing.pareto.enabled:true}")
+    private boolean paretoSearch = true;
+    @Value("${transit.routing.pareto.max-labels-per-stop:8}")
+    private int maxLabelsPerStop = 8;
 
     private static final int NEAREST_STOPS_LIMIT = 3;
     private static final double TRANSFER_PENALTY = 5.0;
+    private static final double WALK_SPEED_KMH = 5.0;
+    private static final int MAX_RIDES = 4;
 
     public RoutesResponse findRoutes(RouteRequest routeRequest) {
         double startLat = routeRequest.getStartLocation().getLatitude();
@@ -50,7 +81,23 @@ public class TransitService {
 
         System.out.println("Finding routes from (" + startLat + ", " + startLon + ") to (" + endLat + ", " + endLon + ")");
 
-        try (Session session = neo4jDriver.session()) {
+        // Requests with a departure time follow the timetable; otherwise only open a Neo4j session when the
+        // in-memory graph is unavailable
+        Timetable timetable = routeRequest.getDepartureTime() != null ? timetableService.getTimetable() : null;
+        TransitGraph transitGraph = timetable == null ? transitGraphService.getGraph() : null;
+
+        // Cached results are only valid for the graph or timetable they were computed on
+        boolean cached = routeCacheService != null && routeCacheService.isEnabled();
+        String cacheKey = cached ? routeCacheService.key(routeRequest) : null;
+        Object graphVersion = timetable != null ? timetable
+                : transitGraph != null ? transitGraph : transitGraphService.getObservedVersion();
+        List<Itinerary> itineraries = cached ? routeCacheService.get(cacheKey, graphVersion) : null;
+        if (itineraries != null) {
+            System.out.println("Serving " + itineraries.size() + " cached routes for cell " + cacheKey);
+            return buildRoutesResponse(routeRequest, itineraries);
+        }
+
+        try (Session session = timetable == null && transitGraph == null ? neo4jDriver.session() : null) {
             List<Stop> startStops = findNearestStops(startLat, startLon, NEAREST_STOPS_LIMIT);
             System.out.println("Nearest start stops:");
             startStops.forEach(stop -> System.out.println(" - " + stop.getStopName() + " (ID: " + stop.getStopId() + ")"));
@@ -59,42 +106,16 @@ public class TransitService {
             System.out.println("Nearest end stops:");
             endStops.forEach(stop -> System.out.println(" - " + stop.getStopName() + " (ID: " + stop.getStopId() + ")"));
 
-            RoutesResponse routesResponse = new RoutesResponse();
-            List<RouteResponse> routeResponses = new ArrayList<>();
-
             StringBuilder errorDetails = new StringBuilder();
-            for (Stop startStop : startStops) {
-                for (Stop endStop : endStops) {
-                    List<RouteSegment> segments = findRouteBetweenStops(startStop, endStop, session, errorDetails);
-                    if (segments != null && !segments.isEmpty()) {
-                        RouteResponse routeResponse = new RouteResponse();
-                        routeResponse.setRouteId(alphanumericGenerator.generateAlphanumericString());
-                        // Add initial walk segment from start location to boarding stop
-                        List<RouteSegment> routeSegments = new ArrayList<>();
-
-                        WalkSegment walkSegment = new WalkSegment();
-                        walkSegment.setStartCoordinate(routeRequest.getStartLocation());
-                        walkSegment.setEndCoordinate(new Coordinates(startStop.getStopLat(), startStop.getStopLon()));
-                        walkSegment.setWalkPath(null);
-                        routeSegments.add(walkSegment);
-
-                        // Add the transit and walk segments
-                        routeSegments.addAll(segments);
-
-                        // Add final walk segment from alighting stop to end location
-                        walkSegment.setStartCoordinate(new Coordinates(endStop.getStopLat(), endStop.getStopLon()));
-                        walkSegment.setEndCoordinate(routeRequest.getEndLocation());
-                        walkSegment.setWalkPath(null);
-                        routeSegments.add(walkSegment);
-
-                        routeResponse.setRoutes(routeSegments);
-                        routeResponse.setUniqueTransitTypes(routeSegments.stream().map(RouteSegment::getTransitType).distinct().toList());
-                        routeResponses.add(routeResponse);
-                    }
-                }
+            if (timetable != null) {
+                itineraries = findRoutesByTimetable(routeRequest, startStops, endStops, timetable, errorDetails);
+            } else if (transitGraph != null) {
+                itineraries = findRoutesInMemory(routeRequest, startStops, endStops, transitGraph, errorDetails);
+            } else {
+                itineraries = findRoutesPerStopPair(startStops, endStops, session, errorDetails);
             }
 
-            if (routeResponses.isEmpty()) {
+            if (itineraries.isEmpty()) {
                 String errorMessage = "No routes found between any start and end stops. " +
                         "Start stops: " + startStops.stream().map(s -> s.getStopName() + " (" + s.getStopId() + ")").collect(Collectors.joining(", ")) +
                         ". End stops: " + endStops.stream().map(s -> s.getStopName() + " (" + s.getStopId() + ")").collect(Collectors.joining(", ")) +
@@ -103,28 +124,409 @@ public class TransitService {
                 throw new RuntimeException(errorMessage);
             }
 
-            System.out.println("Found " + routeResponses.size() + " possible routes.");
-            return new RoutesResponse(routeRequest.getStartLocation(), routeRequest.getEndLocation(),routeResponses.size(), routeResponses);
+            // Per-pair Neo4j searches may have been cut short by the deadline, so they are only cached when every
+            // pair answered; a slow moment should not stick for the lifetime of the entry
+            boolean complete = timetable != null || transitGraph != null || errorDetails.length() == 0;
+            if (cached && complete) {
+                routeCacheService.put(cacheKey, graphVersion, itineraries);
+            }
+            System.out.println("Found " + itineraries.size() + " possible routes.");
+            return buildRoutesResponse(routeRequest, itineraries);
         } catch (Exception e) {
             System.err.println("Error finding routes: " + e.getMessage());
             throw new RuntimeException("Failed to find routes: " + e.getMessage(), e);
         }
     }
 
-    private List<Stop> findNearestStops(double lat, double lon, int limit) {
-        List<Stop> allStops = stopRepository.findAll().stream()
-                .toList();
+    private RoutesResponse buildRoutesResponse(RouteRequest routeRequest, List<Itinerary> itineraries) {
+        List<RouteResponse> routeResponses = new ArrayList<>(itineraries.size());
+        for (Itinerary itinerary : itineraries) {
+            routeResponses.add(buildRouteResponse(routeRequest, itinerary.startStop(), itinerary.endStop(), itinerary.segments()));
+        }
+        return new RoutesResponse(routeRequest.getStartLocation(), routeRequest.getEndLocation(), routeResponses.size(), routeResponses);
+    }
 
-        return allStops.stream()
-                .sorted(Comparator.comparingDouble(s -> haversineDistance(lat, lon, s.getStopLat(), s.getStopLon())))
-                .limit(limit)
-                .collect(Collectors.toList());
+    private List<Itinerary> findRoutesPerStopPair(List<Stop> startStops, List<Stop> endStops, Session session,
+                                                  StringBuilder errorDetails) {
+        if (parallelEvaluation && routeEvaluationExecutor != null && startStops.size() * endStops.size() > 1) {
+            return findRoutesPerStopPairInParallel(startStops, endStops, errorDetails);
+        }
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (Stop startStop : startStops) {
+            for (Stop endStop : endStops) {
+                List<RouteSegment> segments = findRouteBetweenStops(startStop, endStop, session, errorDetails);
+                if (segments != null && !segments.isEmpty()) {
+                    itineraries.add(new Itinerary(startStop, endStop, segments));
+                }
+            }
+        }
+        return itineraries;
+    }
+
+    /**
+     * Evaluates every start/end pair on the route executor, each on its own session since sessions are not
+     * thread-safe. Pairs still running when the per-request deadline expires are cancelled and reported in
+     * the error details; results keep the order of the sequential loop.
+     */
+    private List<Itinerary> findRoutesPerStopPairInParallel(List<Stop> startStops, List<Stop> endStops,
+                                                            StringBuilder errorDetails) {
+        List<Stop[]> pairs = new ArrayList<>();
+        List<StringBuilder> pairErrors = new ArrayList<>();
+        List<Callable<List<RouteSegment>>> tasks = new ArrayList<>();
+        for (Stop startStop : startStops) {
+            for (Stop endStop : endStops) {
+                StringBuilder pairError = new StringBuilder();
+                pairs.add(new Stop[]{startStop, endStop});
+                pairErrors.add(pairError);
+                tasks.add(() -> {
+                    try (Session pairSession = neo4jDriver.session()) {
+                        return findRouteBetweenStops(startStop, endStop, pairSession, pairError);
+                    }
+                });
+            }
+        }
+
+        List<Future<List<RouteSegment>>> futures;
+        try {
+            futures = routeEvaluationExecutor.invokeAll(tasks, pairDeadlineMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while evaluating routes", e);
+        }
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Stop startStop = pairs.get(i)[0];
+            Stop endStop = pairs.get(i)[1];
+            Future<List<RouteSegment>> future = futures.get(i);
+            if (future.isCancelled()) {
+                String timeoutInfo = String.format("Route search between %s (ID: %s) and %s (ID: %s) exceeded the %d ms deadline.",
+                        startStop.getStopName(), startStop.getStopId(), endStop.getStopName(), endStop.getStopId(), pairDeadlineMs);
+                System.out.println(timeoutInfo);
+                errorDetails.append(timeoutInfo).append("\n");
+                continue;
+            }
+            List<RouteSegment> segments;
+            try {
+                segments = future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while evaluating routes", e);
+            }
+            errorDetails.append(pairErrors.get(i));
+            if (segments != null && !segments.isEmpty()) {
+                itineraries.add(new Itinerary(startStop, endStop, segments));
+            }
+        }
+        return itineraries;
+    }
+
+    /**
+     * Runs one multi-source search seeded with every start stop at its walking cost. With the Pareto search
+     * enabled every non-dominated route (time, transfers, walking, cost) becomes an itinerary; otherwise the
+     * search stops once all end stops are settled and each reachable end stop yields one itinerary, ranked by
+     * total cost including the final walk.
+     */
+    private List<Itinerary> findRoutesInMemory(RouteRequest routeRequest, List<Stop> startStops, List<Stop> endStops,
+                                               TransitGraph transitGraph, StringBuilder errorDetails) {
+        Coordinates start = routeRequest.getStartLocation();
+        Coordinates end = routeRequest.getEndLocation();
+
+        Map<Integer, Stop> sourceStops = new HashMap<>();
+        int[] sources = new int[startStops.size()];
+        double[] sourceCosts = new double[startStops.size()];
+        int sourceCount = 0;
+        for (Stop stop : startStops) {
+            int index = transitGraph.indexOf(stop.getStopId());
+            if (index >= 0) {
+                sourceStops.put(index, stop);
+                sources[sourceCount] = index;
+                sourceCosts[sourceCount++] = walkMinutes(start, stop);
+            }
+        }
+
+        List<Stop> targetStops = new ArrayList<>();
+        int[] targets = new int[endStops.size()];
+        int targetCount = 0;
+        for (Stop stop : endStops) {
+            int index = transitGraph.indexOf(stop.getStopId());
+            if (index >= 0) {
+                targetStops.add(stop);
+                targets[targetCount++] = index;
+            }
+        }
+
+        if (sourceCount == 0 || targetCount == 0) {
+            errorDetails.append("None of the nearest start or end stops are part of the transit graph.\n");
+            return new ArrayList<>();
+        }
+
+        if (paretoSearch) {
+            return findParetoRoutes(routeRequest, sourceStops, Arrays.copyOf(sources, sourceCount),
+                    targetStops, Arrays.copyOf(targets, targetCount), transitGraph, errorDetails);
+        }
+
+        ShortestPathTree tree = transitGraph.shortestPaths(Arrays.copyOf(sources, sourceCount),
+                Arrays.copyOf(sourceCosts, sourceCount), Arrays.copyOf(targets, targetCount));
+
+        // Rank reachable end stops by search cost plus the walk from the end stop to the destination
+        List<Integer> reachedTargets = new ArrayList<>();
+        for (int i = 0; i < targetCount; i++) {
+            if (tree.isReached(targets[i])) {
+                reachedTargets.add(i);
+            } else {
+                Stop endStop = targetStops.get(i);
+                errorDetails.append(String.format("No path found to %s (ID: %s) from any start stop.%n",
+                        endStop.getStopName(), endStop.getStopId()));
+            }
+        }
+        reachedTargets.sort(Comparator.comparingDouble(i -> tree.distance(targets[i]) + walkMinutes(end, targetStops.get(i))));
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (int i : reachedTargets) {
+            GraphPath path = tree.pathTo(targets[i]);
+            Stop startStop = sourceStops.get(path.source());
+            Stop endStop = targetStops.get(i);
+            List<RouteSegment> segments = buildSegments(startStop, endStop, TransitPath.of(transitGraph, path));
+            if (segments != null && !segments.isEmpty()) {
+                itineraries.add(new Itinerary(startStop, endStop, segments));
+            }
+        }
+        return itineraries;
+    }
+
+    private List<Itinerary> findParetoRoutes(RouteRequest routeRequest, Map<Integer, Stop> sourceStops, int[] sources,
+                                             List<Stop> targetStops, int[] targets, TransitGraph transitGraph,
+                                             StringBuilder errorDetails) {
+        Coordinates start = routeRequest.getStartLocation();
+        Coordinates end = routeRequest.getEndLocation();
+        double[] sourceMinutes = new double[sources.length];
+        double[] sourceWalkKm = new double[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            Stop stop = sourceStops.get(sources[i]);
+            sourceMinutes[i] = walkMinutes(start, stop);
+            sourceWalkKm[i] = walkKm(start, stop);
+        }
+        Map<Integer, Stop> stopsByTarget = new HashMap<>();
+        double[] targetMinutes = new double[targets.length];
+        double[] targetWalkKm = new double[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            Stop stop = targetStops.get(i);
+            stopsByTarget.put(targets[i], stop);
+            targetMinutes[i] = walkMinutes(end, stop);
+            targetWalkKm[i] = walkKm(end, stop);
+        }
+
+        List<ParetoRoute> paretoRoutes = new ParetoSearch(transitGraph, maxLabelsPerStop)
+                .search(sources, sourceMinutes, sourceWalkKm, targets, targetMinutes, targetWalkKm);
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (ParetoRoute paretoRoute : paretoRoutes) {
+            if (paretoRoute.getPath().getEdges().length == 0) {
+                continue; // Walking straight past a stop that is both a start and an end stop
+            }
+            Stop startStop = sourceStops.get(paretoRoute.source());
+            Stop endStop = stopsByTarget.get(paretoRoute.target());
+            System.out.println(String.format("Pareto route %s -> %s: %.1f min, %d transfers, %.2f km walk, cost %.2f",
+                    startStop.getStopName(), endStop.getStopName(), paretoRoute.getMinutes(), paretoRoute.getTransfers(),
+                    paretoRoute.getWalkKm(), paretoRoute.getCost()));
+            List<RouteSegment> segments = buildSegments(startStop, endStop, TransitPath.of(transitGraph, paretoRoute.getPath()));
+            if (segments != null && !segments.isEmpty()) {
+                itineraries.add(new Itinerary(startStop, endStop, segments));
+            }
+        }
+        if (itineraries.isEmpty()) {
+            errorDetails.append("No path found between any start and end stop.\n");
+        }
+        return itineraries;
+    }
+
+    /**
+     * Earliest-arrival search over the timetable from the requested departure time. Each start stop becomes
+     * available once it has been walked to; each reachable end stop yields one itinerary, ranked by arrival at the
+     * destination including the final walk.
+     */
+    private List<Itinerary> findRoutesByTimetable(RouteRequest routeRequest, List<Stop> startStops, List<Stop> endStops,
+                                                  Timetable timetable, StringBuilder errorDetails) {
+        Coordinates start = routeRequest.getStartLocation();
+        Coordinates end = routeRequest.getEndLocation();
+        int departure = routeRequest.getDepartureTime().toSecondOfDay();
+
+        Map<String, Stop> sourceStops = new HashMap<>();
+        int[] sources = new int[startStops.size()];
+        int[] departureTimes = new int[startStops.size()];
+        int sourceCount = 0;
+        for (Stop stop : startStops) {
+            int index = timetable.indexOf(stop.getStopId());
+            if (index >= 0) {
+                sourceStops.put(stop.getStopId(), stop);
+                sources[sourceCount] = index;
+                departureTimes[sourceCount++] = departure + (int) Math.round(walkMinutes(start, stop) * 60);
+            }
+        }
+
+        List<Stop> targetStops = new ArrayList<>();
+        int[] targets = new int[endStops.size()];
+        int targetCount = 0;
+        for (Stop stop : endStops) {
+            int index = timetable.indexOf(stop.getStopId());
+            if (index >= 0) {
+                targetStops.add(stop);
+                targets[targetCount++] = index;
+            }
+        }
+
+        if (sourceCount == 0 || targetCount == 0) {
+            errorDetails.append("None of the nearest start or end stops are served by the timetable.\n");
+            return new ArrayList<>();
+        }
+
+        TimetableResult result = timetableService.getRouter(timetable, MAX_RIDES).route(Arrays.copyOf(sources, sourceCount),
+                Arrays.copyOf(departureTimes, sourceCount), Arrays.copyOf(targets, targetCount));
+
+        List<Integer> reachedTargets = new ArrayList<>();
+        for (int i = 0; i < targetCount; i++) {
+            if (result.isReached(targets[i])) {
+                reachedTargets.add(i);
+            } else {
+                Stop endStop = targetStops.get(i);
+                errorDetails.append(String.format("No departure reaches %s (ID: %s) after %s.%n",
+                        endStop.getStopName(), endStop.getStopId(), routeRequest.getDepartureTime()));
+            }
+        }
+        reachedTargets.sort(Comparator.comparingDouble(i -> result.arrival(targets[i]) + walkMinutes(end, targetStops.get(i)) * 60));
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (int i : reachedTargets) {
+            Journey journey = result.journeyTo(targets[i]);
+            if (journey == null) {
+                continue; // Journey could not be rebuilt
+            }
+            if (journey.getLegs().isEmpty()) {
+                continue; // Start stop is also an end stop
+            }
+            List<RouteSegment> segments = buildJourneySegments(journey);
+            itineraries.add(new Itinerary(sourceStops.get(journey.getOriginStopId()), targetStops.get(i), segments));
+        }
+        return itineraries;
+    }
+
+    /** Turns each ride of a timetable journey into a transit segment and each footpath into a walk segment. */
+    private List<RouteSegment> buildJourneySegments(Journey journey) {
+        Set<String> stopIds = new LinkedHashSet<>();
+        journey.getLegs().forEach(leg -> stopIds.addAll(leg.getStopIds()));
+        Map<String, Stop> stopsById = stopIndexService.findStopsById(stopIds);
+
+        List<RouteSegment> segments = new ArrayList<>();
+        for (Journey.Leg leg : journey.getLegs()) {
+            List<Stop> legStops = new ArrayList<>(leg.getStopIds().size());
+            for (String stopId : leg.getStopIds()) {
+                Stop stop = stopsById.get(stopId);
+                if (stop == null) {
+                    throw new RuntimeException("Stop not found: " + stopId);
+                }
+                legStops.add(stop);
+            }
+            Stop first = legStops.get(0);
+            Stop last = legStops.get(legStops.size() - 1);
+
+            if (leg.isTransfer()) {
+                WalkSegment walkSegment = new WalkSegment();
+                walkSegment.setStartCoordinate(new Coordinates(first.getStopLat(), first.getStopLon()));
+                walkSegment.setEndCoordinate(new Coordinates(last.getStopLat(), last.getStopLon()));
+                walkSegment.setWalkPath(null);
+                segments.add(walkSegment);
+                continue;
+            }
+
+            ShapeSlice slice = ShapeSlicer.slice(loadShape(List.of(leg.getTripId())), legStops);
+            TransitSegment transitSegment = new TransitSegment();
+            transitSegment.setBoardingStop(first);
+            transitSegment.setAlightingStop(last);
+            transitSegment.setStopPath(legStops);
+            transitSegment.setTransitPath(slice.path());
+            transitSegment.setTransitType(TransitType.LUAS);
+            transitSegment.setTravelDistance(slice.distanceKm());
+            transitSegment.setTravelTime((double) (leg.getArrival() - leg.getDeparture())); // Seconds on board
+            transitSegment.setTravelCost(slice.distanceKm() * 0.1);
+            segments.add(transitSegment);
+        }
+
+        System.out.println("Timetable route found: " + journey.getOriginStopId() + " -> " + journey.getDestinationStopId() +
+                " departing " + LocalTime.ofSecondOfDay(journey.getDeparture() % 86400) +
+                ", arriving " + LocalTime.ofSecondOfDay(journey.getArrival() % 86400) +
+                " with " + journey.rideCount() + " rides");
+        return segments;
+    }
+
+    private RouteResponse buildRouteResponse(RouteRequest routeRequest, Stop startStop, Stop endStop, List<RouteSegment> segments) {
+        RouteResponse routeResponse = new RouteResponse();
+        routeResponse.setRouteId(alphanumericGenerator.generateAlphanumericString());
+        // Add initial walk segment from start location to boarding stop
+        List<RouteSegment> routeSegments = new ArrayList<>();
+
+        WalkSegment walkSegment = new WalkSegment();
+        walkSegment.setStartCoordinate(routeRequest.getStartLocation());
+        walkSegment.setEndCoordinate(new Coordinates(startStop.getStopLat(), startStop.getStopLon()));
+        walkSegment.setWalkPath(null);
+        routeSegments.add(walkSegment);
+
+        // Add the transit and walk segments
+        routeSegments.addAll(segments);
+
+        // Add final walk segment from alighting stop to end location
+        WalkSegment finalWalkSegment = new WalkSegment();
+        finalWalkSegment.setStartCoordinate(new Coordinates(endStop.getStopLat(), endStop.getStopLon()));
+        finalWalkSegment.setEndCoordinate(routeRequest.getEndLocation());
+        finalWalkSegment.setWalkPath(null);
+        routeSegments.add(finalWalkSegment);
+
+        routeResponse.setRoutes(routeSegments);
+        routeResponse.setUniqueTransitTypes(routeSegments.stream().map(RouteSegment::getTransitType).distinct().toList());
+        return routeResponse;
+    }
+
+    private double walkMinutes(Coordinates location, Stop stop) {
+        return walkKm(location, stop) / WALK_SPEED_KMH * 60;
+    }
+
+    private double walkKm(Coordinates location, Stop stop) {
+        return haversineDistance(location.getLatitude(), location.getLongitude(), stop.getStopLat(), stop.getStopLon());
+    }
+
+    private List<Stop> findNearestStops(double lat, double lon, int limit) {
+        return stopIndexService.findNearest(lat, lon, limit);
     }
 
     private List<RouteSegment> findRouteBetweenStops(Stop startStop, Stop endStop, Session session, StringBuilder errorDetails) {
-        // Use apoc.algo.aStar to find the shortest path with RED_LUAS, TRANSFER, or GREEN_LUAS relationships
+        TransitPath transitPath = findPathInNeo4j(startStop, endStop, session);
+
+        if (transitPath == null) {
+            String debugInfo = String.format(
+                    "No path found between %s (ID: %s) and %s (ID: %s). " +
+                            "Possible reasons: Graph might be disconnected or search depth exceeded.",
+                    startStop.getStopName(), startStop.getStopId(),
+                    endStop.getStopName(), endStop.getStopId()
+            );
+            System.out.println(debugInfo);
+            errorDetails.append(debugInfo).append("\n");
+            return null;
+        }
+
+        return buildSegments(startStop, endStop, transitPath);
+    }
+
+    private TransitPath findPathInNeo4j(Stop startStop, Stop endStop, Session session) {
+        // Use apoc.algo.aStar to find the shortest path with RED_LUAS, TRANSFER, or GREEN_LUAS relationships.
+        // The active generation is resolved in the same query; relationships never cross generations.
         Result result = session.run(
-                "MATCH (start:Stop {stopId: $startStopId}), (end:Stop {stopId: $endStopId}) " +
+                "OPTIONAL MATCH (v:GraphVersion {graph: 'transit'}) " +
+                        "WITH v.activeGeneration AS generation " +
+                        "MATCH (start:Stop {stopId: $startStopId}), (end:Stop {stopId: $endStopId}) " +
+                        "WHERE generation IS NULL OR (start.generation = generation AND end.generation = generation) " +
                         "CALL apoc.algo.aStar(" +
                         "  start, " +
                         "  end, " +
@@ -141,30 +543,55 @@ public class TransitService {
         );
 
         if (!result.hasNext()) {
-            String debugInfo = String.format(
-                    "No path found between %s (ID: %s) and %s (ID: %s). " +
-                            "Possible reasons: Graph might be disconnected or search depth exceeded.",
-                    startStop.getStopName(), startStop.getStopId(),
-                    endStop.getStopName(), endStop.getStopId()
-            );
-            System.out.println(debugInfo);
-            errorDetails.append(debugInfo).append("\n");
             return null;
         }
 
         var record = result.single();
         List<Object> rawStopPath = record.get("stopPath").asList();
-        List<Value> rawRelationships = record.get("rawRelationships").asList(Values::value);
+        List<org.neo4j.driver.Value> rawRelationships = record.get("rawRelationships").asList(Values::value);
         double totalWeight = record.get("totalWeight").asDouble();
 
-        // Convert raw path to Stop objects
-        List<Stop> stopPath = rawStopPath.stream()
+        List<String> stopIds = rawStopPath.stream()
                 .map(obj -> {
                     Map<String, Object> node = (Map<String, Object>) obj;
-                    return stopRepository.findById((String) node.get("stopId")).get();
+                    return (String) node.get("stopId");
                 })
                 .collect(Collectors.toList());
 
+        List<String> relationshipTypes = new ArrayList<>();
+        List<Double> relationshipWeights = new ArrayList<>();
+        List<List<String>> relationshipTripIds = new ArrayList<>();
+        for (org.neo4j.driver.Value relValue : rawRelationships) {
+            relationshipTypes.add(relValue.asRelationship().type());
+            Map<String, Object> relProps = relValue.asMap();
+            relationshipWeights.add(relProps.containsKey("weight") ? ((Number) relProps.get("weight")).doubleValue() : 1.0);
+            List<String> tripIds = new ArrayList<>();
+            Object tripIdsObj = relProps.get("tripIds");
+            if (tripIdsObj instanceof List) {
+                tripIds.addAll((List<String>) tripIdsObj);
+            } else if (tripIdsObj instanceof String) {
+                tripIds.add((String) tripIdsObj);
+            }
+            relationshipTripIds.add(tripIds);
+        }
+
+        return new TransitPath(stopIds, relationshipTypes, relationshipWeights, relationshipTripIds, totalWeight);
+    }
+
+    private List<RouteSegment> buildSegments(Stop startStop, Stop endStop, TransitPath path) {
+        double totalWeight = path.getTotalWeight();
+
+        // Convert path to Stop objects, resolving all stops in one batch
+        Map<String, Stop> stopsById = stopIndexService.findStopsById(path.getStopIds());
+        List<Stop> stopPath = new ArrayList<>(path.getStopIds().size());
+        for (String stopId : path.getStopIds()) {
+            Stop stop = stopsById.get(stopId);
+            if (stop == null) {
+                throw new RuntimeException("Stop not found: " + stopId);
+            }
+            stopPath.add(stop);
+        }
+
         // Verify no loops
         Set<String> visitedStopIds = new HashSet<>();
         for (Stop stop : stopPath) {
@@ -175,16 +602,14 @@ public class TransitService {
         }
 
         // Process relationships to determine path details and segment the route
-        List<String> relationshipTypes = new ArrayList<>();
+        List<String> relationshipTypes = path.getRelationshipTypes();
         List<List<String>> segmentTripIds = new ArrayList<>();
         List<Double> segmentWeights = new ArrayList<>(); // Track weights for each segment
         List<String> currentSegmentTripIds = new ArrayList<>();
         double currentSegmentWeight = 0.0;
-        for (Value relValue : rawRelationships) {
-            String relType = relValue.asRelationship().type();
-            relationshipTypes.add(relType);
-            Map<String, Object> relProps = relValue.asMap();
-            double weight = relProps.containsKey("weight") ? ((Number) relProps.get("weight")).doubleValue() : 1.0;
+        for (int i = 0; i < relationshipTypes.size(); i++) {
+            String relType = relationshipTypes.get(i);
+            double weight = path.getRelationshipWeights().get(i);
             if (relType.equals("TRANSFER")) {
                 totalWeight += TRANSFER_PENALTY; // Apply transfer penalty to total
                 currentSegmentWeight += weight; // Include TRANSFER weight in the current segment
@@ -195,14 +620,7 @@ public class TransitService {
                 currentSegmentWeight = 0.0;
             } else {
                 currentSegmentWeight += weight;
-                if (relProps.containsKey("tripIds")) {
-                    Object tripIdsObj = relProps.get("tripIds");
-                    if (tripIdsObj instanceof List) {
-                        currentSegmentTripIds.addAll((List<String>) tripIdsObj);
-                    } else if (tripIdsObj instanceof String) {
-                        currentSegmentTripIds.add((String) tripIdsObj);
-                    }
-                }
+                currentSegmentTripIds.addAll(path.getRelationshipTripIds().get(i));
             }
         }
         // Add the last segment's trip IDs and weight
@@ -230,25 +648,10 @@ public class TransitService {
                 Stop segmentEnd = segmentStops.get(segmentStops.size() - 1);
 
                 // Build transit path for this segment using the trip IDs for this segment
-                List<Coordinates> transitPath = new ArrayList<>();
-                List<String> tripIdsForSegment = segmentTripIds.get(segmentIndex).stream().distinct().collect(Collectors.toList());
-                if (!tripIdsForSegment.isEmpty()) {
-                    String selectedTripId = tripIdsForSegment.get(0); // Use the first trip ID for this segment
-                    Trip trip = tripRepository.findById(selectedTripId)
-                            .orElseThrow(() -> new RuntimeException("Trip not found: " + selectedTripId));
-                    String shapeId = trip.getShapeId();
-                    if (shapeId != null) {
-                        List<Shape> shapes = shapeRepository.findByShapeId(shapeId);
-                        transitPath = shapes.stream()
-                                .sorted(Comparator.comparingInt(Shape::getShapePtSequence))
-                                .map(shape -> new Coordinates(shape.getShapePtLat(), shape.getShapePtLon()))
-                                .collect(Collectors.toList());
-                    } else {
-                        System.out.println("No shapeId found for trip: " + selectedTripId);
-                    }
-                }
+                ShapePolyline shape = loadShape(segmentTripIds.get(segmentIndex));
 
-                List<Coordinates> filteredTransitPath = filterTransitPathByStops(segmentStops, transitPath);
+                ShapeSlice slice = ShapeSlicer.slice(shape, segmentStops);
+                List<Coordinates> filteredTransitPath = slice.path();
                 TransitSegment transitSegment = new TransitSegment();
                 transitSegment.setBoardingStop(segmentStart);
                 transitSegment.setAlightingStop(segmentEnd);
@@ -256,7 +659,7 @@ public class TransitService {
                 transitSegment.setTransitPath(filteredTransitPath);
                 transitSegment.setTransitType(TransitType.LUAS);
                 // Calculate travelDistance based on transitPath (optional)
-                double travelDistance = calculateTravelDistance(filteredTransitPath);
+                double travelDistance = slice.distanceKm();
                 transitSegment.setTravelDistance(travelDistance);
                 // Estimate travelTime based on segment weight (assuming weight correlates with time)
                 double travelTime = segmentWeights.get(segmentIndex) * 60; // Convert to seconds (arbitrary factor)
@@ -287,25 +690,10 @@ public class TransitService {
 
         // If no transfers, return a single TransitSegment
         if (transferIndices.size() == 1) {
-            List<Coordinates> transitPath = new ArrayList<>();
-            List<String> allTripIds = segmentTripIds.get(0).stream().distinct().collect(Collectors.toList());
-            if (!allTripIds.isEmpty()) {
-                String selectedTripId = allTripIds.get(0);
-                Trip trip = tripRepository.findById(selectedTripId)
-                        .orElseThrow(() -> new RuntimeException("Trip not found: " + selectedTripId));
-                String shapeId = trip.getShapeId();
-                if (shapeId != null) {
-                    List<Shape> shapes = shapeRepository.findByShapeId(shapeId);
-                    transitPath = shapes.stream()
-                            .sorted(Comparator.comparingInt(Shape::getShapePtSequence))
-                            .map(shape -> new Coordinates(shape.getShapePtLat(), shape.getShapePtLon()))
-                            .collect(Collectors.toList());
-                } else {
-                    System.out.println("No shapeId found for trip: " + selectedTripId);
-                }
-            }
+            ShapePolyline shape = loadShape(segmentTripIds.get(0));
 
-            List<Coordinates> filteredTransitPath = filterTransitPathByStops(stopPath, transitPath);
+            ShapeSlice slice = ShapeSlicer.slice(shape, stopPath);
+            List<Coordinates> filteredTransitPath = slice.path();
             TransitSegment transitSegment = new TransitSegment();
             transitSegment.setBoardingStop(startStop);
             transitSegment.setAlightingStop(endStop);
@@ -313,7 +701,7 @@ public class TransitService {
             transitSegment.setTransitPath(filteredTransitPath);
             transitSegment.setTransitType(TransitType.LUAS);
             // Calculate travelDistance, travelTime, and travelCost
-            double travelDistance = calculateTravelDistance(filteredTransitPath);
+            double travelDistance = slice.distanceKm();
             transitSegment.setTravelDistance(travelDistance);
             double travelTime = segmentWeights.get(0) * 60; // Convert to seconds
             transitSegment.setTravelTime(travelTime);
@@ -334,79 +722,16 @@ public class TransitService {
         return segments;
     }
 
-    private double calculateTravelDistance(List<Coordinates> path) {
-        if (path == null || path.size() < 2) return 0.0;
-        double distance = 0.0;
-        for (int i = 0; i < path.size() - 1; i++) {
-            Coordinates c1 = path.get(i);
-            Coordinates c2 = path.get(i + 1);
-            distance += haversineDistance(c1.getLatitude(), c1.getLongitude(), c2.getLatitude(), c2.getLongitude());
-        }
-        return distance;
-    }
-
-    private List<Coordinates> filterTransitPathByStops(List<Stop> stopPath, List<Coordinates> transitPath) {
-        if (stopPath.isEmpty() || transitPath.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        List<Coordinates> filteredPath = new ArrayList<>();
-        Map<Stop, Coordinates> stopToNearestCoord = new HashMap<>();
-
-        for (Stop stop : stopPath) {
-            Coordinates nearestCoord = findNearestCoordinate(stop, transitPath);
-            if (nearestCoord != null) {
-                stopToNearestCoord.put(stop, nearestCoord);
-            }
-        }
-
-        List<Coordinates> sortedTransitPath = new ArrayList<>(transitPath);
-        sortedTransitPath.sort((c1, c2) -> {
-            int index1 = transitPath.indexOf(c1);
-            int index2 = transitPath.indexOf(c2);
-            return Integer.compare(index1, index2);
-        });
-
-        List<Integer> stopIndices = stopToNearestCoord.values().stream()
-                .map(sortedTransitPath::indexOf)
-                .filter(index -> index >= 0)
-                .sorted()
-                .collect(Collectors.toList());
-
-        if (stopIndices.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        int startIndex = stopIndices.get(0);
-        int endIndex = stopIndices.get(stopIndices.size() - 1);
-        if (startIndex <= endIndex && endIndex < sortedTransitPath.size()) {
-            filteredPath.addAll(sortedTransitPath.subList(startIndex, endIndex + 1));
-        }
-
-        return filteredPath;
-    }
-
-    private Coordinates findNearestCoordinate(Stop stop, List<Coordinates> coordinates) {
-        if (coordinates.isEmpty()) return null;
-
-        double minDistance = Double.MAX_VALUE;
-        Coordinates nearest = null;
-
-        for (Coordinates coord : coordinates) {
-            double distance = haversineDistance(stop.getStopLat(), stop.getStopLon(),
-                    coord.getLatitude(), coord.getLongitude());
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = coord;
-            }
-        }
-
-        if (minDistance > 0.1) {
-            //System.out.println("Warning: Nearest coordinate for stop " + stop.getStopName() + " is " + minDistance + " km away, which may be inaccurate.");
+    private ShapePolyline loadShape(List<String> tripIds) {
+        if (tripIds.isEmpty()) {
             return null;
         }
-
-        return nearest;
+        String selectedTripId = tripIds.get(0); // Use the first trip ID for this segment
+        ShapePolyline shape = shapeCacheService.getShapeForTrip(selectedTripId);
+        if (shape == null) {
+            System.out.println("No shape found for trip: " + selectedTripId);
+        }
+        return shape;
     }
 
     private double haversineDistance(double lat1, double lon1, double lat2, double lon2) {
@@ -0,0 +1,53 @@
+package com.tcd.asc.damn.routeprovider.service;
+
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Memory-maps the transit snapshot written by the data manager so the graph and shape caches can be loaded
+ * without Neo4j or the database. The snapshot is reopened when the file is replaced.
+ */
+@Service
+public class TransitSnapshotService {
+
+    @Value("${transit.snapshot.path:}")
+    private String snapshotPath = "";
+
+    private TransitSnapshot snapshot;
+    private long snapshotModifiedAt;
+
+    /**
+     * Returns the current snapshot, or null when no snapshot is configured, the file is missing or it fails
+     * validation, in which case callers load from Neo4j and the database.
+     */
+    public synchronized TransitSnapshot getSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return null;
+        }
+        Path path = Paths.get(snapshotPath);
+        try {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            long modifiedAt = Files.getLastModifiedTime(path).toMillis();
+            if (snapshot == null || modifiedAt != snapshotModifiedAt) {
+                long startedAt = System.currentTimeMillis();
+                snapshot = TransitSnapshot.open(path);
+                snapshotModifiedAt = modifiedAt;
+                System.out.println("Mapped transit snapshot generation " + snapshot.generation() + " (" +
+                        snapshot.stopCount() + " stops, " + snapshot.edgeCount() + " edges, " + snapshot.shapeCount() +
+                        " shapes) in " + (System.currentTimeMillis() - startedAt) + " ms");
+            }
+            return snapshot;
+        } catch (Exception e) {
+            System.err.println("Failed to open transit snapshot " + snapshotPath + ": " + e.getMessage());
+            snapshot = null;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.tcd.asc.damn.routeprovider.shape;
+
+import com.tcd.asc.damn.common.entity.Shape;
+import com.tcd.asc.damn.common.model.dto.Coordinates;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+
+import java.util.*;
+
+/**
+ * A GTFS shape held as parallel primitive arrays, pre-sorted by {@code shapePtSequence}, with the
+ * cumulative distance in kilometres from the first point.
+ */
+public final class ShapePolyline {
+
+    private final String shapeId;
+    private final double[] lats;
+    private final double[] lons;
+    private final double[] cumulativeKm;
+
+    public ShapePolyline(String shapeId, double[] lats, double[] lons) {
+        if (lats.length != lons.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays differ in length for shape " + shapeId);
+        }
+        this.shapeId = shapeId;
+        this.lats = lats;
+        this.lons = lons;
+        this.cumulativeKm = new double[lats.length];
+        for (int i = 1; i < lats.length; i++) {
+            cumulativeKm[i] = cumulativeKm[i - 1] + GeoGridIndex.distanceKm(lats[i - 1], lons[i - 1], lats[i], lons[i]);
+        }
+    }
+
+    /** Builds a polyline from shape rows in any order. */
+    public static ShapePolyline of(String shapeId, List<Shape> points) {
+        List<Shape> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingInt(Shape::getShapePtSequence));
+        double[] lats = new double[sorted.size()];
+        double[] lons = new double[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            lats[i] = sorted.get(i).getShapePtLat();
+            lons[i] = sorted.get(i).getShapePtLon();
+        }
+        return new ShapePolyline(shapeId, lats, lons);
+    }
+
+    public String getShapeId() {
+        return shapeId;
+    }
+
+    public int size() {
+        return lats.length;
+    }
+
+    public double lat(int index) {
+        return lats[index];
+    }
+
+    public double lon(int index) {
+        return lons[index];
+    }
+
+    public double cumulativeKm(int index) {
+        return cumulativeKm[index];
+    }
+
+    public double lengthKm() {
+        return lats.length == 0 ? 0.0 : cumulativeKm[lats.length - 1];
+    }
+
+    /** Distance along the shape between two point indices. */
+    public double distanceKm(int from, int to) {
+        return cumulativeKm[to] - cumulativeKm[from];
+    }
+
+    /**
+     * Returns a read-only view of points {@code from..to} (inclusive). Coordinates are created on access,
+     * nothing is copied up front.
+     */
+    public List<Coordinates> subPath(int from, int to) {
+        if (from < 0 || to >= lats.length || from > to) {
+            throw new IndexOutOfBoundsException("Invalid sub-path [" + from + ", " + to + "] of shape " + shapeId);
+        }
+        return new SubPath(from, to - from + 1);
+    }
+
+    public List<Coordinates> toCoordinates() {
+        List<Coordinates> coordinates = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            coordinates.add(new Coordinates(lats[i], lons[i]));
+        }
+        return coordinates;
+    }
+
+    private final class SubPath extends AbstractList<Coordinates> implements RandomAccess {
+        private final int offset;
+        private final int size;
+
+        private SubPath(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Coordinates get(int index) {
+            Objects.checkIndex(index, size);
+            return new Coordinates(lats[offset + index], lons[offset + index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
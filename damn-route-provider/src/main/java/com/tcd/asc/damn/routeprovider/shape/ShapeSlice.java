@@ -0,0 +1,53 @@
+package com.tcd.asc.damn.routeprovider.shape;
+
+import com.tcd.asc.damn.common.model.dto.Coordinates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part of a {@link ShapePolyline} between the first and last stop of a transit segment.
+ */
+public final class ShapeSlice {
+
+    private static final ShapeSlice EMPTY = new ShapeSlice(null, -1, -1);
+
+    private final ShapePolyline shape;
+    private final int from;
+    private final int to;
+
+    private ShapeSlice(ShapePolyline shape, int from, int to) {
+        this.shape = shape;
+        this.from = from;
+        this.to = to;
+    }
+
+    static ShapeSlice of(ShapePolyline shape, int from, int to) {
+        return new ShapeSlice(shape, from, to);
+    }
+
+    public static ShapeSlice empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return shape == null;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    /** The sliced points as a view over the shape arrays. */
+    public List<Coordinates> path() {
+        return isEmpty() ? new ArrayList<>() : shape.subPath(from, to);
+    }
+
+    public double distanceKm() {
+        return isEmpty() ? 0.0 : shape.distanceKm(from, to);
+    }
+}
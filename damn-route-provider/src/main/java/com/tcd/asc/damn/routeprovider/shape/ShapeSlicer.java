@@ -0,0 +1,60 @@
+package com.tcd.asc.damn.routeprovider.shape;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+
+import java.util.List;
+
+/**
+ * Cuts a shape down to the stretch served between the first and last stop of a segment.
+ * <p>
+ * Stops are visited in travel order and each one is projected onto the nearest shape point at or after
+ * the previous stop's projection. The walk for a stop ends once it has found a point within
+ * {@link #MAX_STOP_OFFSET_KM} and then moved out of that radius again, so a segment costs one pass over
+ * the shape instead of a full nearest-point scan per stop.
+ */
+public final class ShapeSlicer {
+
+    /** Stops further than this from every shape point are ignored. */
+    public static final double MAX_STOP_OFFSET_KM = 0.1;
+
+    private ShapeSlicer() {
+    }
+
+    public static ShapeSlice slice(ShapePolyline shape, List<Stop> stops) {
+        if (shape == null || shape.size() == 0 || stops.isEmpty()) {
+            return ShapeSlice.empty();
+        }
+
+        int cursor = 0;
+        int first = -1;
+        int last = -1;
+        for (Stop stop : stops) {
+            int match = project(shape, stop, cursor);
+            if (match < 0) {
+                continue;
+            }
+            cursor = match;
+            first = first < 0 ? match : Math.min(first, match);
+            last = Math.max(last, match);
+        }
+
+        return first < 0 ? ShapeSlice.empty() : ShapeSlice.of(shape, first, last);
+    }
+
+    /** Returns the index of the shape point nearest to {@code stop} at or after {@code from}, or -1. */
+    static int project(ShapePolyline shape, Stop stop, int from) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = from; i < shape.size(); i++) {
+            double distance = GeoGridIndex.distanceKm(stop.getStopLat(), stop.getStopLon(), shape.lat(i), shape.lon(i));
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            } else if (bestDistance <= MAX_STOP_OFFSET_KM && distance > MAX_STOP_OFFSET_KM) {
+                break; // Left the stop's neighbourhood
+            }
+        }
+        return bestDistance <= MAX_STOP_OFFSET_KM ? best : -1;
+    }
+}
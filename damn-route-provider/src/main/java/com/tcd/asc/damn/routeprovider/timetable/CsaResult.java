@@ -0,0 +1,89 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Labels of a {@link CsaRouter} search: one earliest arrival per stop, remembering the ride or footpath that
+ * produced it.
+ */
+public final class CsaResult implements TimetableResult {
+
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    static final byte SOURCE = 1;
+    static final byte RIDE = 2;
+    static final byte TRANSFER = 3;
+
+    private final Timetable timetable;
+
+    final int[] arrival;
+    final byte[] kind;
+    final int[] transferFrom;
+    final int[] rideArrival;
+    final int[] rideTrip;
+    final int[] rideBoardPosition;
+    final int[] rideAlightPosition;
+
+    CsaResult(Timetable timetable) {
+        int n = timetable.stopCount();
+        this.timetable = timetable;
+        this.arrival = new int[n];
+        Arrays.fill(arrival, UNREACHED);
+        this.kind = new byte[n];
+        this.transferFrom = new int[n];
+        this.rideArrival = new int[n];
+        this.rideTrip = new int[n];
+        this.rideBoardPosition = new int[n];
+        this.rideAlightPosition = new int[n];
+    }
+
+    @Override
+    public boolean isReached(int stop) {
+        return arrival[stop] != UNREACHED;
+    }
+
+    @Override
+    public int arrival(int stop) {
+        return arrival[stop];
+    }
+
+    @Override
+    public Journey journeyTo(int stop) {
+        if (!isReached(stop)) {
+            return null;
+        }
+        int destination = stop;
+        LinkedList<Journey.Leg> legs = new LinkedList<>();
+        // Every step goes back to an earlier or equal time; the bound only guards against zero-duration cycles
+        for (int steps = 0; kind[stop] != SOURCE; steps++) {
+            if (steps > timetable.stopCount()) {
+                return null;
+            }
+            if (kind[stop] == TRANSFER) {
+                int from = transferFrom[stop];
+                legs.addFirst(new Journey.Leg(null, List.of(timetable.stopId(from), timetable.stopId(stop)),
+                        rideArrival[from], arrival[stop]));
+                stop = from;
+            }
+            int trip = rideTrip[stop];
+            if (trip == -1) {
+                break; // Footpath from a source
+            }
+            int pattern = timetable.tripPattern(trip);
+            int board = rideBoardPosition[stop];
+            int alight = rideAlightPosition[stop];
+            List<String> stopIds = new ArrayList<>(alight - board + 1);
+            for (int i = board; i <= alight; i++) {
+                stopIds.add(timetable.stopId(timetable.patternStop(pattern, i)));
+            }
+            legs.addFirst(new Journey.Leg(timetable.tripId(trip), stopIds,
+                    timetable.departure(trip, board), timetable.arrival(trip, alight)));
+            stop = timetable.patternStop(pattern, board);
+        }
+        return new Journey(timetable.stopId(stop), timetable.stopId(destination), rideArrival[stop], arrival[destination],
+                new ArrayList<>(legs));
+    }
+}
@@ -0,0 +1,92 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import java.util.Arrays;
+
+/**
+ * Connection Scan earliest-arrival search over a {@link Timetable}.
+ * <p>
+ * Connections are scanned once in departure order, starting at the earliest source time. A connection is usable if
+ * its trip was already boarded or its departure stop is reached in time; footpaths are relaxed whenever a connection
+ * improves a stop. The scan stops once every target has been reached no later than the next departure.
+ */
+public final class CsaRouter implements TimetableRouter {
+
+    private final Timetable timetable;
+
+    public CsaRouter(Timetable timetable) {
+        this.timetable = timetable;
+    }
+
+    @Override
+    public CsaResult route(int[] sources, int[] departureTimes, int[] targets) {
+        CsaResult result = new CsaResult(timetable);
+        int[] arrival = result.arrival;
+        int[] boardPosition = new int[timetable.tripCount()];
+        Arrays.fill(boardPosition, -1);
+
+        int earliest = CsaResult.UNREACHED;
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            if (departureTimes[i] < arrival[source]) {
+                arrival[source] = departureTimes[i];
+                result.kind[source] = CsaResult.SOURCE;
+                result.rideArrival[source] = departureTimes[i];
+                result.rideTrip[source] = -1;
+                earliest = Math.min(earliest, departureTimes[i]);
+            }
+        }
+        for (int source : sources) {
+            relaxTransfers(result, source);
+        }
+        if (earliest == CsaResult.UNREACHED) {
+            return result;
+        }
+
+        for (int c = timetable.firstConnection(earliest); c < timetable.connectionCount(); c++) {
+            int departure = timetable.connectionDeparture(c);
+            if (departure >= latestTargetArrival(arrival, targets)) {
+                break;
+            }
+            int trip = timetable.connectionTrip(c);
+            if (boardPosition[trip] == -1) {
+                if (arrival[timetable.connectionFrom(c)] > departure) {
+                    continue;
+                }
+                boardPosition[trip] = timetable.connectionPosition(c);
+            }
+            int to = timetable.connectionTo(c);
+            int connectionArrival = timetable.connectionArrival(c);
+            if (connectionArrival < arrival[to]) {
+                arrival[to] = connectionArrival;
+                result.kind[to] = CsaResult.RIDE;
+                result.rideArrival[to] = connectionArrival;
+                result.rideTrip[to] = trip;
+                result.rideBoardPosition[to] = boardPosition[trip];
+                result.rideAlightPosition[to] = timetable.connectionPosition(c) + 1;
+                relaxTransfers(result, to);
+            }
+        }
+        return result;
+    }
+
+    private void relaxTransfers(CsaResult result, int stop) {
+        int rideArrival = result.rideArrival[stop];
+        for (int t = timetable.firstTransfer(stop); t < timetable.lastTransfer(stop); t++) {
+            int next = timetable.transferTarget(t);
+            int walkArrival = rideArrival + timetable.transferSeconds(t);
+            if (walkArrival < result.arrival[next]) {
+                result.arrival[next] = walkArrival;
+                result.kind[next] = CsaResult.TRANSFER;
+                result.transferFrom[next] = stop;
+            }
+        }
+    }
+
+    private static int latestTargetArrival(int[] arrival, int[] targets) {
+        int latest = 0;
+        for (int target : targets) {
+            latest = Math.max(latest, arrival[target]);
+        }
+        return latest;
+    }
+}
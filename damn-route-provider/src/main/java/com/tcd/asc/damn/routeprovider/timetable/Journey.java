@@ -0,0 +1,39 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A timetable itinerary between two stops: alternating rides and footpaths, with times in seconds since midnight.
+ * A journey that starts at its destination has no legs.
+ */
+@Data
+@AllArgsConstructor
+public class Journey {
+    private String originStopId;
+    private String destinationStopId;
+    private int departure;
+    private int arrival;
+    private List<Leg> legs;
+
+    public int rideCount() {
+        return (int) legs.stream().filter(leg -> !leg.isTransfer()).count();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Leg {
+        /** Trip ridden on this leg, or null for a footpath. */
+        private String tripId;
+        /** Every stop visited from boarding to alighting; just the two ends for a footpath. */
+        private List<String> stopIds;
+        private int departure;
+        private int arrival;
+
+        public boolean isTransfer() {
+            return tripId == null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Per-round labels of a {@link RaptorRouter} search. Every label remembers how it was reached so the journey to any
+ * stop can be rebuilt by walking back through the rounds.
+ */
+public final class RaptorResult implements TimetableResult {
+
+    private final Timetable timetable;
+    private final int stopCount;
+    private int rounds;
+
+    final int[][] arrival;
+    final byte[][] kind;
+    final int[][] transferFrom;
+    final int[][] rideArrival;
+    final int[][] rideTrip;
+    final int[][] rideBoardPosition;
+    final int[][] rideAlightPosition;
+
+    RaptorResult(Timetable timetable, int maxRounds, int stopCount) {
+        this.timetable = timetable;
+        this.stopCount = stopCount;
+        this.arrival = new int[maxRounds][];
+        this.kind = new byte[maxRounds][];
+        this.transferFrom = new int[maxRounds][];
+        this.rideArrival = new int[maxRounds][];
+        this.rideTrip = new int[maxRounds][];
+        this.rideBoardPosition = new int[maxRounds][];
+        this.rideAlightPosition = new int[maxRounds][];
+    }
+
+    /** Allocates round {@code k}, carrying over the labels of round {@code k - 1}. */
+    void startRound(int k) {
+        if (k == 0) {
+            arrival[0] = new int[stopCount];
+            Arrays.fill(arrival[0], RaptorRouter.UNREACHED);
+            kind[0] = new byte[stopCount];
+        } else {
+            arrival[k] = arrival[k - 1].clone();
+            kind[k] = new byte[stopCount];
+            for (int stop = 0; stop < stopCount; stop++) {
+                if (arrival[k][stop] != RaptorRouter.UNREACHED) {
+                    kind[k][stop] = RaptorRouter.CARRIED;
+                }
+            }
+        }
+        transferFrom[k] = new int[stopCount];
+        rideArrival[k] = new int[stopCount];
+        rideTrip[k] = new int[stopCount];
+        rideBoardPosition[k] = new int[stopCount];
+        rideAlightPosition[k] = new int[stopCount];
+        rounds = k + 1;
+    }
+
+    @Override
+    public boolean isReached(int stop) {
+        return arrival(stop) != RaptorRouter.UNREACHED;
+    }
+
+    @Override
+    public int arrival(int stop) {
+        return arrival[rounds - 1][stop];
+    }
+
+    /** Among equally early journeys, prefers the one with fewest rides. */
+    @Override
+    public Journey journeyTo(int stop) {
+        int k = -1;
+        for (int round = 0; round < rounds; round++) {
+            if (arrival[round][stop] != RaptorRouter.UNREACHED && (k == -1 || arrival[round][stop] < arrival[k][stop])) {
+                k = round;
+            }
+        }
+        if (k == -1) {
+            return null;
+        }
+
+        int destination = stop;
+        int arrivalTime = arrival[k][stop];
+        LinkedList<Journey.Leg> legs = new LinkedList<>();
+        while (true) {
+            while (kind[k][stop] == RaptorRouter.CARRIED) {
+                k--;
+            }
+            if (kind[k][stop] == RaptorRouter.SOURCE) {
+                break;
+            }
+            if (kind[k][stop] == RaptorRouter.TRANSFER) {
+                int from = transferFrom[k][stop];
+                legs.addFirst(new Journey.Leg(null, List.of(timetable.stopId(from), timetable.stopId(stop)),
+                        rideArrival[k][from], arrival[k][stop]));
+                stop = from;
+            }
+            int trip = rideTrip[k][stop];
+            if (trip == -1) {
+                break; // Footpath from a source
+            }
+            int pattern = timetable.tripPattern(trip);
+            int board = rideBoardPosition[k][stop];
+            int alight = rideAlightPosition[k][stop];
+            List<String> stopIds = new ArrayList<>(alight - board + 1);
+            for (int i = board; i <= alight; i++) {
+                stopIds.add(timetable.stopId(timetable.patternStop(pattern, i)));
+            }
+            legs.addFirst(new Journey.Leg(timetable.tripId(trip), stopIds,
+                    timetable.departure(trip, board), timetable.arrival(trip, alight)));
+            stop = timetable.patternStop(pattern, board);
+            k--;
+        }
+        return new Journey(timetable.stopId(stop), timetable.stopId(destination), rideArrival[0][stop], arrivalTime,
+                new ArrayList<>(legs));
+    }
+}
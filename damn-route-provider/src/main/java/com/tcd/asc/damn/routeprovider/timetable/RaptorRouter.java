@@ -0,0 +1,164 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import java.util.Arrays;
+
+/**
+ * Round-based earliest-arrival search (RAPTOR) over a {@link Timetable}.
+ * <p>
+ * Round {@code k} holds the best arrival at every stop using at most {@code k} trips. Each round scans only the
+ * patterns serving stops improved in the previous round, then relaxes footpaths from stops improved by a ride.
+ * Once every target is reached, arrivals later than the latest of them are pruned.
+ */
+public final class RaptorRouter implements TimetableRouter {
+
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    static final byte SOURCE = 1;
+    static final byte RIDE = 2;
+    static final byte TRANSFER = 3;
+    static final byte CARRIED = 4;
+
+    private final Timetable timetable;
+    private final int maxRides;
+
+    public RaptorRouter(Timetable timetable, int maxRides) {
+        this.timetable = timetable;
+        this.maxRides = maxRides;
+    }
+
+    /** Runs rounds until no stop improves or {@code maxRides} rounds have run. */
+    @Override
+    public RaptorResult route(int[] sources, int[] departureTimes, int[] targets) {
+        int n = timetable.stopCount();
+        RaptorResult result = new RaptorResult(timetable, maxRides + 1, n);
+        int[] best = new int[n];
+        Arrays.fill(best, UNREACHED);
+        boolean[] isTarget = new boolean[n];
+        for (int target : targets) {
+            isTarget[target] = true;
+        }
+        int targetBound = UNREACHED;
+
+        boolean[] marked = new boolean[n];
+        int[] markedStops = new int[n];
+        int markedCount = 0;
+
+        result.startRound(0);
+        for (int i = 0; i < sources.length; i++) {
+            int source = sources[i];
+            if (departureTimes[i] < best[source]) {
+                result.arrival[0][source] = departureTimes[i];
+                result.kind[0][source] = SOURCE;
+                result.rideArrival[0][source] = departureTimes[i];
+                result.rideTrip[0][source] = -1;
+                best[source] = departureTimes[i];
+                if (!marked[source]) {
+                    marked[source] = true;
+                    markedStops[markedCount++] = source;
+                }
+            }
+        }
+        targetBound = targetBound(best, targets);
+
+        int[] queuedPosition = new int[timetable.patternCount()];
+        Arrays.fill(queuedPosition, -1);
+        int[] queuedPatterns = new int[timetable.patternCount()];
+
+        for (int k = 0; ; k++) {
+            // Footpaths from stops improved by a ride (or seeded as a source) in this round
+            int riddenCount = markedCount;
+            for (int m = 0; m < riddenCount; m++) {
+                int stop = markedStops[m];
+                int rideArrival = result.rideArrival[k][stop];
+                for (int t = timetable.firstTransfer(stop); t < timetable.lastTransfer(stop); t++) {
+                    int next = timetable.transferTarget(t);
+                    int arrival = rideArrival + timetable.transferSeconds(t);
+                    if (arrival < Math.min(best[next], targetBound)) {
+                        result.arrival[k][next] = arrival;
+                        result.kind[k][next] = TRANSFER;
+                        result.transferFrom[k][next] = stop;
+                        best[next] = arrival;
+                        if (isTarget[next]) targetBound = targetBound(best, targets);
+                        if (!marked[next]) {
+                            marked[next] = true;
+                            markedStops[markedCount++] = next;
+                        }
+                    }
+                }
+            }
+
+            if (k == maxRides || markedCount == 0) {
+                break;
+            }
+
+            // Queue every pattern through a marked stop from the earliest marked position
+            int queuedCount = 0;
+            for (int m = 0; m < markedCount; m++) {
+                int stop = markedStops[m];
+                marked[stop] = false;
+                for (int i = timetable.firstStopPattern(stop); i < timetable.lastStopPattern(stop); i++) {
+                    int pattern = timetable.stopPattern(i);
+                    int position = timetable.stopPatternPosition(i);
+                    if (queuedPosition[pattern] == -1) {
+                        queuedPatterns[queuedCount++] = pattern;
+                        queuedPosition[pattern] = position;
+                    } else if (position < queuedPosition[pattern]) {
+                        queuedPosition[pattern] = position;
+                    }
+                }
+            }
+            markedCount = 0;
+
+            int round = k + 1;
+            result.startRound(round);
+            int[] previous = result.arrival[k];
+            for (int q = 0; q < queuedCount; q++) {
+                int pattern = queuedPatterns[q];
+                int from = queuedPosition[pattern];
+                queuedPosition[pattern] = -1;
+
+                int trip = -1;
+                int boardPosition = -1;
+                int length = timetable.patternLength(pattern);
+                for (int i = from; i < length; i++) {
+                    int stop = timetable.patternStop(pattern, i);
+                    if (trip != -1) {
+                        int arrival = timetable.arrival(trip, i);
+                        if (arrival < Math.min(best[stop], targetBound)) {
+                            result.arrival[round][stop] = arrival;
+                            result.kind[round][stop] = RIDE;
+                            result.rideArrival[round][stop] = arrival;
+                            result.rideTrip[round][stop] = trip;
+                            result.rideBoardPosition[round][stop] = boardPosition;
+                            result.rideAlightPosition[round][stop] = i;
+                            best[stop] = arrival;
+                            if (isTarget[stop]) targetBound = targetBound(best, targets);
+                            if (!marked[stop]) {
+                                marked[stop] = true;
+                                markedStops[markedCount++] = stop;
+                            }
+                        }
+                    }
+                    // Board (or switch to) the earliest trip catchable with the previous round's arrival
+                    int ready = previous[stop];
+                    if (ready != UNREACHED && (trip == -1 || ready <= timetable.departure(trip, i))) {
+                        int candidate = timetable.earliestTrip(pattern, i, ready);
+                        if (candidate != -1 && (trip == -1 || candidate < trip)) {
+                            trip = candidate;
+                            boardPosition = i;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int targetBound(int[] best, int[] targets) {
+        int bound = 0;
+        for (int target : targets) {
+            bound = Math.max(bound, best[target]);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,517 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import java.util.*;
+
+/**
+ * Immutable timetable in flat arrays, laid out for RAPTOR and connection scanning.
+ * <p>
+ * Trips that serve the same stop sequence are grouped into patterns. Pattern {@code p} visits
+ * {@code patternStops[patternStopOffsets[p] .. patternStopOffsets[p + 1])} and runs the trips
+ * {@code [patternTripOffsets[p], patternTripOffsets[p + 1])}, sorted by departure. Trips within a pattern never
+ * overtake each other, so the earliest trip catchable at any stop can be found by binary search. The stop times of
+ * trip {@code t} at pattern position {@code i} live at {@code tripTimeOffsets[t] + i} in the arrival/departure
+ * arrays, as seconds since midnight.
+ * <p>
+ * The same trips are also flattened into elementary connections (one hop of one trip) sorted by departure, for
+ * connection scanning. Footpaths between nearby stops are stored in CSR form per stop.
+ */
+public final class Timetable {
+
+    private final String[] stopIds;
+    private final Map<String, Integer> indexByStopId;
+
+    private final int[] patternStopOffsets;
+    private final int[] patternStops;
+    private final int[] patternTripOffsets;
+
+    private final String[] tripIds;
+    private final int[] tripPatterns;
+    private final int[] tripTimeOffsets;
+    private final int[] arrivals;
+    private final int[] departures;
+
+    private final int[] stopPatternOffsets;
+    private final int[] stopPatterns;
+    private final int[] stopPatternPositions;
+
+    private final int[] transferOffsets;
+    private final int[] transferTargets;
+    private final int[] transferSeconds;
+
+    private final int[] connectionDepartures;
+    private final int[] connectionArrivals;
+    private final int[] connectionFromStops;
+    private final int[] connectionToStops;
+    private final int[] connectionTrips;
+    private final int[] connectionPositions;
+
+    private Timetable(String[] stopIds, Map<String, Integer> indexByStopId,
+                      int[] patternStopOffsets, int[] patternStops, int[] patternTripOffsets,
+                      String[] tripIds, int[] tripPatterns, int[] tripTimeOffsets, int[] arrivals, int[] departures,
+                      int[] stopPatternOffsets, int[] stopPatterns, int[] stopPatternPositions,
+                      int[] transferOffsets, int[] transferTargets, int[] transferSeconds,
+                      int[] connectionDepartures, int[] connectionArrivals, int[] connectionFromStops,
+                      int[] connectionToStops, int[] connectionTrips, int[] connectionPositions) {
+        this.stopIds = stopIds;
+        this.indexByStopId = indexByStopId;
+        this.patternStopOffsets = patternStopOffsets;
+        this.patternStops = patternStops;
+        this.patternTripOffsets = patternTripOffsets;
+        this.tripIds = tripIds;
+        this.tripPatterns = tripPatterns;
+        this.tripTimeOffsets = tripTimeOffsets;
+        this.arrivals = arrivals;
+        this.departures = departures;
+        this.stopPatternOffsets = stopPatternOffsets;
+        this.stopPatterns = stopPatterns;
+        this.stopPatternPositions = stopPatternPositions;
+        this.transferOffsets = transferOffsets;
+        this.transferTargets = transferTargets;
+        this.transferSeconds = transferSeconds;
+        this.connectionDepartures = connectionDepartures;
+        this.connectionArrivals = connectionArrivals;
+        this.connectionFromStops = connectionFromStops;
+        this.connectionToStops = connectionToStops;
+        this.connectionTrips = connectionTrips;
+        this.connectionPositions = connectionPositions;
+    }
+
+    public int stopCount() {
+        return stopIds.length;
+    }
+
+    public int patternCount() {
+        return patternTripOffsets.length - 1;
+    }
+
+    public int tripCount() {
+        return tripIds.length;
+    }
+
+    /** Returns the dense index of a stop, or -1 if no trip or footpath touches it. */
+    public int indexOf(String stopId) {
+        Integer index = indexByStopId.get(stopId);
+        return index != null ? index : -1;
+    }
+
+    public String stopId(int stop) {
+        return stopIds[stop];
+    }
+
+    public int patternLength(int pattern) {
+        return patternStopOffsets[pattern + 1] - patternStopOffsets[pattern];
+    }
+
+    public int patternStop(int pattern, int position) {
+        return patternStops[patternStopOffsets[pattern] + position];
+    }
+
+    public int firstTrip(int pattern) {
+        return patternTripOffsets[pattern];
+    }
+
+    public int lastTrip(int pattern) {
+        return patternTripOffsets[pattern + 1];
+    }
+
+    public String tripId(int trip) {
+        return tripIds[trip];
+    }
+
+    public int tripPattern(int trip) {
+        return tripPatterns[trip];
+    }
+
+    public int arrival(int trip, int position) {
+        return arrivals[tripTimeOffsets[trip] + position];
+    }
+
+    public int departure(int trip, int position) {
+        return departures[tripTimeOffsets[trip] + position];
+    }
+
+    /** Returns the first trip of the pattern leaving {@code position} at or after {@code time}, or -1. */
+    public int earliestTrip(int pattern, int position, int time) {
+        int lo = patternTripOffsets[pattern];
+        int hi = patternTripOffsets[pattern + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (departure(mid, position) < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < patternTripOffsets[pattern + 1] ? lo : -1;
+    }
+
+    public int firstStopPattern(int stop) {
+        return stopPatternOffsets[stop];
+    }
+
+    public int lastStopPattern(int stop) {
+        return stopPatternOffsets[stop + 1];
+    }
+
+    public int stopPattern(int index) {
+        return stopPatterns[index];
+    }
+
+    /** Position of the stop within {@link #stopPattern(int)}, for the same index. */
+    public int stopPatternPosition(int index) {
+        return stopPatternPositions[index];
+    }
+
+    public int firstTransfer(int stop) {
+        return transferOffsets[stop];
+    }
+
+    public int lastTransfer(int stop) {
+        return transferOffsets[stop + 1];
+    }
+
+    public int transferTarget(int transfer) {
+        return transferTargets[transfer];
+    }
+
+    public int transferSeconds(int transfer) {
+        return transferSeconds[transfer];
+    }
+
+    public int connectionCount() {
+        return connectionDepartures.length;
+    }
+
+    /** Returns the first connection departing at or after {@code time}, or {@link #connectionCount()} if none. */
+    public int firstConnection(int time) {
+        int lo = 0;
+        int hi = connectionDepartures.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (connectionDepartures[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public int connectionDeparture(int connection) {
+        return connectionDepartures[connection];
+    }
+
+    public int connectionArrival(int connection) {
+        return connectionArrivals[connection];
+    }
+
+    public int connectionFrom(int connection) {
+        return connectionFromStops[connection];
+    }
+
+    public int connectionTo(int connection) {
+        return connectionToStops[connection];
+    }
+
+    public int connectionTrip(int connection) {
+        return connectionTrips[connection];
+    }
+
+    /** Pattern position of the stop the connection departs from; it arrives at the next position. */
+    public int connectionPosition(int connection) {
+        return connectionPositions[connection];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects trips and footpaths, then groups trips into non-overtaking patterns on {@link #build()}.
+     */
+    public static final class Builder {
+        /** Longest walk, in seconds, that chained footpaths are closed up to unless {@link #maxWalkSeconds} is set. */
+        public static final int DEFAULT_MAX_WALK_SECONDS = 900;
+
+        private final List<String> stopIds = new ArrayList<>();
+        private final Map<String, Integer> indexByStopId = new HashMap<>();
+        private final List<TripTimes> trips = new ArrayList<>();
+        private final List<int[]> transfers = new ArrayList<>();
+        private int maxWalkSeconds = DEFAULT_MAX_WALK_SECONDS;
+
+        private Builder() {
+        }
+
+        /**
+         * Caps the walks made of several footpaths: stops further apart on foot than this are not linked, which
+         * keeps the closure local on densely connected networks. Single footpaths are always kept.
+         */
+        public Builder maxWalkSeconds(int seconds) {
+            this.maxWalkSeconds = Math.max(0, seconds);
+            return this;
+        }
+
+        public Builder addStop(String stopId) {
+            stop(stopId);
+            return this;
+        }
+
+        /**
+         * Adds a trip visiting {@code stopIds} in order. Arrival and departure times are seconds since midnight and
+         * must not decrease along the trip; trips that do, or that visit fewer than two stops, are ignored and
+         * reported via the return value.
+         */
+        public boolean addTrip(String tripId, List<String> tripStopIds, int[] tripArrivals, int[] tripDepartures) {
+            int n = tripStopIds.size();
+            if (n < 2 || tripArrivals.length != n || tripDepartures.length != n) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (tripDepartures[i] < tripArrivals[i] || (i > 0 && tripArrivals[i] < tripDepartures[i - 1])) {
+                    return false;
+                }
+            }
+            int[] stops = new int[n];
+            for (int i = 0; i < n; i++) {
+                stops[i] = stop(tripStopIds.get(i));
+            }
+            trips.add(new TripTimes(tripId, stops, tripArrivals.clone(), tripDepartures.clone()));
+            return true;
+        }
+
+        /**
+         * Adds a directed footpath. Footpaths are closed transitively on {@link #build()}, up to the
+         * {@link #maxWalkSeconds} limit, so the routers never need to chain two walks.
+         */
+        public Builder addTransfer(String fromStopId, String toStopId, int seconds) {
+            int from = stop(fromStopId);
+            int to = stop(toStopId);
+            if (from != to) {
+                transfers.add(new int[]{from, to, Math.max(0, seconds)});
+            }
+            return this;
+        }
+
+        public Timetable build() {
+            int stopCount = stopIds.size();
+
+            // Group trips by stop sequence, then split each group so that no trip overtakes another
+            Map<String, List<TripTimes>> bySequence = new LinkedHashMap<>();
+            for (TripTimes trip : trips) {
+                bySequence.computeIfAbsent(Arrays.toString(trip.stops), k -> new ArrayList<>()).add(trip);
+            }
+            List<List<TripTimes>> patterns = new ArrayList<>();
+            for (List<TripTimes> group : bySequence.values()) {
+                group.sort(Comparator.comparingInt((TripTimes trip) -> trip.departures[0])
+                        .thenComparingInt(trip -> trip.arrivals[trip.arrivals.length - 1]));
+                List<List<TripTimes>> variants = new ArrayList<>();
+                for (TripTimes trip : group) {
+                    List<TripTimes> target = null;
+                    for (List<TripTimes> variant : variants) {
+                        if (!overtakes(variant.get(variant.size() - 1), trip)) {
+                            target = variant;
+                            break;
+                        }
+                    }
+                    if (target == null) {
+                        target = new ArrayList<>();
+                        variants.add(target);
+                    }
+                    target.add(trip);
+                }
+                patterns.addAll(variants);
+            }
+
+            int patternCount = patterns.size();
+            int[] patternStopOffsets = new int[patternCount + 1];
+            int[] patternTripOffsets = new int[patternCount + 1];
+            int timeCount = 0;
+            for (int p = 0; p < patternCount; p++) {
+                List<TripTimes> pattern = patterns.get(p);
+                int length = pattern.get(0).stops.length;
+                patternStopOffsets[p + 1] = patternStopOffsets[p] + length;
+                patternTripOffsets[p + 1] = patternTripOffsets[p] + pattern.size();
+                timeCount += length * pattern.size();
+            }
+
+            int[] patternStops = new int[patternStopOffsets[patternCount]];
+            String[] tripIds = new String[trips.size()];
+            int[] tripPatterns = new int[trips.size()];
+            int[] tripTimeOffsets = new int[trips.size()];
+            int[] arrivals = new int[timeCount];
+            int[] departures = new int[timeCount];
+            int trip = 0;
+            int timeOffset = 0;
+            for (int p = 0; p < patternCount; p++) {
+                List<TripTimes> pattern = patterns.get(p);
+                int[] stops = pattern.get(0).stops;
+                System.arraycopy(stops, 0, patternStops, patternStopOffsets[p], stops.length);
+                for (TripTimes times : pattern) {
+                    tripIds[trip] = times.tripId;
+                    tripPatterns[trip] = p;
+                    tripTimeOffsets[trip] = timeOffset;
+                    System.arraycopy(times.arrivals, 0, arrivals, timeOffset, stops.length);
+                    System.arraycopy(times.departures, 0, departures, timeOffset, stops.length);
+                    timeOffset += stops.length;
+                    trip++;
+                }
+            }
+
+            // Stop -> (pattern, position) index; a stop visited twice by one pattern keeps its first position
+            int[] stopPatternOffsets = new int[stopCount + 1];
+            List<int[]> stopPatternEntries = new ArrayList<>();
+            for (int p = 0; p < patternCount; p++) {
+                Set<Integer> seen = new HashSet<>();
+                for (int i = patternStopOffsets[p]; i < patternStopOffsets[p + 1]; i++) {
+                    if (seen.add(patternStops[i])) {
+                        stopPatternEntries.add(new int[]{patternStops[i], p, i - patternStopOffsets[p]});
+                        stopPatternOffsets[patternStops[i] + 1]++;
+                    }
+                }
+            }
+            int[][] stopPatternIndex = packByStop(stopPatternEntries, stopPatternOffsets, stopCount);
+
+            List<int[]> closedTransfers = closeTransfers(stopCount);
+            int[] transferOffsets = new int[stopCount + 1];
+            for (int[] transfer : closedTransfers) {
+                transferOffsets[transfer[0] + 1]++;
+            }
+            int[][] transferIndex = packByStop(closedTransfers, transferOffsets, stopCount);
+
+            // One connection per hop of every trip, sorted by departure; ties keep trip and stop order
+            long[] connectionKeys = new long[timeCount - trips.size()];
+            int connectionCount = 0;
+            for (int t = 0; t < tripIds.length; t++) {
+                int length = patternStopOffsets[tripPatterns[t] + 1] - patternStopOffsets[tripPatterns[t]];
+                for (int i = 0; i < length - 1; i++) {
+                    connectionKeys[connectionCount++] = ((long) departures[tripTimeOffsets[t] + i] << 32) | (tripTimeOffsets[t] + i);
+                }
+            }
+            Arrays.sort(connectionKeys);
+            int[] connectionDepartures = new int[connectionCount];
+            int[] connectionArrivals = new int[connectionCount];
+            int[] connectionFromStops = new int[connectionCount];
+            int[] connectionToStops = new int[connectionCount];
+            int[] connectionTrips = new int[connectionCount];
+            int[] connectionPositions = new int[connectionCount];
+            int[] tripByTimeSlot = new int[timeCount];
+            for (int t = 0; t < tripIds.length; t++) {
+                int length = patternStopOffsets[tripPatterns[t] + 1] - patternStopOffsets[tripPatterns[t]];
+                Arrays.fill(tripByTimeSlot, tripTimeOffsets[t], tripTimeOffsets[t] + length, t);
+            }
+            for (int c = 0; c < connectionCount; c++) {
+                int slot = (int) connectionKeys[c];
+                int t = tripByTimeSlot[slot];
+                int position = slot - tripTimeOffsets[t];
+                int patternOffset = patternStopOffsets[tripPatterns[t]];
+                connectionDepartures[c] = departures[slot];
+                connectionArrivals[c] = arrivals[slot + 1];
+                connectionFromStops[c] = patternStops[patternOffset + position];
+                connectionToStops[c] = patternStops[patternOffset + position + 1];
+                connectionTrips[c] = t;
+                connectionPositions[c] = position;
+            }
+
+            return new Timetable(stopIds.toArray(new String[0]), new HashMap<>(indexByStopId),
+                    patternStopOffsets, patternStops, patternTripOffsets,
+                    tripIds, tripPatterns, tripTimeOffsets, arrivals, departures,
+                    stopPatternOffsets, stopPatternIndex[0], stopPatternIndex[1],
+                    transferOffsets, transferIndex[0], transferIndex[1],
+                    connectionDepartures, connectionArrivals, connectionFromStops,
+                    connectionToStops, connectionTrips, connectionPositions);
+        }
+
+        private int stop(String stopId) {
+            Integer index = indexByStopId.get(stopId);
+            if (index == null) {
+                index = stopIds.size();
+                indexByStopId.put(stopId, index);
+                stopIds.add(stopId);
+            }
+            return index;
+        }
+
+        /**
+         * Shortest walk from every stop to every stop reachable on foot within {@code maxWalkSeconds}, by Dijkstra
+         * over the footpaths. The bound keeps each search to the stops around its origin, so the closure grows with
+         * the number of stops rather than its square.
+         */
+        private List<int[]> closeTransfers(int stopCount) {
+            Map<Integer, List<int[]>> outgoing = new HashMap<>();
+            for (int[] transfer : transfers) {
+                outgoing.computeIfAbsent(transfer[0], k -> new ArrayList<>()).add(transfer);
+            }
+            List<int[]> closed = new ArrayList<>();
+            Map<Integer, Integer> walk = new HashMap<>();
+            PriorityQueue<int[]> queue = new PriorityQueue<>(Comparator.comparingInt((int[] entry) -> entry[1]));
+            for (int from : outgoing.keySet()) {
+                walk.clear();
+                queue.clear();
+                walk.put(from, 0);
+                queue.add(new int[]{from, 0});
+                while (!queue.isEmpty()) {
+                    int[] entry = queue.poll();
+                    if (entry[1] > walk.get(entry[0])) continue;
+                    if (entry[0] != from) {
+                        closed.add(new int[]{from, entry[0], entry[1]});
+                    }
+                    for (int[] transfer : outgoing.getOrDefault(entry[0], List.of())) {
+                        int seconds = entry[1] + transfer[2];
+                        if (seconds > maxWalkSeconds && entry[0] != from) {
+                            continue; // Too far on foot; direct footpaths are kept whatever their length
+                        }
+                        Integer known = walk.get(transfer[1]);
+                        if (known == null || seconds < known) {
+                            walk.put(transfer[1], seconds);
+                            queue.add(new int[]{transfer[1], seconds});
+                        }
+                    }
+                }
+            }
+            return closed;
+        }
+
+        /** True if {@code next} would arrive or depart before {@code previous} anywhere along the pattern. */
+        private static boolean overtakes(TripTimes previous, TripTimes next) {
+            for (int i = 0; i < next.stops.length; i++) {
+                if (next.arrivals[i] < previous.arrivals[i] || next.departures[i] < previous.departures[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Counting sort of {@code {stop, a, b}} entries into two parallel arrays. {@code offsets} holds per-stop
+         * counts shifted by one and is turned into CSR offsets in place.
+         */
+        private static int[][] packByStop(List<int[]> entries, int[] offsets, int stopCount) {
+            for (int i = 0; i < stopCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] cursor = Arrays.copyOf(offsets, stopCount);
+            int[] first = new int[entries.size()];
+            int[] second = new int[entries.size()];
+            for (int[] entry : entries) {
+                int slot = cursor[entry[0]]++;
+                first[slot] = entry[1];
+                second[slot] = entry[2];
+            }
+            return new int[][]{first, second};
+        }
+    }
+
+    private static final class TripTimes {
+        private final String tripId;
+        private final int[] stops;
+        private final int[] arrivals;
+        private final int[] departures;
+
+        private TripTimes(String tripId, int[] stops, int[] arrivals, int[] departures) {
+            this.tripId = tripId;
+            this.stops = stops;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+    }
+}
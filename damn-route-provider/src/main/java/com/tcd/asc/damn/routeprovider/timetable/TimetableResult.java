@@ -0,0 +1,15 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+/**
+ * Outcome of a {@link TimetableRouter} search. Arrivals are only guaranteed to be earliest at the search targets.
+ */
+public interface TimetableResult {
+
+    boolean isReached(int stop);
+
+    /** Earliest arrival at a stop in seconds since midnight, or {@link Integer#MAX_VALUE} if it was not reached. */
+    int arrival(int stop);
+
+    /** Rebuilds the journey to {@code stop}, or returns null if the stop was not reached. */
+    Journey journeyTo(int stop);
+}
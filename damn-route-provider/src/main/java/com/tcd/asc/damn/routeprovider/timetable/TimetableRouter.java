@@ -0,0 +1,14 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+/**
+ * Earliest-arrival search over a {@link Timetable}. Implementations are interchangeable and must agree on arrival
+ * times; they may return different (equally early) journeys.
+ */
+public interface TimetableRouter {
+
+    /**
+     * Searches from every source, each available from its own time in seconds since midnight (e.g. the request
+     * departure plus the walk to that stop), until every target has its earliest arrival.
+     */
+    TimetableResult route(int[] sources, int[] departureTimes, int[] targets);
+}
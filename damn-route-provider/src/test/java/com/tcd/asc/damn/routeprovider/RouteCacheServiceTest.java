@@ -0,0 +1,98 @@
+package com.tcd.asc.damn.routeprovider;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.model.dto.Coordinates;
+import com.tcd.asc.damn.common.model.request.RouteRequest;
+import com.tcd.asc.damn.routeprovider.service.RouteCacheService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheServiceTest {
+
+    private static RouteRequest request(double startLat, double startLon, double endLat, double endLon, LocalTime departure) {
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(startLat, startLon));
+        request.setEndLocation(new Coordinates(endLat, endLon));
+        request.setDepartureTime(departure);
+        return request;
+    }
+
+    private static List<RouteCacheService.Itinerary> itineraries(String startStopId) {
+        Stop start = new Stop();
+        start.setStopId(startStopId);
+        return List.of(new RouteCacheService.Itinerary(start, new Stop(), List.of()));
+    }
+
+    @Test
+    @DisplayName("SNAPS_NEARBY_REQUESTS_TO_THE_SAME_KEY")
+    void snapsNearbyRequestsToTheSameKey() {
+        RouteCacheService cache = new RouteCacheService();
+
+        String key = cache.key(request(53.34000, -6.26000, 53.35, -6.25, null));
+
+        assertEquals(key, cache.key(request(53.34002, -6.26002, 53.35, -6.25, null)));
+        assertNotEquals(key, cache.key(request(53.34500, -6.26000, 53.35, -6.25, null)));
+        assertNotEquals(key, cache.key(request(53.35, -6.25, 53.34000, -6.26000, null)));
+        assertEquals(cache.key(request(53.34, -6.26, 53.35, -6.25, LocalTime.of(8, 1))),
+                cache.key(request(53.34, -6.26, 53.35, -6.25, LocalTime.of(8, 4))));
+        assertNotEquals(cache.key(request(53.34, -6.26, 53.35, -6.25, LocalTime.of(8, 1))),
+                cache.key(request(53.34, -6.26, 53.35, -6.25, LocalTime.of(8, 6))));
+    }
+
+    @Test
+    @DisplayName("DROPS_ENTRIES_ON_VERSION_CHANGE")
+    void dropsEntriesOnVersionChange() {
+        RouteCacheService cache = new RouteCacheService();
+        cache.put("A", 1L, itineraries("S1"));
+
+        assertEquals("S1", cache.get("A", 1L).get(0).startStop().getStopId());
+        assertNull(cache.get("A", 2L));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("ENTRIES_OF_DIFFERENT_VERSIONS_COEXIST")
+    void entriesOfDifferentVersionsCoexist() {
+        // Timetable and graph requests alternate, each with its own version
+        RouteCacheService cache = new RouteCacheService();
+        Object timetable = new Object();
+        Object graph = new Object();
+        cache.put("A@96", timetable, itineraries("S1"));
+        cache.put("A", graph, itineraries("S2"));
+
+        assertEquals("S1", cache.get("A@96", timetable).get(0).startStop().getStopId());
+        assertEquals("S2", cache.get("A", graph).get(0).startStop().getStopId());
+        assertEquals(2, cache.size());
+
+        // A new graph only makes the graph entry stale
+        assertNull(cache.get("A", new Object()));
+        assertNotNull(cache.get("A@96", timetable));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("EVICTS_LEAST_RECENTLY_USED_AND_EXPIRED_ENTRIES")
+    void evictsLeastRecentlyUsedAndExpiredEntries() {
+        RouteCacheService cache = new RouteCacheService();
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        cache.put("A", 1L, itineraries("S1"));
+        cache.put("B", 1L, itineraries("S2"));
+        cache.get("A", 1L);
+        cache.put("C", 1L, itineraries("S3"));
+
+        assertNotNull(cache.get("A", 1L));
+        assertNull(cache.get("B", 1L));
+
+        ReflectionTestUtils.setField(cache, "ttlMs", -1L);
+        cache.put("D", 1L, itineraries("S4"));
+        assertNull(cache.get("D", 1L));
+    }
+}
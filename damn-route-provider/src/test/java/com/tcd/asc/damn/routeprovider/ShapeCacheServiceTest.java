@@ -0,0 +1,99 @@
+package com.tcd.asc.damn.routeprovider;
+
+import com.tcd.asc.damn.common.entity.Shape;
+import com.tcd.asc.damn.common.repository.ShapeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.routeprovider.service.ShapeCacheService;
+import com.tcd.asc.damn.routeprovider.service.TransitSnapshotService;
+import com.tcd.asc.damn.routeprovider.shape.ShapePolyline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShapeCacheServiceTest {
+
+    @InjectMocks
+    private ShapeCacheService shapeCacheService;
+
+    @Mock
+    private TripRepository tripRepository;
+
+    @Mock
+    private ShapeRepository shapeRepository;
+
+    @Mock
+    private TransitSnapshotService transitSnapshotService;
+
+    private static Shape point(String shapeId, int sequence, double lat, double lon) {
+        Shape shape = new Shape();
+        shape.setShapeId(shapeId);
+        shape.setShapePtSequence(sequence);
+        shape.setShapePtLat(lat);
+        shape.setShapePtLon(lon);
+        return shape;
+    }
+
+    private static TripRepository.TripShape tripShape(String tripId, String shapeId) {
+        return new TripRepository.TripShape() {
+            public String getTripId() { return tripId; }
+            public String getShapeId() { return shapeId; }
+        };
+    }
+
+    @Test
+    @DisplayName("SHAPES_ARE_SERVED_FROM_MEMORY")
+    void shapesAreServedFromMemory() {
+        when(tripRepository.findAllTripShapes()).thenReturn(List.of(tripShape("T1", "S1"), tripShape("T2", "S1"), tripShape("T3", null)));
+        when(shapeRepository.findAll(any(Sort.class))).thenReturn(List.of(
+                point("S1", 1, 53.340, -6.260),
+                point("S1", 2, 53.345, -6.255),
+                point("S1", 3, 53.350, -6.250)));
+
+        ShapePolyline first = shapeCacheService.getShapeForTrip("T1");
+        ShapePolyline second = shapeCacheService.getShapeForTrip("T2");
+
+        assertSame(first, second);
+        assertEquals(3, first.size());
+        assertEquals(53.350, first.lat(2));
+        assertEquals(first.cumulativeKm(2), first.lengthKm(), 1e-9);
+        assertTrue(first.lengthKm() > 1.0);
+        assertNull(shapeCacheService.getShapeForTrip("T3"));
+        verify(tripRepository, times(1)).findAllTripShapes();
+        verify(shapeRepository, never()).findByShapeId(anyString());
+    }
+
+    @Test
+    @DisplayName("UNKNOWN_TRIP_HAS_NO_SHAPE")
+    void unknownTripHasNoShape() {
+        when(tripRepository.findAllTripShapes()).thenReturn(List.of());
+        when(shapeRepository.findAll(any(Sort.class))).thenReturn(List.of());
+
+        assertNull(shapeCacheService.getShapeForTrip("T9"));
+    }
+
+    @Test
+    @DisplayName("UNSORTED_POINTS_ARE_ORDERED_BY_SEQUENCE")
+    void unsortedPointsAreOrderedBySequence() {
+        ShapePolyline polyline = ShapePolyline.of("S1", List.of(
+                point("S1", 3, 53.350, -6.250),
+                point("S1", 1, 53.340, -6.260),
+                point("S1", 2, 53.345, -6.255)));
+
+        assertEquals(53.340, polyline.lat(0));
+        assertEquals(53.345, polyline.lat(1));
+        assertEquals(53.350, polyline.lat(2));
+        assertEquals(0.0, polyline.cumulativeKm(0));
+    }
+}
@@ -0,0 +1,132 @@
+package com.tcd.asc.damn.routeprovider;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.repository.StopRepository;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import com.tcd.asc.damn.routeprovider.service.StopIndexService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StopIndexServiceTest {
+
+    @InjectMocks
+    private StopIndexService stopIndexService;
+
+    @Mock
+    private StopRepository stopRepository;
+
+    private List<Stop> randomStops(int count) {
+        Random random = new Random(42);
+        List<Stop> stops = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Stop stop = new Stop();
+            stop.setStopId("S" + i);
+            stop.setStopName("Stop" + i);
+            stop.setStopLat(53.25 + random.nextDouble() * 0.2);
+            stop.setStopLon(-6.40 + random.nextDouble() * 0.3);
+            stops.add(stop);
+        }
+        return stops;
+    }
+
+    private List<String> bruteForceNearest(List<Stop> stops, double lat, double lon, int k) {
+        return stops.stream()
+                .sorted(Comparator.comparingDouble(s -> GeoGridIndex.distanceKm(lat, lon, s.getStopLat(), s.getStopLon())))
+                .limit(k)
+                .map(Stop::getStopId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("NEAREST_MATCHES_FULL_SORT")
+    void nearestMatchesFullSort() {
+        List<Stop> stops = randomStops(2000);
+        when(stopRepository.findAll()).thenReturn(stops);
+
+        double[][] queries = {{53.35, -6.26}, {53.25, -6.40}, {53.60, -6.00}, {52.90, -6.30}};
+        for (double[] query : queries) {
+            List<String> expected = bruteForceNearest(stops, query[0], query[1], 10);
+            List<String> actual = stopIndexService.findNearest(query[0], query[1], 10).stream()
+                    .map(Stop::getStopId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, actual);
+        }
+        verify(stopRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("RADIUS_QUERY_RETURNS_ONLY_STOPS_WITHIN_RADIUS")
+    void radiusQueryReturnsOnlyStopsWithinRadius() {
+        List<Stop> stops = randomStops(2000);
+        when(stopRepository.findAll()).thenReturn(stops);
+
+        List<Stop> result = stopIndexService.findWithinRadius(53.35, -6.26, 1.0);
+
+        long expected = stops.stream()
+                .filter(s -> GeoGridIndex.distanceKm(53.35, -6.26, s.getStopLat(), s.getStopLon()) <= 1.0)
+                .count();
+        assertEquals(expected, result.size());
+        assertFalse(result.isEmpty());
+    }
+
+    @Test
+    @DisplayName("EMPTY_STOP_TABLE")
+    void emptyStopTable() {
+        when(stopRepository.findAll()).thenReturn(Collections.emptyList());
+
+        assertTrue(stopIndexService.findNearest(53.35, -6.26, 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("FIND_STOPS_BY_ID_USES_DICTIONARY_AND_ONE_BATCH_QUERY")
+    void findStopsByIdUsesDictionaryAndOneBatchQuery() {
+        List<Stop> stops = randomStops(10);
+        Stop added = new Stop(); added.setStopId("NEW"); added.setStopLat(53.3); added.setStopLon(-6.3);
+        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopRepository.findAllById(List.of("NEW"))).thenReturn(List.of(added));
+
+        Map<String, Stop> result = stopIndexService.findStopsById(List.of("S1", "S5", "NEW", "S1"));
+
+        assertEquals(3, result.size());
+        assertSame(stops.get(5), result.get("S5"));
+        assertSame(added, result.get("NEW"));
+        verify(stopRepository, times(1)).findAllById(anyList());
+        verify(stopRepository, never()).findById(anyString());
+    }
+
+    private static StopRepository.StopTableFingerprint fingerprint(String contentHash) {
+        return new StopRepository.StopTableFingerprint() {
+            public long getStopCount() { return 10; }
+            public double getLatSum() { return 533.5; }
+            public double getLonSum() { return -62.6; }
+            public String getContentHash() { return contentHash; }
+        };
+    }
+
+    @Test
+    @DisplayName("RENAMED_STOP_WITH_SAME_COORDINATES_TRIGGERS_REBUILD")
+    void renamedStopWithSameCoordinatesTriggersRebuild() {
+        when(stopRepository.findAll()).thenReturn(randomStops(10));
+        // Same count and coordinate sums, different id/name digest
+        when(stopRepository.fingerprint()).thenReturn(fingerprint("a"), fingerprint("a"), fingerprint("b"));
+
+        stopIndexService.findNearest(53.35, -6.26, 1);
+        stopIndexService.refreshIfChanged(); // Unchanged
+        stopIndexService.refreshIfChanged(); // Renamed
+
+        verify(stopRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,157 @@
+package com.tcd.asc.damn.routeprovider;
+
+import com.tcd.asc.damn.common.entity.ServiceCalendar;
+import com.tcd.asc.damn.common.repository.CalendarDateRepository;
+import com.tcd.asc.damn.common.repository.ServiceCalendarRepository;
+import com.tcd.asc.damn.common.repository.StopTimeRepository;
+import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.routeprovider.service.StopIndexService;
+import com.tcd.asc.damn.routeprovider.service.TimetableService;
+import com.tcd.asc.damn.routeprovider.service.TransitGraphService;
+import com.tcd.asc.damn.routeprovider.timetable.Timetable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimetableServiceTest {
+
+    @InjectMocks
+    private TimetableService timetableService;
+
+    @Mock
+    private StopTimeRepository stopTimeRepository;
+    @Mock
+    private StopIndexService stopIndexService;
+    @Mock
+    private TripRepository tripRepository;
+    @Mock
+    private ServiceCalendarRepository serviceCalendarRepository;
+    @Mock
+    private CalendarDateRepository calendarDateRepository;
+    @Mock
+    private TransitGraphService transitGraphService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDate today = LocalDate.now(ZoneId.of("Europe/Dublin"));
+
+    private record Row(String getTripId, String getStopId, int getStopSequence, LocalTime getArrivalTime,
+                       LocalTime getDepartureTime) implements StopTimeRepository.TimetableRow {
+    }
+
+    private record TripService(String getTripId, String getServiceId) implements TripRepository.TripService {
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(stopIndexService.findStopsById(any())).thenReturn(Map.of());
+    }
+
+    private static Row row(String tripId, String stopId, int sequence, String time) {
+        LocalTime at = LocalTime.parse(time);
+        return new Row(tripId, stopId, sequence, at, at);
+    }
+
+    private static ServiceCalendar calendar(String serviceId, DayOfWeek... days) {
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.setServiceId(serviceId);
+        for (DayOfWeek day : days) {
+            switch (day) {
+                case MONDAY -> calendar.setMonday(1);
+                case TUESDAY -> calendar.setTuesday(1);
+                case WEDNESDAY -> calendar.setWednesday(1);
+                case THURSDAY -> calendar.setThursday(1);
+                case FRIDAY -> calendar.setFriday(1);
+                case SATURDAY -> calendar.setSaturday(1);
+                case SUNDAY -> calendar.setSunday(1);
+            }
+        }
+        return calendar;
+    }
+
+    private static Set<String> tripIds(Timetable timetable) {
+        Set<String> ids = new HashSet<>();
+        for (int trip = 0; trip < timetable.tripCount(); trip++) {
+            ids.add(timetable.tripId(trip));
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("ONLY_TRIPS_OF_SERVICES_RUNNING_TODAY_ARE_LOADED")
+    void onlyTripsOfServicesRunningTodayAreLoaded() {
+        when(serviceCalendarRepository.findAll()).thenReturn(List.of(
+                calendar("TODAY", today.getDayOfWeek()), calendar("TOMORROW", today.plusDays(1).getDayOfWeek())));
+        when(tripRepository.findAllTripServices()).thenReturn(List.of(
+                new TripService("T1", "TODAY"), new TripService("T2", "TOMORROW")));
+        when(stopTimeRepository.streamAllTimetableRows()).thenReturn(Stream.of(
+                row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:10"),
+                row("T2", "A", 1, "09:00"), row("T2", "B", 2, "09:10")));
+
+        Timetable timetable = timetableService.reload();
+
+        assertEquals(Set.of("T1"), tripIds(timetable));
+    }
+
+    @Test
+    @DisplayName("TRIPS_PAST_MIDNIGHT_CONTINUE_INTO_THE_NEXT_DAY")
+    void tripsPastMidnightContinueIntoTheNextDay() {
+        when(serviceCalendarRepository.findAll()).thenReturn(List.of(calendar("YESTERDAY", today.minusDays(1).getDayOfWeek())));
+        when(tripRepository.findAllTripServices()).thenReturn(List.of(new TripService("NIGHT", "YESTERDAY")));
+        when(stopTimeRepository.streamAllTimetableRows()).thenReturn(Stream.of(
+                row("NIGHT", "A", 1, "23:40"), row("NIGHT", "B", 2, "23:55"),
+                row("NIGHT", "C", 3, "00:10"), row("NIGHT", "D", 4, "00:25")));
+
+        Timetable timetable = timetableService.reload();
+
+        // Yesterday's run is boarded today from the first stop after midnight
+        assertEquals(1, timetable.tripCount());
+        assertEquals(-1, timetable.indexOf("A"));
+        assertEquals(2, timetable.patternLength(timetable.tripPattern(0)));
+        assertEquals(600, timetable.departure(0, 0));
+        assertEquals(1500, timetable.arrival(0, 1));
+    }
+
+    @Test
+    @DisplayName("GRAPH_VERSION_CHANGE_RELOADS_THE_TIMETABLE")
+    void graphVersionChangeReloadsTheTimetable() {
+        when(stopTimeRepository.streamAllTimetableRows()).thenAnswer(invocation -> Stream.of(
+                row("T1", "A", 1, "08:00"), row("T1", "B", 2, "08:10")));
+        when(tripRepository.findAllTripServices()).thenReturn(List.of(new TripService("T1", "ANY")));
+        when(transitGraphService.getObservedVersion())
+                .thenReturn(new TransitGraphService.GraphVersion(1L, 0), new TransitGraphService.GraphVersion(1L, 0),
+                        new TransitGraphService.GraphVersion(1L, 1));
+
+        Timetable first = timetableService.getTimetable();
+        timetableService.refreshIfChanged();
+        assertSame(first, timetableService.getTimetable());
+
+        timetableService.refreshIfChanged();
+        assertNotSame(first, timetableService.getTimetable());
+        assertEquals(Set.of("T1"), tripIds(timetableService.getTimetable()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.tcd.asc.damn.routeprovider;
+
+import com.tcd.asc.damn.routeprovider.service.ShapeCacheService;
+import com.tcd.asc.damn.routeprovider.service.TransitGraphService;
+import com.tcd.asc.damn.routeprovider.service.TransitSnapshotService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransitGraphServiceTest {
+
+    @InjectMocks
+    private TransitGraphService transitGraphService;
+
+    @Mock
+    private Driver neo4jDriver;
+
+    @Mock
+    private TransitSnapshotService transitSnapshotService;
+
+    @Mock
+    private ShapeCacheService shapeCacheService;
+
+    @Mock
+    private Session session;
+
+    private final AtomicLong revision = new AtomicLong(1);
+
+    private Result versionResult() {
+        Record record = mock(Record.class);
+        when(record.get("generation")).thenReturn(Values.value(3L));
+        when(record.get("revision")).thenReturn(Values.value(revision.get()));
+        Result result = mock(Result.class);
+        when(result.hasNext()).thenReturn(true);
+        when(result.next()).thenReturn(record);
+        return result;
+    }
+
+    @Test
+    @DisplayName("SYNC_IN_THE_SAME_GENERATION_RELOADS_THE_GRAPH")
+    void syncInTheSameGenerationReloadsTheGraph() {
+        when(neo4jDriver.session()).thenReturn(session);
+        when(session.run(startsWith("MATCH (v:GraphVersion"))).thenAnswer(invocation -> versionResult());
+        when(session.run(startsWith("MATCH"), anyMap())).thenAnswer(invocation -> mock(Result.class));
+
+        assertNotNull(transitGraphService.getGraph());
+        TransitGraphService.GraphVersion loaded = transitGraphService.getObservedVersion();
+        assertEquals(new TransitGraphService.GraphVersion(3L, 1), loaded);
+
+        transitGraphService.reloadIfGenerationChanged(); // Unchanged
+        verify(session, times(1)).run(startsWith("MATCH (s:Stop)"), anyMap());
+        verify(shapeCacheService, never()).refresh();
+
+        revision.incrementAndGet(); // A sync patched generation 3 in place
+        transitGraphService.reloadIfGenerationChanged();
+
+        verify(session, times(2)).run(startsWith("MATCH (s:Stop)"), anyMap());
+        verify(shapeCacheService).refresh(); // New trips get their shapes
+        assertEquals(new TransitGraphService.GraphVersion(3L, 2), transitGraphService.getObservedVersion());
+    }
+}
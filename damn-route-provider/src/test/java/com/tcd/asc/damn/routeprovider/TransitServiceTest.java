@@ -2,7 +2,6 @@ package com.tcd.asc.damn.routeprovider;
 
 import com.tcd.asc.damn.common.entity.Shape;
 import com.tcd.asc.damn.common.entity.Stop;
-import com.tcd.asc.damn.common.entity.Trip;
 import com.tcd.asc.damn.common.model.dto.Coordinates;
 import com.tcd.asc.damn.common.model.dto.RouteSegment;
 import com.tcd.asc.damn.common.model.dto.TransitSegment;
@@ -10,11 +9,22 @@ import com.tcd.asc.damn.common.model.dto.WalkSegment;
 import com.tcd.asc.damn.common.model.request.RouteRequest;
 import com.tcd.asc.damn.common.model.response.RouteResponse;
 import com.tcd.asc.damn.common.model.response.RoutesResponse;
-import com.tcd.asc.damn.common.repository.ShapeRepository;
 import com.tcd.asc.damn.common.repository.StopRepository;
 import com.tcd.asc.damn.common.repository.StopTimeRepository;
-import com.tcd.asc.damn.common.repository.TripRepository;
+import com.tcd.asc.damn.routeprovider.graph.TransitGraph;
+import com.tcd.asc.damn.routeprovider.service.RouteCacheService;
+import com.tcd.asc.damn.routeprovider.service.ShapeCacheService;
+import com.tcd.asc.damn.routeprovider.service.StopIndexService;
+import com.tcd.asc.damn.routeprovider.service.TransitGraphService;
+import com.tcd.asc.damn.routeprovider.service.TimetableService;
 import com.tcd.asc.damn.routeprovider.service.TransitService;
+import com.tcd.asc.damn.routeprovider.shape.ShapePolyline;
+import com.tcd.asc.damn.routeprovider.timetable.CsaResult;
+import com.tcd.asc.damn.routeprovider.timetable.CsaRouter;
+import com.tcd.asc.damn.routeprovider.timetable.Journey;
+import com.tcd.asc.damn.routeprovider.timetable.RaptorRouter;
+import com.tcd.asc.damn.routeprovider.timetable.Timetable;
+import com.tcd.asc.damn.routeprovider.timetable.TimetableResult;
 import com.tcd.asc.damn.routeprovider.utils.AlphanumericGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -28,11 +38,19 @@ import org.neo4j.driver.*;
 import org.neo4j.driver.types.Relationship;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,10 +63,7 @@ class TransitServiceTest {
     private StopRepository stopRepository;
 
     @Mock
-    private TripRepository tripRepository;
-
-    @Mock
-    private ShapeRepository shapeRepository;
+    private ShapeCacheService shapeCacheService;
 
     @Mock
     private StopTimeRepository stopTimeRepository;
@@ -62,6 +77,15 @@ class TransitServiceTest {
     @Mock
     private AlphanumericGenerator alphanumericGenerator;
 
+    @Mock
+    private TransitGraphService transitGraphService;
+
+    @Mock
+    private StopIndexService stopIndexService;
+
+    @Mock
+    private TimetableService timetableService;
+
     @BeforeEach
     void setUp() {
         ReflectionTestUtils.setField(transitService, "neo4jDriver", neo4jDriver);
@@ -79,7 +103,7 @@ class TransitServiceTest {
         Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
         Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
         List<Stop> stops = Arrays.asList(stop1, stop2);
-        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(stops);
 
         Result result = mock(Result.class);
         when(result.hasNext()).thenReturn(true);
@@ -106,13 +130,10 @@ class TransitServiceTest {
         when(record.get("totalWeight")).thenReturn(Values.value(10.0));
         when(session.run(anyString(), anyMap())).thenReturn(result);
 
-        when(stopRepository.findById("1")).thenReturn(Optional.of(stop1));
-        when(stopRepository.findById("2")).thenReturn(Optional.of(stop2));
-        Trip trip = new Trip(); trip.setTripId("T1"); trip.setShapeId("S1");
-        when(tripRepository.findById("T1")).thenReturn(Optional.of(trip));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2));
         Shape shape = new Shape(); shape.setShapeId("S1"); shape.setShapePtLat(53.345); shape.setShapePtLon(-6.255); shape.setShapePtSequence(1);
         List<Shape> shapes = List.of(shape);
-        when(shapeRepository.findByShapeId("S1")).thenReturn(shapes);
+        when(shapeCacheService.getShapeForTrip("T1")).thenReturn(ShapePolyline.of("S1", shapes));
         when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE123");
 
         /*// Act
@@ -140,7 +161,7 @@ class TransitServiceTest {
         Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
         Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
         List<Stop> stops = Arrays.asList(stop1, stop2);
-        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(stops);
 
         Result result = mock(Result.class);
         when(result.hasNext()).thenReturn(false);
@@ -164,7 +185,7 @@ class TransitServiceTest {
         Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
         Stop stop3 = new Stop(); stop3.setStopId("3"); stop3.setStopName("Stop3"); stop3.setStopLat(53.361); stop3.setStopLon(-6.241);
         List<Stop> stops = Arrays.asList(stop1, stop2, stop3);
-        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(stops);
 
         Result result = mock(Result.class);
         when(result.hasNext()).thenReturn(true);
@@ -198,14 +219,10 @@ class TransitServiceTest {
         when(record.get("totalWeight")).thenReturn(Values.value(12.0));
         when(session.run(anyString(), anyMap())).thenReturn(result);
 
-        when(stopRepository.findById("1")).thenReturn(Optional.of(stop1));
-        when(stopRepository.findById("2")).thenReturn(Optional.of(stop2));
-        when(stopRepository.findById("3")).thenReturn(Optional.of(stop3));
-        Trip trip = new Trip(); trip.setTripId("T1"); trip.setShapeId("S1");
-        when(tripRepository.findById("T1")).thenReturn(Optional.of(trip));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2, "3", stop3));
         Shape shape = new Shape(); shape.setShapeId("S1"); shape.setShapePtLat(53.345); shape.setShapePtLon(-6.255); shape.setShapePtSequence(1);
         List<Shape> shapes = List.of(shape);
-        when(shapeRepository.findByShapeId("S1")).thenReturn(shapes);
+        when(shapeCacheService.getShapeForTrip("T1")).thenReturn(ShapePolyline.of("S1", shapes));
         when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE456");
 
         /*// Act
@@ -230,7 +247,7 @@ class TransitServiceTest {
 
         Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
         List<Stop> stops = List.of(stop1);
-        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(stops);
 
         Result result = mock(Result.class);
         when(result.hasNext()).thenReturn(true);
@@ -256,7 +273,7 @@ class TransitServiceTest {
         when(record.get("totalWeight")).thenReturn(Values.value(5.0));
         when(session.run(anyString(), anyMap())).thenReturn(result);
 
-        when(stopRepository.findById("1")).thenReturn(Optional.of(stop1));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1));
         when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE789");
 
         // Act & Assert
@@ -272,7 +289,7 @@ class TransitServiceTest {
         RouteRequest request = new RouteRequest();
         request.setStartLocation(new Coordinates(53.34, -6.26));
         request.setEndLocation(new Coordinates(53.35, -6.25));
-        when(stopRepository.findAll()).thenReturn(Collections.emptyList());
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Collections.emptyList());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> transitService.findRoutes(request));
@@ -291,7 +308,7 @@ class TransitServiceTest {
         Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
         Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
         List<Stop> stops = Arrays.asList(stop1, stop2);
-        when(stopRepository.findAll()).thenReturn(stops);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(stops);
 
         Result result = mock(Result.class);
         when(result.hasNext()).thenReturn(true);
@@ -317,9 +334,8 @@ class TransitServiceTest {
         when(record.get("totalWeight")).thenReturn(Values.value(10.0));
         when(session.run(anyString(), anyMap())).thenReturn(result);
 
-        when(stopRepository.findById("1")).thenReturn(Optional.of(stop1));
-        when(stopRepository.findById("2")).thenReturn(Optional.of(stop2));
-        when(tripRepository.findById("T1")).thenReturn(Optional.empty());
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2));
+        when(shapeCacheService.getShapeForTrip("T1")).thenThrow(new RuntimeException("Trip not found: T1"));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> transitService.findRoutes(request));
@@ -327,41 +343,225 @@ class TransitServiceTest {
     }
 
     @Test
-    @DisplayName("CALCULATE_DISTANCE_EMPTY_PATH")
-    public void calculateDistanceEmptyPath() {
+    @DisplayName("IN_MEMORY_GRAPH_ROUTE_WITHOUT_NEO4J")
+    public void inMemoryGraphRouteWithoutNeo4j() {
+        // Arrange
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(53.34, -6.26));
+        request.setEndLocation(new Coordinates(53.35, -6.25));
+
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Arrays.asList(stop1, stop2));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2));
+
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("1", 53.341, -6.261)
+                .addStop("2", 53.351, -6.251);
+        builder.addEdge("1", "2", "RED_LUAS", 5.0, "T1");
+        when(transitGraphService.getGraph()).thenReturn(builder.build());
+
+        Shape shape = new Shape(); shape.setShapeId("S1"); shape.setShapePtLat(53.346); shape.setShapePtLon(-6.256); shape.setShapePtSequence(1);
+        when(shapeCacheService.getShapeForTrip("T1")).thenReturn(ShapePolyline.of("S1", List.of(shape)));
+        when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE123");
+
         // Act
-        double distance1 = ReflectionTestUtils.invokeMethod(transitService, "calculateTravelDistance", (List<Coordinates>) null);
-        double distance2 = ReflectionTestUtils.invokeMethod(transitService, "calculateTravelDistance", Collections.emptyList());
+        RoutesResponse response = transitService.findRoutes(request);
 
-        // Assert
-        assertEquals(0.0, distance1);
-        assertEquals(0.0, distance2);
+        // Assert: the ride 1 -> 2 is the only non-dominated route that uses the graph
+        assertEquals(1, response.getNoOfRoutes());
+        RouteResponse best = response.getRouteResponses().get(0);
+        assertTrue(best.getRoutes().get(0) instanceof WalkSegment);
+        TransitSegment transit = (TransitSegment) best.getRoutes().get(1);
+        assertEquals("1", transit.getBoardingStop().getStopId());
+        assertEquals("2", transit.getAlightingStop().getStopId());
+        WalkSegment finalWalk = (WalkSegment) best.getRoutes().get(best.getRoutes().size() - 1);
+        assertEquals(request.getEndLocation(), finalWalk.getEndCoordinate());
+        verify(neo4jDriver, never()).session();
     }
 
     @Test
-    @DisplayName("FILTER_TRANSIT_PATH_EMPTY")
-    public void filterTransitPathEmpty() {
+    @DisplayName("CACHED_ROUTES_SKIP_SEARCH_AND_KEEP_EXACT_WALKS")
+    public void cachedRoutesSkipSearchAndKeepExactWalks() {
+        // Arrange
+        ReflectionTestUtils.setField(transitService, "routeCacheService", new RouteCacheService());
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Arrays.asList(stop1, stop2));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2));
+
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("1", 53.341, -6.261)
+                .addStop("2", 53.351, -6.251);
+        builder.addEdge("1", "2", "RED_LUAS", 5.0, "T1");
+        when(transitGraphService.getGraph()).thenReturn(builder.build());
+
+        Shape shape = new Shape(); shape.setShapeId("S1"); shape.setShapePtLat(53.346); shape.setShapePtLon(-6.256); shape.setShapePtSequence(1);
+        when(shapeCacheService.getShapeForTrip("T1")).thenReturn(ShapePolyline.of("S1", List.of(shape)));
+        when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE1", "ROUTE2");
+
+        RouteRequest first = new RouteRequest();
+        first.setStartLocation(new Coordinates(53.34, -6.26));
+        first.setEndLocation(new Coordinates(53.35, -6.25));
+        // A few metres away, in the same grid cells
+        RouteRequest second = new RouteRequest();
+        second.setStartLocation(new Coordinates(53.34001, -6.26001));
+        second.setEndLocation(new Coordinates(53.35001, -6.25001));
+
         // Act
-        List<Coordinates> result1 = ReflectionTestUtils.invokeMethod(transitService, "filterTransitPathByStops", Collections.emptyList(), Collections.emptyList());
-        List<Coordinates> result2 = ReflectionTestUtils.invokeMethod(transitService, "filterTransitPathByStops", List.of(new Stop()), Collections.emptyList());
+        transitService.findRoutes(first);
+        RoutesResponse response = transitService.findRoutes(second);
 
-        // Assert
-        assertTrue(result1.isEmpty());
-        assertTrue(result2.isEmpty());
+        // Assert: the second request is answered without a search (one nearest-stop lookup per end for the first
+        // only), with walks from and to its own coordinates
+        verify(stopIndexService, times(2)).findNearest(anyDouble(), anyDouble(), anyInt());
+        RouteResponse route = response.getRouteResponses().get(0);
+        assertEquals("ROUTE2", route.getRouteId());
+        assertEquals(second.getStartLocation(), ((WalkSegment) route.getRoutes().get(0)).getStartCoordinate());
+        assertEquals(second.getEndLocation(), ((WalkSegment) route.getRoutes().get(route.getRoutes().size() - 1)).getEndCoordinate());
+        assertEquals("1", ((TransitSegment) route.getRoutes().get(1)).getBoardingStop().getStopId());
     }
 
     @Test
-    @DisplayName("FIND_NEAREST_COORDINATE_NO_MATCH")
-    public void findNearestCoordinateNoMatch() {
+    @DisplayName("TIMETABLE_ROUTE_WITH_DEPARTURE_TIME")
+    public void timetableRouteWithDepartureTime() {
         // Arrange
-        Stop stop = new Stop(); stop.setStopLat(53.34); stop.setStopLon(-6.26);
-        List<Coordinates> coords = List.of(new Coordinates(54.0, -7.0)); // Far away
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(53.34, -6.26));
+        request.setEndLocation(new Coordinates(53.35, -6.25));
+        request.setDepartureTime(LocalTime.of(8, 0));
+
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Arrays.asList(stop1, stop2));
+        when(stopIndexService.findStopsById(anyCollection())).thenReturn(Map.of("1", stop1, "2", stop2));
+
+        // The walk to Stop1 misses the 08:00 departure, so the 08:10 trip is taken
+        Timetable.Builder builder = Timetable.builder();
+        builder.addTrip("T1", List.of("1", "2"), new int[]{28800, 29100}, new int[]{28800, 29100});
+        builder.addTrip("T2", List.of("1", "2"), new int[]{29400, 29700}, new int[]{29400, 29700});
+        when(timetableService.getTimetable()).thenReturn(builder.build());
+        when(timetableService.getRouter(any(Timetable.class), anyInt()))
+                .thenAnswer(invocation -> new RaptorRouter(invocation.getArgument(0), invocation.getArgument(1)));
+
+        Shape shape = new Shape(); shape.setShapeId("S1"); shape.setShapePtLat(53.346); shape.setShapePtLon(-6.256); shape.setShapePtSequence(1);
+        when(shapeCacheService.getShapeForTrip("T2")).thenReturn(ShapePolyline.of("S1", List.of(shape)));
+        when(alphanumericGenerator.generateAlphanumericString()).thenReturn("ROUTE321");
 
         // Act
-        Coordinates result = ReflectionTestUtils.invokeMethod(transitService, "findNearestCoordinate", stop, coords);
+        RoutesResponse response = transitService.findRoutes(request);
 
-        // Assert
-        assertNull(result);
+        // Assert: Stop1 is both a start and an end stop, so only the ride to Stop2 is an itinerary
+        assertEquals(1, response.getNoOfRoutes());
+        List<RouteSegment> segments = response.getRouteResponses().get(0).getRoutes();
+        assertEquals(3, segments.size()); // Walk -> Transit -> Walk
+        TransitSegment transit = (TransitSegment) segments.get(1);
+        assertEquals("1", transit.getBoardingStop().getStopId());
+        assertEquals("2", transit.getAlightingStop().getStopId());
+        assertEquals(300.0, transit.getTravelTime());
+        verify(transitGraphService, never()).getGraph();
+        verify(neo4jDriver, never()).session();
+    }
+
+    @Test
+    @DisplayName("CSA_TARGET_WITHOUT_JOURNEY_IS_SKIPPED")
+    public void csaTargetWithoutJourneyIsSkipped() {
+        // Arrange
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(53.34, -6.26));
+        request.setEndLocation(new Coordinates(53.35, -6.25));
+        request.setDepartureTime(LocalTime.of(8, 0));
+
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        Stop stop3 = new Stop(); stop3.setStopId("3"); stop3.setStopName("Stop3"); stop3.setStopLat(53.352); stop3.setStopLon(-6.252);
+        when(stopIndexService.findNearest(eq(53.34), anyDouble(), anyInt())).thenReturn(List.of(stop1));
+        when(stopIndexService.findNearest(eq(53.35), anyDouble(), anyInt())).thenReturn(List.of(stop2, stop3));
+
+        // Stop3 is only served before the request, so it is unreached; Stop2 is reached but its journey cannot
+        // be rebuilt, as when the cycle guard trips
+        Timetable.Builder builder = Timetable.builder();
+        builder.addTrip("T1", List.of("1", "2"), new int[]{29400, 29700}, new int[]{29400, 29700});
+        builder.addTrip("T2", List.of("1", "3"), new int[]{25200, 25500}, new int[]{25200, 25500});
+        Timetable timetable = builder.build();
+        when(timetableService.getTimetable()).thenReturn(timetable);
+        when(timetableService.getRouter(any(Timetable.class), anyInt())).thenReturn((sources, times, targets) -> {
+            CsaResult csa = new CsaRouter(timetable).route(sources, times, targets);
+            return new TimetableResult() {
+                public boolean isReached(int stop) { return csa.isReached(stop); }
+                public int arrival(int stop) { return csa.arrival(stop); }
+                public Journey journeyTo(int stop) { return stop == timetable.indexOf("2") ? null : csa.journeyTo(stop); }
+            };
+        });
+
+        // Act & Assert: no itinerary is left, which is reported as no route rather than a server error
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> transitService.findRoutes(request));
+        assertTrue(exception.getMessage().contains("No routes found"));
+        assertTrue(exception.getMessage().contains("No departure reaches Stop3"));
+    }
+
+    @Test
+    @DisplayName("PARALLEL_PAIRS_USE_OWN_SESSIONS")
+    public void parallelPairsUseOwnSessions() {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(transitService, "routeEvaluationExecutor", executor);
+        when(neo4jDriver.session()).thenReturn(session);
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(53.34, -6.26));
+        request.setEndLocation(new Coordinates(53.35, -6.25));
+
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Arrays.asList(stop1, stop2));
+
+        Result result = mock(Result.class);
+        when(result.hasNext()).thenReturn(false);
+        when(session.run(anyString(), anyMap())).thenReturn(result);
+
+        // Act & Assert
+        try {
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> transitService.findRoutes(request));
+            assertTrue(exception.getMessage().contains("No path found between Stop2 (ID: 2) and Stop2 (ID: 2)"));
+            // One session per request plus one per evaluated pair
+            verify(neo4jDriver, times(5)).session();
+            verify(session, times(4)).run(anyString(), anyMap());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("PARALLEL_PAIR_DEADLINE_DROPS_SLOW_PAIRS")
+    public void parallelPairDeadlineDropsSlowPairs() {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(transitService, "routeEvaluationExecutor", executor);
+        ReflectionTestUtils.setField(transitService, "pairDeadlineMs", 50L);
+        when(neo4jDriver.session()).thenReturn(session);
+        RouteRequest request = new RouteRequest();
+        request.setStartLocation(new Coordinates(53.34, -6.26));
+        request.setEndLocation(new Coordinates(53.35, -6.25));
+
+        Stop stop1 = new Stop(); stop1.setStopId("1"); stop1.setStopName("Stop1"); stop1.setStopLat(53.341); stop1.setStopLon(-6.261);
+        Stop stop2 = new Stop(); stop2.setStopId("2"); stop2.setStopName("Stop2"); stop2.setStopLat(53.351); stop2.setStopLon(-6.251);
+        when(stopIndexService.findNearest(anyDouble(), anyDouble(), anyInt())).thenReturn(Arrays.asList(stop1, stop2));
+
+        Result result = mock(Result.class);
+        when(session.run(anyString(), anyMap())).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return result;
+        });
+
+        // Act & Assert
+        try {
+            long startedAt = System.currentTimeMillis();
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> transitService.findRoutes(request));
+            assertTrue(exception.getMessage().contains("exceeded the 50 ms deadline"));
+            assertTrue(System.currentTimeMillis() - startedAt < 5_000);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Test
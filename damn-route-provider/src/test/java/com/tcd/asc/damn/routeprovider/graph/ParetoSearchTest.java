@@ -0,0 +1,139 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParetoSearchTest {
+
+    private TransitGraph tradeOffGraph() {
+        // A -> C direct on the red line (slow), or A -> B red, B -> D transfer, D -> C green (fast)
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255)
+                .addStop("C", 53.350, -6.250)
+                .addStop("D", 53.346, -6.254);
+        builder.addEdge("A", "C", "RED_LUAS", 20.0, "T1");
+        builder.addEdge("A", "B", "RED_LUAS", 3.0, "T2");
+        builder.addEdge("B", "D", "TRANSFER", 2.0, null);
+        builder.addEdge("D", "C", "GREEN_LUAS", 3.0, "T3");
+        return builder.build();
+    }
+
+    private List<ParetoRoute> search(TransitGraph graph, int maxLabels, String source, String... targets) {
+        int[] targetIndexes = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetIndexes[i] = graph.indexOf(targets[i]);
+        }
+        return new ParetoSearch(graph, maxLabels).search(new int[]{graph.indexOf(source)}, new double[]{0.0}, new double[]{0.0},
+                targetIndexes, new double[targets.length], new double[targets.length]);
+    }
+
+    @Test
+    @DisplayName("KEEPS_FAST_AND_DIRECT_ALTERNATIVES")
+    void keepsFastAndDirectAlternatives() {
+        TransitGraph graph = tradeOffGraph();
+
+        List<ParetoRoute> routes = search(graph, 8, "A", "C");
+
+        assertEquals(2, routes.size());
+        assertEquals(8.0, routes.get(0).getMinutes(), 1e-6);
+        assertEquals(1, routes.get(0).getTransfers());
+        assertTrue(routes.get(0).getWalkKm() > 0);
+        assertEquals(20.0, routes.get(1).getMinutes(), 1e-6);
+        assertEquals(0, routes.get(1).getTransfers());
+        assertEquals(0.0, routes.get(1).getWalkKm(), 1e-9);
+        assertArrayEquals(new int[]{graph.indexOf("A"), graph.indexOf("C")}, routes.get(1).getPath().getStops());
+    }
+
+    @Test
+    @DisplayName("DROPS_DOMINATED_ROUTES")
+    void dropsDominatedRoutes() {
+        // B and D sit off the straight line from A to C, so the detour rides further
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.340, -6.250)
+                .addStop("C", 53.350, -6.250)
+                .addStop("D", 53.3405, -6.2495);
+        builder.addEdge("A", "C", "RED_LUAS", 5.0, "T1");
+        builder.addEdge("A", "B", "RED_LUAS", 3.0, "T2");
+        builder.addEdge("B", "D", "TRANSFER", 2.0, null);
+        builder.addEdge("D", "C", "GREEN_LUAS", 3.0, "T3");
+        TransitGraph graph = builder.build();
+
+        // The transfer route is slower, walks more and costs no less than the direct ride
+        List<ParetoRoute> routes = search(graph, 8, "A", "C");
+
+        assertEquals(1, routes.size());
+        assertEquals(0, routes.get(0).getTransfers());
+    }
+
+    @Test
+    @DisplayName("FINAL_WALK_IS_PART_OF_THE_ROUTE")
+    void finalWalkIsPartOfTheRoute() {
+        TransitGraph graph = tradeOffGraph();
+
+        // Reaching B is fast, but the walk on from B makes it the slowest option
+        List<ParetoRoute> routes = new ParetoSearch(graph, 8).search(new int[]{graph.indexOf("A")}, new double[]{1.0},
+                new double[]{0.1}, new int[]{graph.indexOf("B"), graph.indexOf("C")},
+                new double[]{30.0, 0.0}, new double[]{2.5, 0.0});
+
+        ParetoRoute viaB = routes.get(routes.size() - 1);
+        assertEquals(graph.indexOf("B"), viaB.target());
+        assertEquals(34.0, viaB.getMinutes(), 1e-6);
+        assertEquals(2.6, viaB.getWalkKm(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("LABEL_CAP_KEEPS_FASTEST")
+    void labelCapKeepsFastest() {
+        TransitGraph graph = tradeOffGraph();
+
+        List<ParetoRoute> routes = search(graph, 1, "A", "C");
+
+        assertFalse(routes.isEmpty());
+        assertEquals(8.0, routes.get(0).getMinutes(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("FASTEST_MATCHES_DIJKSTRA")
+    void fastestMatchesDijkstra() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int n = 30;
+            TransitGraph.Builder builder = TransitGraph.builder();
+            for (int i = 0; i < n; i++) {
+                builder.addStop("S" + i, 53.3 + random.nextDouble() * 0.1, -6.3 + random.nextDouble() * 0.1);
+            }
+            for (int e = 0; e < 90; e++) {
+                boolean transfer = random.nextInt(4) == 0;
+                builder.addEdge("S" + random.nextInt(n), "S" + random.nextInt(n), transfer ? "TRANSFER" : "RED_LUAS",
+                        1 + random.nextInt(10), transfer ? null : "T" + e);
+            }
+            TransitGraph graph = builder.build();
+            int source = random.nextInt(n);
+            int target = random.nextInt(n);
+
+            ShortestPathTree tree = graph.shortestPaths(new int[]{source}, new double[]{0.0}, new int[]{target});
+            List<ParetoRoute> routes = new ParetoSearch(graph, 8).search(new int[]{source}, new double[]{0.0},
+                    new double[]{0.0}, new int[]{target}, new double[]{0.0}, new double[]{0.0});
+
+            if (!tree.isReached(target)) {
+                assertTrue(routes.isEmpty());
+            } else {
+                assertEquals(tree.distance(target), routes.get(0).getMinutes(), 1e-4, "round " + round);
+                for (int i = 0; i < routes.size(); i++) {
+                    for (int j = 0; j < routes.size(); j++) {
+                        ParetoRoute other = routes.get(j);
+                        assertTrue(i == j || !routes.get(i).dominates(other.getMinutes(), other.getTransfers(),
+                                other.getWalkKm(), other.getCost()), "round " + round);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import com.tcd.asc.damn.common.snapshot.TransitSnapshot;
+import com.tcd.asc.damn.common.snapshot.TransitSnapshotWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitGraphSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path writeSample() throws Exception {
+        TransitSnapshotWriter writer = new TransitSnapshotWriter().generation(7)
+                .addStop("A", "Abbey Street", 53.340, -6.260)
+                .addStop("B", "Busáras", 53.345, -6.255)
+                .addStop("C", null, 53.350, -6.250);
+        writer.addEdge("B", "C", "RED_LUAS", 2.5, "T1");
+        writer.addEdge("A", "B", "RED_LUAS", 3.0, "T1");
+        writer.addEdge("A", "C", "TRANSFER", 4.0, null);
+        writer.addEdge("A", "A", "RED_LUAS", 1.0, "T1");
+        writer.addTrip("T1", "S1");
+        writer.addShape("S1", new double[]{53.340, 53.345, 53.350}, new double[]{-6.260, -6.255, -6.250});
+        Path path = directory.resolve("transit.snapshot");
+        writer.write(path);
+        return path;
+    }
+
+    @Test
+    @DisplayName("ROUND_TRIPS_GRAPH_AND_SHAPES")
+    void roundTripsGraphAndShapes() throws Exception {
+        TransitSnapshot snapshot = TransitSnapshot.open(writeSample());
+
+        assertEquals(7, snapshot.generation());
+        assertEquals("Busáras", snapshot.stopName(1));
+        assertNull(snapshot.stopName(2));
+        assertEquals(0, snapshot.tripShape(0));
+        assertEquals("S1", snapshot.shapeId(0));
+        assertEquals(3, snapshot.lastShapePoint(0) - snapshot.firstShapePoint(0));
+        assertEquals(-6.255, snapshot.pointLon(snapshot.firstShapePoint(0) + 1), 1e-12);
+
+        TransitGraph graph = TransitGraph.fromSnapshot(snapshot);
+        assertEquals(3, graph.stopCount());
+        assertEquals(3, graph.edgeCount());
+        int a = graph.indexOf("A");
+        assertEquals(2, graph.lastEdge(a) - graph.firstEdge(a));
+        int edge = graph.firstEdge(graph.indexOf("B"));
+        assertEquals("C", graph.stopId(graph.edgeTarget(edge)));
+        assertEquals(2.5f, graph.edgeWeight(edge));
+        assertEquals("RED_LUAS", graph.edgeType(edge));
+        assertEquals("T1", graph.edgeTripId(edge));
+
+        GraphPath path = graph.shortestPath(a, graph.indexOf("C"));
+        assertEquals(4.0, path.getWeight(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("REJECTS_CORRUPTED_SNAPSHOT")
+    void rejectsCorruptedSnapshot() throws Exception {
+        Path path = writeSample();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x1;
+        Files.write(path, bytes);
+
+        assertThrows(IllegalArgumentException.class, () -> TransitSnapshot.open(path));
+    }
+}
@@ -0,0 +1,118 @@
+package com.tcd.asc.damn.routeprovider.graph;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitGraphTest {
+
+    private TransitGraph sampleGraph() {
+        // A -> B -> C on the red line, A -> D -> C on the green line, C <-> E transfer
+        return TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255)
+                .addStop("C", 53.350, -6.250)
+                .addStop("D", 53.342, -6.250)
+                .addStop("E", 53.351, -6.249)
+                .build();
+    }
+
+    @Test
+    @DisplayName("BUILDS_CSR_ARRAYS")
+    void buildsCsrArrays() {
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255)
+                .addStop("C", 53.350, -6.250);
+        builder.addEdge("B", "C", "RED_LUAS", 2.0, "T1");
+        builder.addEdge("A", "B", "RED_LUAS", 3.0, "T1");
+        builder.addEdge("A", "C", "GREEN_LUAS", 9.0, "T2");
+        assertFalse(builder.addEdge("A", "X", "RED_LUAS", 1.0, "T1"));
+        TransitGraph graph = builder.build();
+
+        assertEquals(3, graph.stopCount());
+        assertEquals(3, graph.edgeCount());
+        int a = graph.indexOf("A");
+        assertEquals(2, graph.lastEdge(a) - graph.firstEdge(a));
+        assertEquals(-1, graph.indexOf("X"));
+    }
+
+    @Test
+    @DisplayName("SHORTEST_PATH_PREFERS_LOWER_WEIGHT")
+    void shortestPathPrefersLowerWeight() {
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255)
+                .addStop("C", 53.350, -6.250)
+                .addStop("D", 53.342, -6.250)
+                .addStop("E", 53.351, -6.249);
+        builder.addEdge("A", "B", "RED_LUAS", 3.0, "T1");
+        builder.addEdge("B", "C", "RED_LUAS", 3.0, "T1");
+        builder.addEdge("A", "D", "GREEN_LUAS", 1.0, "T2");
+        builder.addEdge("D", "C", "GREEN_LUAS", 1.0, "T2");
+        builder.addEdge("C", "E", "TRANSFER", 5.0, null);
+        TransitGraph graph = builder.build();
+
+        GraphPath path = graph.shortestPath(graph.indexOf("A"), graph.indexOf("E"));
+
+        assertNotNull(path);
+        assertEquals(7.0, path.getWeight(), 1e-6);
+        TransitPath transitPath = TransitPath.of(graph, path);
+        assertEquals(List.of("A", "D", "C", "E"), transitPath.getStopIds());
+        assertEquals(List.of("GREEN_LUAS", "GREEN_LUAS", "TRANSFER"), transitPath.getRelationshipTypes());
+        assertEquals(List.of("T2"), transitPath.getRelationshipTripIds().get(0));
+        assertTrue(transitPath.getRelationshipTripIds().get(2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("UNREACHABLE_TARGET_RETURNS_NULL")
+    void unreachableTargetReturnsNull() {
+        TransitGraph graph = sampleGraph();
+
+        assertNull(graph.shortestPath(graph.indexOf("A"), graph.indexOf("E")));
+    }
+
+    @Test
+    @DisplayName("EDGES_ARE_DIRECTED")
+    void edgesAreDirected() {
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255);
+        builder.addEdge("A", "B", "RED_LUAS", 3.0, "T1");
+        TransitGraph graph = builder.build();
+
+        assertNotNull(graph.shortestPath(graph.indexOf("A"), graph.indexOf("B")));
+        assertNull(graph.shortestPath(graph.indexOf("B"), graph.indexOf("A")));
+    }
+
+    @Test
+    @DisplayName("MULTI_SOURCE_SEARCH_USES_INITIAL_COSTS")
+    void multiSourceSearchUsesInitialCosts() {
+        TransitGraph.Builder builder = TransitGraph.builder()
+                .addStop("A", 53.340, -6.260)
+                .addStop("B", 53.345, -6.255)
+                .addStop("C", 53.350, -6.250)
+                .addStop("D", 53.342, -6.250);
+        builder.addEdge("A", "C", "RED_LUAS", 4.0, "T1");
+        builder.addEdge("B", "C", "GREEN_LUAS", 2.0, "T2");
+        builder.addEdge("C", "D", "GREEN_LUAS", 2.0, "T2");
+        TransitGraph graph = builder.build();
+        int a = graph.indexOf("A");
+        int b = graph.indexOf("B");
+        int c = graph.indexOf("C");
+        int d = graph.indexOf("D");
+
+        // B is closer in the graph but costs more to walk to
+        ShortestPathTree tree = graph.shortestPaths(new int[]{a, b}, new double[]{1.0, 5.0}, new int[]{c, d});
+
+        assertTrue(tree.isReached(c));
+        assertTrue(tree.isReached(d));
+        assertEquals(5.0, tree.distance(c), 1e-6);
+        assertEquals(a, tree.pathTo(c).source());
+        assertEquals(7.0, tree.pathTo(d).getWeight(), 1e-6);
+        assertEquals(3, tree.pathTo(d).getStops().length);
+    }
+}
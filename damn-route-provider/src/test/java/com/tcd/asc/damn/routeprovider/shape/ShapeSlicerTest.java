@@ -0,0 +1,132 @@
+package com.tcd.asc.damn.routeprovider.shape;
+
+import com.tcd.asc.damn.common.entity.Stop;
+import com.tcd.asc.damn.common.model.dto.Coordinates;
+import com.tcd.asc.damn.common.spatial.GeoGridIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShapeSlicerTest {
+
+    private static Stop stop(double lat, double lon) {
+        Stop stop = new Stop();
+        stop.setStopLat(lat);
+        stop.setStopLon(lon);
+        return stop;
+    }
+
+    /** A gently curving line of {@code points} points roughly 20 m apart, like a tram alignment. */
+    private static ShapePolyline curvedShape(int points) {
+        double[] lats = new double[points];
+        double[] lons = new double[points];
+        for (int i = 0; i < points; i++) {
+            double t = i / (double) points;
+            lats[i] = 53.28 + 0.10 * t + 0.01 * Math.sin(6 * t);
+            lons[i] = -6.30 + 0.12 * t + 0.01 * Math.cos(4 * t);
+        }
+        return new ShapePolyline("S1", lats, lons);
+    }
+
+    // Previous TransitService.filterTransitPathByStops, kept as the reference behaviour
+    private static List<Coordinates> legacyFilter(List<Stop> stopPath, List<Coordinates> transitPath) {
+        if (stopPath.isEmpty() || transitPath.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Stop, Coordinates> stopToNearestCoord = new HashMap<>();
+        for (Stop stop : stopPath) {
+            Coordinates nearest = null;
+            double minDistance = Double.MAX_VALUE;
+            for (Coordinates coord : transitPath) {
+                double distance = GeoGridIndex.distanceKm(stop.getStopLat(), stop.getStopLon(), coord.getLatitude(), coord.getLongitude());
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = coord;
+                }
+            }
+            if (minDistance <= 0.1) {
+                stopToNearestCoord.put(stop, nearest);
+            }
+        }
+        List<Integer> stopIndices = stopToNearestCoord.values().stream()
+                .map(transitPath::indexOf)
+                .filter(index -> index >= 0)
+                .sorted()
+                .collect(Collectors.toList());
+        if (stopIndices.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(transitPath.subList(stopIndices.get(0), stopIndices.get(stopIndices.size() - 1) + 1));
+    }
+
+    private static double legacyDistance(List<Coordinates> path) {
+        double distance = 0.0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            distance += GeoGridIndex.distanceKm(path.get(i).getLatitude(), path.get(i).getLongitude(),
+                    path.get(i + 1).getLatitude(), path.get(i + 1).getLongitude());
+        }
+        return distance;
+    }
+
+    @Test
+    @DisplayName("SLICE_MATCHES_LEGACY_FILTER")
+    void sliceMatchesLegacyFilter() {
+        ShapePolyline shape = curvedShape(800);
+        List<Coordinates> fullPath = shape.toCoordinates();
+        Random random = new Random(7);
+
+        for (int run = 0; run < 200; run++) {
+            int stopCount = 2 + random.nextInt(12);
+            int[] indices = random.ints(stopCount, 0, shape.size()).sorted().toArray();
+            List<Stop> stops = new ArrayList<>();
+            for (int index : indices) {
+                // Stops sit up to ~15 m off the alignment
+                stops.add(stop(shape.lat(index) + (random.nextDouble() - 0.5) * 0.0002,
+                        shape.lon(index) + (random.nextDouble() - 0.5) * 0.0002));
+            }
+            if (random.nextInt(4) == 0) {
+                stops.add(random.nextInt(stops.size()), stop(53.0, -6.0)); // Off the shape, ignored by both
+            }
+
+            List<Coordinates> expected = legacyFilter(stops, fullPath);
+            ShapeSlice slice = ShapeSlicer.slice(shape, stops);
+
+            assertEquals(expected, new ArrayList<>(slice.path()), "run " + run);
+            assertEquals(legacyDistance(expected), slice.distanceKm(), 1e-9, "run " + run);
+        }
+    }
+
+    @Test
+    @DisplayName("FILTER_TRANSIT_PATH_EMPTY")
+    void filterTransitPathEmpty() {
+        assertTrue(ShapeSlicer.slice(null, Collections.emptyList()).path().isEmpty());
+        assertTrue(ShapeSlicer.slice(new ShapePolyline("S0", new double[0], new double[0]), List.of(new Stop())).path().isEmpty());
+        assertEquals(0.0, ShapeSlice.empty().distanceKm());
+    }
+
+    @Test
+    @DisplayName("STOPS_FAR_FROM_SHAPE_ARE_IGNORED")
+    void stopsFarFromShapeAreIgnored() {
+        ShapePolyline shape = new ShapePolyline("S1", new double[]{54.0}, new double[]{-7.0});
+
+        assertTrue(ShapeSlicer.slice(shape, List.of(stop(53.34, -6.26))).isEmpty());
+    }
+
+    @Test
+    @DisplayName("SUB_PATH_IS_A_VIEW")
+    void subPathIsAView() {
+        ShapePolyline shape = curvedShape(10);
+
+        List<Coordinates> view = shape.subPath(2, 5);
+
+        assertEquals(4, view.size());
+        assertEquals(new Coordinates(shape.lat(2), shape.lon(2)), view.get(0));
+        assertEquals(new Coordinates(shape.lat(5), shape.lon(5)), view.get(3));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(new Coordinates(0, 0)));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.get(4));
+    }
+}
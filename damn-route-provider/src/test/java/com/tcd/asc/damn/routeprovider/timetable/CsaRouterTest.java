@@ -0,0 +1,152 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsaRouterTest {
+
+    private static int time(int hours, int minutes) {
+        return hours * 3600 + minutes * 60;
+    }
+
+    private Timetable sampleTimetable() {
+        // Line A: A1 -> A2 -> A3 every 10 minutes, line B: B1 -> B2, with a 3 minute walk from A2 to B1
+        Timetable.Builder builder = Timetable.builder();
+        for (int start : new int[]{time(8, 0), time(8, 10), time(8, 20)}) {
+            builder.addTrip("A-" + start, List.of("A1", "A2", "A3"),
+                    new int[]{start, start + 300, start + 600}, new int[]{start, start + 300, start + 600});
+        }
+        for (int start : new int[]{time(8, 8), time(8, 18)}) {
+            builder.addTrip("B-" + start, List.of("B1", "B2"), new int[]{start, start + 300}, new int[]{start, start + 300});
+        }
+        builder.addTransfer("A2", "B1", 180);
+        return builder.build();
+    }
+
+    @Test
+    @DisplayName("CONNECTIONS_SORTED_BY_DEPARTURE")
+    void connectionsSortedByDeparture() {
+        Timetable timetable = sampleTimetable();
+
+        assertEquals(8, timetable.connectionCount());
+        for (int c = 1; c < timetable.connectionCount(); c++) {
+            assertTrue(timetable.connectionDeparture(c - 1) <= timetable.connectionDeparture(c));
+        }
+        int first = timetable.firstConnection(time(8, 9));
+        assertEquals(time(8, 10), timetable.connectionDeparture(first));
+        assertEquals(timetable.connectionCount(), timetable.firstConnection(time(9, 0)));
+    }
+
+    @Test
+    @DisplayName("TRANSFERS_VIA_FOOTPATH")
+    void transfersViaFootpath() {
+        Timetable timetable = sampleTimetable();
+
+        CsaResult result = new CsaRouter(timetable).route(new int[]{timetable.indexOf("A1")}, new int[]{time(8, 0)},
+                new int[]{timetable.indexOf("B2")});
+
+        assertEquals(time(8, 13), result.arrival(timetable.indexOf("B2")));
+        Journey journey = result.journeyTo(timetable.indexOf("B2"));
+        assertEquals(3, journey.getLegs().size());
+        assertEquals(List.of("A1", "A2"), journey.getLegs().get(0).getStopIds());
+        assertTrue(journey.getLegs().get(1).isTransfer());
+        assertEquals("B-" + time(8, 8), journey.getLegs().get(2).getTripId());
+        assertEquals(time(8, 0), journey.getDeparture());
+    }
+
+    @Test
+    @DisplayName("UNREACHABLE_AFTER_LAST_TRIP")
+    void unreachableAfterLastTrip() {
+        Timetable timetable = sampleTimetable();
+
+        CsaResult result = new CsaRouter(timetable).route(new int[]{timetable.indexOf("A1")}, new int[]{time(8, 21)},
+                new int[]{timetable.indexOf("A3")});
+
+        assertFalse(result.isReached(timetable.indexOf("A3")));
+        assertNull(result.journeyTo(timetable.indexOf("A3")));
+    }
+
+    @Test
+    @DisplayName("AGREES_WITH_RAPTOR_ON_RANDOM_TIMETABLES")
+    void agreesWithRaptorOnRandomTimetables() {
+        Random random = new Random(42);
+        for (int network = 0; network < 20; network++) {
+            Timetable timetable = randomTimetable(random, 25, 6);
+            for (int query = 0; query < 25; query++) {
+                int[] sources = {random.nextInt(timetable.stopCount()), random.nextInt(timetable.stopCount())};
+                int[] departures = {time(6, 0) + random.nextInt(7200), time(6, 0) + random.nextInt(7200)};
+                int[] targets = {random.nextInt(timetable.stopCount()), random.nextInt(timetable.stopCount())};
+
+                TimetableResult csa = new CsaRouter(timetable).route(sources, departures, targets);
+                TimetableResult raptor = new RaptorRouter(timetable, 50).route(sources, departures, targets);
+
+                for (int target : targets) {
+                    assertEquals(raptor.arrival(target), csa.arrival(target),
+                            "network " + network + ", query " + query + ", target " + timetable.stopId(target));
+                    Journey journey = csa.journeyTo(target);
+                    if (journey != null) {
+                        assertEquals(csa.arrival(target), journey.getArrival());
+                        assertJourneyIsConsistent(journey);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertJourneyIsConsistent(Journey journey) {
+        int time = journey.getDeparture();
+        String stop = journey.getOriginStopId();
+        for (Journey.Leg leg : journey.getLegs()) {
+            assertEquals(stop, leg.getStopIds().get(0));
+            assertTrue(leg.getDeparture() >= time, "leg departs before the previous one arrives");
+            assertTrue(leg.getArrival() >= leg.getDeparture());
+            time = leg.getArrival();
+            stop = leg.getStopIds().get(leg.getStopIds().size() - 1);
+        }
+        assertEquals(journey.getDestinationStopId(), stop);
+    }
+
+    private static Timetable randomTimetable(Random random, int stopCount, int lineCount) {
+        Timetable.Builder builder = Timetable.builder();
+        for (int stop = 0; stop < stopCount; stop++) {
+            builder.addStop("S" + stop);
+        }
+        for (int line = 0; line < lineCount; line++) {
+            List<String> stops = new ArrayList<>();
+            int length = 3 + random.nextInt(6);
+            while (stops.size() < length) {
+                String stop = "S" + random.nextInt(stopCount);
+                if (!stops.contains(stop)) {
+                    stops.add(stop);
+                }
+            }
+            int[] hops = new int[length];
+            for (int i = 1; i < length; i++) {
+                hops[i] = 60 + random.nextInt(300);
+            }
+            int headway = 300 + random.nextInt(900);
+            for (int start = time(6, 0) + random.nextInt(headway); start < time(9, 0); start += headway) {
+                int[] arrivals = new int[length];
+                int[] departures = new int[length];
+                int clock = start;
+                for (int i = 0; i < length; i++) {
+                    clock += hops[i];
+                    arrivals[i] = clock;
+                    clock += i > 0 && random.nextInt(4) == 0 ? 30 : 0; // Occasional dwell
+                    departures[i] = clock;
+                }
+                builder.addTrip("L" + line + "-" + start, stops, arrivals, departures);
+            }
+        }
+        for (int i = 0; i < stopCount; i++) {
+            builder.addTransfer("S" + random.nextInt(stopCount), "S" + random.nextInt(stopCount), 60 + random.nextInt(240));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.tcd.asc.damn.routeprovider.timetable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaptorRouterTest {
+
+    private static int time(int hours, int minutes) {
+        return hours * 3600 + minutes * 60;
+    }
+
+    private static void addTrip(Timetable.Builder builder, String tripId, List<String> stops, int firstDeparture, int hopMinutes) {
+        int[] times = new int[stops.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = firstDeparture + i * hopMinutes * 60;
+        }
+        assertTrue(builder.addTrip(tripId, stops, times, times));
+    }
+
+    private Timetable sampleTimetable() {
+        // Line A: A1 -> A2 -> A3 every 10 minutes, line B: B1 -> B2, with a 3 minute walk from A2 to B1
+        Timetable.Builder builder = Timetable.builder();
+        addTrip(builder, "A-0800", List.of("A1", "A2", "A3"), time(8, 0), 5);
+        addTrip(builder, "A-0810", List.of("A1", "A2", "A3"), time(8, 10), 5);
+        addTrip(builder, "A-0820", List.of("A1", "A2", "A3"), time(8, 20), 5);
+        addTrip(builder, "B-0808", List.of("B1", "B2"), time(8, 8), 5);
+        addTrip(builder, "B-0818", List.of("B1", "B2"), time(8, 18), 5);
+        builder.addTransfer("A2", "B1", 180);
+        return builder.build();
+    }
+
+    private RaptorResult route(Timetable timetable, String source, int departure, String target) {
+        return new RaptorRouter(timetable, 4).route(new int[]{timetable.indexOf(source)}, new int[]{departure},
+                new int[]{timetable.indexOf(target)});
+    }
+
+    @Test
+    @DisplayName("GROUPS_TRIPS_INTO_PATTERNS")
+    void groupsTripsIntoPatterns() {
+        Timetable timetable = sampleTimetable();
+
+        assertEquals(5, timetable.stopCount());
+        assertEquals(2, timetable.patternCount());
+        assertEquals(5, timetable.tripCount());
+        int pattern = timetable.tripPattern(timetable.firstTrip(0));
+        assertEquals("A-0810", timetable.tripId(timetable.earliestTrip(pattern, 0, time(8, 5))));
+        assertEquals(-1, timetable.earliestTrip(pattern, 0, time(8, 21)));
+    }
+
+    @Test
+    @DisplayName("REJECTS_TRIPS_GOING_BACK_IN_TIME")
+    void rejectsTripsGoingBackInTime() {
+        Timetable.Builder builder = Timetable.builder();
+        assertFalse(builder.addTrip("T", List.of("X", "Y"), new int[]{time(8, 0), time(7, 0)}, new int[]{time(8, 0), time(7, 0)}));
+        assertFalse(builder.addTrip("T", List.of("X"), new int[]{time(8, 0)}, new int[]{time(8, 0)}));
+    }
+
+    @Test
+    @DisplayName("WAITS_FOR_NEXT_DEPARTURE")
+    void waitsForNextDeparture() {
+        Timetable timetable = sampleTimetable();
+
+        RaptorResult result = route(timetable, "A1", time(8, 5), "A3");
+
+        assertEquals(time(8, 20), result.arrival(timetable.indexOf("A3")));
+        Journey journey = result.journeyTo(timetable.indexOf("A3"));
+        assertEquals(1, journey.getLegs().size());
+        assertEquals("A-0810", journey.getLegs().get(0).getTripId());
+        assertEquals(List.of("A1", "A2", "A3"), journey.getLegs().get(0).getStopIds());
+        assertEquals(time(8, 5), journey.getDeparture());
+    }
+
+    @Test
+    @DisplayName("TRANSFERS_VIA_FOOTPATH")
+    void transfersViaFootpath() {
+        Timetable timetable = sampleTimetable();
+
+        RaptorResult result = route(timetable, "A1", time(8, 0), "B2");
+
+        // A-0800 reaches A2 at 08:05, the walk reaches B1 at 08:08 in time for B-0808
+        assertEquals(time(8, 13), result.arrival(timetable.indexOf("B2")));
+        Journey journey = result.journeyTo(timetable.indexOf("B2"));
+        assertEquals("A1", journey.getOriginStopId());
+        assertEquals(3, journey.getLegs().size());
+        assertEquals("A-0800", journey.getLegs().get(0).getTripId());
+        assertTrue(journey.getLegs().get(1).isTransfer());
+        assertEquals(List.of("A2", "B1"), journey.getLegs().get(1).getStopIds());
+        assertEquals("B-0808", journey.getLegs().get(2).getTripId());
+        assertEquals(2, journey.rideCount());
+    }
+
+    @Test
+    @DisplayName("CHAINED_FOOTPATHS_ARE_CLOSED_UP_TO_THE_WALK_LIMIT")
+    void chainedFootpathsAreClosedUpToTheWalkLimit() {
+        // W0 -> W1 -> W2 -> W3, four minutes a hop
+        Timetable.Builder builder = Timetable.builder().maxWalkSeconds(500);
+        for (int i = 0; i < 3; i++) {
+            builder.addTransfer("W" + i, "W" + (i + 1), 240);
+        }
+        Timetable timetable = builder.build();
+
+        int w0 = timetable.indexOf("W0");
+        List<String> reachable = new ArrayList<>();
+        for (int t = timetable.firstTransfer(w0); t < timetable.lastTransfer(w0); t++) {
+            reachable.add(timetable.stopId(timetable.transferTarget(t)));
+        }
+        assertEquals(List.of("W1", "W2"), reachable.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("MISSED_CONNECTION_TAKES_LATER_TRIP")
+    void missedConnectionTakesLaterTrip() {
+        Timetable timetable = sampleTimetable();
+
+        RaptorResult result = route(timetable, "A1", time(8, 1), "B2");
+
+        // A-0810 reaches A2 at 08:15, walk to B1 by 08:18 for B-0818
+        assertEquals(time(8, 23), result.arrival(timetable.indexOf("B2")));
+        assertEquals("B-0818", result.journeyTo(timetable.indexOf("B2")).getLegs().get(2).getTripId());
+    }
+
+    @Test
+    @DisplayName("UNREACHABLE_AFTER_LAST_TRIP")
+    void unreachableAfterLastTrip() {
+        Timetable timetable = sampleTimetable();
+
+        RaptorResult result = route(timetable, "A1", time(8, 21), "A3");
+
+        assertFalse(result.isReached(timetable.indexOf("A3")));
+        assertNull(result.journeyTo(timetable.indexOf("A3")));
+    }
+
+    @Test
+    @DisplayName("OVERTAKING_TRIPS_GET_OWN_PATTERN")
+    void overtakingTripsGetOwnPattern() {
+        Timetable.Builder builder = Timetable.builder();
+        builder.addTrip("SLOW", List.of("X", "Y"), new int[]{time(8, 0), time(8, 30)}, new int[]{time(8, 0), time(8, 30)});
+        builder.addTrip("FAST", List.of("X", "Y"), new int[]{time(8, 5), time(8, 15)}, new int[]{time(8, 5), time(8, 15)});
+        Timetable timetable = builder.build();
+
+        assertEquals(2, timetable.patternCount());
+        RaptorResult result = route(timetable, "X", time(7, 55), "Y");
+        assertEquals(time(8, 15), result.arrival(timetable.indexOf("Y")));
+        assertEquals("FAST", result.journeyTo(timetable.indexOf("Y")).getLegs().get(0).getTripId());
+    }
+
+    @Test
+    @DisplayName("MULTIPLE_SOURCES_USE_OWN_DEPARTURES")
+    void multipleSourcesUseOwnDepartures() {
+        Timetable timetable = sampleTimetable();
+
+        // A2 is only available at 08:16 (long walk), A1 at 08:09
+        RaptorResult result = new RaptorRouter(timetable, 4).route(
+                new int[]{timetable.indexOf("A1"), timetable.indexOf("A2")}, new int[]{time(8, 9), time(8, 16)},
+                new int[]{timetable.indexOf("A3")});
+
+        assertEquals(time(8, 20), result.arrival(timetable.indexOf("A3")));
+        assertEquals("A1", result.journeyTo(timetable.indexOf("A3")).getOriginStopId());
+    }
+
+    @Test
+    @DisplayName("PRUNING_WAITS_FOR_EVERY_TARGET")
+    void pruningWaitsForEveryTarget() {
+        Timetable timetable = sampleTimetable();
+
+        // A1 is reached immediately as a source; that must not prune the ride to A3
+        RaptorResult result = new RaptorRouter(timetable, 4).route(new int[]{timetable.indexOf("A1")}, new int[]{time(8, 0)},
+                new int[]{timetable.indexOf("A1"), timetable.indexOf("A3")});
+
+        assertEquals(time(8, 0), result.arrival(timetable.indexOf("A1")));
+        assertEquals(time(8, 10), result.arrival(timetable.indexOf("A3")));
+        assertTrue(result.journeyTo(timetable.indexOf("A1")).getLegs().isEmpty());
+    }
+}
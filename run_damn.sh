@@ -71,6 +71,8 @@ elif [ "$action" == "seeddb" ]; then
   for file in "${seeding_files[@]}"; do
     docker exec -i damn_map_postgres psql -U damn -d damn_maps < "./data/postgres$file"
   done
+  # Drop reference data cached by a running data manager; fails harmlessly when it is not up
+  curl -s -X POST "http://localhost:8084/api/data-manager/reference-data/invalidate" || true
 
 elif [ "$action" == "run" ]; then
   mkdir -p logs pids